@@ -0,0 +1,131 @@
+package com.sbtl1.bench;
+
+import com.sbtl1.mod1.util.AnalysisOptions;
+import com.sbtl1.mod1.util.EntryPoint;
+import com.sbtl1.mod1.util.JavaParserCodeFlowAnalyzer;
+import com.sbtl1.mod1.util.MethodResolutionCache;
+import com.sbtl1.mod1.util.ParsedFileCache;
+import com.sbtl1.mod1.util.SnippetDocumentRenderer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the analysis engine against synthetic projects (see {@link SyntheticProjectGenerator}).
+ * The project is generated once per parameter combination below {@code java.io.tmpdir} and reused
+ * by later runs. The analyzer is indexed during setup, and each benchmark cycles through the
+ * project's entry points, so the numbers are those of a warmed-up server with the default cache
+ * sizes of the application.
+ * <p>
+ * {@code parallel} switches {@code analyzeCallFlow} to the fork/join traversal, which pays off
+ * with wide fan-out. With {@code parallel=true} setup first checks that the parallel traversal
+ * produces the same graph as the sequential one for every entry point.
+ * <p>
+ * Usage: {@code ./gradlew :bench:jmh}, or for selected benchmarks and sizes
+ * {@code java -jar bench/build/libs/bench-jmh.jar AnalyzerBenchmark -p classes=1000,10000 -p fanOut=64}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+public class AnalyzerBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int classes;
+
+    @Param({"4", "16", "64"})
+    public int fanOut;
+
+    @Param({"1"})
+    public int interfaceDepth;
+
+    @Param({"0.1"})
+    public double repositoryRatio;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private AnalysisOptions options;
+    private JavaParserCodeFlowAnalyzer analyzer;
+    private SnippetDocumentRenderer renderer;
+    private List<EntryPoint> entryPoints;
+    private List<JavaParserCodeFlowAnalyzer.CallGraph> graphs;
+    private List<EntryPoint> reachedMethods;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        SyntheticProjectGenerator generator =
+            new SyntheticProjectGenerator(classes, fanOut, interfaceDepth, repositoryRatio);
+        File directory = new File(System.getProperty("java.io.tmpdir"), "synthetic-projects/" + generator.getName());
+        SyntheticProjectGenerator.Project project = generator.generate(directory);
+
+        analyzer = new JavaParserCodeFlowAnalyzer(project.sourceRoot, new ParsedFileCache(),
+                                                  new MethodResolutionCache(),
+                                                  Runtime.getRuntime().availableProcessors(),
+                                                  JavaParserCodeFlowAnalyzer.TYPE_SOLVER_CACHE_UNBOUNDED);
+        analyzer.warmUp();
+        renderer = new SnippetDocumentRenderer(analyzer);
+        entryPoints = project.entryPoints;
+        options = AnalysisOptions.defaults().withParallel(parallel);
+
+        // Graphs and reached methods for the rendering and extraction benchmarks
+        graphs = new ArrayList<>(entryPoints.size());
+        reachedMethods = new ArrayList<>();
+        for (EntryPoint entryPoint : entryPoints) {
+            JavaParserCodeFlowAnalyzer.CallGraph graph = analyzer.analyzeCallFlow(entryPoint.className,
+                                                                                  entryPoint.methodName, options);
+            if (parallel) {
+                CallGraphChecks.checkSameGraph(
+                    analyzer.analyzeCallFlow(entryPoint.className, entryPoint.methodName,
+                                             options.withParallel(false)),
+                    graph, entryPoint + " (parallel traversal)");
+            }
+            graphs.add(graph);
+            for (String className : graph.getClasses()) {
+                for (String methodName : graph.getMethods(className)) {
+                    reachedMethods.add(new EntryPoint(className, methodName));
+                }
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        analyzer.close();
+    }
+
+    private int nextIndex(int size) {
+        int index = next;
+        next = (index + 1) % size;
+        return index;
+    }
+
+    @Benchmark
+    public JavaParserCodeFlowAnalyzer.CallGraph analyzeCallFlow() {
+        EntryPoint entryPoint = entryPoints.get(nextIndex(entryPoints.size()));
+        return analyzer.analyzeCallFlow(entryPoint.className, entryPoint.methodName, options);
+    }
+
+    @Benchmark
+    public String extractMethodSource() {
+        EntryPoint method = reachedMethods.get(nextIndex(reachedMethods.size()));
+        return renderer.extractMethodSource(method.className, method.methodName);
+    }
+
+    @Benchmark
+    public void renderSnippets() throws IOException {
+        int index = nextIndex(graphs.size());
+        EntryPoint entryPoint = entryPoints.get(index);
+        renderer.render(entryPoint.className, entryPoint.methodName, graphs.get(index), Writer.nullWriter(),
+                        new HashSet<>());
+    }
+}
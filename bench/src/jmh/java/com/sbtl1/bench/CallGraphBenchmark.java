@@ -0,0 +1,79 @@
+package com.sbtl1.bench;
+
+import com.sbtl1.mod1.util.JavaParserCodeFlowAnalyzer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building, compacting and querying call graphs of synthetic shape, independently of
+ * parsing: {@code edges / fanOut} methods in classes of ten, each calling {@code fanOut} random methods.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx4g"})
+public class CallGraphBenchmark {
+    private static final int METHODS_PER_CLASS = 10;
+
+    @Param({"10000", "100000", "1000000"})
+    public int edges;
+
+    @Param({"10"})
+    public int fanOut;
+
+    private int classes;
+    private JavaParserCodeFlowAnalyzer.CallGraph compactGraph;
+    private List<String[]> methods;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        classes = Math.max(1, edges / fanOut / METHODS_PER_CLASS);
+        compactGraph = CallGraphMemoryBenchmark.buildGraph(classes, METHODS_PER_CLASS, fanOut, new Random(42)).compact();
+        methods = new ArrayList<>();
+        for (String className : compactGraph.getClasses()) {
+            for (String methodName : compactGraph.getMethods(className)) {
+                methods.add(new String[] {className, methodName});
+            }
+        }
+    }
+
+    private String[] nextMethod() {
+        String[] method = methods.get(next);
+        next = (next + 1) % methods.size();
+        return method;
+    }
+
+    @Benchmark
+    public JavaParserCodeFlowAnalyzer.CallGraph buildAndCompact() {
+        return CallGraphMemoryBenchmark.buildGraph(classes, METHODS_PER_CLASS, fanOut, new Random(42)).compact();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public List<JavaParserCodeFlowAnalyzer.MethodCall> getCalls() {
+        String[] method = nextMethod();
+        return compactGraph.getCalls(method[0], method[1]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public List<String> getCallers() {
+        String[] method = nextMethod();
+        return compactGraph.getCallers(method[0], method[1]);
+    }
+
+    @Benchmark
+    public void iterateAllCalls(Blackhole blackhole) {
+        for (JavaParserCodeFlowAnalyzer.MethodCall call : compactGraph.getAllCalls()) {
+            blackhole.consume(call);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.sbtl1.bench;
+
+import com.sbtl1.mod1.util.EntryPoint;
+import com.sbtl1.mod1.util.JavaParserCodeFlowAnalyzer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Checks run by the benchmarks during setup, so a configuration that produces wrong graphs
+ * fails instead of reporting a number
+ */
+final class CallGraphChecks {
+
+    private CallGraphChecks() {
+    }
+
+    /**
+     * Throws unless every graph has the same calls per method and the same frontier as the
+     * expected graph of its entry point
+     *
+     * @param description what produced the actual graphs, for the error message
+     */
+    static void checkSameGraphs(Map<EntryPoint, JavaParserCodeFlowAnalyzer.CallGraph> expected,
+                                Map<EntryPoint, JavaParserCodeFlowAnalyzer.CallGraph> actual, String description) {
+        for (Map.Entry<EntryPoint, JavaParserCodeFlowAnalyzer.CallGraph> entry : expected.entrySet()) {
+            EntryPoint entryPoint = entry.getKey();
+            JavaParserCodeFlowAnalyzer.CallGraph graph = actual.get(entryPoint);
+            if (graph == null) {
+                throw new IllegalStateException(description + " produced no graph for " + entryPoint);
+            }
+            checkSameGraph(entry.getValue(), graph, entryPoint + " (" + description + ")");
+        }
+    }
+
+    static void checkSameGraph(JavaParserCodeFlowAnalyzer.CallGraph expected,
+                               JavaParserCodeFlowAnalyzer.CallGraph actual, String description) {
+        Map<String, Map<String, List<JavaParserCodeFlowAnalyzer.MethodCall>>> expectedCalls = expected.getCallMap();
+        Map<String, Map<String, List<JavaParserCodeFlowAnalyzer.MethodCall>>> actualCalls = actual.getCallMap();
+        if (!expectedCalls.equals(actualCalls)) {
+            throw new IllegalStateException("Call graph of " + description + " differs: expected " +
+                                            describe(expectedCalls) + ", got " + describe(actualCalls));
+        }
+        if (!Objects.equals(expected.getFrontier(), actual.getFrontier())) {
+            throw new IllegalStateException("Frontier of " + description + " differs: expected " +
+                                            expected.getFrontier() + ", got " + actual.getFrontier());
+        }
+    }
+
+    private static String describe(Map<String, Map<String, List<JavaParserCodeFlowAnalyzer.MethodCall>>> callMap) {
+        int methods = 0;
+        int calls = 0;
+        for (Map<String, List<JavaParserCodeFlowAnalyzer.MethodCall>> methodCalls : callMap.values()) {
+            methods += methodCalls.size();
+            for (List<JavaParserCodeFlowAnalyzer.MethodCall> list : methodCalls.values()) {
+                calls += list.size();
+            }
+        }
+        return methods + " methods and " + calls + " calls";
+    }
+}
@@ -0,0 +1,144 @@
+package com.sbtl1.bench;
+
+import com.sbtl1.mod1.util.AnalysisOptions;
+import com.sbtl1.mod1.util.EntryPoint;
+import com.sbtl1.mod1.util.JavaParserCodeFlowAnalyzer;
+import com.sbtl1.mod1.util.MethodResolutionCache;
+import com.sbtl1.mod1.util.ParsedFileCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures the throughput of one shared analyzer under concurrent requests: each benchmark
+ * calls {@code analyzeCallFlow} from a fixed number of threads against the same analyzer and
+ * caches, cycling through the entry points of a synthetic project (see
+ * {@link SyntheticProjectGenerator}). JMH reports the analyses per second summed over the threads,
+ * so the scaling from 1 to 2, 4 and all processors shows how much the shared caches and locks
+ * serialize the requests.
+ * <p>
+ * Setup first checks correctness under contention: {@value #CHECK_THREADS} threads analyze every
+ * entry point at once, each starting at a different one, against a cold analyzer, and each
+ * graph must equal the one a separate single-threaded analyzer produces.
+ * <p>
+ * Usage: {@code java -jar bench/build/libs/bench-jmh.jar ConcurrencyBenchmark -p classes=10000}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+public class ConcurrencyBenchmark {
+    private static final int CHECK_THREADS = 8;
+
+    @Param({"1000", "10000"})
+    public int classes;
+
+    @Param({"4"})
+    public int fanOut;
+
+    @Param({"1"})
+    public int interfaceDepth;
+
+    @Param({"0.1"})
+    public double repositoryRatio;
+
+    private JavaParserCodeFlowAnalyzer analyzer;
+    private List<EntryPoint> entryPoints;
+    private final AtomicInteger next = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException, ExecutionException {
+        SyntheticProjectGenerator generator =
+            new SyntheticProjectGenerator(classes, fanOut, interfaceDepth, repositoryRatio);
+        File directory = new File(System.getProperty("java.io.tmpdir"), "synthetic-projects/" + generator.getName());
+        SyntheticProjectGenerator.Project project = generator.generate(directory);
+        entryPoints = project.entryPoints;
+
+        Map<EntryPoint, JavaParserCodeFlowAnalyzer.CallGraph> expected;
+        try (JavaParserCodeFlowAnalyzer sequential = newAnalyzer(project.sourceRoot, 1)) {
+            expected = sequential.analyzeCallFlows(entryPoints, AnalysisOptions.defaults());
+        }
+
+        analyzer = newAnalyzer(project.sourceRoot, Runtime.getRuntime().availableProcessors());
+        // Only the index is built up front; the parse cache and the per-thread solvers start cold
+        analyzer.getSymbolIndex();
+        ExecutorService threads = Executors.newFixedThreadPool(CHECK_THREADS);
+        try {
+            List<Future<Map<EntryPoint, JavaParserCodeFlowAnalyzer.CallGraph>>> results = new ArrayList<>();
+            for (int thread = 0; thread < CHECK_THREADS; thread++) {
+                int offset = thread * entryPoints.size() / CHECK_THREADS;
+                results.add(threads.submit(() -> analyzeAll(offset)));
+            }
+            for (int thread = 0; thread < CHECK_THREADS; thread++) {
+                CallGraphChecks.checkSameGraphs(expected, results.get(thread).get(),
+                                                "thread " + thread + " of " + CHECK_THREADS);
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        analyzer.close();
+    }
+
+    private static JavaParserCodeFlowAnalyzer newAnalyzer(File sourceRoot, int parallelism) {
+        return new JavaParserCodeFlowAnalyzer(sourceRoot, new ParsedFileCache(), new MethodResolutionCache(),
+                                              parallelism, JavaParserCodeFlowAnalyzer.TYPE_SOLVER_CACHE_UNBOUNDED);
+    }
+
+    /**
+     * Analyzes every entry point one at a time, starting at the given one
+     */
+    private Map<EntryPoint, JavaParserCodeFlowAnalyzer.CallGraph> analyzeAll(int offset) {
+        Map<EntryPoint, JavaParserCodeFlowAnalyzer.CallGraph> graphs = new LinkedHashMap<>();
+        for (int i = 0; i < entryPoints.size(); i++) {
+            EntryPoint entryPoint = entryPoints.get((offset + i) % entryPoints.size());
+            graphs.put(entryPoint, analyzer.analyzeCallFlow(entryPoint.className, entryPoint.methodName));
+        }
+        return graphs;
+    }
+
+    private JavaParserCodeFlowAnalyzer.CallGraph analyzeNext() {
+        EntryPoint entryPoint = entryPoints.get(Math.floorMod(next.getAndIncrement(), entryPoints.size()));
+        return analyzer.analyzeCallFlow(entryPoint.className, entryPoint.methodName);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public JavaParserCodeFlowAnalyzer.CallGraph analyzeCallFlow1Thread() {
+        return analyzeNext();
+    }
+
+    @Benchmark
+    @Threads(2)
+    public JavaParserCodeFlowAnalyzer.CallGraph analyzeCallFlow2Threads() {
+        return analyzeNext();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public JavaParserCodeFlowAnalyzer.CallGraph analyzeCallFlow4Threads() {
+        return analyzeNext();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public JavaParserCodeFlowAnalyzer.CallGraph analyzeCallFlowAllThreads() {
+        return analyzeNext();
+    }
+}
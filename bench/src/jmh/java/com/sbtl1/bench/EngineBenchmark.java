@@ -0,0 +1,105 @@
+package com.sbtl1.bench;
+
+import com.sbtl1.mod1.util.AnalysisOptions;
+import com.sbtl1.mod1.util.EntryPoint;
+import com.sbtl1.mod1.util.JavaParserCodeFlowAnalyzer;
+import com.sbtl1.mod1.util.MethodResolutionCache;
+import com.sbtl1.mod1.util.ParsedFileCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the source engine, which parses the project and resolves every call with the symbol
+ * solver, with the bytecode engine, which reads the call graph from the compiled classes. The
+ * synthetic project (see {@link SyntheticProjectGenerator}) is compiled once below
+ * {@code java.io.tmpdir} next to its sources.
+ * <p>
+ * {@code coldStart} measures a fresh analyzer, index or class scan included, analyzing
+ * {@value #COLD_ENTRY_POINTS} entry points: the latency of the first requests after startup or
+ * after the caches were dropped. {@code analyzeCallFlow} measures single analyses of a warmed-up
+ * analyzer, like {@link AnalyzerBenchmark}.
+ * <p>
+ * Usage: {@code java -jar bench/build/libs/bench-jmh.jar EngineBenchmark -p classes=10000}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+public class EngineBenchmark {
+    private static final int COLD_ENTRY_POINTS = 20;
+
+    @Param({"source", "bytecode"})
+    public String engine;
+
+    @Param({"1000", "10000"})
+    public int classes;
+
+    @Param({"4"})
+    public int fanOut;
+
+    @Param({"1"})
+    public int interfaceDepth;
+
+    @Param({"0.1"})
+    public double repositoryRatio;
+
+    private File sourceRoot;
+    private AnalysisOptions options;
+    private JavaParserCodeFlowAnalyzer analyzer;
+    private List<EntryPoint> entryPoints;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        SyntheticProjectGenerator generator =
+            new SyntheticProjectGenerator(classes, fanOut, interfaceDepth, repositoryRatio);
+        File directory = new File(System.getProperty("java.io.tmpdir"), "synthetic-projects/" + generator.getName());
+        SyntheticProjectGenerator.Project project = generator.generate(directory);
+        SyntheticProjectGenerator.compile(directory);
+
+        sourceRoot = project.sourceRoot;
+        entryPoints = project.entryPoints;
+        options = AnalysisOptions.defaults().withEngine(AnalysisOptions.Engine.valueOf(engine.toUpperCase()));
+        analyzer = newAnalyzer();
+        for (EntryPoint entryPoint : entryPoints) {
+            analyzer.analyzeCallFlow(entryPoint.className, entryPoint.methodName, options);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        analyzer.close();
+    }
+
+    private JavaParserCodeFlowAnalyzer newAnalyzer() {
+        return new JavaParserCodeFlowAnalyzer(sourceRoot, new ParsedFileCache(), new MethodResolutionCache(),
+                                              Runtime.getRuntime().availableProcessors(),
+                                              JavaParserCodeFlowAnalyzer.TYPE_SOLVER_CACHE_UNBOUNDED);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 5)
+    public Map<EntryPoint, JavaParserCodeFlowAnalyzer.CallGraph> coldStart() {
+        try (JavaParserCodeFlowAnalyzer cold = newAnalyzer()) {
+            return cold.analyzeCallFlows(entryPoints.subList(0, Math.min(COLD_ENTRY_POINTS, entryPoints.size())),
+                                         options);
+        }
+    }
+
+    @Benchmark
+    public JavaParserCodeFlowAnalyzer.CallGraph analyzeCallFlow() {
+        EntryPoint entryPoint = entryPoints.get(next);
+        next = (next + 1) % entryPoints.size();
+        return analyzer.analyzeCallFlow(entryPoint.className, entryPoint.methodName, options);
+    }
+}
@@ -0,0 +1,71 @@
+package com.sbtl1.bench;
+
+import com.sbtl1.mod1.util.JavaParserCodeFlowAnalyzer;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the heap retained by a call graph in the map-based form used while analyzing
+ * and in the compact form it is converted to afterwards.
+ * <p>
+ * The graph is synthetic: {@code classes} classes with {@code methodsPerClass} methods each,
+ * every method calling {@code fanOut} random methods through one of a few field names.
+ * Call sites get their own name strings, as they do when they come from a parsed AST.
+ * <p>
+ * Usage: {@code ./gradlew :bench:callGraphMemory --args="[edges] [fanOut]"}
+ */
+public class CallGraphMemoryBenchmark {
+
+    public static void main(String[] args) {
+        int edges = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int fanOut = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int methodsPerClass = 10;
+        int nodes = Math.max(1, edges / fanOut);
+        int classes = Math.max(1, nodes / methodsPerClass);
+
+        JavaParserCodeFlowAnalyzer.CallGraph callGraph = buildGraph(classes, methodsPerClass, fanOut, new Random(42));
+        long mapBytes = GraphLayout.parseInstance(callGraph).totalSize();
+        int edgeCount = callGraph.getEdgeCount();
+
+        callGraph.compact();
+        long compactBytes = GraphLayout.parseInstance(callGraph).totalSize();
+
+        System.out.printf("Graph: %d classes, %d nodes, %d edges%n", classes, callGraph.getNodeCount(), edgeCount);
+        System.out.printf("%-10s %14s %20s %14s%n", "form", "total bytes", "bytes per 100k edges", "bytes per edge");
+        print("map", mapBytes, edgeCount);
+        print("compact", compactBytes, edgeCount);
+        System.out.printf("Compact form uses %.1f%% of the map-based heap%n", 100.0 * compactBytes / mapBytes);
+    }
+
+    private static void print(String form, long bytes, int edges) {
+        System.out.printf("%-10s %14d %20d %14.1f%n", form, bytes, bytes * 100_000 / edges, (double) bytes / edges);
+    }
+
+    static JavaParserCodeFlowAnalyzer.CallGraph buildGraph(int classes, int methodsPerClass, int fanOut, Random random) {
+        String[] classNames = new String[classes];
+        for (int c = 0; c < classes; c++) {
+            classNames[c] = "com.example.generated.pkg" + (c % 50) + ".Class" + c;
+        }
+        String[] fieldNames = {"repository", "service", "client", "mapper", "validator"};
+
+        JavaParserCodeFlowAnalyzer.CallGraph callGraph = new JavaParserCodeFlowAnalyzer.CallGraph();
+        for (int c = 0; c < classes; c++) {
+            for (int m = 0; m < methodsPerClass; m++) {
+                List<JavaParserCodeFlowAnalyzer.MethodCall> calls = new ArrayList<>(fanOut);
+                for (int i = 0; i < fanOut; i++) {
+                    int target = random.nextInt(classes);
+                    // new String(...) mirrors the per-call-site strings produced by the parser
+                    calls.add(new JavaParserCodeFlowAnalyzer.MethodCall(
+                        new String(fieldNames[random.nextInt(fieldNames.length)]),
+                        classNames[target],
+                        new String("method" + random.nextInt(methodsPerClass))));
+                }
+                callGraph.addNode(classNames[c], "method" + m, calls);
+            }
+        }
+        return callGraph;
+    }
+}
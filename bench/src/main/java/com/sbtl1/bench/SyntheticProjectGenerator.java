@@ -0,0 +1,433 @@
+package com.sbtl1.bench;
+
+import com.sbtl1.mod1.util.EntryPoint;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Writes a synthetic Spring-style source tree for benchmarking the analysis engine.
+ * <p>
+ * The project is split into modules of {@value #MODULE_SIZE} types, each in its own package.
+ * A module holds controllers, services arranged in {@value #LAYERS} layers, repositories and
+ * the entities they manage. Controllers call the first service layer, each layer calls the next
+ * one and the last layer calls repositories, so call depth stays bounded as the project grows.
+ * Every service implements an interface that extends {@code interfaceDepth - 1} further
+ * interfaces; with an interface depth of 0 services are plain classes. Dependencies are
+ * injected fields that mostly stay within the module; some calls go through {@code this.field},
+ * which the analyzer resolves with the symbol solver rather than its field table.
+ * <p>
+ * Generation is deterministic for the same parameters.
+ * <p>
+ * Usage: {@code ./gradlew :bench:generateSyntheticProject --args="<dir> [classes] [fanOut] [interfaceDepth] [repositoryRatio]"}
+ */
+public class SyntheticProjectGenerator {
+    static final int MODULE_SIZE = 100;
+    static final int LAYERS = 3;
+    static final int CONTROLLERS_PER_MODULE = 2;
+    static final int METHODS_PER_CLASS = 5;
+    static final String BASE_PACKAGE = "com.example.synthetic";
+    private static final double CROSS_MODULE_RATIO = 0.1;
+    private static final int FIELD_ACCESS_CALL_INTERVAL = 4;
+
+    private final int classes;
+    private final int fanOut;
+    private final int interfaceDepth;
+    private final double repositoryRatio;
+    private final long seed;
+
+    /**
+     * The generated project: where it is, how many types it has and its controller entry points
+     */
+    public static class Project {
+        public final File sourceRoot;
+        public final int typeCount;
+        public final List<EntryPoint> entryPoints;
+
+        Project(File sourceRoot, int typeCount, List<EntryPoint> entryPoints) {
+            this.sourceRoot = sourceRoot;
+            this.typeCount = typeCount;
+            this.entryPoints = entryPoints;
+        }
+    }
+
+    /**
+     * The types of one module, by role
+     */
+    private static class Module {
+        final String packageName;
+        final List<String> controllers = new ArrayList<>();
+        /** Service types callers depend on, by layer: the interfaces, or the classes without interfaces */
+        final List<List<String>> services = new ArrayList<>();
+        final List<String> repositories = new ArrayList<>();
+
+        Module(int index) {
+            this.packageName = BASE_PACKAGE + ".m" + index;
+            for (int layer = 0; layer < LAYERS; layer++) {
+                services.add(new ArrayList<>());
+            }
+        }
+    }
+
+    /**
+     * @param classes approximate number of types to generate
+     * @param fanOut calls per method, and injected dependencies per class
+     * @param interfaceDepth interfaces above each service implementation
+     * @param repositoryRatio fraction of the types that are repositories; as many again are entities
+     */
+    public SyntheticProjectGenerator(int classes, int fanOut, int interfaceDepth, double repositoryRatio) {
+        this(classes, fanOut, interfaceDepth, repositoryRatio, 42);
+    }
+
+    public SyntheticProjectGenerator(int classes, int fanOut, int interfaceDepth, double repositoryRatio, long seed) {
+        if (classes < MODULE_SIZE / 2) {
+            throw new IllegalArgumentException("classes must be at least " + MODULE_SIZE / 2 + ": " + classes);
+        }
+        if (fanOut <= 0 || interfaceDepth < 0 || repositoryRatio < 0 || repositoryRatio >= 0.5) {
+            throw new IllegalArgumentException("Invalid parameters: fanOut=" + fanOut + ", interfaceDepth=" +
+                                               interfaceDepth + ", repositoryRatio=" + repositoryRatio);
+        }
+        this.classes = classes;
+        this.fanOut = fanOut;
+        this.interfaceDepth = interfaceDepth;
+        this.repositoryRatio = repositoryRatio;
+        this.seed = seed;
+    }
+
+    /**
+     * A directory name that identifies the generated project, so it can be reused between runs
+     */
+    public String getName() {
+        return "c" + classes + "-f" + fanOut + "-d" + interfaceDepth + "-r" + repositoryRatio + "-s" + seed;
+    }
+
+    /**
+     * Generates the project below {@code directory}/src/main/java unless the same project is already there
+     */
+    public Project generate(File directory) throws IOException {
+        File sourceRoot = new File(directory, "src/main/java");
+        File marker = new File(directory, ".complete");
+        Random random = new Random(seed);
+        List<Module> modules = plan();
+        boolean write = !marker.isFile();
+        if (write && directory.exists()) {
+            deleteRecursively(directory);
+        }
+
+        int typeCount = 0;
+        for (Module module : modules) {
+            typeCount += writeModule(module, modules, sourceRoot, random, write);
+        }
+        if (write) {
+            Files.writeString(marker.toPath(), typeCount + "\n");
+        }
+
+        List<EntryPoint> entryPoints = new ArrayList<>();
+        for (Module module : modules) {
+            for (String controller : module.controllers) {
+                for (int m = 0; m < METHODS_PER_CLASS; m++) {
+                    entryPoints.add(new EntryPoint(controller, "endpoint" + m));
+                }
+            }
+        }
+        return new Project(sourceRoot, typeCount, Collections.unmodifiableList(entryPoints));
+    }
+
+    /**
+     * Names every type of every module before any is written, so fields can refer to other modules
+     */
+    private List<Module> plan() {
+        int moduleCount = Math.max(1, Math.round((float) classes / MODULE_SIZE));
+        int repositories = (int) Math.round(MODULE_SIZE * repositoryRatio);
+        int groupSize = interfaceDepth + 1;
+        int serviceGroups = Math.max(LAYERS, (MODULE_SIZE - CONTROLLERS_PER_MODULE - 2 * repositories) / groupSize);
+
+        List<Module> modules = new ArrayList<>(moduleCount);
+        for (int i = 0; i < moduleCount; i++) {
+            Module module = new Module(i);
+            String prefix = module.packageName + ".M" + i;
+            for (int c = 0; c < CONTROLLERS_PER_MODULE; c++) {
+                module.controllers.add(prefix + "Controller" + c);
+            }
+            for (int s = 0; s < serviceGroups; s++) {
+                module.services.get(s % LAYERS).add(prefix + "Service" + s);
+            }
+            for (int r = 0; r < repositories; r++) {
+                module.repositories.add(prefix + "Item" + r + "Repository");
+            }
+            modules.add(module);
+        }
+        return modules;
+    }
+
+    /**
+     * Writes the types of one module, or only draws the same random numbers if {@code write} is false
+     *
+     * @return the number of types in the module
+     */
+    private int writeModule(Module module, List<Module> modules, File sourceRoot, Random random,
+                            boolean write) throws IOException {
+        File packageDir = new File(sourceRoot, module.packageName.replace('.', File.separatorChar));
+        if (write) {
+            Files.createDirectories(packageDir.toPath());
+        }
+        int typeCount = 0;
+
+        for (String controller : module.controllers) {
+            List<String> dependencies = pickDependencies(module, modules, 0, random);
+            write(packageDir, controller, classSource(controller, null, dependencies, "RestController",
+                                                      "endpoint", random), write);
+            typeCount++;
+        }
+
+        for (int layer = 0; layer < LAYERS; layer++) {
+            for (String service : module.services.get(layer)) {
+                List<String> dependencies = pickDependencies(module, modules, layer + 1, random);
+                if (interfaceDepth == 0) {
+                    write(packageDir, service, classSource(service, null, dependencies, "Service", "process", random),
+                          write);
+                    typeCount++;
+                    continue;
+                }
+                // Service extends ServiceBase1 ... extends ServiceBase<depth-1>; ServiceImpl implements Service
+                for (int level = 0; level < interfaceDepth; level++) {
+                    String name = level == 0 ? service : service + "Base" + level;
+                    String parent = level + 1 < interfaceDepth ? service + "Base" + (level + 1) : null;
+                    write(packageDir, name, interfaceSource(name, parent, level + 1 == interfaceDepth), write);
+                    typeCount++;
+                }
+                String implementation = service + "Impl";
+                write(packageDir, implementation, classSource(implementation, service, dependencies, "Service",
+                                                              "process", random), write);
+                typeCount++;
+            }
+        }
+
+        for (String repository : module.repositories) {
+            String entity = repository.substring(0, repository.length() - "Repository".length());
+            write(packageDir, repository, repositorySource(repository, entity), write);
+            write(packageDir, entity, entitySource(entity), write);
+            typeCount += 2;
+        }
+        return typeCount;
+    }
+
+    /**
+     * Picks the injected dependencies of a class in the given module: services of the given
+     * layer, or repositories below the last layer, mostly from the same module
+     */
+    private List<String> pickDependencies(Module module, List<Module> modules, int layer, Random random) {
+        TreeSet<String> dependencies = new TreeSet<>();
+        for (int i = 0; i < fanOut; i++) {
+            Module target = random.nextDouble() < CROSS_MODULE_RATIO ? modules.get(random.nextInt(modules.size()))
+                                                                     : module;
+            List<String> candidates = layer < LAYERS ? target.services.get(layer) : target.repositories;
+            if (candidates.isEmpty()) {
+                candidates = target.services.get(LAYERS - 1);
+            }
+            dependencies.add(candidates.get(random.nextInt(candidates.size())));
+        }
+        return new ArrayList<>(dependencies);
+    }
+
+    private String classSource(String name, String implemented, List<String> dependencies, String stereotype,
+                               String methodPrefix, Random random) {
+        StringBuilder source = header(name);
+        for (String dependency : dependencies) {
+            if (!packageOf(dependency).equals(packageOf(name))) {
+                source.append("import ").append(dependency).append(";\n");
+            }
+        }
+        source.append("import org.springframework.beans.factory.annotation.Autowired;\n");
+        if (stereotype.equals("RestController")) {
+            source.append("import org.springframework.web.bind.annotation.GetMapping;\n");
+            source.append("import org.springframework.web.bind.annotation.RestController;\n");
+        } else {
+            source.append("import org.springframework.stereotype.Service;\n");
+        }
+        source.append("\n@").append(stereotype).append("\n");
+        source.append("public class ").append(simpleName(name));
+        if (implemented != null) {
+            source.append(" implements ").append(simpleName(implemented));
+        }
+        source.append(" {\n");
+
+        List<String> fields = new ArrayList<>();
+        for (int i = 0; i < dependencies.size(); i++) {
+            String field = "dependency" + i;
+            fields.add(field);
+            source.append("    @Autowired\n");
+            source.append("    private ").append(simpleName(dependencies.get(i))).append(' ').append(field).append(";\n");
+        }
+
+        for (int m = 0; m < METHODS_PER_CLASS; m++) {
+            source.append('\n');
+            if (stereotype.equals("RestController")) {
+                source.append("    @GetMapping(\"/").append(simpleName(name)).append('/').append(m).append("\")\n");
+            } else if (implemented != null) {
+                source.append("    @Override\n");
+            }
+            source.append("    public int ").append(methodPrefix).append(m).append("(int input) {\n");
+            source.append("        int result = input;\n");
+            for (int c = 0; c < fanOut; c++) {
+                int dependency = random.nextInt(fields.size());
+                String receiver = (c % FIELD_ACCESS_CALL_INTERVAL == FIELD_ACCESS_CALL_INTERVAL - 1 ? "this." : "")
+                                  + fields.get(dependency);
+                if (dependencies.get(dependency).endsWith("Repository")) {
+                    source.append("        result += ").append(receiver).append(".findByValueGreaterThan(result).size();\n");
+                } else {
+                    source.append("        result += ").append(receiver).append(".process")
+                          .append(random.nextInt(METHODS_PER_CLASS)).append("(result);\n");
+                }
+            }
+            source.append("        return result;\n");
+            source.append("    }\n");
+        }
+        return source.append("}\n").toString();
+    }
+
+    private static String interfaceSource(String name, String parent, boolean declaresMethods) {
+        StringBuilder source = header(name);
+        source.append("public interface ").append(simpleName(name));
+        if (parent != null) {
+            source.append(" extends ").append(simpleName(parent));
+        }
+        source.append(" {\n");
+        if (declaresMethods) {
+            for (int m = 0; m < METHODS_PER_CLASS; m++) {
+                source.append("    int process").append(m).append("(int input);\n");
+            }
+        }
+        return source.append("}\n").toString();
+    }
+
+    private static String repositorySource(String name, String entity) {
+        String entityName = simpleName(entity);
+        return header(name)
+            .append("import java.util.List;\n")
+            .append("import org.springframework.data.jpa.repository.JpaRepository;\n")
+            .append("import org.springframework.stereotype.Repository;\n\n")
+            .append("@Repository\n")
+            .append("public interface ").append(simpleName(name))
+            .append(" extends JpaRepository<").append(entityName).append(", Long> {\n")
+            .append("    List<").append(entityName).append("> findByValueGreaterThan(int value);\n")
+            .append("}\n")
+            .toString();
+    }
+
+    private static String entitySource(String name) {
+        return header(name)
+            .append("import jakarta.persistence.Entity;\n")
+            .append("import jakarta.persistence.Id;\n\n")
+            .append("@Entity\n")
+            .append("public class ").append(simpleName(name)).append(" {\n")
+            .append("    @Id\n")
+            .append("    private Long id;\n")
+            .append("    private int value;\n\n")
+            .append("    public Long getId() {\n        return id;\n    }\n\n")
+            .append("    public int getValue() {\n        return value;\n    }\n")
+            .append("}\n")
+            .toString();
+    }
+
+    /**
+     * Compiles a generated project into {@code directory}/build/classes/java/main, where the bytecode
+     * engine finds it, unless it has been compiled before. The generated sources need Spring and JPA
+     * on the class path of the running JVM.
+     */
+    public static File compile(File directory) throws IOException {
+        File sourceRoot = new File(directory, "src/main/java");
+        File classesDir = new File(directory, "build/classes/java/main");
+        File marker = new File(directory, ".compiled");
+        if (marker.isFile()) {
+            return classesDir;
+        }
+        if (classesDir.exists()) {
+            deleteRecursively(classesDir);
+        }
+        Files.createDirectories(classesDir.toPath());
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("No Java compiler available; run on a JDK");
+        }
+        List<File> sources;
+        try (Stream<Path> paths = Files.walk(sourceRoot.toPath())) {
+            sources = paths.filter(path -> path.toString().endsWith(".java")).map(Path::toFile)
+                           .collect(Collectors.toList());
+        }
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+            List<String> options = List.of("-d", classesDir.getPath(),
+                                           "-classpath", System.getProperty("java.class.path"),
+                                           "-proc:none", "-nowarn");
+            boolean compiled = compiler.getTask(null, fileManager, null, options, null,
+                                                fileManager.getJavaFileObjectsFromFiles(sources)).call();
+            if (!compiled) {
+                throw new IllegalStateException("Compiling " + sourceRoot + " failed");
+            }
+        }
+        Files.writeString(marker.toPath(), sources.size() + "\n");
+        return classesDir;
+    }
+
+    private static StringBuilder header(String name) {
+        return new StringBuilder(1024).append("package ").append(packageOf(name)).append(";\n\n");
+    }
+
+    private static void write(File packageDir, String name, String source, boolean write) throws IOException {
+        if (write) {
+            Files.writeString(new File(packageDir, simpleName(name) + ".java").toPath(), source, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String packageOf(String name) {
+        return name.substring(0, name.lastIndexOf('.'));
+    }
+
+    private static String simpleName(String name) {
+        return name.substring(name.lastIndexOf('.') + 1);
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        if (!file.delete() && file.exists()) {
+            throw new UncheckedIOException(new IOException("Cannot delete " + file));
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: SyntheticProjectGenerator <dir> [classes] [fanOut] [interfaceDepth] [repositoryRatio]");
+            System.exit(2);
+        }
+        int classes = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int fanOut = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        int interfaceDepth = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        double repositoryRatio = args.length > 4 ? Double.parseDouble(args[4]) : 0.1;
+
+        long start = System.currentTimeMillis();
+        Project project = new SyntheticProjectGenerator(classes, fanOut, interfaceDepth, repositoryRatio)
+            .generate(new File(args[0]));
+        System.out.printf("Generated %d types (%d entry points) in %s in %d ms%n", project.typeCount,
+                          project.entryPoints.size(), project.sourceRoot, System.currentTimeMillis() - start);
+    }
+}
@@ -0,0 +1,177 @@
+package com.sbtl1.loadtest;
+
+import javax.management.MBeanServerConnection;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The mod1 application started in its own JVM on an in-memory H2 database, so the load
+ * generator does not disturb its heap. Allocation and GC counters are read from the
+ * application's JVM through a local JMX connector.
+ */
+public class AppProcess implements AutoCloseable {
+    private final Process process;
+    private final int port;
+    private final JMXConnector jmxConnector;
+    private final com.sun.management.ThreadMXBean threads;
+    private final List<GarbageCollectorMXBean> collectors;
+
+    /**
+     * Allocation and GC counters of the application's JVM at one point in time
+     */
+    public static class JvmCounters {
+        public final long allocatedBytes;
+        public final long gcCount;
+        public final long gcTimeMillis;
+
+        JvmCounters(long allocatedBytes, long gcCount, long gcTimeMillis) {
+            this.allocatedBytes = allocatedBytes;
+            this.gcCount = gcCount;
+            this.gcTimeMillis = gcTimeMillis;
+        }
+
+        /**
+         * The counters accumulated since {@code start}
+         */
+        public JvmCounters since(JvmCounters start) {
+            return new JvmCounters(allocatedBytes - start.allocatedBytes, gcCount - start.gcCount,
+                                   gcTimeMillis - start.gcTimeMillis);
+        }
+    }
+
+    /**
+     * Starts the application and waits until the code analyzer has finished warming up
+     *
+     * @param classpath the application's runtime class path
+     * @param jvmArgs extra options for the application's JVM, such as the heap size
+     * @param appArgs extra Spring Boot arguments, such as {@code --codeanalysis.executor.max-concurrent=8}
+     * @param workingDirectory the repository root; the analyzer finds its sources relative to it
+     * @param log file receiving the application's output
+     */
+    public static AppProcess start(String classpath, List<String> jvmArgs, List<String> appArgs,
+                                   File workingDirectory, File log, Duration startTimeout)
+            throws IOException, InterruptedException {
+        int port = freePort();
+        int jmxPort = freePort();
+
+        List<String> command = new ArrayList<>();
+        command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+        command.addAll(jvmArgs);
+        command.add("-Dcom.sun.management.jmxremote.port=" + jmxPort);
+        command.add("-Dcom.sun.management.jmxremote.rmi.port=" + jmxPort);
+        command.add("-Dcom.sun.management.jmxremote.local.only=true");
+        command.add("-Dcom.sun.management.jmxremote.authenticate=false");
+        command.add("-Dcom.sun.management.jmxremote.ssl=false");
+        command.add("-Djava.rmi.server.hostname=127.0.0.1");
+        command.add("-cp");
+        command.add(classpath);
+        command.add("com.sbtl1.mod1.App");
+        command.add("--server.port=" + port);
+        command.add("--spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1");
+        command.add("--codeanalysis.watch.enabled=false");
+        command.addAll(appArgs);
+
+        log.getParentFile().mkdirs();
+        Process process = new ProcessBuilder(command)
+            .directory(workingDirectory)
+            .redirectErrorStream(true)
+            .redirectOutput(log)
+            .start();
+        try {
+            waitUntilReady(process, port, startTimeout, log);
+            return new AppProcess(process, port, jmxPort);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            process.destroyForcibly();
+            throw e;
+        }
+    }
+
+    private AppProcess(Process process, int port, int jmxPort) throws IOException {
+        this.process = process;
+        this.port = port;
+        JMXServiceURL url = new JMXServiceURL("service:jmx:rmi:///jndi/rmi://127.0.0.1:" + jmxPort + "/jmxrmi");
+        this.jmxConnector = JMXConnectorFactory.connect(url);
+        MBeanServerConnection connection = jmxConnector.getMBeanServerConnection();
+        this.threads = ManagementFactory.newPlatformMXBeanProxy(connection, ManagementFactory.THREAD_MXBEAN_NAME,
+                                                                com.sun.management.ThreadMXBean.class);
+        this.collectors = ManagementFactory.getPlatformMXBeans(connection, GarbageCollectorMXBean.class);
+    }
+
+    /**
+     * Polls the analysis health group, which is UP once the analyzer has indexed the sources
+     */
+    private static void waitUntilReady(Process process, int port, Duration timeout, File log)
+            throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        HttpRequest request = HttpRequest.newBuilder(
+                URI.create("http://127.0.0.1:" + port + "/mod1/actuator/health/analysis"))
+            .timeout(Duration.ofSeconds(2))
+            .build();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("The application exited with " + process.exitValue() + ", see " + log);
+            }
+            try {
+                if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            Thread.sleep(250);
+        }
+        throw new IllegalStateException("The application was not ready within " + timeout + ", see " + log);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * The base URL of the application, including its context path
+     */
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + port + "/mod1";
+    }
+
+    public JvmCounters readCounters() {
+        long gcCount = 0;
+        long gcTime = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            gcCount += Math.max(0, collector.getCollectionCount());
+            gcTime += Math.max(0, collector.getCollectionTime());
+        }
+        // Includes threads that have terminated, such as idle pool workers
+        return new JvmCounters(threads.getTotalThreadAllocatedBytes(), gcCount, gcTime);
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        try {
+            jmxConnector.close();
+        } catch (IOException e) {
+            // The process is stopped anyway
+        }
+        process.destroy();
+        if (!process.waitFor(10, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.sbtl1.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+
+/**
+ * A closed-loop HTTP load generator: each client thread sends a request, waits for the complete
+ * response and sends the next one. Latencies are recorded per endpoint and client thread in
+ * HdrHistograms that are merged once the clients have stopped, so recording never contends.
+ */
+public class LoadGenerator {
+    /** Highest latency the histograms can record, in microseconds */
+    private static final long MAX_LATENCY_MICROS = Duration.ofMinutes(2).toNanos() / 1000;
+
+    private final HttpClient httpClient;
+    private final String baseUrl;
+    private final int clients;
+    private final Duration requestTimeout;
+
+    /**
+     * The requests of one endpoint during a phase
+     */
+    public static class EndpointResult {
+        public final Workload.Endpoint endpoint;
+        public final Histogram latencyMicros = new Histogram(MAX_LATENCY_MICROS, 3);
+        public long errors;
+        public long responseBytes;
+
+        EndpointResult(Workload.Endpoint endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        public long getRequests() {
+            return latencyMicros.getTotalCount();
+        }
+
+        void add(EndpointResult other) {
+            latencyMicros.add(other.latencyMicros);
+            errors += other.errors;
+            responseBytes += other.responseBytes;
+        }
+    }
+
+    /**
+     * @param clients number of concurrent client threads, each with at most one request in flight
+     */
+    public LoadGenerator(String baseUrl, int clients, Duration requestTimeout) {
+        this.baseUrl = baseUrl;
+        this.clients = clients;
+        this.requestTimeout = requestTimeout;
+        this.httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newCachedThreadPool())
+            .build();
+    }
+
+    /**
+     * Sends the workload's requests from all clients for the given duration
+     *
+     * @param seed makes the sequence of picked endpoints repeatable
+     * @return the results in the order of the workload's endpoints
+     */
+    public List<EndpointResult> run(Workload workload, Duration duration, long seed) throws InterruptedException {
+        List<Workload.Endpoint> endpoints = workload.getEndpoints();
+        List<HttpRequest> requests = new ArrayList<>(endpoints.size());
+        for (Workload.Endpoint endpoint : endpoints) {
+            requests.add(toRequest(endpoint));
+        }
+
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<List<EndpointResult>> perClient = new ArrayList<>(clients);
+        List<Thread> threads = new ArrayList<>(clients);
+        for (int c = 0; c < clients; c++) {
+            List<EndpointResult> results = newResults(endpoints);
+            perClient.add(results);
+            Random random = new Random(seed + c);
+            Thread thread = new Thread(() -> runClient(workload, requests, results, random, deadline),
+                                       "loadgen-client-" + c);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        List<EndpointResult> merged = newResults(endpoints);
+        for (List<EndpointResult> results : perClient) {
+            for (int i = 0; i < merged.size(); i++) {
+                merged.get(i).add(results.get(i));
+            }
+        }
+        return merged;
+    }
+
+    private static List<EndpointResult> newResults(List<Workload.Endpoint> endpoints) {
+        List<EndpointResult> results = new ArrayList<>(endpoints.size());
+        for (Workload.Endpoint endpoint : endpoints) {
+            results.add(new EndpointResult(endpoint));
+        }
+        return results;
+    }
+
+    private void runClient(Workload workload, List<HttpRequest> requests, List<EndpointResult> results,
+                           Random random, long deadline) {
+        byte[] buffer = new byte[8192];
+        while (System.nanoTime() < deadline) {
+            int index = workload.pick(random);
+            EndpointResult result = results.get(index);
+            long start = System.nanoTime();
+            try {
+                HttpResponse<InputStream> response = httpClient.send(requests.get(index),
+                                                                     HttpResponse.BodyHandlers.ofInputStream());
+                // The latency includes reading the whole body, as a real client would
+                long bytes = 0;
+                try (InputStream body = response.body()) {
+                    for (int read; (read = body.read(buffer)) != -1; ) {
+                        bytes += read;
+                    }
+                }
+                result.responseBytes += bytes;
+                int status = response.statusCode();
+                if (status >= 400) {
+                    result.errors++;
+                }
+            } catch (IOException e) {
+                result.errors++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            result.latencyMicros.recordValue(Math.min(MAX_LATENCY_MICROS, (System.nanoTime() - start) / 1000));
+        }
+    }
+
+    private HttpRequest toRequest(Workload.Endpoint endpoint) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + endpoint.path))
+            .timeout(requestTimeout);
+        if (endpoint.body != null) {
+            builder.header("Content-Type", "application/json")
+                   .method(endpoint.method, HttpRequest.BodyPublishers.ofString(endpoint.body));
+        } else {
+            builder.method(endpoint.method, HttpRequest.BodyPublishers.noBody());
+        }
+        return builder.build();
+    }
+}
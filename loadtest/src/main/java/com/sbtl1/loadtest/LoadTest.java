@@ -0,0 +1,229 @@
+package com.sbtl1.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * End-to-end load test of the mod1 HTTP API. Starts the application on an in-memory H2 database,
+ * seeds users, warms up with the mixed workload and then runs two kinds of phases:
+ * <ul>
+ *   <li>isolated: each endpoint alone, so the application's allocation and GC activity during
+ *       the phase can be attributed to that endpoint</li>
+ *   <li>mixed: all endpoints at once in proportion to their weights</li>
+ * </ul>
+ * For every phase and endpoint it reports throughput, latency percentiles, allocation rate and
+ * GC activity, and writes the full latency distributions as {@code .hgrm} files.
+ * <p>
+ * Options, all as {@code --name=value}:
+ * <pre>
+ * workload      workload file (loadtest/workloads/mixed.workload)
+ * clients       concurrent clients (8)
+ * warmup        warm-up duration (10s)
+ * duration      duration of each measured phase (20s)
+ * mode          isolated, mixed or both (both)
+ * seed-users    users created before the run (100)
+ * app-jvm-args  options for the application's JVM, separated by spaces (-Xmx1g)
+ * app-args      extra application arguments, separated by spaces
+ * base-url      load an application that is already running instead; no allocation or GC figures
+ * results-dir   where the summary and latency distributions are written (loadtest/build/results)
+ * </pre>
+ * The application's class path is taken from the {@code loadtest.appClasspath} system property,
+ * which the {@code loadTest} Gradle task sets.
+ */
+public class LoadTest {
+    private static final long SEED = 42;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        Workload workload = Workload.load(new File(options.getOrDefault("workload", "loadtest/workloads/mixed.workload")));
+        int clients = Integer.parseInt(options.getOrDefault("clients", "8"));
+        Duration warmup = parseDuration(options.getOrDefault("warmup", "10s"));
+        Duration duration = parseDuration(options.getOrDefault("duration", "20s"));
+        String mode = options.getOrDefault("mode", "both");
+        int seedUsers = Integer.parseInt(options.getOrDefault("seed-users", "100"));
+        File resultsDir = new File(options.getOrDefault("results-dir", "loadtest/build/results"));
+        resultsDir.mkdirs();
+
+        AppProcess app = null;
+        String baseUrl = options.get("base-url");
+        if (baseUrl == null) {
+            String classpath = System.getProperty("loadtest.appClasspath");
+            if (classpath == null) {
+                throw new IllegalArgumentException("Set -Dloadtest.appClasspath or pass --base-url");
+            }
+            System.out.println("Starting the application...");
+            app = AppProcess.start(classpath, splitArgs(options.getOrDefault("app-jvm-args", "-Xmx1g")),
+                                   splitArgs(options.getOrDefault("app-args", "")), new File("."),
+                                   new File(resultsDir, "app.log"), Duration.ofMinutes(3));
+            baseUrl = app.getBaseUrl();
+        }
+
+        try (PrintStream summary = new PrintStream(new FileOutputStream(new File(resultsDir, "summary.txt")),
+                                                   true, StandardCharsets.UTF_8)) {
+            Report report = new Report(System.out, summary);
+            report.line("Load test of " + baseUrl + ": " + clients + " clients, " + duration.toSeconds() +
+                        " s per phase, workload " + workload.getEndpoints());
+
+            seedUsers(baseUrl, seedUsers);
+            LoadGenerator generator = new LoadGenerator(baseUrl, clients, Duration.ofSeconds(60));
+            if (!warmup.isZero()) {
+                System.out.println("Warming up for " + warmup.toSeconds() + " s...");
+                generator.run(workload, warmup, SEED);
+            }
+
+            if (mode.equals("isolated") || mode.equals("both")) {
+                report.header("Isolated endpoints");
+                for (Workload.Endpoint endpoint : workload.getEndpoints()) {
+                    AppProcess.JvmCounters start = app != null ? app.readCounters() : null;
+                    List<LoadGenerator.EndpointResult> results = generator.run(workload.only(endpoint), duration, SEED);
+                    AppProcess.JvmCounters counters = app != null ? app.readCounters().since(start) : null;
+                    report.row(results.get(0), duration, counters);
+                    writeHistogram(resultsDir, "isolated-" + endpoint.name, results.get(0).latencyMicros);
+                }
+            }
+
+            if (mode.equals("mixed") || mode.equals("both")) {
+                report.header("Mixed workload");
+                AppProcess.JvmCounters start = app != null ? app.readCounters() : null;
+                List<LoadGenerator.EndpointResult> results = generator.run(workload, duration, SEED);
+                AppProcess.JvmCounters counters = app != null ? app.readCounters().since(start) : null;
+                LoadGenerator.EndpointResult total = new LoadGenerator.EndpointResult(
+                    new Workload.Endpoint("total", 1, "", "", null));
+                for (LoadGenerator.EndpointResult result : results) {
+                    report.row(result, duration, null);
+                    writeHistogram(resultsDir, "mixed-" + result.endpoint.name, result.latencyMicros);
+                    total.add(result);
+                }
+                report.row(total, duration, counters);
+            }
+            report.line("Latency distributions and this summary are in " + resultsDir.getAbsolutePath());
+        } finally {
+            if (app != null) {
+                app.close();
+            }
+        }
+    }
+
+    /**
+     * Prints the result table to the console and the summary file
+     */
+    private static class Report {
+        private static final String FORMAT = "%-20s %8s %6s %9s %8s %8s %8s %8s %8s %9s %9s %5s %7s%n";
+        private final PrintStream[] outputs;
+
+        Report(PrintStream... outputs) {
+            this.outputs = outputs;
+        }
+
+        void line(String text) {
+            for (PrintStream out : outputs) {
+                out.println(text);
+            }
+        }
+
+        void header(String title) {
+            line("");
+            line(title);
+            for (PrintStream out : outputs) {
+                out.printf(FORMAT, "endpoint", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms",
+                           "p99.9 ms", "max ms", "alloc MB/s", "KB/req", "GCs", "GC ms");
+            }
+        }
+
+        void row(LoadGenerator.EndpointResult result, Duration duration, AppProcess.JvmCounters counters) {
+            Histogram latency = result.latencyMicros;
+            long requests = result.getRequests();
+            double seconds = duration.toMillis() / 1000.0;
+            String allocRate = "-";
+            String allocPerRequest = "-";
+            String gcCount = "-";
+            String gcTime = "-";
+            if (counters != null) {
+                allocRate = String.format("%.1f", counters.allocatedBytes / seconds / (1024 * 1024));
+                allocPerRequest = requests == 0 ? "-" : String.format("%.1f", counters.allocatedBytes / 1024.0 / requests);
+                gcCount = Long.toString(counters.gcCount);
+                gcTime = Long.toString(counters.gcTimeMillis);
+            }
+            for (PrintStream out : outputs) {
+                out.printf(FORMAT, result.endpoint.name, requests, result.errors,
+                           String.format("%.1f", requests / seconds),
+                           millis(latency, 50), millis(latency, 90), millis(latency, 99), millis(latency, 99.9),
+                           String.format("%.2f", latency.getMaxValue() / 1000.0),
+                           allocRate, allocPerRequest, gcCount, gcTime);
+            }
+        }
+
+        private static String millis(Histogram latency, double percentile) {
+            return String.format("%.2f", latency.getValueAtPercentile(percentile) / 1000.0);
+        }
+    }
+
+    private static void seedUsers(String baseUrl, int count) throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        for (int i = 0; i < count; i++) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/users"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"name\":\"user" + i + "\",\"age\":" + (18 + i % 60) + "}"))
+                .build();
+            int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            if (status >= 400) {
+                throw new IllegalStateException("Seeding users failed with status " + status);
+            }
+        }
+    }
+
+    private static void writeHistogram(File resultsDir, String name, Histogram latencyMicros) throws IOException {
+        try (PrintStream out = new PrintStream(new FileOutputStream(new File(resultsDir, name + ".hgrm")),
+                                               false, StandardCharsets.UTF_8)) {
+            // Values are recorded in microseconds; scale to milliseconds like the table
+            latencyMicros.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value: " + arg);
+            }
+            int separator = arg.indexOf('=');
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+
+    private static List<String> splitArgs(String value) {
+        return value.isBlank() ? new ArrayList<>() : new ArrayList<>(Arrays.asList(value.trim().split("\\s+")));
+    }
+
+    /**
+     * Parses durations such as 500ms, 30s or 2m
+     */
+    static Duration parseDuration(String value) {
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        if (value.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        if (value.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        return Duration.ofSeconds(Long.parseLong(value));
+    }
+}
@@ -0,0 +1,108 @@
+package com.sbtl1.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A weighted mix of HTTP requests, read from a workload file. Each non-empty line that does not
+ * start with {@code #} describes one endpoint:
+ * <pre>
+ * name  weight  method  path  [body]
+ * </pre>
+ * The path is relative to the application's context path; the optional body is sent as JSON and
+ * runs to the end of the line. Requests are picked at random in proportion to their weights.
+ */
+public class Workload {
+    private final List<Endpoint> endpoints;
+    private final int[] cumulativeWeights;
+
+    /**
+     * One kind of request in the workload
+     */
+    public static class Endpoint {
+        public final String name;
+        public final int weight;
+        public final String method;
+        public final String path;
+        public final String body;
+
+        Endpoint(String name, int weight, String method, String path, String body) {
+            this.name = name;
+            this.weight = weight;
+            this.method = method;
+            this.path = path;
+            this.body = body;
+        }
+
+        @Override
+        public String toString() {
+            return name + " (" + method + " " + path + ")";
+        }
+    }
+
+    Workload(List<Endpoint> endpoints) {
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("The workload has no endpoints");
+        }
+        this.endpoints = Collections.unmodifiableList(new ArrayList<>(endpoints));
+        this.cumulativeWeights = new int[endpoints.size()];
+        int total = 0;
+        for (int i = 0; i < endpoints.size(); i++) {
+            total += endpoints.get(i).weight;
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    public static Workload load(File file) throws IOException {
+        List<Endpoint> endpoints = new ArrayList<>();
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            lineNumber++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            String[] fields = trimmed.split("\\s+", 5);
+            if (fields.length < 4) {
+                throw new IllegalArgumentException(file + ":" + lineNumber + ": expected name, weight, method and path");
+            }
+            int weight = Integer.parseInt(fields[1]);
+            if (weight <= 0) {
+                throw new IllegalArgumentException(file + ":" + lineNumber + ": weight must be positive");
+            }
+            endpoints.add(new Endpoint(fields[0], weight, fields[2].toUpperCase(), fields[3],
+                                       fields.length > 4 ? fields[4] : null));
+        }
+        return new Workload(endpoints);
+    }
+
+    public List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * A workload that sends only the given endpoint
+     */
+    public Workload only(Endpoint endpoint) {
+        return new Workload(Collections.singletonList(endpoint));
+    }
+
+    /**
+     * Picks an endpoint index in proportion to the weights
+     */
+    public int pick(Random random) {
+        int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return i;
+            }
+        }
+        return cumulativeWeights.length - 1;
+    }
+}
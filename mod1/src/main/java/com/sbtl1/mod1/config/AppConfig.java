@@ -1,16 +1,157 @@
 package com.sbtl1.mod1.config;
 
+import com.sbtl1.mod1.util.AnalysisExecutor;
+import com.sbtl1.mod1.util.AnalysisResultCache;
+import com.sbtl1.mod1.util.AnalyzerWarmup;
+import com.sbtl1.mod1.util.BytecodeCallGraphAnalyzer;
+import com.sbtl1.mod1.util.CallGraphPrecomputer;
+import com.sbtl1.mod1.util.ImpactAnalyzer;
 import com.sbtl1.mod1.util.JavaParserCodeFlowAnalyzer;
+import com.sbtl1.mod1.util.MethodResolutionCache;
+import com.sbtl1.mod1.util.ParsedFileCache;
+import com.sbtl1.mod1.util.SnippetDocumentRenderer;
+import com.sbtl1.mod1.util.SourceFileStore;
+import com.sbtl1.mod1.util.SourceRoots;
+import com.sbtl1.mod1.util.SourceTreeWatcher;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
 
 @Configuration
+@EnableConfigurationProperties(CodeAnalysisProperties.class)
 public class AppConfig {
 
     @Bean
     @Primary
-    public JavaParserCodeFlowAnalyzer javaParserCodeFlowAnalyzer() {
-        return new JavaParserCodeFlowAnalyzer();
+    public JavaParserCodeFlowAnalyzer javaParserCodeFlowAnalyzer(CodeAnalysisProperties properties,
+                                                                 MeterRegistry meterRegistry) {
+        CodeAnalysisProperties.SourceStore sourceStore = properties.getSourceStore();
+        CodeAnalysisProperties.SymbolSolver symbolSolver = properties.getSymbolSolver();
+        JavaParserCodeFlowAnalyzer analyzer = new JavaParserCodeFlowAnalyzer(
+                sourceRoots(properties.getSources()),
+                new ParsedFileCache(properties.getParseCache().getMaxEntries(),
+                                    new SourceFileStore(sourceStore.getMaxSize().toBytes(),
+                                                        sourceStore.getNegativeTtl().toMillis())),
+                new MethodResolutionCache(symbolSolver.getResolutionCacheMaxEntries()),
+                properties.getTraversal().getParallelism(),
+                symbolSolver.getTypeCacheMaxEntries());
+        analyzer.setMetrics(new MicrometerAnalysisMetrics(meterRegistry));
+        List<String> classRoots = properties.getBytecode().getClassRoots();
+        if (!classRoots.isEmpty()) {
+            File projectDir = projectDir(properties.getSources());
+            analyzer.setBytecodeAnalyzer(new BytecodeCallGraphAnalyzer(
+                classRoots.stream().map(path -> resolve(projectDir, path)).collect(Collectors.toList()),
+                analyzer.getSourceRoots()));
+        }
+        return analyzer;
+    }
+
+    /**
+     * The configured source roots, else those of the modules in settings.gradle if discovery is
+     * enabled, else the first of the usual source directories below the working directory
+     */
+    private static List<File> sourceRoots(CodeAnalysisProperties.Sources sources) {
+        File projectDir = projectDir(sources);
+        List<File> roots = sources.getRoots().isEmpty()
+            ? (sources.isDiscover() ? SourceRoots.discover(projectDir) : List.of())
+            : SourceRoots.resolve(projectDir, sources.getRoots());
+        return roots.isEmpty() ? JavaParserCodeFlowAnalyzer.findSourceRoots() : roots;
+    }
+
+    private static File projectDir(CodeAnalysisProperties.Sources sources) {
+        return sources.getProjectDir() != null
+            ? new File(sources.getProjectDir()).getAbsoluteFile()
+            : SourceRoots.findProjectDir();
+    }
+
+    /**
+     * Resolves a path against the project directory; class roots may not exist until the project is built
+     */
+    private static File resolve(File projectDir, String path) {
+        File file = new File(path);
+        return file.isAbsolute() ? file : new File(projectDir, path);
+    }
+
+    @Bean
+    public AnalysisExecutor analysisExecutor(CodeAnalysisProperties properties) {
+        CodeAnalysisProperties.Executor executor = properties.getExecutor();
+        return new AnalysisExecutor(executor.getMaxConcurrent(), executor.getQueueCapacity(), executor.getQueueTimeout());
+    }
+
+    @Bean
+    public AnalysisResultCache analysisResultCache(CodeAnalysisProperties properties,
+                                                   JavaParserCodeFlowAnalyzer analyzer) {
+        AnalysisResultCache resultCache = new AnalysisResultCache(properties.getResultCache().getMaxWeight().toBytes());
+        // Hierarchy changes can reroute graphs that never read the changed files
+        analyzer.addSourceChangeListener((changedPaths, hierarchyChanged) -> {
+            if (hierarchyChanged) {
+                resultCache.clear();
+            } else {
+                resultCache.invalidateFiles(changedPaths);
+            }
+        });
+        return resultCache;
+    }
+
+    @Bean
+    public SnippetDocumentRenderer snippetDocumentRenderer(JavaParserCodeFlowAnalyzer analyzer) {
+        return new SnippetDocumentRenderer(analyzer);
+    }
+
+    @Bean
+    public ImpactAnalyzer impactAnalyzer(JavaParserCodeFlowAnalyzer analyzer, AnalysisResultCache resultCache) {
+        return new ImpactAnalyzer(analyzer, resultCache);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "codeanalysis.watch", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public SourceTreeWatcher sourceTreeWatcher(CodeAnalysisProperties properties,
+                                               JavaParserCodeFlowAnalyzer analyzer) throws IOException {
+        return new SourceTreeWatcher(analyzer.getSourceRoots(), properties.getWatch().getDebounce(), analyzer::refresh);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "codeanalysis.precompute", name = "enabled", havingValue = "true")
+    public CallGraphPrecomputer callGraphPrecomputer(CodeAnalysisProperties properties,
+                                                     JavaParserCodeFlowAnalyzer analyzer) {
+        return new CallGraphPrecomputer(analyzer, new File(properties.getPrecompute().getSnapshotFile()));
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "codeanalysis.warmup", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public AnalyzerWarmup analyzerWarmup(JavaParserCodeFlowAnalyzer analyzer) {
+        return new AnalyzerWarmup(analyzer);
+    }
+
+    @Bean
+    public CodeAnalysisMeterBinder codeAnalysisMeterBinder(JavaParserCodeFlowAnalyzer analyzer,
+                                                           AnalysisExecutor executor,
+                                                           AnalysisResultCache resultCache) {
+        return new CodeAnalysisMeterBinder(analyzer, executor, resultCache);
+    }
+
+    @Bean
+    public CodeAnalysisHealthIndicator codeAnalysisHealthIndicator(JavaParserCodeFlowAnalyzer analyzer,
+                                                                   ObjectProvider<AnalyzerWarmup> warmup) {
+        return new CodeAnalysisHealthIndicator(analyzer, warmup.getIfAvailable());
+    }
+
+    /**
+     * Starts the warm-up only once the application serves traffic, so it does not delay startup
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startWarmup(ApplicationReadyEvent event) {
+        event.getApplicationContext().getBeanProvider(AnalyzerWarmup.class).ifAvailable(AnalyzerWarmup::start);
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,55 @@
+package com.sbtl1.mod1.config;
+
+import com.sbtl1.mod1.util.AnalyzerWarmup;
+import com.sbtl1.mod1.util.JavaParserCodeFlowAnalyzer;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+
+/**
+ * Reports whether the code analyzer is ready to answer quickly (health component {@code codeAnalysis}).
+ * It is {@link #WARMING} while the background warm-up is indexing the sources and
+ * {@link #WARMUP_FAILED} if the warm-up failed. These statuses are ordered below UP for the overall
+ * health, so {@code /actuator/health} stays UP, and only the {@code analysis} group maps them to 503
+ * (see application.properties). The rest of the application serves traffic while analysis is still
+ * warming, and a cold analyzer still answers, only more slowly.
+ */
+public class CodeAnalysisHealthIndicator implements HealthIndicator {
+    public static final Status WARMING = new Status("WARMING", "Indexing the sources");
+    public static final Status WARMUP_FAILED = new Status("WARMUP_FAILED", "Indexing the sources failed");
+
+    private final JavaParserCodeFlowAnalyzer analyzer;
+    private final AnalyzerWarmup warmup;
+
+    /**
+     * @param warmup the background warm-up, or null if it is disabled
+     */
+    public CodeAnalysisHealthIndicator(JavaParserCodeFlowAnalyzer analyzer, AnalyzerWarmup warmup) {
+        this.analyzer = analyzer;
+        this.warmup = warmup;
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder builder;
+        if (warmup == null) {
+            // Without a warm-up the analyzer indexes on its first request
+            builder = Health.up().withDetail("state", "DISABLED");
+        } else {
+            AnalyzerWarmup.State state = warmup.getState();
+            switch (state) {
+                case READY:
+                    builder = Health.up().withDetail("types", warmup.getIndexedTypes());
+                    break;
+                case FAILED:
+                    builder = Health.status(WARMUP_FAILED).withDetail("error", warmup.getFailure());
+                    break;
+                default:
+                    builder = Health.status(WARMING);
+                    break;
+            }
+            builder.withDetail("state", state.name()).withDetail("durationMs", warmup.getDurationMillis());
+        }
+        return builder.withDetail("indexed", analyzer.isIndexed()).build();
+    }
+}
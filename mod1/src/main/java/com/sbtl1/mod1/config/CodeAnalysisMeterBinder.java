@@ -0,0 +1,114 @@
+package com.sbtl1.mod1.config;
+
+import com.sbtl1.mod1.util.AnalysisExecutor;
+import com.sbtl1.mod1.util.AnalysisResultCache;
+import com.sbtl1.mod1.util.JavaParserCodeFlowAnalyzer;
+import com.sbtl1.mod1.util.MethodResolutionCache;
+import com.sbtl1.mod1.util.ParsedFileCache;
+import com.sbtl1.mod1.util.SourceFileStore;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Exposes the counters the analysis caches and executor already keep as meters, read when the
+ * registry is scraped. Every cache, tagged {@code cache}, reports
+ * {@code codeanalysis.cache.gets} (tagged {@code result} hit or miss), {@code codeanalysis.cache.evictions},
+ * {@code codeanalysis.cache.size} and {@code codeanalysis.cache.hit.ratio}; the ratio is over the
+ * cache's lifetime, so dashboards should prefer the rate of hits over the rate of gets.
+ */
+public class CodeAnalysisMeterBinder implements MeterBinder {
+    private final JavaParserCodeFlowAnalyzer analyzer;
+    private final AnalysisExecutor executor;
+    private final AnalysisResultCache resultCache;
+
+    public CodeAnalysisMeterBinder(JavaParserCodeFlowAnalyzer analyzer, AnalysisExecutor executor,
+                                   AnalysisResultCache resultCache) {
+        this.analyzer = analyzer;
+        this.executor = executor;
+        this.resultCache = resultCache;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        ParsedFileCache parseCache = analyzer.getParsedFileCache();
+        bindCache(registry, "parse", parseCache, ParsedFileCache::getHitCount, ParsedFileCache::getMissCount,
+                  ParsedFileCache::getEvictionCount, ParsedFileCache::size, ParsedFileCache::getHitRatio);
+
+        SourceFileStore sourceStore = parseCache.getSourceFileStore();
+        bindCache(registry, "source", sourceStore, SourceFileStore::getHitCount, SourceFileStore::getMissCount,
+                  SourceFileStore::getEvictionCount, SourceFileStore::size, SourceFileStore::getHitRatio);
+        FunctionCounter.builder("codeanalysis.cache.gets", sourceStore, SourceFileStore::getNegativeHitCount)
+            .description("Lookups of files remembered as missing")
+            .tags("cache", "source", "result", "negative_hit")
+            .register(registry);
+        FunctionCounter.builder("codeanalysis.source.read", sourceStore, SourceFileStore::getBytesRead)
+            .description("Source bytes read from disk")
+            .baseUnit("bytes")
+            .register(registry);
+
+        MethodResolutionCache resolutionCache = analyzer.getResolutionCache();
+        bindCache(registry, "resolution", resolutionCache, MethodResolutionCache::getHitCount,
+                  MethodResolutionCache::getMissCount, MethodResolutionCache::getEvictionCount,
+                  MethodResolutionCache::size, MethodResolutionCache::getHitRatio);
+        FunctionCounter.builder("codeanalysis.resolution.failures", resolutionCache,
+                                MethodResolutionCache::getFailureCount)
+            .description("Call sites the symbol solver could not resolve")
+            .register(registry);
+
+        bindCache(registry, "result", resultCache, AnalysisResultCache::getHitCount,
+                  AnalysisResultCache::getMissCount, AnalysisResultCache::getEvictionCount,
+                  AnalysisResultCache::size, AnalysisResultCache::getHitRatio);
+        FunctionCounter.builder("codeanalysis.cache.invalidations", resultCache,
+                                AnalysisResultCache::getInvalidationCount)
+            .description("Results dropped because their source files changed")
+            .tag("cache", "result")
+            .register(registry);
+
+        Gauge.builder("codeanalysis.executor.active", executor, AnalysisExecutor::getActiveCount)
+            .description("Analyses running")
+            .register(registry);
+        Gauge.builder("codeanalysis.executor.queued", executor, AnalysisExecutor::getQueueDepth)
+            .description("Analyses waiting for a worker")
+            .register(registry);
+        FunctionCounter.builder("codeanalysis.executor.completed", executor, AnalysisExecutor::getCompletedCount)
+            .description("Analyses finished")
+            .register(registry);
+        FunctionCounter.builder("codeanalysis.executor.rejected", executor, AnalysisExecutor::getQueueFullRejections)
+            .description("Analyses rejected")
+            .tag("reason", "queue_full")
+            .register(registry);
+        FunctionCounter.builder("codeanalysis.executor.rejected", executor, AnalysisExecutor::getQueueTimeoutRejections)
+            .description("Analyses rejected")
+            .tag("reason", "queue_timeout")
+            .register(registry);
+    }
+
+    private static <T> void bindCache(MeterRegistry registry, String name, T cache, ToDoubleFunction<T> hits,
+                                      ToDoubleFunction<T> misses, ToDoubleFunction<T> evictions,
+                                      ToDoubleFunction<T> size, ToDoubleFunction<T> hitRatio) {
+        FunctionCounter.builder("codeanalysis.cache.gets", cache, hits)
+            .description("Cache lookups")
+            .tags("cache", name, "result", "hit")
+            .register(registry);
+        FunctionCounter.builder("codeanalysis.cache.gets", cache, misses)
+            .description("Cache lookups")
+            .tags("cache", name, "result", "miss")
+            .register(registry);
+        FunctionCounter.builder("codeanalysis.cache.evictions", cache, evictions)
+            .description("Entries evicted to stay within the cache bound")
+            .tag("cache", name)
+            .register(registry);
+        Gauge.builder("codeanalysis.cache.size", cache, size)
+            .description("Entries in the cache")
+            .tag("cache", name)
+            .register(registry);
+        Gauge.builder("codeanalysis.cache.hit.ratio", cache, hitRatio)
+            .description("Fraction of lookups served from the cache since startup")
+            .tag("cache", name)
+            .register(registry);
+    }
+}
@@ -0,0 +1,169 @@
+package com.sbtl1.mod1.config;
+
+import com.sbtl1.mod1.util.AnalysisResultCache;
+import com.sbtl1.mod1.util.JavaParserCodeFlowAnalyzer;
+import com.sbtl1.mod1.util.MethodResolutionCache;
+import com.sbtl1.mod1.util.ParsedFileCache;
+import com.sbtl1.mod1.util.SourceFileStore;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tuning properties for the code analysis engine (prefix {@code codeanalysis})
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "codeanalysis")
+public class CodeAnalysisProperties {
+
+    private final Sources sources = new Sources();
+    private final Bytecode bytecode = new Bytecode();
+    private final ParseCache parseCache = new ParseCache();
+    private final SourceStore sourceStore = new SourceStore();
+    private final SymbolSolver symbolSolver = new SymbolSolver();
+    private final Traversal traversal = new Traversal();
+    private final Flow flow = new Flow();
+    private final Snippets snippets = new Snippets();
+    private final Executor executor = new Executor();
+    private final ResultCache resultCache = new ResultCache();
+    private final Watch watch = new Watch();
+    private final Precompute precompute = new Precompute();
+    private final Warmup warmup = new Warmup();
+
+    @Getter
+    @Setter
+    public static class Sources {
+        /**
+         * Source roots to index, absolute or relative to the project directory; when empty they
+         * are discovered from the Gradle settings file, or found below the working directory
+         */
+        private List<String> roots = new ArrayList<>();
+        /** Whether the source roots of the modules included by settings.gradle are indexed when no roots are listed */
+        private boolean discover = false;
+        /** Directory the roots are relative to and settings.gradle is read from; defaults to the Gradle project directory */
+        private String projectDir;
+        /**
+         * Package prepended to the package path of the analysis endpoints; a package path that already
+         * starts with it, or any package path if it is empty, is taken as fully qualified
+         */
+        private String basePackage = "com.sbtl1.mod1";
+    }
+
+    @Getter
+    @Setter
+    public static class Bytecode {
+        /**
+         * Class directories and jars read by engine=bytecode, absolute or relative to the project directory;
+         * when empty, the build/classes/java/main and target/classes directories next to each source root
+         */
+        private List<String> classRoots = new ArrayList<>();
+    }
+
+    @Getter
+    @Setter
+    public static class ParseCache {
+        /** Maximum number of parsed source files kept in memory */
+        private int maxEntries = ParsedFileCache.DEFAULT_MAX_ENTRIES;
+    }
+
+    @Getter
+    @Setter
+    public static class SourceStore {
+        /** Size of the source file contents kept in memory before LRU eviction */
+        private DataSize maxSize = DataSize.ofBytes(SourceFileStore.DEFAULT_MAX_BYTES);
+        /** How long a lookup of a missing source file is remembered */
+        private Duration negativeTtl = Duration.ofMillis(SourceFileStore.DEFAULT_NEGATIVE_TTL_MILLIS);
+    }
+
+    @Getter
+    @Setter
+    public static class SymbolSolver {
+        /** Maximum number of resolved method call sites kept in memory, including failed resolutions */
+        private int resolutionCacheMaxEntries = MethodResolutionCache.DEFAULT_MAX_ENTRIES;
+        /**
+         * Maximum entries in each cache of a thread's source type solver (parsed files, directories
+         * and found types); -1 leaves them unbounded with softly referenced values
+         */
+        private long typeCacheMaxEntries = JavaParserCodeFlowAnalyzer.TYPE_SOLVER_CACHE_UNBOUNDED;
+    }
+
+    @Getter
+    @Setter
+    public static class Traversal {
+        /** Worker threads used by parallel call-graph traversals */
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        /** Whether requests that do not pass the parallel parameter use a parallel traversal */
+        private boolean parallelByDefault = false;
+        /** Engine of requests that do not pass the engine parameter: source or bytecode */
+        private String defaultEngine = "source";
+        /** Call depth beyond which requests that do not pass maxDepth stop expanding; 0 is unlimited */
+        private int defaultMaxDepth = 0;
+        /** Methods expanded before requests that do not pass maxNodes stop; 0 is unlimited */
+        private int defaultMaxNodes = 0;
+        /** Milliseconds after which requests that do not pass timeoutMs stop expanding; 0 is unlimited */
+        private long defaultTimeoutMs = 0;
+    }
+
+    @Getter
+    @Setter
+    public static class Flow {
+        /** Format of /flow responses for requests that do not pass the format parameter: nested or compact */
+        private String defaultFormat = "nested";
+    }
+
+    @Getter
+    @Setter
+    public static class Snippets {
+        /** Estimated token budget of snippet documents for requests that do not pass maxTokens; 0 is unlimited */
+        private int defaultMaxTokens = 0;
+    }
+
+    @Getter
+    @Setter
+    public static class Executor {
+        /** Analyses that may run at the same time */
+        private int maxConcurrent = Math.max(2, Runtime.getRuntime().availableProcessors());
+        /** Analyses that may wait for a free worker before new requests are rejected with 429 */
+        private int queueCapacity = 32;
+        /** Longest time a request may wait in the queue before it is rejected with 503 */
+        private Duration queueTimeout = Duration.ofSeconds(10);
+    }
+
+    @Getter
+    @Setter
+    public static class ResultCache {
+        /** Estimated heap size of cached call graphs and snippet documents before LRU eviction */
+        private DataSize maxWeight = DataSize.ofBytes(AnalysisResultCache.DEFAULT_MAX_WEIGHT);
+    }
+
+    @Getter
+    @Setter
+    public static class Watch {
+        /** Whether source files are watched and re-indexed incrementally when they change */
+        private boolean enabled = true;
+        /** Quiet period after a change before the batch of changed files is re-indexed */
+        private Duration debounce = Duration.ofMillis(200);
+    }
+
+    @Getter
+    @Setter
+    public static class Precompute {
+        /** Whether the whole-project call graph is loaded or computed at startup */
+        private boolean enabled = false;
+        /** Binary snapshot of the precomputed graph, reused on the next start while the sources are unchanged */
+        private String snapshotFile = ".codeanalysis/callgraph.snapshot";
+    }
+
+    @Getter
+    @Setter
+    public static class Warmup {
+        /** Whether the sources are parsed and indexed in the background once the application is ready */
+        private boolean enabled = true;
+    }
+}
@@ -0,0 +1,52 @@
+package com.sbtl1.mod1.config;
+
+import com.sbtl1.mod1.util.AnalysisMetrics;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reports the analysis engine's phase timings and graph sizes to a Micrometer registry:
+ * <ul>
+ *   <li>{@code codeanalysis.phase}: a timer per phase, tagged {@code phase}</li>
+ *   <li>{@code codeanalysis.graph.nodes} and {@code codeanalysis.graph.edges}: the sizes of analyzed call graphs</li>
+ * </ul>
+ * The meters are registered once, so recording does not look them up.
+ */
+public class MicrometerAnalysisMetrics implements AnalysisMetrics {
+    private final Map<Phase, Timer> phaseTimers = new EnumMap<>(Phase.class);
+    private final DistributionSummary graphNodes;
+    private final DistributionSummary graphEdges;
+
+    public MicrometerAnalysisMetrics(MeterRegistry registry) {
+        for (Phase phase : Phase.values()) {
+            phaseTimers.put(phase, Timer.builder("codeanalysis.phase")
+                .description("Time spent in a phase of code analysis; phases nest")
+                .tag("phase", phase.tagValue())
+                .register(registry));
+        }
+        this.graphNodes = DistributionSummary.builder("codeanalysis.graph.nodes")
+            .description("Methods in analyzed call graphs")
+            .baseUnit("nodes")
+            .register(registry);
+        this.graphEdges = DistributionSummary.builder("codeanalysis.graph.edges")
+            .description("Calls in analyzed call graphs")
+            .baseUnit("edges")
+            .register(registry);
+    }
+
+    @Override
+    public void recordPhase(Phase phase, long nanos) {
+        phaseTimers.get(phase).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordGraph(int nodes, int edges) {
+        graphNodes.record(nodes);
+        graphEdges.record(edges);
+    }
+}
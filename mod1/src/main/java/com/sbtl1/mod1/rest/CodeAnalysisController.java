@@ -1,15 +1,39 @@
 package com.sbtl1.mod1.rest;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.sbtl1.mod1.config.CodeAnalysisProperties;
+import com.sbtl1.mod1.util.AnalysisExecutor;
+import com.sbtl1.mod1.util.AnalysisOptions;
+import com.sbtl1.mod1.util.AnalysisProfile;
+import com.sbtl1.mod1.util.AnalysisRejectedException;
+import com.sbtl1.mod1.util.AnalysisResultCache;
+import com.sbtl1.mod1.util.BytecodeCallGraphAnalyzer;
+import com.sbtl1.mod1.util.CallGraphExporter;
+import com.sbtl1.mod1.util.CallGraphJsonWriter;
+import com.sbtl1.mod1.util.EntryPoint;
+import com.sbtl1.mod1.util.ImpactAnalyzer;
 import com.sbtl1.mod1.util.JavaParserCodeFlowAnalyzer;
+import com.sbtl1.mod1.util.PrecomputedCallGraph;
+import com.sbtl1.mod1.util.SnippetDocumentRenderer;
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.File;
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @RestController
@@ -17,32 +41,173 @@ import java.util.stream.Collectors;
 public class CodeAnalysisController {
 
     private final JavaParserCodeFlowAnalyzer codeFlowAnalyzer;
+    private final AnalysisExecutor analysisExecutor;
+    private final AnalysisResultCache resultCache;
+    private final SnippetDocumentRenderer snippetRenderer;
+    private final ImpactAnalyzer impactAnalyzer;
+    private final CodeAnalysisProperties properties;
+    private final String basePackage;
     
     @Autowired
-    public CodeAnalysisController(JavaParserCodeFlowAnalyzer codeFlowAnalyzer) {
+    public CodeAnalysisController(JavaParserCodeFlowAnalyzer codeFlowAnalyzer, AnalysisExecutor analysisExecutor,
+                                  AnalysisResultCache resultCache, SnippetDocumentRenderer snippetRenderer,
+                                  ImpactAnalyzer impactAnalyzer, CodeAnalysisProperties properties) {
         this.codeFlowAnalyzer = codeFlowAnalyzer;
+        this.analysisExecutor = analysisExecutor;
+        this.resultCache = resultCache;
+        this.snippetRenderer = snippetRenderer;
+        this.impactAnalyzer = impactAnalyzer;
+        this.properties = properties;
+        this.basePackage = properties.getSources().getBasePackage();
+    }
+    
+    /**
+     * The fully qualified name of a class from the package path of a request. The path is relative
+     * to the base package unless it already starts with it or there is no base package; with an empty
+     * base package the classes of every module are named in full, e.g. /flow/com.acme.orders.rest/OrderController/create.
+     */
+    private String qualify(String packagePath, String className) {
+        if (basePackage.isEmpty() || packagePath.equals(basePackage) || packagePath.startsWith(basePackage + ".")) {
+            return (packagePath.isEmpty() ? "" : packagePath + ".") + className;
+        }
+        return basePackage + "." + (packagePath.isEmpty() ? "" : packagePath + ".") + className;
     }
     
     /**
      * Analyzes the call flow for a method in the specified class
      * 
      * Example: /api/codeanalysis/flow/rest.UserController/getUsersAboveAge
+     * Pass parallel=true to expand independent callees concurrently.
+     * Pass engine=bytecode to read the call graph from the compiled classes instead of the sources.
+     * Pass maxDepth, maxNodes or timeoutMs to bound the analysis; a graph cut short by one of them
+     * is returned with "truncated": true and the methods left unexpanded in "frontier".
+     * Pass profile=true to analyze without the result cache and add a breakdown of where the time went.
+     * Pass format=compact for a table of classes and methods with the calls as method indexes, streamed
+     * straight from the graph (see {@link CallGraphJsonWriter}); big graphs are several times smaller
+     * and faster to write than the nested callHierarchy of signatures.
+     * Responses carry an ETag; a matching If-None-Match is answered with 304 Not Modified.
      */
     @GetMapping("/flow/{packagePath}/{className}/{methodName}")
-    public ResponseEntity<?> analyzeCallFlow(
+    public CompletableFuture<ResponseEntity<?>> analyzeCallFlow(
             @PathVariable String packagePath,
             @PathVariable String className,
-            @PathVariable String methodName) {
+            @PathVariable String methodName,
+            @ParameterObject @ModelAttribute TraversalParameters traversal,
+            @RequestParam(required = false) String format,
+            @RequestParam(defaultValue = "false") boolean profile,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        
+        String fullClassName = qualify(packagePath, className);
+        AnalysisOptions options = traversal.toOptions(properties.getTraversal());
+        boolean compact = isCompact(format != null ? format : properties.getFlow().getDefaultFormat());
+        
+        if (profile) {
+            return analysisExecutor.submit(() -> {
+                AnalysisProfile analysisProfile = new AnalysisProfile();
+                JavaParserCodeFlowAnalyzer.CallGraph callGraph =
+                    codeFlowAnalyzer.analyzeCallFlow(fullClassName, methodName, options, analysisProfile);
+                if (compact) {
+                    return ResponseEntity.ok(new CompactCallFlow(fullClassName, methodName, callGraph,
+                                                                 analysisProfile.toMap()));
+                }
+                Map<String, Object> result = buildCallFlowResult(fullClassName, methodName, callGraph);
+                result.put("profile", analysisProfile.toMap());
+                return ResponseEntity.ok(result);
+            });
+        }
         
-        String fullClassName = "com.sbtl1.mod1." + (packagePath.isEmpty() ? "" : packagePath + ".") + className;
+        // Cached results are served directly; only misses are queued for analysis
+        AnalysisResultCache.Entry cached = resultCache.get(fullClassName, methodName, options);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(
+                buildCallFlowResponse(fullClassName, methodName, cached, compact, ifNoneMatch));
+        }
         
-        // Use JavaParserCodeFlowAnalyzer
-        JavaParserCodeFlowAnalyzer.CallGraph callGraph = codeFlowAnalyzer.analyzeCallFlow(fullClassName, methodName);
+        // Run the analysis on the dedicated executor rather than the servlet container's thread
+        return analysisExecutor.submit(() -> buildCallFlowResponse(
+            fullClassName, methodName, analyze(fullClassName, methodName, options), compact, ifNoneMatch));
+    }
+    
+    private static boolean isCompact(String format) {
+        if (format.equalsIgnoreCase(CallGraphJsonWriter.FORMAT)) {
+            return true;
+        }
+        if (format.equalsIgnoreCase("nested")) {
+            return false;
+        }
+        throw new IllegalArgumentException("Unknown format " + format + ", expected nested or compact");
+    }
+    
+    /**
+     * Analyzes an entry point and caches the result
+     */
+    private AnalysisResultCache.Entry analyze(String fullClassName, String methodName, AnalysisOptions options) {
+        JavaParserCodeFlowAnalyzer.CallGraph callGraph = codeFlowAnalyzer.analyzeCallFlow(fullClassName, methodName, options);
+        return resultCache.put(fullClassName, methodName, options, callGraph);
+    }
+    
+    /**
+     * Builds the JSON call-flow response for a method, nested or compact. The two formats of a
+     * graph have different ETags.
+     */
+    private ResponseEntity<?> buildCallFlowResponse(String fullClassName, String methodName,
+                                                    AnalysisResultCache.Entry entry, boolean compact,
+                                                    String ifNoneMatch) {
+        String eTag = entry.getGraphETag();
+        if (compact) {
+            eTag = eTag.substring(0, eTag.length() - 1) + "-" + CallGraphJsonWriter.FORMAT + "\"";
+        }
+        if (matchesETag(ifNoneMatch, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(weak(eTag)).build();
+        }
+        if (compact) {
+            return ResponseEntity.ok().eTag(weak(eTag))
+                                 .body(new CompactCallFlow(fullClassName, methodName, entry.getCallGraph(), null));
+        }
+        return ResponseEntity.ok().eTag(weak(eTag)).body(buildCallFlowResult(fullClassName, methodName, entry.getCallGraph()));
+    }
+    
+    /**
+     * The compact JSON of a call flow, with a profile if one is given. Jackson writes it by calling
+     * {@link #serialize}, which streams it from the graph (see {@link CallGraphJsonWriter}).
+     */
+    private static class CompactCallFlow implements JsonSerializable {
+        private final String fullClassName;
+        private final String methodName;
+        private final JavaParserCodeFlowAnalyzer.CallGraph callGraph;
+        private final Map<String, Object> profile;
+        
+        CompactCallFlow(String fullClassName, String methodName, JavaParserCodeFlowAnalyzer.CallGraph callGraph,
+                        Map<String, Object> profile) {
+            this.fullClassName = fullClassName;
+            this.methodName = methodName;
+            this.callGraph = callGraph;
+            this.profile = profile;
+        }
         
-        if (callGraph == null) {
-            return ResponseEntity.notFound().build();
+        @Override
+        public void serialize(JsonGenerator generator, SerializerProvider serializers) throws IOException {
+            generator.writeStartObject();
+            CallGraphJsonWriter.writeCompactFields(generator, fullClassName, methodName, callGraph);
+            if (profile != null) {
+                generator.writeFieldName("profile");
+                serializers.defaultSerializeValue(profile, generator);
+            }
+            generator.writeEndObject();
         }
         
+        @Override
+        public void serializeWithType(JsonGenerator generator, SerializerProvider serializers,
+                                      TypeSerializer typeSerializer) throws IOException {
+            serialize(generator, serializers);
+        }
+    }
+    
+    /**
+     * Builds the JSON call-flow result for a method
+     */
+    private Map<String, Object> buildCallFlowResult(String fullClassName, String methodName,
+                                                    JavaParserCodeFlowAnalyzer.CallGraph callGraph) {
         Map<String, Object> result = new HashMap<>();
         result.put("startClass", fullClassName);
         result.put("startMethod", methodName);
@@ -55,7 +220,80 @@ public class CodeAnalysisController {
         Set<String> filesInvolved = callGraph.getClasses();
         result.put("filesInvolved", filesInvolved);
         
-        return ResponseEntity.ok(result);
+        // Methods a limit kept the traversal from expanding, with the limit that stopped it
+        result.put("truncated", callGraph.isTruncated());
+        if (callGraph.isTruncated()) {
+            Map<String, String> frontier = new TreeMap<>();
+            callGraph.getFrontier().forEach((signature, limit) -> frontier.put(signature, limit.name().toLowerCase(Locale.ROOT)));
+            result.put("frontier", frontier);
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Analyzes the call flows of many entry points in one pass. Entry points already in the
+     * result cache are served from it; the others are analyzed together, so the services and
+     * repositories they share are parsed and resolved only once.
+     * 
+     * The body lists fully qualified entry points, or asks for every controller request mapping:
+     * {"entryPoints": [{"className": "com.sbtl1.mod1.rest.UserController", "methodName": "getUsersAboveAge"}]}
+     * {"all": true}
+     * 
+     * Example: POST /api/codeanalysis/flow/batch {"all": true}
+     * The maxDepth, maxNodes and timeoutMs limits apply to each entry point separately.
+     */
+    @PostMapping("/flow/batch")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> analyzeCallFlows(
+            @RequestBody Map<String, Object> request,
+            @ParameterObject @ModelAttribute TraversalParameters traversal) {
+        
+        List<EntryPoint> entryPoints = new ArrayList<>();
+        Object requested = request.get("entryPoints");
+        if (requested instanceof List) {
+            for (Object item : (List<?>) requested) {
+                Object entryClass = item instanceof Map ? ((Map<?, ?>) item).get("className") : null;
+                Object entryMethod = item instanceof Map ? ((Map<?, ?>) item).get("methodName") : null;
+                if (!(entryClass instanceof String) || !(entryMethod instanceof String)) {
+                    return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(Map.of(
+                        "error", "BAD_REQUEST",
+                        "message", "Each entry point needs a className and a methodName: " + item)));
+                }
+                entryPoints.add(new EntryPoint((String) entryClass, (String) entryMethod));
+            }
+        }
+        boolean all = Boolean.TRUE.equals(request.get("all"));
+        AnalysisOptions options = traversal.toOptions(properties.getTraversal());
+        
+        return analysisExecutor.submit(() -> {
+            long start = System.currentTimeMillis();
+            Set<EntryPoint> batch = new LinkedHashSet<>(entryPoints);
+            if (all) {
+                batch.addAll(codeFlowAnalyzer.getEntryPoints());
+            }
+            int[] analyzed = new int[1];
+            Map<EntryPoint, AnalysisResultCache.Entry> entries = resultCache.getAll(batch, options, missing -> {
+                analyzed[0] = missing.size();
+                return codeFlowAnalyzer.analyzeCallFlows(missing, options);
+            });
+            
+            List<Map<String, Object>> results = new ArrayList<>();
+            for (Map.Entry<EntryPoint, AnalysisResultCache.Entry> entry : entries.entrySet()) {
+                EntryPoint entryPoint = entry.getKey();
+                Map<String, Object> result = buildCallFlowResult(entryPoint.className, entryPoint.methodName,
+                                                                 entry.getValue().getCallGraph());
+                result.put("eTag", entry.getValue().getGraphETag());
+                results.add(result);
+            }
+            
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("entryPoints", results.size());
+            response.put("analyzed", analyzed[0]);
+            response.put("cached", results.size() - analyzed[0]);
+            response.put("elapsedMs", System.currentTimeMillis() - start);
+            response.put("results", results);
+            return ResponseEntity.ok(response);
+        });
     }
 
     /**
@@ -63,320 +301,342 @@ public class CodeAnalysisController {
      * Formats the output for use in LLM prompts
      * 
      * Example: /api/codeanalysis/snippets/rest/UserController/getUsersAboveAge
+     * Pass maxDepth, maxNodes or timeoutMs to bound the analysis; methods left unexpanded are marked
+     * in the call hierarchy.
+     * Pass maxTokens to keep the document within an estimated token budget: the call hierarchy is kept,
+     * and the snippets furthest from the entry point are cut down to signatures or left out.
+     * Pass profile=true to analyze and render without the result cache; the response is then JSON
+     * with the document in "snippets" and a breakdown of where the time went in "profile".
+     * Responses carry an ETag; a matching If-None-Match is answered with 304 Not Modified.
      */
     @GetMapping("/snippets/{packagePath}/{className}/{methodName}")
-    public ResponseEntity<String> getCodeSnippets(
+    public CompletableFuture<ResponseEntity<?>> getCodeSnippets(
             @PathVariable String packagePath,
             @PathVariable String className,
-            @PathVariable String methodName) {
-        
-        String fullClassName = "com.sbtl1.mod1." + (packagePath.isEmpty() ? "" : packagePath + ".") + className;
-        
-        // Use JavaParserCodeFlowAnalyzer
-        JavaParserCodeFlowAnalyzer.CallGraph callGraph = codeFlowAnalyzer.analyzeCallFlow(fullClassName, methodName);
-        
-        if (callGraph == null) {
-            return ResponseEntity.notFound().build();
+            @PathVariable String methodName,
+            @ParameterObject @ModelAttribute TraversalParameters traversal,
+            @RequestParam(name = "maxTokens", required = false) Integer requestedMaxTokens,
+            @RequestParam(defaultValue = "false") boolean profile,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        
+        String fullClassName = qualify(packagePath, className);
+        AnalysisOptions options = traversal.toOptions(properties.getTraversal());
+        int maxTokens = requestedMaxTokens != null ? requestedMaxTokens : properties.getSnippets().getDefaultMaxTokens();
+        SnippetDocumentRenderer.checkMaxTokens(maxTokens);
+        
+        if (profile) {
+            return analysisExecutor.submit(() -> {
+                AnalysisProfile analysisProfile = new AnalysisProfile();
+                JavaParserCodeFlowAnalyzer.CallGraph callGraph =
+                    codeFlowAnalyzer.analyzeCallFlow(fullClassName, methodName, options, analysisProfile);
+                String content = snippetRenderer.render(fullClassName, methodName, callGraph, new HashSet<>(),
+                                                        analysisProfile, maxTokens);
+                Map<String, Object> result = new LinkedHashMap<>();
+                result.put("startClass", fullClassName);
+                result.put("startMethod", methodName);
+                result.put("snippets", content);
+                result.put("profile", analysisProfile.toMap());
+                return ResponseEntity.ok(result);
+            });
         }
         
-        StringBuilder snippets = new StringBuilder();
-        snippets.append("# Code Execution Path Analysis\n\n");
-        snippets.append("## Call Graph Overview\n\n");
-        snippets.append("```\n");
-        
-        // Add call graph structure in text format
-        appendCallHierarchy(snippets, callGraph, fullClassName, methodName, 0, new HashSet<>());
-        
-        snippets.append("```\n\n");
-        snippets.append("## Method Code Snippets\n\n");
-        
-        // Add entity classes referenced in the repositories
-        Map<String, Set<String>> classMethodMap = collectClassMethods(callGraph);
-        Set<String> processedClasses = new HashSet<>();
-        Set<String> repoClassNames = new HashSet<>();
-        
-        // Get entity class names from repository methods
-        Set<String> entityClasses = new HashSet<>();
-        for (Map.Entry<String, Set<String>> entry : classMethodMap.entrySet()) {
-            String cls = entry.getKey();
-            if (cls.contains(".dao.") && cls.endsWith("Repository")) {
-                repoClassNames.add(cls); // Keep track of repository classes
-                // Try to find the entity class directly from the file
-                try {
-                    String filePath = findRepositoryFile(cls);
-                    if (filePath != null) {
-                        String content = new String(Files.readAllBytes(Paths.get(filePath)));
-                        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile(
-                                "JpaRepository\\s*<\\s*(\\w+)\\s*,");
-                        java.util.regex.Matcher matcher = pattern.matcher(content);
-                        if (matcher.find()) {
-                            String entityName = matcher.group(1);
-                            // Add the entity class
-                            String entityClass = "com.sbtl1.mod1.entities." + entityName;
-                            entityClasses.add(entityClass);
-                        }
-                    }
-                } catch (Exception e) {
-                    snippets.append("<!-- Error finding entity: " + e.getMessage() + " -->\n");
-                }
-            }
+        // Cached documents are served directly; only misses are queued for analysis and rendering
+        AnalysisResultCache.Entry cached = resultCache.get(fullClassName, methodName, options);
+        if (cached != null && cached.getSnippetDocument(maxTokens) != null) {
+            return CompletableFuture.completedFuture(
+                buildCodeSnippetsResponse(fullClassName, methodName, cached, maxTokens, ifNoneMatch));
         }
         
-        // Add entity classes to the method map
-        for (String entityClass : entityClasses) {
-            Set<String> methods = classMethodMap.computeIfAbsent(entityClass, k -> new HashSet<>());
-            methods.add("__entity__"); // Special marker for entity class
+        // Run the analysis on the dedicated executor rather than the servlet container's thread
+        return analysisExecutor.submit(() -> buildCodeSnippetsResponse(
+            fullClassName, methodName, cached != null ? cached : analyze(fullClassName, methodName, options),
+            maxTokens, ifNoneMatch));
+    }
+    
+    /**
+     * Builds the snippets response for a method, rendering the document if the entry has none yet
+     */
+    private ResponseEntity<?> buildCodeSnippetsResponse(String fullClassName, String methodName,
+                                                             AnalysisResultCache.Entry entry, int maxTokens,
+                                                             String ifNoneMatch) {
+        AnalysisResultCache.SnippetDocument document = entry.getSnippetDocument(maxTokens);
+        if (document == null) {
+            Set<String> extraFiles = new HashSet<>();
+            String content = snippetRenderer.render(fullClassName, methodName, entry.getCallGraph(), extraFiles,
+                                                    null, maxTokens);
+            document = resultCache.putSnippetDocument(entry, content, maxTokens, extraFiles);
         }
-        
-        // Add code snippets for each method
-        for (Map.Entry<String, Set<String>> entry : classMethodMap.entrySet()) {
-            String cls = entry.getKey();
-            
-            // Add class-level overview only once
-            if (!processedClasses.contains(cls)) {
-                processedClasses.add(cls);
-                
-                // Add class overview section based on type
-                if (cls.contains(".entities.")) {
-                    snippets.append("### Entity: ").append(cls).append("\n\n");
-                    
-                    // Add the entity class code
-                    try {
-                        String entityCode = getEntityClassCode(cls);
-                        snippets.append("```java\n");
-                        snippets.append(entityCode).append("\n");
-                        snippets.append("```\n\n");
-                    } catch (Exception e) {
-                        snippets.append("<!-- Error reading entity: " + e.getMessage() + " -->\n");
-                    }
-                    
-                } else if (cls.contains(".dao.")) {
-                    snippets.append("### Repository: ").append(cls).append("\n\n");
-                    
-                    // Add the repository interface code
-                    try {
-                        String repoCode = getRepositoryCode(cls);
-                        snippets.append("```java\n");
-                        snippets.append(repoCode).append("\n");
-                        snippets.append("```\n\n");
-                        
-                        // Add explanation of Spring Data JPA methods
-                        snippets.append("Spring Data JPA repositories automatically implement methods based on naming conventions. " +
-                                        "For example, `findByAgeGreaterThan(int age)` is translated into a SQL query: " +
-                                        "`SELECT * FROM users WHERE age > ?`\n\n");
-                        
-                    } catch (Exception e) {
-                        snippets.append("<!-- Error reading repository: " + e.getMessage() + " -->\n");
-                    }
-                    
-                } else if (cls.contains(".service.")) {
-                    snippets.append("### Service: ").append(cls).append("\n\n");
-                } else if (cls.contains(".rest.")) {
-                    snippets.append("### Controller: ").append(cls).append("\n\n");
-                } else {
-                    snippets.append("### Class: ").append(cls).append("\n\n");
-                }
-            }
-            
-            // Process methods for the class (skip for entity classes and repository methods already shown)
-            if (!cls.contains(".entities.") && !isRepositoryMethod(cls, entry.getValue(), repoClassNames)) {
-                for (String mtd : entry.getValue()) {
-                    if (mtd.equals("__entity__")) {
-                        continue; // Skip placeholder method for entities
-                    }
-                    
-                    String sourceCode = extractMethodSource(cls, mtd);
-                    if (sourceCode != null && !sourceCode.startsWith("// Source file not found")) {
-                        snippets.append("#### ").append(mtd).append("\n\n");
-                        snippets.append("```java\n");
-                        snippets.append(sourceCode).append("\n");
-                        snippets.append("```\n\n");
-                    }
-                }
-            }
+        if (matchesETag(ifNoneMatch, document.getETag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(weak(document.getETag())).build();
         }
-        
-        snippets.append("## End of Analysis\n");
-        
-        return ResponseEntity.ok(snippets.toString());
+        return ResponseEntity.ok().eTag(weak(document.getETag())).body(document.getContent());
     }
     
     /**
-     * Recursively appends call hierarchy to the string builder
+     * Streams the code snippets for all methods in the execution path. The call hierarchy
+     * and each class's snippets are sent as soon as they are rendered, and the document is
+     * never held in memory as a whole. With maxTokens, the snippets are read and measured before
+     * anything is sent.
+     * 
+     * Example: /api/codeanalysis/snippets/stream/rest/UserController/getUsersAboveAge
      */
-    private void appendCallHierarchy(StringBuilder sb, JavaParserCodeFlowAnalyzer.CallGraph callGraph, 
-                                    String className, String methodName, int depth, Set<String> visited) {
-        String signature = className + "." + methodName;
-        if (visited.contains(signature)) {
-            appendIndent(sb, depth);
-            sb.append(signature).append(" (recursive call)\n");
-            return;
+    @GetMapping("/snippets/stream/{packagePath}/{className}/{methodName}")
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> streamCodeSnippets(
+            @PathVariable String packagePath,
+            @PathVariable String className,
+            @PathVariable String methodName,
+            @ParameterObject @ModelAttribute TraversalParameters traversal,
+            @RequestParam(name = "maxTokens", required = false) Integer requestedMaxTokens) {
+        
+        String fullClassName = qualify(packagePath, className);
+        AnalysisOptions options = traversal.toOptions(properties.getTraversal());
+        int maxTokens = requestedMaxTokens != null ? requestedMaxTokens : properties.getSnippets().getDefaultMaxTokens();
+        SnippetDocumentRenderer.checkMaxTokens(maxTokens);
+        
+        // The graph is analyzed (or taken from the cache) first; rendering happens while streaming
+        AnalysisResultCache.Entry cached = resultCache.get(fullClassName, methodName, options);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(
+                buildStreamingSnippetsResponse(fullClassName, methodName, cached, maxTokens));
         }
-        
-        visited.add(signature);
-        
-        appendIndent(sb, depth);
-        sb.append(signature).append("\n");
-        
-        List<JavaParserCodeFlowAnalyzer.MethodCall> calls = callGraph.getCalls(className, methodName);
-        if (calls != null) {
-            for (JavaParserCodeFlowAnalyzer.MethodCall call : calls) {
-                appendCallHierarchy(sb, callGraph, call.className, call.methodName, depth + 1, visited);
+        return analysisExecutor.submit(() -> buildStreamingSnippetsResponse(
+            fullClassName, methodName, analyze(fullClassName, methodName, options), maxTokens));
+    }
+    
+    /**
+     * Builds a response that writes the snippet document straight to the client,
+     * reusing the cached document if one has already been rendered
+     */
+    private ResponseEntity<StreamingResponseBody> buildStreamingSnippetsResponse(String fullClassName, String methodName,
+                                                                                 AnalysisResultCache.Entry entry,
+                                                                                 int maxTokens) {
+        StreamingResponseBody body = outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            AnalysisResultCache.SnippetDocument document = entry.getSnippetDocument(maxTokens);
+            if (document != null) {
+                writer.write(document.getContent());
+            } else {
+                snippetRenderer.render(fullClassName, methodName, entry.getCallGraph(), writer, new HashSet<>(),
+                                       null, maxTokens);
             }
-        }
+            writer.flush();
+        };
+        return ResponseEntity.ok()
+                             .contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8))
+                             .body(body);
     }
     
     /**
-     * Appends indentation to the string builder
+     * Exports the call graph of a method for visualization or post-processing, streamed as it is written:
+     * format=dot (Graphviz), graphml, or ndjson (one {"from": ..., "to": ...} record per call).
+     * Takes the same engine and limit parameters as /flow, and shares its cached graphs.
+     * 
+     * Example: /api/codeanalysis/export/rest/UserController/getUsersAboveAge?format=dot
      */
-    private void appendIndent(StringBuilder sb, int depth) {
-        for (int i = 0; i < depth; i++) {
-            sb.append("  ");
+    @GetMapping("/export/{packagePath}/{className}/{methodName}")
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> exportCallGraph(
+            @PathVariable String packagePath,
+            @PathVariable String className,
+            @PathVariable String methodName,
+            @RequestParam(defaultValue = "dot") String format,
+            @ParameterObject @ModelAttribute TraversalParameters traversal) {
+        
+        String fullClassName = qualify(packagePath, className);
+        AnalysisOptions options = traversal.toOptions(properties.getTraversal());
+        CallGraphExporter.Format exportFormat = CallGraphExporter.Format.of(format);
+        
+        AnalysisResultCache.Entry cached = resultCache.get(fullClassName, methodName, options);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(
+                buildExportResponse(exportFormat, writer -> CallGraphExporter.export(
+                    cached.getCallGraph(), fullClassName, methodName, exportFormat, writer)));
         }
+        return analysisExecutor.submit(() -> {
+            JavaParserCodeFlowAnalyzer.CallGraph callGraph = analyze(fullClassName, methodName, options).getCallGraph();
+            return buildExportResponse(exportFormat, writer -> CallGraphExporter.export(
+                callGraph, fullClassName, methodName, exportFormat, writer));
+        });
+    }
+    
+    /**
+     * Exports the whole-project call graph: every method reachable from a controller entry point,
+     * each written once, with all of their calls. The precomputed graph is used if it is up to date;
+     * otherwise the methods it lacks (all of them without codeanalysis.precompute.enabled) are
+     * analyzed first, and the result is kept for later analyses.
+     * 
+     * Example: /api/codeanalysis/export/project?format=graphml
+     */
+    @GetMapping("/export/project")
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> exportProjectGraph(
+            @RequestParam(defaultValue = "dot") String format) {
+        CallGraphExporter.Format exportFormat = CallGraphExporter.Format.of(format);
+        return analysisExecutor.submit(() -> {
+            PrecomputedCallGraph projectGraph = codeFlowAnalyzer.getProjectGraph();
+            return buildExportResponse(exportFormat,
+                                       writer -> CallGraphExporter.export(projectGraph, exportFormat, writer));
+        });
     }
     
     /**
-     * Collects all classes and their methods from the call graph
+     * Writes a graph export straight to the client
      */
-    private Map<String, Set<String>> collectClassMethods(JavaParserCodeFlowAnalyzer.CallGraph callGraph) {
-        Map<String, Set<String>> classMethodMap = new HashMap<>();
+    private static ResponseEntity<StreamingResponseBody> buildExportResponse(CallGraphExporter.Format format,
+                                                                             GraphExport export) {
+        StreamingResponseBody body = outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            export.writeTo(writer);
+            writer.flush();
+        };
+        return ResponseEntity.ok()
+                             .contentType(new MediaType(MediaType.parseMediaType(format.getContentType()),
+                                                        StandardCharsets.UTF_8))
+                             .body(body);
+    }
+    
+    private interface GraphExport {
+        void writeTo(Writer writer) throws IOException;
+    }
+    
+    /**
+     * Lists the controller entry points whose call graphs reach a method, each with a call path
+     * from the entry point down to the method, or with "pathKnown": false if the graph holds the
+     * method but no chain of recorded calls leads to it
+     * 
+     * Example: /api/codeanalysis/impact/dao/UserRepository/findByAgeGreaterThan
+     */
+    @GetMapping("/impact/{packagePath}/{className}/{methodName}")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getMethodImpact(
+            @PathVariable String packagePath,
+            @PathVariable String className,
+            @PathVariable String methodName) {
         
-        // Process each class in the graph
-        for (String className : callGraph.getClasses()) {
-            Set<String> methods = classMethodMap.computeIfAbsent(className, k -> new HashSet<>());
-            methods.addAll(callGraph.getMethods(className));
-            
-            // Find methods in this class that are called
-            for (JavaParserCodeFlowAnalyzer.MethodCall call : callGraph.getAllCalls()) {
-                if (call.className.equals(className)) {
-                    methods.add(call.methodName);
-                }
-            }
-        }
-        return classMethodMap;
+        String fullClassName = qualify(packagePath, className);
+        return analysisExecutor.submit(() -> {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("method", fullClassName + "." + methodName);
+            result.put("entryPoints", toImpactList(impactAnalyzer.findEntryPointsReaching(fullClassName, methodName)));
+            return ResponseEntity.ok(result);
+        });
     }
     
     /**
-     * Extracts source code for a specific method from its class file
+     * Lists the controller entry points whose call graphs were built from any of the changed files.
+     * The body is {"files": [...]} with absolute paths or paths relative to the repository root,
+     * for example the output of {@code git diff --name-only}.
+     * 
+     * Example: POST /api/codeanalysis/impact {"files": ["mod1/src/main/java/com/sbtl1/mod1/service/UserService.java"]}
      */
-    private String extractMethodSource(String className, String methodName) {
-        try {
-            // Convert class name to file path
-            String simpleClassName = className.substring(className.lastIndexOf('.') + 1);
-            String packageName = className.substring(0, className.lastIndexOf('.'));
-            String packagePath = packageName.replace('.', File.separatorChar);
-            
-            // Get the source root path from the analyzer
-            String sourceRootPath = new File(System.getProperty("user.dir")).getAbsolutePath();
-            
-            // Find the actual file by trying common source paths
-            String[] possiblePaths = {
-                Paths.get(sourceRootPath, "mod1", "src", "main", "java", packagePath, simpleClassName + ".java").toString(),
-                Paths.get(sourceRootPath, "src", "main", "java", packagePath, simpleClassName + ".java").toString()
-            };
-            
-            String filePath = null;
-            for (String path : possiblePaths) {
-                if (Files.exists(Paths.get(path))) {
-                    filePath = path;
-                    break;
-                }
+    @PostMapping("/impact")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getFilesImpact(
+            @RequestBody Map<String, List<String>> request) {
+        
+        List<String> files = request.getOrDefault("files", Collections.emptyList());
+        return analysisExecutor.submit(() -> {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("files", files);
+            result.put("entryPoints", toImpactList(impactAnalyzer.findEntryPointsReadingFiles(files)));
+            return ResponseEntity.ok(result);
+        });
+    }
+    
+    private static List<Map<String, Object>> toImpactList(List<ImpactAnalyzer.Impact> impacts) {
+        List<Map<String, Object>> entryPoints = new ArrayList<>();
+        for (ImpactAnalyzer.Impact impact : impacts) {
+            Map<String, Object> entryPoint = new LinkedHashMap<>();
+            entryPoint.put("className", impact.className);
+            entryPoint.put("methodName", impact.methodName);
+            if (impact.path != null && impact.path.isEmpty()) {
+                entryPoint.put("pathKnown", false);
+            } else if (impact.path != null) {
+                entryPoint.put("path", impact.path);
             }
-            
-            if (filePath == null) {
-                // Special handling for Spring Data JPA repository methods
-                if (className.endsWith("Repository") && className.contains(".dao.")) {
-                    // Try to extract interface declaration and method signature
-                    for (String path : possiblePaths) {
-                        String possibleFilePath = path.replace(".java", ".java");
-                        if (Files.exists(Paths.get(possibleFilePath))) {
-                            String content = new String(Files.readAllBytes(Paths.get(possibleFilePath)));
-                            
-                            // Extract the interface declaration including the method
-                            java.util.regex.Pattern interfacePattern = java.util.regex.Pattern.compile(
-                                "public\\s+interface\\s+" + simpleClassName + ".*\\{([^}]*)" + 
-                                java.util.regex.Pattern.quote(methodName) + "[^;]*;", 
-                                java.util.regex.Pattern.DOTALL);
-                            
-                            java.util.regex.Matcher interfaceMatcher = interfacePattern.matcher(content);
-                            if (interfaceMatcher.find()) {
-                                // Find the specific method
-                                java.util.regex.Pattern methodPattern = java.util.regex.Pattern.compile(
-                                    "\\s*(?:.*)(List|Set|Collection|Optional|\\w+)<[^>]*>\\s+" + 
-                                    java.util.regex.Pattern.quote(methodName) + "\\s*\\([^)]*\\)\\s*;", 
-                                    java.util.regex.Pattern.DOTALL);
-                                
-                                java.util.regex.Matcher methodMatcher = methodPattern.matcher(content);
-                                if (methodMatcher.find()) {
-                                    return "// Spring Data JPA Repository Interface Method\n" + 
-                                           "@Repository\npublic interface " + simpleClassName + " extends JpaRepository<...> {\n    " + 
-                                           methodMatcher.group(0).trim() + "\n    // This method is implemented automatically by Spring Data JPA\n}";
-                                }
-                            }
-                        }
-                    }
-                    
-                    // If we couldn't extract it, provide a generic explanation
-                    return "// Method " + methodName + " is a Spring Data JPA repository method\n" +
-                           "// It is automatically implemented by Spring based on the method name pattern\n" +
-                           "// For example: findByAgeGreaterThan generates a query like:\n" +
-                           "// SELECT * FROM users WHERE age > ?";
-                }
-                
-                return "// Source file not found for " + className;
+            if (impact.files != null) {
+                entryPoint.put("files", impact.files);
             }
-            
-            // Read file content
-            String fileContent = new String(Files.readAllBytes(Paths.get(filePath)));
-            
-            // Check if this is an entity class referenced in the call chain
-            boolean isEntity = fileContent.contains("@Entity") && className.contains(".entities.");
-            if (isEntity && !"toString".equals(methodName) && !"hashCode".equals(methodName) && !"equals".equals(methodName)) {
-                // For entity classes, include the whole class as context
-                java.util.regex.Pattern classPattern = java.util.regex.Pattern.compile(
-                        "(?:@Entity.*class|class)\\s+" + simpleClassName + "\\s+(?:extends\\s+\\w+\\s+)?(?:implements\\s+[\\w,\\s]+\\s+)?\\{([^}]*)\\}", 
-                        java.util.regex.Pattern.DOTALL);
-                
-                java.util.regex.Matcher classMatcher = classPattern.matcher(fileContent);
-                if (classMatcher.find()) {
-                    return "// Entity class used in the data access layer\n" + 
-                           fileContent.substring(classMatcher.start(), classMatcher.end());
-                }
+            entryPoints.add(entryPoint);
+        }
+        return entryPoints;
+    }
+    
+    /**
+     * Reports the analyzer's cache statistics
+     *
+     * Example: /api/codeanalysis/stats
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("parseCache", codeFlowAnalyzer.getParsedFileCache().getStats());
+        stats.put("sourceStore", codeFlowAnalyzer.getParsedFileCache().getSourceFileStore().getStats());
+        stats.put("resolutionCache", codeFlowAnalyzer.getResolutionCache().getStats());
+        stats.put("executor", analysisExecutor.getStats());
+        stats.put("resultCache", resultCache.getStats());
+        BytecodeCallGraphAnalyzer bytecodeAnalyzer = codeFlowAnalyzer.getBytecodeAnalyzer();
+        stats.put("bytecode", Map.of("classes", bytecodeAnalyzer.getClassCount(),
+                                     "classRoots", bytecodeAnalyzer.getClassRoots().size()));
+        PrecomputedCallGraph precomputed = codeFlowAnalyzer.getPrecomputed();
+        if (precomputed != null) {
+            stats.put("precomputed", Map.of("methods", precomputed.getMethodCount(),
+                                            "entryPoints", precomputed.getEntryPoints().size()));
+        }
+        return ResponseEntity.ok(stats);
+    }
+    
+    /**
+     * The ETag header of a response: a weak validator, since the same content may be sent gzip-compressed
+     * or not, and Tomcat does not compress responses with strong ETags
+     */
+    private static String weak(String eTag) {
+        return "W/" + eTag;
+    }
+    
+    /**
+     * Whether an If-None-Match header value matches the given strong ETag.
+     * Weak validators are compared by their opaque tag, as RFC 9110 requires for If-None-Match.
+     */
+    private static boolean matchesETag(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
             }
-            
-            // Extract method code using regex
-            // Find the method in the file - handle methods with access modifiers or default methods
-            java.util.regex.Pattern methodPattern = java.util.regex.Pattern.compile(
-                    "(?:public|private|protected|default|)\\s+(?:static\\s+)?(?:[\\w<>\\[\\],\\s]+)\\s+" + 
-                    java.util.regex.Pattern.quote(methodName.replace("default ", "")) + "\\s*\\([^)]*\\)\\s*(?:throws[^{]+)?\\{", 
-                    java.util.regex.Pattern.DOTALL);
-            
-            java.util.regex.Matcher methodMatcher = methodPattern.matcher(fileContent);
-            if (methodMatcher.find()) {
-                int startPos = methodMatcher.start();
-                
-                // Find the matching closing brace
-                int pos = methodMatcher.end();
-                int braceCount = 1;
-                
-                while (braceCount > 0 && pos < fileContent.length()) {
-                    char c = fileContent.charAt(pos);
-                    if (c == '{') braceCount++;
-                    else if (c == '}') braceCount--;
-                    pos++;
-                }
-                
-                if (braceCount == 0) {
-                    return fileContent.substring(startPos, pos).trim();
-                }
+            if (tag.equals("*") || tag.equals(eTag)) {
+                return true;
             }
-            
-            return "// Method " + methodName + " not found in " + className;
-        } catch (IOException e) {
-            return "// Error extracting source: " + e.getMessage();
         }
+        return false;
     }
     
+    /**
+     * Maps invalid request parameters, such as a negative limit, to 400
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, Object>> handleIllegalArgument(IllegalArgumentException e) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("error", "BAD_REQUEST");
+        body.put("message", e.getMessage());
+        return ResponseEntity.badRequest().body(body);
+    }
+    
+    /**
+     * Maps a saturated analysis executor to 429 (queue full) or 503 (queued too long)
+     */
+    @ExceptionHandler(AnalysisRejectedException.class)
+    public ResponseEntity<Map<String, Object>> handleRejected(AnalysisRejectedException e) {
+        HttpStatus status = e.getReason() == AnalysisRejectedException.Reason.QUEUE_FULL
+            ? HttpStatus.TOO_MANY_REQUESTS
+            : HttpStatus.SERVICE_UNAVAILABLE;
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("error", e.getReason().name());
+        body.put("message", e.getMessage());
+        return ResponseEntity.status(status)
+                             .header(HttpHeaders.RETRY_AFTER, "1")
+                             .body(body);
+    }
+
     /**
      * Process the call graph into a more readable format
      */
@@ -384,9 +644,6 @@ public class CodeAnalysisController {
         Map<String, Object> processedFlow = new HashMap<>();
         Map<String, List<String>> callHierarchy = new HashMap<>();
         
-        // Debug the call graph structure if needed
-        // debugCallGraph(callGraph);
-        
         // Generate a more structured representation
         for (String className : callGraph.getClasses()) {
             for (Map.Entry<String, List<JavaParserCodeFlowAnalyzer.MethodCall>> entry : 
@@ -434,162 +691,9 @@ public class CodeAnalysisController {
             methodNames.addAll(callGraph.getMethods(className));
         }
         
-        // Also find any methods in this class that are called by other classes
-        for (JavaParserCodeFlowAnalyzer.MethodCall call : callGraph.getAllCalls()) {
-            if (call.className.equals(className)) {
-                methodNames.add(call.methodName);
-            }
-        }
+        // Also add any methods in this class that are called by other classes
+        methodNames.addAll(callGraph.getCalledMethods(className));
         
         return new ArrayList<>(methodNames);
     }
-    
-    /**
-     * Debug method to print the call graph structure
-     */
-    private void debugCallGraph(JavaParserCodeFlowAnalyzer.CallGraph callGraph) {
-        System.out.println("CALL GRAPH DEBUG:");
-        System.out.println("Classes: " + callGraph.getClasses());
-        
-        for (String className : callGraph.getClasses()) {
-            System.out.println("Class: " + className);
-            Set<String> methods = callGraph.getMethods(className);
-            System.out.println("  Methods: " + methods);
-            
-            for (String methodName : methods) {
-                List<JavaParserCodeFlowAnalyzer.MethodCall> calls = callGraph.getCalls(className, methodName);
-                System.out.println("  " + methodName + " calls: " + calls);
-            }
-        }
-    }
-    
-    /**
-     * Find repository file by class name
-     */
-    private String findRepositoryFile(String className) {
-        try {
-            String simpleClassName = className.substring(className.lastIndexOf('.') + 1);
-            String packageName = className.substring(0, className.lastIndexOf('.'));
-            String packagePath = packageName.replace('.', File.separatorChar);
-            
-            String sourceRootPath = new File(System.getProperty("user.dir")).getAbsolutePath();
-            
-            String[] possiblePaths = {
-                Paths.get(sourceRootPath, "mod1", "src", "main", "java", packagePath, simpleClassName + ".java").toString(),
-                Paths.get(sourceRootPath, "src", "main", "java", packagePath, simpleClassName + ".java").toString()
-            };
-            
-            for (String path : possiblePaths) {
-                if (Files.exists(Paths.get(path))) {
-                    return path;
-                }
-            }
-            
-            return null;
-        } catch (Exception e) {
-            return null;
-        }
-    }
-    
-    /**
-     * Get the complete entity class code
-     */
-    private String getEntityClassCode(String className) throws IOException {
-        String simpleClassName = className.substring(className.lastIndexOf('.') + 1);
-        String packageName = className.substring(0, className.lastIndexOf('.'));
-        String packagePath = packageName.replace('.', File.separatorChar);
-        
-        String sourceRootPath = new File(System.getProperty("user.dir")).getAbsolutePath();
-        
-        String[] possiblePaths = {
-            Paths.get(sourceRootPath, "mod1", "src", "main", "java", packagePath, simpleClassName + ".java").toString(),
-            Paths.get(sourceRootPath, "src", "main", "java", packagePath, simpleClassName + ".java").toString()
-        };
-        
-        for (String path : possiblePaths) {
-            if (Files.exists(Paths.get(path))) {
-                return new String(Files.readAllBytes(Paths.get(path)));
-            }
-        }
-        
-        return "// Entity class not found: " + className;
-    }
-    
-    /**
-     * Get the complete repository interface code
-     */
-    private String getRepositoryCode(String className) throws IOException {
-        String simpleClassName = className.substring(className.lastIndexOf('.') + 1);
-        String packageName = className.substring(0, className.lastIndexOf('.'));
-        String packagePath = packageName.replace('.', File.separatorChar);
-        
-        String sourceRootPath = new File(System.getProperty("user.dir")).getAbsolutePath();
-        
-        String[] possiblePaths = {
-            Paths.get(sourceRootPath, "mod1", "src", "main", "java", packagePath, simpleClassName + ".java").toString(),
-            Paths.get(sourceRootPath, "src", "main", "java", packagePath, simpleClassName + ".java").toString()
-        };
-        
-        for (String path : possiblePaths) {
-            if (Files.exists(Paths.get(path))) {
-                return new String(Files.readAllBytes(Paths.get(path)));
-            }
-        }
-        
-        return "// Repository interface not found: " + className;
-    }
-    
-    /**
-     * Check if the method is a repository method that was already displayed in the repository interface
-     */
-    private boolean isRepositoryMethod(String className, Set<String> methods, Set<String> repoClassNames) {
-        if (className.contains(".dao.") && className.endsWith("Repository")) {
-            return true; // This is a repository class we've already shown
-        }
-        return false;
-    }
-    
-    /**
-     * Find the controller class that contains a given method
-     */
-    private String findControllerForMethod(String methodName) {
-        try {
-            // Get the source root path
-            String sourceRootPath = new File(System.getProperty("user.dir")).getAbsolutePath();
-            String controllersPath = Paths.get(sourceRootPath, "mod1", "src", "main", "java", 
-                                             "com", "sbtl1", "mod1", "rest").toString();
-            
-            File controllersDir = new File(controllersPath);
-            if (!controllersDir.exists() || !controllersDir.isDirectory()) {
-                return null;
-            }
-            
-            // Scan all Java files in the controllers directory
-            File[] files = controllersDir.listFiles((dir, name) -> name.endsWith("Controller.java"));
-            if (files == null) {
-                return null;
-            }
-            
-            // Check each controller file for the method
-            for (File file : files) {
-                String content = new String(Files.readAllBytes(file.toPath()));
-                
-                // Simple regex to check for method definition
-                java.util.regex.Pattern methodPattern = java.util.regex.Pattern.compile(
-                        "(?:public|private|protected)\\s+(?:static\\s+)?(?:[\\w<>\\[\\],\\s]+)\\s+" + 
-                        java.util.regex.Pattern.quote(methodName) + "\\s*\\([^)]*\\)", 
-                        java.util.regex.Pattern.DOTALL);
-                
-                java.util.regex.Matcher matcher = methodPattern.matcher(content);
-                if (matcher.find()) {
-                    // Found the method in this controller
-                    return file.getName().replace(".java", "");
-                }
-            }
-            
-            return null;
-        } catch (Exception e) {
-            return null;
-        }
-    }
 } 
\ No newline at end of file
@@ -0,0 +1,48 @@
+package com.sbtl1.mod1.rest;
+
+import com.sbtl1.mod1.config.CodeAnalysisProperties;
+import com.sbtl1.mod1.util.AnalysisOptions;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * The traversal parameters of the analysis endpoints (engine, parallel, maxDepth, maxNodes and
+ * timeoutMs), bound from the query string. A parameter the request does not pass stays null and
+ * is taken from the {@code codeanalysis.traversal} defaults.
+ */
+@Getter
+@Setter
+public class TraversalParameters {
+    /** source or bytecode */
+    private String engine;
+    private Boolean parallel;
+    /** Call depth beyond which methods are not expanded; 0 is unlimited */
+    private Integer maxDepth;
+    /** Methods expanded before the traversal stops; 0 is unlimited */
+    private Integer maxNodes;
+    /** Milliseconds after which the traversal stops; 0 is unlimited */
+    private Long timeoutMs;
+
+    /**
+     * The analysis options of the request, with the configured default for each parameter left out
+     *
+     * @throws IllegalArgumentException if the engine is unknown or a limit is negative
+     */
+    AnalysisOptions toOptions(CodeAnalysisProperties.Traversal defaults) {
+        return AnalysisOptions.defaults()
+                              .withEngine(toEngine(engine != null ? engine : defaults.getDefaultEngine()))
+                              .withParallel(parallel != null ? parallel : defaults.isParallelByDefault())
+                              .withMaxDepth(maxDepth != null ? maxDepth : defaults.getDefaultMaxDepth())
+                              .withMaxNodes(maxNodes != null ? maxNodes : defaults.getDefaultMaxNodes())
+                              .withTimeoutMillis(timeoutMs != null ? timeoutMs : defaults.getDefaultTimeoutMs());
+    }
+
+    private static AnalysisOptions.Engine toEngine(String engine) {
+        for (AnalysisOptions.Engine candidate : AnalysisOptions.Engine.values()) {
+            if (candidate.name().equalsIgnoreCase(engine)) {
+                return candidate;
+            }
+        }
+        throw new IllegalArgumentException("Unknown engine " + engine + ", expected source or bytecode");
+    }
+}
@@ -0,0 +1,178 @@
+package com.sbtl1.mod1.util;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A dedicated, bounded executor for analysis requests.
+ * At most {@code maxConcurrent} analyses run at once and at most {@code queueCapacity} wait;
+ * requests beyond that, or requests that waited longer than {@code queueTimeout}, are rejected
+ * with an {@link AnalysisRejectedException} so that analysis bursts cannot starve the servlet
+ * container's request threads. A waiting request is rejected, and leaves the queue, as soon as
+ * its timeout passes, not only once a worker gets to it.
+ */
+public class AnalysisExecutor implements AutoCloseable {
+    private final ThreadPoolExecutor executor;
+    private final ScheduledThreadPoolExecutor timer;
+    private final int queueCapacity;
+    private final Duration queueTimeout;
+    private final LongAdder rejectedQueueFull = new LongAdder();
+    private final LongAdder rejectedQueueTimeout = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+
+    public AnalysisExecutor(int maxConcurrent, int queueCapacity, Duration queueTimeout) {
+        this.queueCapacity = queueCapacity;
+        this.queueTimeout = queueTimeout;
+        this.executor = new ThreadPoolExecutor(
+            maxConcurrent, maxConcurrent, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+            namedThreadFactory("analysis-"),
+            new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+        this.timer = new ScheduledThreadPoolExecutor(1, namedThreadFactory("analysis-queue-timeout-"));
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    private static ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Submits an analysis task. The returned future completes exceptionally with an
+     * {@link AnalysisRejectedException} if the task is still in the queue when the timeout passes.
+     *
+     * @throws AnalysisRejectedException if the queue is full
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        QueuedTask<T> queued = new QueuedTask<>(task);
+        try {
+            executor.execute(queued);
+        } catch (RejectedExecutionException e) {
+            rejectedQueueFull.increment();
+            throw new AnalysisRejectedException(AnalysisRejectedException.Reason.QUEUE_FULL,
+                "Analysis queue is full (" + queueCapacity + " waiting requests)");
+        }
+        queued.timeout = timer.schedule(() -> {
+            // Fails once a worker has taken the task, which then runs
+            if (executor.remove(queued)) {
+                queued.reject();
+            }
+        }, queueTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        return queued.future;
+    }
+
+    /**
+     * A task in the queue, with the timer that takes it out when it has waited too long
+     */
+    private class QueuedTask<T> implements Runnable {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        final Supplier<T> task;
+        final long enqueuedAt = System.nanoTime();
+        volatile ScheduledFuture<?> timeout;
+
+        QueuedTask(Supplier<T> task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            ScheduledFuture<?> pending = timeout;
+            if (pending != null) {
+                pending.cancel(false);
+            }
+            // The timer may not have fired yet, or not have been scheduled, when a worker was late
+            if (System.nanoTime() - enqueuedAt > queueTimeout.toNanos()) {
+                reject();
+                return;
+            }
+            try {
+                future.complete(task.get());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            } finally {
+                completed.increment();
+            }
+        }
+
+        void reject() {
+            rejectedQueueTimeout.increment();
+            long waited = System.nanoTime() - enqueuedAt;
+            future.completeExceptionally(new AnalysisRejectedException(
+                AnalysisRejectedException.Reason.QUEUE_TIMEOUT,
+                "Analysis request waited " + TimeUnit.NANOSECONDS.toMillis(waited) + " ms in the queue"));
+        }
+    }
+
+    /**
+     * Number of requests waiting for a worker
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Number of requests currently being analyzed
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getMaxConcurrent() {
+        return executor.getMaximumPoolSize();
+    }
+
+    public long getRejectedCount() {
+        return rejectedQueueFull.sum() + rejectedQueueTimeout.sum();
+    }
+
+    public long getQueueFullRejections() {
+        return rejectedQueueFull.sum();
+    }
+
+    public long getQueueTimeoutRejections() {
+        return rejectedQueueTimeout.sum();
+    }
+
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    /**
+     * The pool and queue limits with the current load and the rejections by reason, as reported by the stats endpoint
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxConcurrent", getMaxConcurrent());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("queueTimeoutMs", queueTimeout.toMillis());
+        stats.put("active", getActiveCount());
+        stats.put("queueDepth", getQueueDepth());
+        stats.put("completed", getCompletedCount());
+        stats.put("rejectedQueueFull", getQueueFullRejections());
+        stats.put("rejectedQueueTimeout", getQueueTimeoutRejections());
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        timer.shutdownNow();
+    }
+}
@@ -0,0 +1,60 @@
+package com.sbtl1.mod1.util;
+
+import java.util.Locale;
+
+/**
+ * Receives timings and sizes from the analysis engine. The engine does not depend on a metrics
+ * library; the application plugs in an implementation that forwards to its registry.
+ * Implementations are called from concurrent requests and must be thread-safe and cheap.
+ */
+public interface AnalysisMetrics {
+    /**
+     * Does nothing; used until an implementation is set
+     */
+    AnalysisMetrics NONE = new AnalysisMetrics() {
+        @Override
+        public void recordPhase(Phase phase, long nanos) {
+        }
+
+        @Override
+        public void recordGraph(int nodes, int edges) {
+        }
+    };
+
+    /**
+     * A step of an analysis. Phases nest: a traversal includes the lookups, parses, field analysis
+     * and resolutions of the methods it visits, and rendering includes snippet extraction.
+     */
+    enum Phase {
+        /** Finding the file that declares a type in the symbol index */
+        FILE_LOOKUP,
+        /** Getting a file's syntax tree, from the parse cache or by reading and parsing it */
+        PARSE,
+        /** Working out the types of a class's fields */
+        FIELD_ANALYSIS,
+        /** Resolving the declaring type of a method call site, from the cache or the symbol solver */
+        SYMBOL_RESOLUTION,
+        /** Reading the compiled classes of the project for the bytecode engine */
+        CLASS_SCAN,
+        /** A whole call flow analysis of one entry point */
+        TRAVERSAL,
+        /** Slicing method bodies and source files for a snippet document */
+        SNIPPET_EXTRACTION,
+        /** Rendering a whole snippet document */
+        MARKDOWN_RENDERING;
+
+        /**
+         * The phase name as a metric tag value, such as {@code symbol_resolution}
+         */
+        public String tagValue() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    void recordPhase(Phase phase, long nanos);
+
+    /**
+     * Records the size of a call graph produced by an analysis
+     */
+    void recordGraph(int nodes, int edges);
+}
@@ -0,0 +1,145 @@
+package com.sbtl1.mod1.util;
+
+import java.util.Objects;
+
+/**
+ * Per-request options for {@link JavaParserCodeFlowAnalyzer#analyzeCallFlow(String, String, AnalysisOptions)}.
+ * Instances are immutable; use the {@code with...} methods to derive modified copies.
+ * <p>
+ * A limit of 0 means unlimited. When a traversal hits a limit it stops expanding and returns the
+ * graph built so far; the methods it reached but did not expand are the graph's
+ * {@linkplain JavaParserCodeFlowAnalyzer.CallGraph#getFrontier() frontier}.
+ */
+public class AnalysisOptions {
+    private static final AnalysisOptions DEFAULTS = new AnalysisOptions(Engine.SOURCE, false, 0, 0, 0);
+
+    /**
+     * Where the edges of a call graph are read from
+     */
+    public enum Engine {
+        /** Parsed sources, with calls resolved by the symbol solver */
+        SOURCE,
+        /** Compiled classes, with calls taken from their invoke instructions; see {@link BytecodeCallGraphAnalyzer} */
+        BYTECODE
+    }
+
+    /**
+     * A limit that can cut a traversal short
+     */
+    public enum Limit {
+        /** Calls further from the entry point than {@link #getMaxDepth()} */
+        DEPTH,
+        /** More methods than {@link #getMaxNodes()} */
+        NODES,
+        /** Running longer than {@link #getTimeoutMillis()} */
+        TIMEOUT
+    }
+
+    private final Engine engine;
+    private final boolean parallel;
+    private final int maxDepth;
+    private final int maxNodes;
+    private final long timeoutMillis;
+
+    private AnalysisOptions(Engine engine, boolean parallel, int maxDepth, int maxNodes, long timeoutMillis) {
+        if (maxDepth < 0 || maxNodes < 0 || timeoutMillis < 0) {
+            throw new IllegalArgumentException("Limits must not be negative");
+        }
+        this.engine = Objects.requireNonNull(engine, "engine");
+        this.parallel = parallel;
+        this.maxDepth = maxDepth;
+        this.maxNodes = maxNodes;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Sequential traversal of the sources without limits
+     */
+    public static AnalysisOptions defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * Where the call graph is read from
+     */
+    public Engine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Whether independent callee subtrees are expanded in parallel on the analyzer's fork/join pool
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * The number of calls away from the entry point beyond which methods are not expanded, or 0.
+     * The entry point is at depth 0; implementors of an interface method are one step further.
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * The number of methods expanded before the traversal stops, or 0
+     */
+    public int getMaxNodes() {
+        return maxNodes;
+    }
+
+    /**
+     * How long the traversal may run before it stops expanding methods, or 0. Only methods
+     * already being analyzed are finished, so the deadline is overrun by at most one method.
+     */
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * Whether any limit is set
+     */
+    public boolean isLimited() {
+        return maxDepth > 0 || maxNodes > 0 || timeoutMillis > 0;
+    }
+
+    public AnalysisOptions withEngine(Engine engine) {
+        return new AnalysisOptions(engine, parallel, maxDepth, maxNodes, timeoutMillis);
+    }
+
+    public AnalysisOptions withParallel(boolean parallel) {
+        return new AnalysisOptions(engine, parallel, maxDepth, maxNodes, timeoutMillis);
+    }
+
+    public AnalysisOptions withMaxDepth(int maxDepth) {
+        return new AnalysisOptions(engine, parallel, maxDepth, maxNodes, timeoutMillis);
+    }
+
+    public AnalysisOptions withMaxNodes(int maxNodes) {
+        return new AnalysisOptions(engine, parallel, maxDepth, maxNodes, timeoutMillis);
+    }
+
+    public AnalysisOptions withTimeoutMillis(long timeoutMillis) {
+        return new AnalysisOptions(engine, parallel, maxDepth, maxNodes, timeoutMillis);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        AnalysisOptions other = (AnalysisOptions) obj;
+        return engine == other.engine && parallel == other.parallel && maxDepth == other.maxDepth && maxNodes == other.maxNodes
+            && timeoutMillis == other.timeoutMillis;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(engine, parallel, maxDepth, maxNodes, timeoutMillis);
+    }
+
+    @Override
+    public String toString() {
+        return "AnalysisOptions[engine=" + engine + ", parallel=" + parallel + ", maxDepth=" + maxDepth + ", maxNodes=" + maxNodes +
+               ", timeoutMillis=" + timeoutMillis + "]";
+    }
+}
@@ -0,0 +1,134 @@
+package com.sbtl1.mod1.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Where the time and work of a single analysis request went. A profile is created for a request
+ * that asks for one and passed along with the traversal; the counters are thread-safe, so a
+ * parallel traversal records into the same profile from every worker.
+ * <p>
+ * Phase times are summed over all threads and nest like the {@link AnalysisMetrics.Phase phases}
+ * do, so in a parallel traversal they can exceed the request's wall time.
+ */
+public class AnalysisProfile {
+    private static final AnalysisMetrics.Phase[] PHASES = AnalysisMetrics.Phase.values();
+
+    private final long startNanos = System.nanoTime();
+    private final AtomicLongArray phaseNanos = new AtomicLongArray(PHASES.length);
+    private final AtomicLongArray phaseCounts = new AtomicLongArray(PHASES.length);
+    private final LongAdder filesParsed = new LongAdder();
+    private final LongAdder parseCacheHits = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder callSites = new LongAdder();
+    private final LongAdder resolveCalls = new LongAdder();
+    private final LongAdder resolveNanos = new LongAdder();
+    private final LongAdder methodsAnalyzed = new LongAdder();
+    private final LongAdder methodsReused = new LongAdder();
+    private final LongAdder nodesVisited = new LongAdder();
+    private final LongAdder edgesVisited = new LongAdder();
+    private final LongAdder implementorScans = new LongAdder();
+
+    public void recordPhase(AnalysisMetrics.Phase phase, long nanos) {
+        phaseNanos.addAndGet(phase.ordinal(), nanos);
+        phaseCounts.incrementAndGet(phase.ordinal());
+    }
+
+    /**
+     * A file was read and parsed because it was not in the parse cache or had changed
+     */
+    void fileParsed() {
+        filesParsed.increment();
+    }
+
+    void parseCacheHit() {
+        parseCacheHits.increment();
+    }
+
+    void addBytesRead(long bytes) {
+        bytesRead.add(bytes);
+    }
+
+    /**
+     * A call site was looked up in the resolution cache
+     */
+    void callSiteResolved() {
+        callSites.increment();
+    }
+
+    /**
+     * The symbol solver's resolve() ran for a call site that was not cached
+     */
+    void resolveCalled(long nanos) {
+        resolveCalls.increment();
+        resolveNanos.add(nanos);
+    }
+
+    /**
+     * A method was parsed and analyzed rather than replayed
+     */
+    void methodAnalyzed() {
+        methodsAnalyzed.increment();
+    }
+
+    /**
+     * A method's result was replayed from the precomputed graph or another traversal of the batch
+     */
+    void methodReused() {
+        methodsReused.increment();
+    }
+
+    void visited(int nodes, int edges) {
+        nodesVisited.add(nodes);
+        edgesVisited.add(edges);
+    }
+
+    void implementorScan() {
+        implementorScans.increment();
+    }
+
+    /**
+     * The wall time since the profile was created
+     */
+    public long getWallNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    /**
+     * The counts, wall time and per-phase timings as the "profile" object of a profile=true response
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> profile = new LinkedHashMap<>();
+        profile.put("wallTimeMs", millis(getWallNanos()));
+        profile.put("filesParsed", filesParsed.sum());
+        profile.put("parseCacheHits", parseCacheHits.sum());
+        profile.put("bytesRead", bytesRead.sum());
+        profile.put("callSitesResolved", callSites.sum());
+        profile.put("resolveCalls", resolveCalls.sum());
+        profile.put("resolveTimeMs", millis(resolveNanos.sum()));
+        profile.put("methodsAnalyzed", methodsAnalyzed.sum());
+        profile.put("methodsReused", methodsReused.sum());
+        profile.put("nodesVisited", nodesVisited.sum());
+        profile.put("edgesVisited", edgesVisited.sum());
+        profile.put("implementorScans", implementorScans.sum());
+
+        Map<String, Object> phases = new LinkedHashMap<>();
+        for (AnalysisMetrics.Phase phase : PHASES) {
+            long count = phaseCounts.get(phase.ordinal());
+            if (count > 0) {
+                Map<String, Object> timing = new LinkedHashMap<>();
+                timing.put("count", count);
+                timing.put("timeMs", millis(phaseNanos.get(phase.ordinal())));
+                phases.put(phase.tagValue(), timing);
+            }
+        }
+        profile.put("phases", phases);
+        return profile;
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+}
@@ -0,0 +1,28 @@
+package com.sbtl1.mod1.util;
+
+/**
+ * Thrown when an analysis request is not admitted because the analysis executor is saturated
+ */
+public class AnalysisRejectedException extends RuntimeException {
+
+    /**
+     * Why the request was rejected
+     */
+    public enum Reason {
+        /** The wait queue was full when the request arrived */
+        QUEUE_FULL,
+        /** The request waited in the queue longer than the configured timeout */
+        QUEUE_TIMEOUT
+    }
+
+    private final Reason reason;
+
+    public AnalysisRejectedException(Reason reason, String message) {
+        super(message);
+        this.reason = reason;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+}
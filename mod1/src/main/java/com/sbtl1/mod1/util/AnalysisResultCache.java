@@ -0,0 +1,448 @@
+package com.sbtl1.mod1.util;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A bounded cache of analysis results keyed by entry point (class, method and options).
+ * Each entry holds the call graph, the rendered snippet document once it has been
+ * requested, and ETags for both. Entries are evicted in LRU order once their combined
+ * weight (an estimate of their heap footprint in bytes) exceeds the configured limit,
+ * and are invalidated as soon as any source file the graph was built from changes.
+ */
+public class AnalysisResultCache {
+    public static final long DEFAULT_MAX_WEIGHT = 64L * 1024 * 1024;
+
+    // Per-node and per-edge heap of a compacted graph, as measured by the bench module's CallGraphMemoryBenchmark
+    private static final int NODE_WEIGHT = 96;
+    private static final int EDGE_WEIGHT = 24;
+    private static final int FILE_WEIGHT = 128;
+
+    private final long maxWeight;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalWeight;
+    private final CacheCounters counters = new CacheCounters();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Identifies an analysis result. Options that do not change the result, such as
+     * the traversal mode, are normalized away. So is the timeout: graphs cut short by it are
+     * never cached, and a complete graph does not depend on it.
+     */
+    private static class Key {
+        final String className;
+        final String methodName;
+        final AnalysisOptions options;
+
+        Key(String className, String methodName, AnalysisOptions options) {
+            this.className = className;
+            this.methodName = methodName;
+            this.options = options.withParallel(false).withTimeoutMillis(0);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (obj == null || getClass() != obj.getClass()) return false;
+            Key other = (Key) obj;
+            return className.equals(other.className) && methodName.equals(other.methodName)
+                && options.equals(other.options);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(className, methodName, options);
+        }
+    }
+
+    /**
+     * Modification time and size of a source file when the graph was built
+     */
+    private static class FileStamp {
+        final long lastModified;
+        final long length;
+
+        FileStamp(File file) {
+            this.lastModified = file.lastModified();
+            this.length = file.length();
+        }
+
+        boolean matches(File file) {
+            return lastModified == file.lastModified() && length == file.length();
+        }
+    }
+
+    /**
+     * A rendered snippet document with its ETag and the token budget it was rendered for
+     */
+    public static class SnippetDocument {
+        private final String content;
+        private final String eTag;
+        private final int maxTokens;
+        private final Map<String, FileStamp> fileStamps;
+
+        private SnippetDocument(String content, int maxTokens, Map<String, FileStamp> fileStamps) {
+            this.content = content;
+            this.eTag = computeETag(content);
+            this.maxTokens = maxTokens;
+            this.fileStamps = fileStamps;
+        }
+
+        /**
+         * The token budget the document was rendered for, or 0 if it had none
+         */
+        public int getMaxTokens() {
+            return maxTokens;
+        }
+
+        public String getContent() {
+            return content;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+    }
+
+    /**
+     * A cached analysis result
+     */
+    public static class Entry {
+        private final JavaParserCodeFlowAnalyzer.CallGraph callGraph;
+        private final Map<String, FileStamp> fileStamps;
+        private final String graphETag;
+        private final long graphWeight;
+        private volatile SnippetDocument snippetDocument;
+        /** Whether the entry is held by the cache and counted in its weight; guarded by the cache */
+        private boolean resident;
+
+        private Entry(JavaParserCodeFlowAnalyzer.CallGraph callGraph, Map<String, FileStamp> fileStamps) {
+            this.callGraph = callGraph;
+            this.fileStamps = fileStamps;
+            this.graphETag = computeGraphETag(callGraph);
+            this.graphWeight = estimateWeight(callGraph);
+        }
+
+        public JavaParserCodeFlowAnalyzer.CallGraph getCallGraph() {
+            return callGraph;
+        }
+
+        public String getGraphETag() {
+            return graphETag;
+        }
+
+        /**
+         * The rendered snippet document, or null if it has not been rendered yet or a file
+         * it was rendered from (beyond those of the graph) has changed since
+         */
+        public SnippetDocument getSnippetDocument() {
+            return getSnippetDocument(0);
+        }
+
+        /**
+         * The snippet document rendered for the given token budget, or null if it has not been
+         * rendered for that budget or a file it was rendered from has changed since. Only the
+         * document of the last budget rendered is kept.
+         */
+        public SnippetDocument getSnippetDocument(int maxTokens) {
+            SnippetDocument document = snippetDocument;
+            return document != null && document.maxTokens == maxTokens && isCurrent(document.fileStamps)
+                ? document : null;
+        }
+
+        long weight() {
+            SnippetDocument document = snippetDocument;
+            return graphWeight + (document != null ? 2L * document.content.length() : 0);
+        }
+
+        boolean dependsOn(String path) {
+            SnippetDocument document = snippetDocument;
+            return fileStamps.containsKey(path) || (document != null && document.fileStamps.containsKey(path));
+        }
+    }
+
+    public AnalysisResultCache() {
+        this(DEFAULT_MAX_WEIGHT);
+    }
+
+    public AnalysisResultCache(long maxWeight) {
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("maxWeight must be positive: " + maxWeight);
+        }
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Returns the cached result for an entry point if every source file it depends on is
+     * unchanged, otherwise null
+     */
+    public Entry get(String className, String methodName, AnalysisOptions options) {
+        Key key = new Key(className, methodName, options);
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        if (entry == null) {
+            counters.miss();
+            return null;
+        }
+        if (!isCurrent(entry.fileStamps)) {
+            remove(key, entry);
+            invalidations.increment();
+            counters.miss();
+            return null;
+        }
+        counters.hit();
+        return entry;
+    }
+
+    /**
+     * Returns the cached results for several entry points, analyzing all the missing ones with
+     * a single call to the loader and caching them
+     *
+     * @param loader analyzes the entry points it is given and returns a graph for each
+     * @return the entries in the order of the given entry points
+     */
+    public Map<EntryPoint, Entry> getAll(Collection<EntryPoint> entryPoints, AnalysisOptions options,
+                                         Function<List<EntryPoint>, Map<EntryPoint, JavaParserCodeFlowAnalyzer.CallGraph>> loader) {
+        Map<EntryPoint, Entry> result = new LinkedHashMap<>();
+        List<EntryPoint> missing = new ArrayList<>();
+        for (EntryPoint entryPoint : entryPoints) {
+            Entry entry = get(entryPoint.className, entryPoint.methodName, options);
+            result.put(entryPoint, entry);
+            if (entry == null) {
+                missing.add(entryPoint);
+            }
+        }
+        if (!missing.isEmpty()) {
+            Map<EntryPoint, JavaParserCodeFlowAnalyzer.CallGraph> graphs = loader.apply(missing);
+            for (EntryPoint entryPoint : missing) {
+                result.put(entryPoint, put(entryPoint.className, entryPoint.methodName, options, graphs.get(entryPoint)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Caches the graph analyzed for an entry point and returns its entry. Graphs that were
+     * built from no source files (the entry point was not found), or that were cut short by
+     * the timeout and so depend on how fast the analysis ran, are returned but not cached.
+     */
+    public Entry put(String className, String methodName, AnalysisOptions options,
+                     JavaParserCodeFlowAnalyzer.CallGraph callGraph) {
+        Map<String, FileStamp> stamps = stamp(callGraph.getSourceFiles());
+        Entry entry = new Entry(callGraph, stamps);
+        if (!stamps.isEmpty() && !callGraph.getFrontier().containsValue(AnalysisOptions.Limit.TIMEOUT)) {
+            Key key = new Key(className, methodName, options);
+            synchronized (this) {
+                Entry previous = entries.put(key, entry);
+                if (previous != null) {
+                    previous.resident = false;
+                    totalWeight -= previous.weight();
+                }
+                entry.resident = true;
+                totalWeight += entry.weight();
+                evictIfNeeded();
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Attaches a rendered snippet document to a result. {@code extraFiles} are the files the
+     * document was rendered from that are not already part of the graph, such as entity classes.
+     */
+    public SnippetDocument putSnippetDocument(Entry entry, String content, Collection<String> extraFiles) {
+        return putSnippetDocument(entry, content, 0, extraFiles);
+    }
+
+    /**
+     * Attaches a snippet document rendered for a token budget to a result, in place of any
+     * document rendered before
+     */
+    public SnippetDocument putSnippetDocument(Entry entry, String content, int maxTokens,
+                                              Collection<String> extraFiles) {
+        SnippetDocument document = new SnippetDocument(content, maxTokens, stamp(extraFiles));
+        synchronized (this) {
+            boolean cached = entry.resident;
+            if (cached) {
+                totalWeight -= entry.weight();
+            }
+            entry.snippetDocument = document;
+            if (cached) {
+                totalWeight += entry.weight();
+                evictIfNeeded();
+            }
+        }
+        return document;
+    }
+
+    /**
+     * Drops every result that was built from any of the given source files
+     */
+    public void invalidateFiles(Collection<String> paths) {
+        synchronized (this) {
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+                if (paths.stream().anyMatch(entry::dependsOn)) {
+                    iterator.remove();
+                    entry.resident = false;
+                    totalWeight -= entry.weight();
+                    invalidations.increment();
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (this) {
+            entries.values().forEach(entry -> entry.resident = false);
+            entries.clear();
+            totalWeight = 0;
+        }
+    }
+
+    private synchronized void remove(Key key, Entry entry) {
+        if (entries.remove(key, entry)) {
+            entry.resident = false;
+            totalWeight -= entry.weight();
+        }
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (totalWeight > maxWeight && iterator.hasNext()) {
+            Entry eldest = iterator.next();
+            iterator.remove();
+            eldest.resident = false;
+            totalWeight -= eldest.weight();
+            counters.eviction();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getTotalWeight() {
+        return totalWeight;
+    }
+
+    public long getHitCount() {
+        return counters.getHitCount();
+    }
+
+    public long getMissCount() {
+        return counters.getMissCount();
+    }
+
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+
+    public long getEvictionCount() {
+        return counters.getEvictionCount();
+    }
+
+    /**
+     * Fraction of requests answered with a cached graph, or 0 before the first request
+     */
+    public double getHitRatio() {
+        return counters.getHitRatio();
+    }
+
+    /**
+     * The cached results, their estimated weight and how often they were reused or dropped,
+     * as reported by the stats endpoint
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (this) {
+            stats.put("size", entries.size());
+            stats.put("weight", totalWeight);
+        }
+        stats.put("maxWeight", maxWeight);
+        counters.addTo(stats);
+        stats.put("invalidations", invalidations.sum());
+        return stats;
+    }
+
+    private static Map<String, FileStamp> stamp(Collection<String> paths) {
+        Map<String, FileStamp> stamps = new HashMap<>();
+        for (String path : paths) {
+            stamps.put(path, new FileStamp(new File(path)));
+        }
+        return stamps;
+    }
+
+    private static boolean isCurrent(Map<String, FileStamp> stamps) {
+        for (Map.Entry<String, FileStamp> stamp : stamps.entrySet()) {
+            if (!stamp.getValue().matches(new File(stamp.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long estimateWeight(JavaParserCodeFlowAnalyzer.CallGraph callGraph) {
+        return (long) FILE_WEIGHT * callGraph.getSourceFiles().size()
+            + (long) NODE_WEIGHT * callGraph.getNodeCount()
+            + (long) EDGE_WEIGHT * callGraph.getEdgeCount();
+    }
+
+    /**
+     * Computes a strong ETag from the graph's nodes and edges in a canonical order
+     */
+    private static String computeGraphETag(JavaParserCodeFlowAnalyzer.CallGraph callGraph) {
+        MessageDigest digest = sha256();
+        for (String className : new TreeSet<>(callGraph.getClasses())) {
+            for (String methodName : new TreeSet<>(callGraph.getMethods(className))) {
+                update(digest, className).update((byte) '.');
+                update(digest, methodName).update((byte) '\n');
+                for (JavaParserCodeFlowAnalyzer.MethodCall call : callGraph.getCalls(className, methodName)) {
+                    update(digest, call.className).update((byte) '.');
+                    update(digest, call.methodName).update((byte) ';');
+                }
+                digest.update((byte) '\n');
+            }
+        }
+        // The same nodes can be a complete graph or one cut short
+        for (Map.Entry<String, AnalysisOptions.Limit> frontier : callGraph.getFrontier().entrySet()) {
+            update(digest, frontier.getKey()).update((byte) ':');
+            update(digest, frontier.getValue().name()).update((byte) '\n');
+        }
+        return toETag(digest);
+    }
+
+    /**
+     * Computes a strong ETag for a rendered document
+     */
+    public static String computeETag(String content) {
+        MessageDigest digest = sha256();
+        update(digest, content);
+        return toETag(digest);
+    }
+
+    private static MessageDigest update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        return digest;
+    }
+
+    private static String toETag(MessageDigest digest) {
+        return "\"" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
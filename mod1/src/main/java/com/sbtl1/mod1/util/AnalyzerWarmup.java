@@ -0,0 +1,81 @@
+package com.sbtl1.mod1.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Indexes the analyzer's sources on a background thread, parsing every file into the parse
+ * cache, so the first analysis request does not pay for it. The rest of the application does
+ * not wait for the warm-up; its state is reported for readiness checks of the analysis API.
+ */
+public class AnalyzerWarmup {
+    private static final Logger log = LoggerFactory.getLogger(AnalyzerWarmup.class);
+
+    public enum State { PENDING, WARMING, READY, FAILED }
+
+    private final JavaParserCodeFlowAnalyzer analyzer;
+    private volatile State state = State.PENDING;
+    private volatile long startedAt;
+    private volatile long finishedAt;
+    private volatile int indexedTypes;
+    private volatile String failure;
+
+    public AnalyzerWarmup(JavaParserCodeFlowAnalyzer analyzer) {
+        this.analyzer = analyzer;
+    }
+
+    /**
+     * Starts the warm-up on a daemon thread; later calls do nothing
+     */
+    public synchronized void start() {
+        if (state != State.PENDING) {
+            return;
+        }
+        state = State.WARMING;
+        startedAt = System.currentTimeMillis();
+        Thread thread = new Thread(this::run, "analyzer-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run() {
+        try {
+            indexedTypes = analyzer.warmUp();
+            finishedAt = System.currentTimeMillis();
+            state = State.READY;
+            log.info("Analyzer warm-up finished in {} ms", finishedAt - startedAt);
+        } catch (RuntimeException e) {
+            finishedAt = System.currentTimeMillis();
+            failure = e.toString();
+            state = State.FAILED;
+            log.error("Analyzer warm-up failed", e);
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Time spent warming up so far, or in total once finished; 0 before the start
+     */
+    public long getDurationMillis() {
+        long start = startedAt;
+        if (start == 0) {
+            return 0;
+        }
+        long end = finishedAt;
+        return (end != 0 ? end : System.currentTimeMillis()) - start;
+    }
+
+    public int getIndexedTypes() {
+        return indexedTypes;
+    }
+
+    /**
+     * The error that stopped the warm-up, or null
+     */
+    public String getFailure() {
+        return failure;
+    }
+}
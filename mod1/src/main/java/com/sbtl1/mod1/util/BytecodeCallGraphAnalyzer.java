@@ -0,0 +1,721 @@
+package com.sbtl1.mod1.util;
+
+import javassist.bytecode.AccessFlag;
+import javassist.bytecode.BadBytecode;
+import javassist.bytecode.BootstrapMethodsAttribute;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.CodeAttribute;
+import javassist.bytecode.CodeIterator;
+import javassist.bytecode.ConstPool;
+import javassist.bytecode.MethodInfo;
+import javassist.bytecode.Opcode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Builds call graphs from compiled classes instead of sources. The class files below the class
+ * roots (build output directories, or jars such as the boot jar) are read once with Javassist into
+ * an index of each class's supertypes and the invoke instructions of its methods; an analysis then
+ * only walks that index. Nothing is parsed and no symbol is resolved: each call names its owner
+ * and descriptor, so overloads are told apart and virtual calls go exactly to the implementations
+ * that declare or inherit the invoked method. Sources are still used for snippets.
+ * <p>
+ * The graphs have the same shape as those of {@link JavaParserCodeFlowAnalyzer}: nodes are keyed
+ * by class and method name, with nested classes named as in the source. Calls in lambda bodies
+ * count as calls of the enclosing method. Bytecode does not record receiver expressions, so a
+ * call's object name is {@code this} for calls within the class and the owner's simple name
+ * otherwise. Traversals are sequential and breadth-first, so depth limits cut at the shortest
+ * call depth.
+ * <p>
+ * The index is rebuilt on the next analysis after {@link #invalidate()}, and when an analysis
+ * reads a class whose class file has changed since it was indexed.
+ */
+public class BytecodeCallGraphAnalyzer {
+    private static final Logger log = LoggerFactory.getLogger(BytecodeCallGraphAnalyzer.class);
+
+    /** Where a Spring Boot jar keeps the application's own classes */
+    private static final String BOOT_CLASSES = "BOOT-INF/classes/";
+
+    private final List<File> classRoots;
+    private final List<File> sourceRoots;
+    private volatile ClassIndex index;
+    private volatile AnalysisMetrics metrics = AnalysisMetrics.NONE;
+
+    /**
+     * An invoke instruction, or a method handle passed to a bootstrap method such as a lambda's body
+     */
+    static final class CallSite {
+        final String owner;
+        final String name;
+        final String descriptor;
+
+        CallSite(String owner, String name, String descriptor) {
+            this.owner = owner;
+            this.name = name;
+            this.descriptor = descriptor;
+        }
+    }
+
+    /**
+     * A method declared in an indexed class, with the calls in its code in instruction order
+     */
+    static final class MethodBody {
+        final String name;
+        final String descriptor;
+        final boolean hasCode;
+        final boolean synthetic;
+        final List<CallSite> calls;
+
+        MethodBody(String name, String descriptor, boolean hasCode, boolean synthetic, List<CallSite> calls) {
+            this.name = name;
+            this.descriptor = descriptor;
+            this.hasCode = hasCode;
+            this.synthetic = synthetic;
+            this.calls = calls;
+        }
+    }
+
+    /**
+     * A class read from a class file. Names are binary names with dots, as in the constant pool.
+     */
+    static final class ClassInfo {
+        final String name;
+        /** The name as written in the source, which nests with dots rather than {@code $} */
+        final String sourceName;
+        final String superName;
+        final List<String> interfaces;
+        final boolean isInterface;
+        final boolean isAbstract;
+        /** The class file, or the jar it was read from */
+        final File file;
+        final long lastModified;
+        /** Absolute path of the source file found below the source roots, or null */
+        final String sourceFile;
+        final Map<String, MethodBody> methodsBySignature;
+
+        ClassInfo(String name, String superName, List<String> interfaces, boolean isInterface, boolean isAbstract,
+                  File file, long lastModified, String sourceFile, Map<String, MethodBody> methodsBySignature) {
+            this.name = name;
+            this.sourceName = toSourceName(name);
+            this.superName = superName;
+            this.interfaces = interfaces;
+            this.isInterface = isInterface;
+            this.isAbstract = isAbstract;
+            this.file = file;
+            this.lastModified = lastModified;
+            this.sourceFile = sourceFile;
+            this.methodsBySignature = methodsBySignature;
+        }
+
+        MethodBody getMethod(String methodName, String descriptor) {
+            return methodsBySignature.get(methodName + descriptor);
+        }
+
+        /**
+         * The declared methods with the given name, bridges and other synthetic methods left out
+         */
+        List<MethodBody> getMethods(String methodName) {
+            List<MethodBody> methods = new ArrayList<>(1);
+            for (MethodBody method : methodsBySignature.values()) {
+                if (method.name.equals(methodName) && !method.synthetic) {
+                    methods.add(method);
+                }
+            }
+            return methods;
+        }
+
+        boolean isStale() {
+            return file.lastModified() != lastModified;
+        }
+    }
+
+    /**
+     * The classes below the class roots, by binary and by source name, and the concrete
+     * classes extending or implementing each of them
+     */
+    static final class ClassIndex {
+        final Map<String, ClassInfo> classes;
+        final Map<String, ClassInfo> classesBySourceName = new HashMap<>();
+        final Map<String, List<String>> implementors = new HashMap<>();
+
+        ClassIndex(Map<String, ClassInfo> classes) {
+            this.classes = classes;
+            for (ClassInfo info : classes.values()) {
+                classesBySourceName.put(info.sourceName, info);
+            }
+            for (ClassInfo info : classes.values()) {
+                if (info.isInterface || info.isAbstract) {
+                    continue;
+                }
+                for (String supertype : collectSupertypes(info)) {
+                    implementors.computeIfAbsent(supertype, k -> new ArrayList<>()).add(info.name);
+                }
+            }
+            implementors.values().forEach(Collections::sort);
+        }
+
+        private Set<String> collectSupertypes(ClassInfo info) {
+            Set<String> result = new LinkedHashSet<>();
+            Deque<ClassInfo> pending = new ArrayDeque<>();
+            pending.push(info);
+            while (!pending.isEmpty()) {
+                ClassInfo current = pending.pop();
+                List<String> supertypes = new ArrayList<>(current.interfaces);
+                if (current.superName != null) {
+                    supertypes.add(current.superName);
+                }
+                for (String supertype : supertypes) {
+                    ClassInfo supertypeInfo = classes.get(supertype);
+                    if (supertypeInfo != null && result.add(supertype)) {
+                        pending.push(supertypeInfo);
+                    }
+                }
+            }
+            return result;
+        }
+
+        List<String> getImplementors(String name) {
+            return implementors.getOrDefault(name, Collections.emptyList());
+        }
+    }
+
+    /**
+     * @param classRoots directories of class files and jars to read; those that do not exist yet are skipped
+     * @param sourceRoots where the source files of the classes are looked up, so graphs record them
+     */
+    public BytecodeCallGraphAnalyzer(List<File> classRoots, List<File> sourceRoots) {
+        this.classRoots = Collections.unmodifiableList(new ArrayList<>(classRoots));
+        this.sourceRoots = Collections.unmodifiableList(new ArrayList<>(sourceRoots));
+    }
+
+    /**
+     * The usual build output directories of the given source roots: Gradle's
+     * {@code build/classes/java/main} and Maven's {@code target/classes} for {@code src/main/java}
+     */
+    public static List<File> defaultClassRoots(List<File> sourceRoots) {
+        List<File> classRoots = new ArrayList<>();
+        for (File sourceRoot : sourceRoots) {
+            File language = sourceRoot.getAbsoluteFile();
+            File sourceSet = language.getParentFile();
+            File src = sourceSet != null ? sourceSet.getParentFile() : null;
+            if (src == null || !src.getName().equals("src")) {
+                continue;
+            }
+            File module = src.getParentFile();
+            classRoots.add(new File(module, "build/classes/" + language.getName() + "/" + sourceSet.getName()));
+            if (sourceSet.getName().equals("main")) {
+                classRoots.add(new File(module, "target/classes"));
+            }
+        }
+        return classRoots;
+    }
+
+    public List<File> getClassRoots() {
+        return classRoots;
+    }
+
+    public void setMetrics(AnalysisMetrics metrics) {
+        this.metrics = Objects.requireNonNull(metrics);
+    }
+
+    /**
+     * Drops the index, so the next analysis reads the class files again
+     */
+    public void invalidate() {
+        index = null;
+    }
+
+    /**
+     * Number of indexed classes, or 0 if the classes have not been read yet
+     */
+    public int getClassCount() {
+        ClassIndex current = index;
+        return current != null ? current.classes.size() : 0;
+    }
+
+    /**
+     * Analyzes the call flow of a method from the compiled classes
+     *
+     * @param profile the profile of the request, or null
+     */
+    public JavaParserCodeFlowAnalyzer.CallGraph analyzeCallFlow(String className, String methodName,
+                                                                AnalysisOptions options, AnalysisProfile profile) {
+        long start = System.nanoTime();
+        try {
+            Traversal traversal = null;
+            for (int attempt = 0; attempt < 2; attempt++) {
+                ClassIndex current = getIndex(profile);
+                traversal = new Traversal(current, options, profile);
+                traversal.run(className, methodName);
+                if (!traversal.stale) {
+                    break;
+                }
+                log.debug("Compiled classes changed while analyzing {}.{}, reading them again", className, methodName);
+                synchronized (this) {
+                    if (index == current) {
+                        index = null;
+                    }
+                }
+            }
+            JavaParserCodeFlowAnalyzer.CallGraph callGraph = traversal.toCallGraph();
+            metrics.recordGraph(callGraph.getNodeCount(), callGraph.getEdgeCount());
+            return callGraph;
+        } finally {
+            recordPhase(profile, AnalysisMetrics.Phase.TRAVERSAL, System.nanoTime() - start);
+        }
+    }
+
+    private void recordPhase(AnalysisProfile profile, AnalysisMetrics.Phase phase, long nanos) {
+        metrics.recordPhase(phase, nanos);
+        if (profile != null) {
+            profile.recordPhase(phase, nanos);
+        }
+    }
+
+    private ClassIndex getIndex(AnalysisProfile profile) {
+        ClassIndex current = index;
+        if (current == null) {
+            synchronized (this) {
+                current = index;
+                if (current == null) {
+                    long start = System.nanoTime();
+                    current = new ClassIndex(readClasses(classRoots, sourceRoots));
+                    long nanos = System.nanoTime() - start;
+                    recordPhase(profile, AnalysisMetrics.Phase.CLASS_SCAN, nanos);
+                    if (current.classes.isEmpty()) {
+                        // Not kept, so the classes are looked for again once the project has been built
+                        log.warn("No compiled classes found in {}; build the project or set codeanalysis.bytecode.class-roots",
+                                 classRoots);
+                    } else {
+                        log.info("Indexed {} compiled classes from {} class roots in {} ms", current.classes.size(),
+                                 classRoots.size(), TimeUnit.NANOSECONDS.toMillis(nanos));
+                        index = current;
+                    }
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Reads every class file below the class roots. Directories are listed and each class file is
+     * read on a virtual thread; each jar is read sequentially on one. A class found in more than one
+     * root is taken from the first.
+     */
+    static Map<String, ClassInfo> readClasses(List<File> classRoots, List<File> sourceRoots) {
+        List<Future<List<ClassInfo>>> pending = new ArrayList<>();
+        try (ExecutorService ioExecutor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (File classRoot : classRoots) {
+                if (classRoot.isDirectory()) {
+                    try (Stream<Path> paths = Files.walk(classRoot.toPath())) {
+                        paths.filter(p -> p.toString().endsWith(".class")).forEach(path -> pending.add(
+                            ioExecutor.submit(() -> readClassFile(path.toFile(), sourceRoots))));
+                    } catch (IOException e) {
+                        log.warn("Error listing class root {}: {}", classRoot, e.getMessage());
+                    }
+                } else if (classRoot.isFile()) {
+                    pending.add(ioExecutor.submit(() -> readJar(classRoot, sourceRoots)));
+                }
+            }
+        }
+
+        Map<String, ClassInfo> classes = new HashMap<>();
+        for (Future<List<ClassInfo>> future : pending) {
+            try {
+                for (ClassInfo info : future.get()) {
+                    classes.putIfAbsent(info.name, info);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                log.warn("Error reading compiled classes", e.getCause());
+            }
+        }
+        return classes;
+    }
+
+    private static List<ClassInfo> readClassFile(File file, List<File> sourceRoots) {
+        long lastModified = file.lastModified();
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            ClassInfo info = readClass(in, file, lastModified, sourceRoots);
+            return info != null ? Collections.singletonList(info) : Collections.emptyList();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Error reading class file {}: {}", file, e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Reads the classes of a jar; in a Spring Boot jar only the application's own classes
+     */
+    private static List<ClassInfo> readJar(File jar, List<File> sourceRoots) throws IOException {
+        long lastModified = jar.lastModified();
+        List<ClassInfo> classes = new ArrayList<>();
+        try (ZipFile zip = new ZipFile(jar)) {
+            boolean bootJar = zip.getEntry(BOOT_CLASSES) != null;
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                String name = entry.getName();
+                if (!name.endsWith(".class") || (bootJar && !name.startsWith(BOOT_CLASSES))) {
+                    continue;
+                }
+                try (InputStream in = new BufferedInputStream(zip.getInputStream(entry))) {
+                    ClassInfo info = readClass(in, jar, lastModified, sourceRoots);
+                    if (info != null) {
+                        classes.add(info);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Error reading {} from {}: {}", name, jar, e.getMessage());
+                }
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * Reads one class file, or returns null for module and package descriptors
+     */
+    static ClassInfo readClass(InputStream in, File file, long lastModified, List<File> sourceRoots) throws IOException {
+        ClassFile classFile = new ClassFile(new DataInputStream(in));
+        String name = classFile.getName();
+        if (name.equals("module-info") || name.endsWith(".package-info")) {
+            return null;
+        }
+        ConstPool constPool = classFile.getConstPool();
+        BootstrapMethodsAttribute bootstrapMethods =
+            (BootstrapMethodsAttribute) classFile.getAttribute(BootstrapMethodsAttribute.tag);
+
+        Map<String, MethodBody> methods = new LinkedHashMap<>();
+        for (MethodInfo method : classFile.getMethods()) {
+            CodeAttribute code = method.getCodeAttribute();
+            List<CallSite> calls = code != null ? readCalls(code, constPool, bootstrapMethods) : Collections.emptyList();
+            boolean synthetic = (method.getAccessFlags() & (AccessFlag.SYNTHETIC | AccessFlag.BRIDGE)) != 0;
+            methods.put(method.getName() + method.getDescriptor(),
+                        new MethodBody(method.getName(), method.getDescriptor(), code != null, synthetic, calls));
+        }
+
+        String superName = classFile.getSuperclass();
+        return new ClassInfo(name,
+                             classFile.isInterface() || "java.lang.Object".equals(superName) ? null : superName,
+                             Arrays.asList(classFile.getInterfaces()),
+                             classFile.isInterface(),
+                             classFile.isAbstract(),
+                             file,
+                             lastModified,
+                             findSourceFile(name, classFile.getSourceFile(), sourceRoots),
+                             methods);
+    }
+
+    private static List<CallSite> readCalls(CodeAttribute code, ConstPool constPool,
+                                            BootstrapMethodsAttribute bootstrapMethods) {
+        List<CallSite> calls = new ArrayList<>();
+        CodeIterator iterator = code.iterator();
+        try {
+            while (iterator.hasNext()) {
+                int pos = iterator.next();
+                int opcode = iterator.byteAt(pos);
+                switch (opcode) {
+                    case Opcode.INVOKEVIRTUAL:
+                    case Opcode.INVOKESPECIAL:
+                    case Opcode.INVOKESTATIC:
+                    case Opcode.INVOKEINTERFACE:
+                        addCall(calls, constPool, iterator.u16bitAt(pos + 1));
+                        break;
+                    case Opcode.INVOKEDYNAMIC:
+                        // Lambdas and method references pass the method they call as a handle
+                        if (bootstrapMethods != null) {
+                            int bootstrap = constPool.getInvokeDynamicBootstrap(iterator.u16bitAt(pos + 1));
+                            for (int argument : bootstrapMethods.getMethods()[bootstrap].arguments) {
+                                if (constPool.getTag(argument) == ConstPool.CONST_MethodHandle) {
+                                    addCall(calls, constPool, constPool.getMethodHandleIndex(argument));
+                                }
+                            }
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } catch (BadBytecode e) {
+            log.debug("Stopped reading calls at invalid bytecode: {}", e.getMessage());
+        }
+        return calls;
+    }
+
+    private static void addCall(List<CallSite> calls, ConstPool constPool, int index) {
+        int tag = constPool.getTag(index);
+        if (tag == ConstPool.CONST_Methodref) {
+            calls.add(new CallSite(constPool.getMethodrefClassName(index), constPool.getMethodrefName(index),
+                                   constPool.getMethodrefType(index)));
+        } else if (tag == ConstPool.CONST_InterfaceMethodref) {
+            calls.add(new CallSite(constPool.getInterfaceMethodrefClassName(index),
+                                   constPool.getInterfaceMethodrefName(index),
+                                   constPool.getInterfaceMethodrefType(index)));
+        }
+    }
+
+    /**
+     * Looks up a class's source file below the source roots from its package and SourceFile attribute
+     */
+    private static String findSourceFile(String className, String sourceFileName, List<File> sourceRoots) {
+        if (sourceFileName == null) {
+            return null;
+        }
+        int lastDot = className.lastIndexOf('.');
+        String relativePath = lastDot > 0
+            ? className.substring(0, lastDot).replace('.', File.separatorChar) + File.separator + sourceFileName
+            : sourceFileName;
+        for (File sourceRoot : sourceRoots) {
+            File sourceFile = new File(sourceRoot, relativePath);
+            if (sourceFile.isFile()) {
+                return sourceFile.getAbsolutePath();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The source name of a binary class name: nested classes are separated by dots, while anonymous
+     * and local classes, which have no source name, keep their binary name
+     */
+    static String toSourceName(String binaryName) {
+        StringBuilder name = new StringBuilder(binaryName.length());
+        for (int i = 0; i < binaryName.length(); i++) {
+            char c = binaryName.charAt(i);
+            boolean nested = c == '$' && i + 1 < binaryName.length() && !Character.isDigit(binaryName.charAt(i + 1));
+            name.append(nested ? '.' : c);
+        }
+        return name.toString();
+    }
+
+    private static String simpleName(String sourceName) {
+        return sourceName.substring(sourceName.lastIndexOf('.') + 1);
+    }
+
+    /**
+     * A method to visit: a declaration on a class, or every overload with the name if there is no descriptor
+     */
+    private static final class Visit {
+        final ClassInfo owner;
+        final String methodName;
+        final String descriptor;
+        final int depth;
+
+        Visit(ClassInfo owner, String methodName, String descriptor, int depth) {
+            this.owner = owner;
+            this.methodName = methodName;
+            this.descriptor = descriptor;
+            this.depth = depth;
+        }
+    }
+
+    /**
+     * The state of a single analysis: a breadth-first walk of the index from the entry point
+     */
+    private static final class Traversal {
+        final ClassIndex index;
+        final AnalysisProfile profile;
+        final Deque<Visit> queue = new ArrayDeque<>();
+        final Set<String> visited = new HashSet<>();
+        /** Calls of each node, keyed by class and method, in the order the nodes were reached */
+        final Map<String, Map<String, List<JavaParserCodeFlowAnalyzer.MethodCall>>> nodes = new LinkedHashMap<>();
+        final Set<String> files = new LinkedHashSet<>();
+        final int maxDepth;
+        final int maxNodes;
+        final boolean hasDeadline;
+        final long deadlineNanos;
+        final Set<String> expanded = new HashSet<>();
+        final Map<String, AnalysisOptions.Limit> cut = new HashMap<>();
+        boolean stale;
+
+        Traversal(ClassIndex index, AnalysisOptions options, AnalysisProfile profile) {
+            this.index = index;
+            this.profile = profile;
+            this.maxDepth = options.getMaxDepth();
+            this.maxNodes = options.getMaxNodes();
+            this.hasDeadline = options.getTimeoutMillis() > 0;
+            this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(options.getTimeoutMillis());
+        }
+
+        void run(String className, String methodName) {
+            ClassInfo entry = index.classesBySourceName.get(className);
+            if (entry == null) {
+                log.debug("Class not found in compiled classes: {}", className);
+                return;
+            }
+            queue.add(new Visit(entry, methodName, null, 0));
+            while (!queue.isEmpty()) {
+                visit(queue.poll());
+            }
+        }
+
+        private void visit(Visit visit) {
+            ClassInfo owner = visit.owner;
+            if (!visited.add(owner.name + "." + visit.methodName + (visit.descriptor != null ? visit.descriptor : ""))) {
+                return;
+            }
+            String signature = owner.sourceName + "." + visit.methodName;
+            if (checkLimits(signature, visit.depth) != null) {
+                return; // Left on the frontier of a truncated graph
+            }
+            if (owner.isStale()) {
+                stale = true;
+            }
+            files.add(owner.file.getAbsolutePath());
+            if (owner.sourceFile != null) {
+                files.add(owner.sourceFile);
+            }
+
+            List<MethodBody> methods;
+            if (visit.descriptor == null) {
+                methods = owner.getMethods(visit.methodName);
+            } else {
+                MethodBody method = owner.getMethod(visit.methodName, visit.descriptor);
+                methods = method != null ? Collections.singletonList(method) : Collections.emptyList();
+            }
+
+            if (methods.isEmpty()) {
+                // Inherited: follow the superclass, or dispatch an interface method to its implementors
+                ClassInfo superclass = owner.superName != null ? index.classes.get(owner.superName) : null;
+                if (superclass != null) {
+                    queue.add(new Visit(superclass, visit.methodName, visit.descriptor, visit.depth + 1));
+                    return;
+                }
+                node(owner, visit.methodName);
+                if (owner.isInterface) {
+                    visitImplementors(owner, visit);
+                }
+                return;
+            }
+
+            List<JavaParserCodeFlowAnalyzer.MethodCall> calls = node(owner, visit.methodName);
+            for (MethodBody method : methods) {
+                if (!method.hasCode) {
+                    visitImplementors(owner, new Visit(owner, visit.methodName, method.descriptor, visit.depth));
+                    continue;
+                }
+                if (profile != null) {
+                    profile.methodAnalyzed();
+                }
+                addCalls(owner, method, calls, new HashSet<>(), visit.depth + 1);
+            }
+        }
+
+        /**
+         * Adds the calls of a method to a node and queues their targets. Calls of synthetic methods
+         * of the same class, such as lambda bodies, are taken in as calls of the method itself.
+         */
+        private void addCalls(ClassInfo owner, MethodBody method, List<JavaParserCodeFlowAnalyzer.MethodCall> calls,
+                              Set<String> inlined, int depth) {
+            for (CallSite call : method.calls) {
+                if (call.owner.equals(owner.name)) {
+                    MethodBody target = owner.getMethod(call.name, call.descriptor);
+                    if (target != null && target.synthetic && target.hasCode) {
+                        if (inlined.add(call.name + call.descriptor)) {
+                            addCalls(owner, target, calls, inlined, depth);
+                        }
+                        continue;
+                    }
+                }
+                if (call.name.startsWith("<") || call.owner.startsWith("java.") || call.owner.startsWith("javax.")
+                        || JavaParserCodeFlowAnalyzer.isCommonMethod(call.name)) {
+                    continue;
+                }
+                String objectName = call.owner.equals(owner.name) ? "this" : simpleName(toSourceName(call.owner));
+                ClassInfo target = findDeclaringClass(index.classes.get(call.owner), call.name, call.descriptor);
+                if (target == null) {
+                    calls.add(new JavaParserCodeFlowAnalyzer.MethodCall(objectName, toSourceName(call.owner), call.name));
+                    continue;
+                }
+                calls.add(new JavaParserCodeFlowAnalyzer.MethodCall(objectName, target.sourceName, call.name));
+                queue.add(new Visit(target, call.name, call.descriptor, depth));
+            }
+        }
+
+        /**
+         * The class a call goes to: the nearest indexed class from the owner up its superclasses that
+         * declares the method, or the owner itself if none does. Null for classes outside the index.
+         */
+        private ClassInfo findDeclaringClass(ClassInfo owner, String methodName, String descriptor) {
+            for (ClassInfo current = owner; current != null;
+                 current = current.superName != null ? index.classes.get(current.superName) : null) {
+                if (current.getMethod(methodName, descriptor) != null) {
+                    return current;
+                }
+            }
+            return owner;
+        }
+
+        private void visitImplementors(ClassInfo owner, Visit visit) {
+            if (profile != null) {
+                profile.implementorScan();
+            }
+            for (String implementor : index.getImplementors(owner.name)) {
+                queue.add(new Visit(index.classes.get(implementor), visit.methodName, visit.descriptor, visit.depth + 1));
+            }
+        }
+
+        private List<JavaParserCodeFlowAnalyzer.MethodCall> node(ClassInfo owner, String methodName) {
+            return nodes.computeIfAbsent(owner.sourceName, k -> new LinkedHashMap<>())
+                        .computeIfAbsent(methodName, k -> new ArrayList<>());
+        }
+
+        /**
+         * Returns the limit that stops the method from being expanded, or null if it may be expanded
+         */
+        private AnalysisOptions.Limit checkLimits(String signature, int depth) {
+            AnalysisOptions.Limit limit = null;
+            if (maxDepth > 0 && depth > maxDepth) {
+                limit = AnalysisOptions.Limit.DEPTH;
+            } else if (hasDeadline && System.nanoTime() - deadlineNanos > 0) {
+                limit = AnalysisOptions.Limit.TIMEOUT;
+            } else if (maxNodes > 0 && !expanded.contains(signature) && expanded.size() >= maxNodes) {
+                limit = AnalysisOptions.Limit.NODES;
+            }
+            if (limit != null) {
+                cut.putIfAbsent(signature, limit);
+            } else {
+                expanded.add(signature);
+            }
+            return limit;
+        }
+
+        JavaParserCodeFlowAnalyzer.CallGraph toCallGraph() {
+            JavaParserCodeFlowAnalyzer.CallGraph callGraph = new JavaParserCodeFlowAnalyzer.CallGraph();
+            int nodeCount = 0;
+            int edgeCount = 0;
+            for (Map.Entry<String, Map<String, List<JavaParserCodeFlowAnalyzer.MethodCall>>> classEntry : nodes.entrySet()) {
+                for (Map.Entry<String, List<JavaParserCodeFlowAnalyzer.MethodCall>> methodEntry : classEntry.getValue().entrySet()) {
+                    callGraph.addNode(classEntry.getKey(), methodEntry.getKey(), methodEntry.getValue());
+                    nodeCount++;
+                    edgeCount += methodEntry.getValue().size();
+                }
+            }
+            files.forEach(callGraph::addSourceFile);
+            Map<String, AnalysisOptions.Limit> frontier = new HashMap<>(cut);
+            frontier.keySet().removeAll(expanded);
+            if (!frontier.isEmpty()) {
+                callGraph.setFrontier(frontier);
+            }
+            if (profile != null) {
+                profile.visited(nodeCount, edgeCount);
+            }
+            return callGraph.compact();
+        }
+    }
+}
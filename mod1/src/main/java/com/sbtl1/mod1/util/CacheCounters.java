@@ -0,0 +1,61 @@
+package com.sbtl1.mod1.util;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The hit, miss and eviction counters shared by the analyzer's caches. They are updated
+ * without locking, so a cache may count a lookup outside its own lock; a snapshot taken while
+ * lookups are counted may be off by the lookups in flight.
+ */
+final class CacheCounters {
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    void hit() {
+        hits.increment();
+    }
+
+    void miss() {
+        misses.increment();
+    }
+
+    void eviction() {
+        evictions.increment();
+    }
+
+    long getHitCount() {
+        return hits.sum();
+    }
+
+    long getMissCount() {
+        return misses.sum();
+    }
+
+    long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Hits over hits and misses, or 0 before the first lookup
+     */
+    double getHitRatio() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    /**
+     * Adds {@code hits}, {@code misses}, {@code evictions} and {@code hitRatio} to a cache's
+     * stats, the ratio computed from the same hit and miss counts as the ones added
+     */
+    void addTo(Map<String, Object> stats) {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("evictions", evictions.sum());
+        stats.put("hitRatio", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+    }
+}
@@ -0,0 +1,359 @@
+package com.sbtl1.mod1.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes call graphs for visualization and post-processing tools, as Graphviz DOT, GraphML or
+ * newline-delimited JSON edge records ({@code {"from": "a.B.m", "to": "c.D.n"}}, one call per line).
+ * <p>
+ * Nodes are identified by their signature ({@code class.method}). A method is written once
+ * as a node and every call as an edge, streamed straight from the graph: the exporters keep
+ * nothing per node or edge beyond one bit per called method, so their memory does not grow with
+ * the size of the output. DOT and GraphML mark the entry points, and the methods a limited
+ * traversal left unexpanded, with the limit that stopped it.
+ */
+public final class CallGraphExporter {
+
+    /**
+     * An export format and its content type
+     */
+    public enum Format {
+        DOT("text/vnd.graphviz"),
+        GRAPHML("application/graphml+xml"),
+        NDJSON("application/x-ndjson");
+
+        private final String contentType;
+
+        Format(String contentType) {
+            this.contentType = contentType;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * The format with a name, ignoring case
+         */
+        public static Format of(String name) {
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(name)) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Unknown export format " + name + ", expected dot, graphml or ndjson");
+        }
+    }
+
+    private static final String ENTRY_POINT = "entry";
+
+    private CallGraphExporter() {
+    }
+
+    /**
+     * Writes the call graph of an entry point: the methods with recorded calls in node order,
+     * then the methods that are only called, then the calls
+     */
+    public static void export(JavaParserCodeFlowAnalyzer.CallGraph callGraph, String startClass, String startMethod,
+                              Format format, Writer writer) throws IOException {
+        CompactCallGraph graph = callGraph.toCompact();
+        Map<String, AnalysisOptions.Limit> frontier = callGraph.getFrontier();
+        GraphSink sink = newSink(format, writer);
+        sink.begin(startClass + "." + startMethod);
+
+        for (int node = 0; node < graph.getNodeCount(); node++) {
+            String className = graph.getClassName(node);
+            String methodName = graph.getMethodName(node);
+            boolean entryPoint = className.equals(startClass) && methodName.equals(startMethod);
+            sink.node(className, methodName,
+                      entryPoint ? ENTRY_POINT : role(frontier.get(className + "." + methodName)));
+        }
+        BitSet calledOnly = new BitSet(graph.getCalleeCount());
+        for (int edge = 0; edge < graph.getEdgeCount(); edge++) {
+            if (graph.getEdgeTarget(edge) < 0) {
+                calledOnly.set(graph.getEdgeCallee(edge));
+            }
+        }
+        for (int classId = 0; classId < graph.getClassCount(); classId++) {
+            String className = graph.getClassNameById(classId);
+            for (int callee = calledOnly.nextSetBit(graph.getClassCalleeStart(classId));
+                 callee >= 0 && callee < graph.getClassCalleeStart(classId + 1);
+                 callee = calledOnly.nextSetBit(callee + 1)) {
+                String methodName = graph.getCalleeMethodName(callee);
+                sink.node(className, methodName, role(frontier.get(className + "." + methodName)));
+            }
+        }
+
+        for (int node = 0; node < graph.getNodeCount(); node++) {
+            String className = graph.getClassName(node);
+            String methodName = graph.getMethodName(node);
+            for (int edge = graph.getEdgeStart(node); edge < graph.getEdgeStart(node + 1); edge++) {
+                JavaParserCodeFlowAnalyzer.MethodCall call = graph.getEdgeCall(edge);
+                sink.edge(className, methodName, call.className, call.methodName);
+            }
+        }
+        sink.end();
+    }
+
+    /**
+     * Writes the whole-project graph: every method reachable from an entry point, in no
+     * particular order, then their calls. Every called method has a precomputed result, so
+     * every edge ends at a written node.
+     */
+    public static void export(PrecomputedCallGraph projectGraph, Format format, Writer writer) throws IOException {
+        Map<String, JavaParserCodeFlowAnalyzer.MethodResult> methodResults = projectGraph.getMethodResults();
+        Set<String> entryPoints = new HashSet<>();
+        for (EntryPoint entryPoint : projectGraph.getEntryPoints()) {
+            entryPoints.add(entryPoint.className + "." + entryPoint.methodName);
+        }
+        GraphSink sink = newSink(format, writer);
+        sink.begin("project");
+
+        // A result's node is its own method, if it has one
+        for (String signature : methodResults.keySet()) {
+            int separator = signature.lastIndexOf('.');
+            sink.node(signature.substring(0, separator), signature.substring(separator + 1),
+                      entryPoints.contains(signature) ? ENTRY_POINT : null);
+        }
+        for (JavaParserCodeFlowAnalyzer.MethodResult result : methodResults.values()) {
+            for (int i = 0; i < result.nodeClassNames.size(); i++) {
+                String className = result.nodeClassNames.get(i);
+                String methodName = result.nodeMethodNames.get(i);
+                List<JavaParserCodeFlowAnalyzer.MethodCall> calls = result.nodeCalls.get(i);
+                for (JavaParserCodeFlowAnalyzer.MethodCall call : calls) {
+                    sink.edge(className, methodName, call.className, call.methodName);
+                }
+            }
+        }
+        sink.end();
+    }
+
+    private static String role(AnalysisOptions.Limit limit) {
+        return limit == null ? null : limit.name().toLowerCase(Locale.ROOT);
+    }
+
+    private static GraphSink newSink(Format format, Writer writer) {
+        switch (format) {
+            case DOT:
+                return new DotSink(writer);
+            case GRAPHML:
+                return new GraphMlSink(writer);
+            default:
+                return new NdjsonSink(writer);
+        }
+    }
+
+    /**
+     * Receives the nodes of a graph, then its edges. A node's role is {@code entry} for an
+     * entry point, the name of the limit that kept it from being expanded, or null.
+     */
+    private abstract static class GraphSink {
+        final Writer out;
+
+        GraphSink(Writer out) {
+            this.out = out;
+        }
+
+        abstract void begin(String name) throws IOException;
+
+        abstract void node(String className, String methodName, String role) throws IOException;
+
+        abstract void edge(String fromClass, String fromMethod, String toClass, String toMethod) throws IOException;
+
+        abstract void end() throws IOException;
+    }
+
+    private static class DotSink extends GraphSink {
+        DotSink(Writer out) {
+            super(out);
+        }
+
+        @Override
+        void begin(String name) throws IOException {
+            out.write("digraph ");
+            writeId(name);
+            out.write(" {\n  rankdir=LR;\n  node [shape=box];\n");
+        }
+
+        @Override
+        void node(String className, String methodName, String role) throws IOException {
+            out.write("  ");
+            writeId(className, methodName);
+            if (ENTRY_POINT.equals(role)) {
+                out.write(" [style=bold]");
+            } else if (role != null) {
+                out.write(" [style=dashed, tooltip=\"not expanded: " + role + " limit\"]");
+            }
+            out.write(";\n");
+        }
+
+        @Override
+        void edge(String fromClass, String fromMethod, String toClass, String toMethod) throws IOException {
+            out.write("  ");
+            writeId(fromClass, fromMethod);
+            out.write(" -> ");
+            writeId(toClass, toMethod);
+            out.write(";\n");
+        }
+
+        @Override
+        void end() throws IOException {
+            out.write("}\n");
+        }
+
+        private void writeId(String className, String methodName) throws IOException {
+            out.write('"');
+            writeEscaped(className);
+            out.write('.');
+            writeEscaped(methodName);
+            out.write('"');
+        }
+
+        private void writeId(String name) throws IOException {
+            out.write('"');
+            writeEscaped(name);
+            out.write('"');
+        }
+
+        private void writeEscaped(String value) throws IOException {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    out.write('\\');
+                }
+                out.write(c);
+            }
+        }
+    }
+
+    private static class GraphMlSink extends GraphSink {
+        GraphMlSink(Writer out) {
+            super(out);
+        }
+
+        @Override
+        void begin(String name) throws IOException {
+            out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            out.write("<graphml xmlns=\"http://graphml.graphdrawing.org/xmlns\">\n");
+            out.write("  <key id=\"class\" for=\"node\" attr.name=\"class\" attr.type=\"string\"/>\n");
+            out.write("  <key id=\"method\" for=\"node\" attr.name=\"method\" attr.type=\"string\"/>\n");
+            out.write("  <key id=\"role\" for=\"node\" attr.name=\"role\" attr.type=\"string\"/>\n");
+            out.write("  <graph id=\"");
+            writeEscaped(name);
+            out.write("\" edgedefault=\"directed\">\n");
+        }
+
+        @Override
+        void node(String className, String methodName, String role) throws IOException {
+            out.write("    <node id=\"");
+            writeEscaped(className);
+            out.write('.');
+            writeEscaped(methodName);
+            out.write("\"><data key=\"class\">");
+            writeEscaped(className);
+            out.write("</data><data key=\"method\">");
+            writeEscaped(methodName);
+            out.write("</data>");
+            if (role != null) {
+                out.write("<data key=\"role\">");
+                writeEscaped(role);
+                out.write("</data>");
+            }
+            out.write("</node>\n");
+        }
+
+        @Override
+        void edge(String fromClass, String fromMethod, String toClass, String toMethod) throws IOException {
+            out.write("    <edge source=\"");
+            writeEscaped(fromClass);
+            out.write('.');
+            writeEscaped(fromMethod);
+            out.write("\" target=\"");
+            writeEscaped(toClass);
+            out.write('.');
+            writeEscaped(toMethod);
+            out.write("\"/>\n");
+        }
+
+        @Override
+        void end() throws IOException {
+            out.write("  </graph>\n</graphml>\n");
+        }
+
+        private void writeEscaped(String value) throws IOException {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '&':
+                        out.write("&amp;");
+                        break;
+                    case '<':
+                        out.write("&lt;");
+                        break;
+                    case '>':
+                        out.write("&gt;");
+                        break;
+                    case '"':
+                        out.write("&quot;");
+                        break;
+                    default:
+                        // XML 1.0 has no way to write the other control characters, which Java
+                        // allows in identifiers as ignorable characters
+                        out.write(c < 0x20 && c != '\t' && c != '\n' && c != '\r' ? '\uFFFD' : c);
+                }
+            }
+        }
+    }
+
+    private static class NdjsonSink extends GraphSink {
+        NdjsonSink(Writer out) {
+            super(out);
+        }
+
+        @Override
+        void begin(String name) {
+        }
+
+        @Override
+        void node(String className, String methodName, String role) {
+        }
+
+        @Override
+        void edge(String fromClass, String fromMethod, String toClass, String toMethod) throws IOException {
+            out.write("{\"from\":\"");
+            writeEscaped(fromClass);
+            out.write('.');
+            writeEscaped(fromMethod);
+            out.write("\",\"to\":\"");
+            writeEscaped(toClass);
+            out.write('.');
+            writeEscaped(toMethod);
+            out.write("\"}\n");
+        }
+
+        @Override
+        void end() {
+        }
+
+        private void writeEscaped(String value) throws IOException {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    out.write('\\');
+                    out.write(c);
+                } else if (c < 0x20) {
+                    out.write(String.format("\\u%04x", (int) c));
+                } else {
+                    out.write(c);
+                }
+            }
+        }
+    }
+}
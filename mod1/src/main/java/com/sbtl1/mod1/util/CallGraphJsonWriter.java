@@ -0,0 +1,111 @@
+package com.sbtl1.mod1.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Writes a call graph as compact JSON, streaming it from the arrays of its
+ * {@link CompactCallGraph} without building a map or a signature string per method:
+ * <pre>
+ * {"startClass": "...", "startMethod": "...", "format": "compact",
+ *  "classes": ["com.acme.OrderController", "com.acme.OrderService", ...],
+ *  "methodClasses": [0, 1, 1, ...],
+ *  "methodNames": ["create", "save", "validate", ...],
+ *  "entry": 0,
+ *  "calls": [[1, 2], [3], [], ...],
+ *  "truncated": false}
+ * </pre>
+ * Each class and method name is written once. Method {@code m} is
+ * {@code classes[methodClasses[m]] + "." + methodNames[m]}; the methods with recorded calls come
+ * first, in node order, followed by the methods that are only called, in the order they are
+ * first called. {@code calls[m]} lists the methods that method {@code m} calls, in call order;
+ * it has an entry for each method with recorded calls only. {@code entry} is the method the
+ * analysis started from, or -1 if it has no calls. A truncated graph adds a {@code frontier}
+ * as in the nested format, mapping signatures to the limit that stopped them.
+ */
+public final class CallGraphJsonWriter {
+    public static final String FORMAT = "compact";
+
+    private CallGraphJsonWriter() {
+    }
+
+    /**
+     * Writes the graph as the fields of the JSON object the generator is in; the caller
+     * starts and ends the object, so it may add fields of its own
+     */
+    public static void writeCompactFields(JsonGenerator generator, String startClass, String startMethod,
+                                          JavaParserCodeFlowAnalyzer.CallGraph callGraph) throws IOException {
+        CompactCallGraph graph = callGraph.toCompact();
+        int nodeCount = graph.getNodeCount();
+        int edgeCount = graph.getEdgeCount();
+
+        // Callees without a node are numbered after the nodes, in the order they are first called
+        int[] calleeMethods = new int[graph.getCalleeCount()];
+        Arrays.fill(calleeMethods, -1);
+        int[] calledOnly = new int[graph.getCalleeCount()];
+        int calledOnlyCount = 0;
+        for (int edge = 0; edge < edgeCount; edge++) {
+            if (graph.getEdgeTarget(edge) < 0) {
+                int callee = graph.getEdgeCallee(edge);
+                if (calleeMethods[callee] < 0) {
+                    calleeMethods[callee] = nodeCount + calledOnlyCount;
+                    calledOnly[calledOnlyCount++] = edge;
+                }
+            }
+        }
+
+        generator.writeStringField("startClass", startClass);
+        generator.writeStringField("startMethod", startMethod);
+        generator.writeStringField("format", FORMAT);
+
+        generator.writeArrayFieldStart("classes");
+        for (int classId = 0; classId < graph.getClassCount(); classId++) {
+            generator.writeString(graph.getClassNameById(classId));
+        }
+        generator.writeEndArray();
+
+        generator.writeArrayFieldStart("methodClasses");
+        for (int node = 0; node < nodeCount; node++) {
+            generator.writeNumber(graph.getClassId(node));
+        }
+        for (int i = 0; i < calledOnlyCount; i++) {
+            generator.writeNumber(graph.findClass(graph.getEdgeCall(calledOnly[i]).className));
+        }
+        generator.writeEndArray();
+
+        generator.writeArrayFieldStart("methodNames");
+        for (int node = 0; node < nodeCount; node++) {
+            generator.writeString(graph.getMethodName(node));
+        }
+        for (int i = 0; i < calledOnlyCount; i++) {
+            generator.writeString(graph.getEdgeCall(calledOnly[i]).methodName);
+        }
+        generator.writeEndArray();
+
+        generator.writeNumberField("entry", graph.findNode(startClass, startMethod));
+
+        generator.writeArrayFieldStart("calls");
+        for (int node = 0; node < nodeCount; node++) {
+            generator.writeStartArray();
+            for (int edge = graph.getEdgeStart(node); edge < graph.getEdgeStart(node + 1); edge++) {
+                int target = graph.getEdgeTarget(edge);
+                generator.writeNumber(target >= 0 ? target : calleeMethods[graph.getEdgeCallee(edge)]);
+            }
+            generator.writeEndArray();
+        }
+        generator.writeEndArray();
+
+        generator.writeBooleanField("truncated", callGraph.isTruncated());
+        if (callGraph.isTruncated()) {
+            generator.writeObjectFieldStart("frontier");
+            for (Map.Entry<String, AnalysisOptions.Limit> entry : callGraph.getFrontier().entrySet()) {
+                generator.writeStringField(entry.getKey(), entry.getValue().name().toLowerCase(Locale.ROOT));
+            }
+            generator.writeEndObject();
+        }
+    }
+}
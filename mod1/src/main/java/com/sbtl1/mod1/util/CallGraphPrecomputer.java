@@ -0,0 +1,199 @@
+package com.sbtl1.mod1.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Gives the analyzer a precomputed whole-project call graph at startup. The graph is kept in
+ * a versioned binary snapshot file keyed by a hash of the sources: if the file matches the
+ * current sources it is loaded, otherwise the graph is computed on a background thread and
+ * the file is rewritten for the next start.
+ * <p>
+ * Two hashes are stored. The stamp hash covers each file's path, size and modification time
+ * and is checked first, without reading any source. The content hash covers paths and contents
+ * and is only computed if the stamps differ, so a fresh checkout of unchanged sources still
+ * reuses the snapshot.
+ */
+public class CallGraphPrecomputer {
+    private static final Logger log = LoggerFactory.getLogger(CallGraphPrecomputer.class);
+
+    private static final int MAGIC = 0x43475348; // "CGSH"
+    /** Bump whenever the file layout or the meaning of the stored results changes */
+    static final int FORMAT_VERSION = 1;
+
+    private final JavaParserCodeFlowAnalyzer analyzer;
+    private final File snapshotFile;
+    private final Thread thread;
+
+    /**
+     * Loads the snapshot file if it matches the sources, or starts computing the graph on a daemon thread
+     */
+    public CallGraphPrecomputer(JavaParserCodeFlowAnalyzer analyzer, File snapshotFile) {
+        this.analyzer = analyzer;
+        this.snapshotFile = snapshotFile;
+        if (load()) {
+            this.thread = null;
+        } else {
+            this.thread = new Thread(this::precompute, "callgraph-precompute");
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+    }
+
+    /**
+     * Waits for a background precomputation to finish, if one was started
+     */
+    public void awaitCompletion() throws InterruptedException {
+        if (thread != null) {
+            thread.join();
+        }
+    }
+
+    private boolean load() {
+        if (!snapshotFile.isFile()) {
+            log.info("No call graph snapshot at {}", snapshotFile);
+            return false;
+        }
+        long start = System.currentTimeMillis();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                log.info("Ignoring call graph snapshot with an unknown format: {}", snapshotFile);
+                return false;
+            }
+            byte[] stampHash = readHash(in);
+            byte[] contentHash = readHash(in);
+
+            List<Path> sources = listSources();
+            byte[] currentStampHash = hashStamps(sources);
+            boolean restamp = false;
+            if (!Arrays.equals(stampHash, currentStampHash)) {
+                if (!Arrays.equals(contentHash, hashContents(sources))) {
+                    log.info("Call graph snapshot is out of date: {}", snapshotFile);
+                    return false;
+                }
+                restamp = true; // Same contents with new timestamps, e.g. after a fresh checkout
+            }
+
+            PrecomputedCallGraph graph = PrecomputedCallGraph.read(in);
+            if (!graph.getSourceRoot().equals(getSourceRoot())) {
+                log.info("Call graph snapshot is for other source roots: {}", graph.getSourceRoot());
+                return false;
+            }
+            analyzer.setPrecomputed(graph);
+            log.info("Loaded call graph snapshot ({} methods, {} entry points) in {} ms", graph.getMethodCount(),
+                     graph.getEntryPoints().size(), System.currentTimeMillis() - start);
+            if (restamp) {
+                write(graph, currentStampHash, contentHash);
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Error reading call graph snapshot {}: {}", snapshotFile, e.getMessage());
+            return false;
+        }
+    }
+
+    private void precompute() {
+        try {
+            long start = System.currentTimeMillis();
+            // Hash before analyzing: if a file changes meanwhile the snapshot is stale on the next start, not wrong
+            List<Path> sources = listSources();
+            byte[] stampHash = hashStamps(sources);
+            byte[] contentHash = hashContents(sources);
+            PrecomputedCallGraph graph = analyzer.precompute();
+            log.info("Precomputed call graph ({} methods, {} entry points) in {} ms", graph.getMethodCount(),
+                     graph.getEntryPoints().size(), System.currentTimeMillis() - start);
+            write(graph, stampHash, contentHash);
+        } catch (IOException | RuntimeException e) {
+            log.error("Error precomputing call graph", e);
+        }
+    }
+
+    private void write(PrecomputedCallGraph graph, byte[] stampHash, byte[] contentHash) throws IOException {
+        File directory = snapshotFile.getAbsoluteFile().getParentFile();
+        Files.createDirectories(directory.toPath());
+        // Write to a temporary file and move it into place, so readers never see a partial snapshot
+        File temp = File.createTempFile(snapshotFile.getName(), ".tmp", directory);
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.write(stampHash);
+                out.write(contentHash);
+                graph.write(out);
+            }
+            Files.move(temp.toPath(), snapshotFile.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Wrote call graph snapshot {} ({} bytes)", snapshotFile, snapshotFile.length());
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    private String getSourceRoot() {
+        return analyzer.getSourceRootPath();
+    }
+
+    /**
+     * The Java files below the source roots, sorted so the hashes do not depend on listing order
+     */
+    private List<Path> listSources() throws IOException {
+        List<Path> sources = new ArrayList<>();
+        for (File root : analyzer.getSourceRoots()) {
+            if (!root.isDirectory()) {
+                continue;
+            }
+            try (Stream<Path> paths = Files.walk(root.toPath())) {
+                paths.filter(p -> p.toString().endsWith(".java") && Files.isRegularFile(p)).forEach(sources::add);
+            }
+        }
+        Collections.sort(sources);
+        return sources;
+    }
+
+    private static byte[] hashStamps(List<Path> sources) throws IOException {
+        MessageDigest digest = newDigest();
+        for (Path source : sources) {
+            digest.update(source.toString().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update((Files.size(source) + ":" + Files.getLastModifiedTime(source).toMillis())
+                              .getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        return digest.digest();
+    }
+
+    private static byte[] hashContents(List<Path> sources) throws IOException {
+        MessageDigest digest = newDigest();
+        for (Path source : sources) {
+            digest.update(source.toString().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            byte[] content = Files.readAllBytes(source);
+            digest.update(Integer.toString(content.length).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(content);
+        }
+        return digest.digest();
+    }
+
+    private static byte[] readHash(DataInputStream in) throws IOException {
+        byte[] hash = new byte[32];
+        in.readFully(hash);
+        return hash;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,471 @@
+package com.sbtl1.mod1.util;
+
+import java.util.*;
+
+/**
+ * An immutable, compact call graph. Each node (a method with a recorded list of calls) has an
+ * integer ID; nodes are grouped by class, and the calls of all nodes are stored in one
+ * CSR-style array, so the graph holds a handful of int arrays instead of a map entry and a
+ * list per node and an object per edge. Class and method names are interned, and each
+ * distinct call is a single shared (flyweight) {@link JavaParserCodeFlowAnalyzer.MethodCall}.
+ * <p>
+ * The graph also keeps an inverted index from each called method (a callee, whether or not
+ * it has a node) to the nodes that call it, stored in the same CSR layout.
+ * <p>
+ * The lookup methods return views on the arrays, not copies.
+ */
+public final class CompactCallGraph {
+    /** Classes with nodes come first, followed by classes that are only called */
+    private final String[] classNames;
+    private final int nodeClassCount;
+    private final Map<String, Integer> classIds;
+    /** Nodes of class {@code c} are {@code classNodeStart[c]} to {@code classNodeStart[c + 1] - 1} */
+    private final int[] classNodeStart;
+    private final int[] nodeClass;
+    private final String[] nodeMethodNames;
+    /** Calls of node {@code n} are {@code edgeStart[n]} to {@code edgeStart[n + 1] - 1} */
+    private final int[] edgeStart;
+    private final int[] edgeCalls;
+    /** Target node of each call, or -1 if the callee has no node in the graph */
+    private final int[] edgeTargets;
+    private final JavaParserCodeFlowAnalyzer.MethodCall[] calls;
+    /** Callee ID of each distinct call */
+    private final int[] callCallees;
+    /** Callees of class {@code c} are {@code classCalleeStart[c]} to {@code classCalleeStart[c + 1] - 1} */
+    private final int[] classCalleeStart;
+    private final String[] calleeMethodNames;
+    /** Callers of callee {@code m} are {@code callerStart[m]} to {@code callerStart[m + 1] - 1} */
+    private final int[] callerStart;
+    private final int[] callerNodes;
+
+    private final Set<String> classSet = new AbstractSet<>() {
+        @Override
+        public Iterator<String> iterator() {
+            return Arrays.asList(classNames).subList(0, nodeClassCount).iterator();
+        }
+
+        @Override
+        public int size() {
+            return nodeClassCount;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            Integer classId = classIds.get(o);
+            return classId != null && classId < nodeClassCount;
+        }
+    };
+
+    private CompactCallGraph(String[] classNames, int nodeClassCount, Map<String, Integer> classIds,
+                             int[] classNodeStart, int[] nodeClass, String[] nodeMethodNames,
+                             int[] edgeStart, int[] edgeCalls, int[] edgeTargets,
+                             JavaParserCodeFlowAnalyzer.MethodCall[] calls, int[] callCallees,
+                             int[] classCalleeStart, String[] calleeMethodNames, int[] callerStart, int[] callerNodes) {
+        this.classNames = classNames;
+        this.nodeClassCount = nodeClassCount;
+        this.classIds = classIds;
+        this.classNodeStart = classNodeStart;
+        this.nodeClass = nodeClass;
+        this.nodeMethodNames = nodeMethodNames;
+        this.edgeStart = edgeStart;
+        this.edgeCalls = edgeCalls;
+        this.edgeTargets = edgeTargets;
+        this.calls = calls;
+        this.callCallees = callCallees;
+        this.classCalleeStart = classCalleeStart;
+        this.calleeMethodNames = calleeMethodNames;
+        this.callerStart = callerStart;
+        this.callerNodes = callerNodes;
+    }
+
+    /**
+     * Builds a compact graph from the class → method → calls form used while analyzing.
+     * Classes, methods and calls keep their iteration order.
+     */
+    public static CompactCallGraph of(Map<String, Map<String, List<JavaParserCodeFlowAnalyzer.MethodCall>>> callMap) {
+        Map<String, String> strings = new HashMap<>();
+        Map<String, Integer> callIds = new HashMap<>();
+        List<JavaParserCodeFlowAnalyzer.MethodCall> callTable = new ArrayList<>();
+
+        int classCount = callMap.size();
+        int nodeCount = 0;
+        int edgeCount = 0;
+        for (Map<String, List<JavaParserCodeFlowAnalyzer.MethodCall>> methods : callMap.values()) {
+            nodeCount += methods.size();
+            for (List<JavaParserCodeFlowAnalyzer.MethodCall> methodCalls : methods.values()) {
+                edgeCount += methodCalls.size();
+            }
+        }
+
+        String[] classNames = new String[classCount];
+        int[] classNodeStart = new int[classCount + 1];
+        int[] nodeClass = new int[nodeCount];
+        String[] nodeMethodNames = new String[nodeCount];
+        int[] edgeStart = new int[nodeCount + 1];
+        int[] edgeCalls = new int[edgeCount];
+
+        int classId = 0;
+        int node = 0;
+        int edge = 0;
+        for (Map.Entry<String, Map<String, List<JavaParserCodeFlowAnalyzer.MethodCall>>> classEntry : callMap.entrySet()) {
+            classNames[classId] = intern(strings, classEntry.getKey());
+            classNodeStart[classId] = node;
+            for (Map.Entry<String, List<JavaParserCodeFlowAnalyzer.MethodCall>> methodEntry : classEntry.getValue().entrySet()) {
+                nodeClass[node] = classId;
+                nodeMethodNames[node] = intern(strings, methodEntry.getKey());
+                edgeStart[node] = edge;
+                for (JavaParserCodeFlowAnalyzer.MethodCall call : methodEntry.getValue()) {
+                    String key = call.objectName + '\0' + call.className + '\0' + call.methodName;
+                    Integer callId = callIds.get(key);
+                    if (callId == null) {
+                        callId = callTable.size();
+                        callIds.put(key, callId);
+                        callTable.add(new JavaParserCodeFlowAnalyzer.MethodCall(
+                            intern(strings, call.objectName), intern(strings, call.className), intern(strings, call.methodName)));
+                    }
+                    edgeCalls[edge++] = callId;
+                }
+                node++;
+            }
+            classId++;
+        }
+        classNodeStart[classCount] = node;
+        edgeStart[nodeCount] = edge;
+
+        // Give every distinct callee an ID, grouped by class; classes without nodes are appended
+        Map<String, Integer> classIds = new HashMap<>(classCount * 2);
+        List<String> allClassNames = new ArrayList<>(Arrays.asList(classNames));
+        for (int i = 0; i < classCount; i++) {
+            classIds.put(classNames[i], i);
+        }
+        Map<String, Integer> calleeKeys = new HashMap<>();
+        List<String> calleeNames = new ArrayList<>();
+        List<Integer> calleeClasses = new ArrayList<>();
+        int[] callCallee = new int[callTable.size()];
+        for (int i = 0; i < callTable.size(); i++) {
+            JavaParserCodeFlowAnalyzer.MethodCall call = callTable.get(i);
+            Integer calleeClass = classIds.get(call.className);
+            if (calleeClass == null) {
+                calleeClass = allClassNames.size();
+                classIds.put(call.className, calleeClass);
+                allClassNames.add(call.className);
+            }
+            String key = call.className + '\0' + call.methodName;
+            Integer callee = calleeKeys.get(key);
+            if (callee == null) {
+                callee = calleeNames.size();
+                calleeKeys.put(key, callee);
+                calleeNames.add(call.methodName);
+                calleeClasses.add(calleeClass);
+            }
+            callCallee[i] = callee;
+        }
+
+        int allClassCount = allClassNames.size();
+        int calleeCount = calleeNames.size();
+        int[] classCalleeStart = new int[allClassCount + 1];
+        for (int calleeClass : calleeClasses) {
+            classCalleeStart[calleeClass + 1]++;
+        }
+        for (int c = 0; c < allClassCount; c++) {
+            classCalleeStart[c + 1] += classCalleeStart[c];
+        }
+        int[] calleeSlot = new int[calleeCount];
+        String[] calleeMethodNames = new String[calleeCount];
+        int[] classFill = Arrays.copyOf(classCalleeStart, allClassCount);
+        for (int callee = 0; callee < calleeCount; callee++) {
+            int slot = classFill[calleeClasses.get(callee)]++;
+            calleeSlot[callee] = slot;
+            calleeMethodNames[slot] = calleeNames.get(callee);
+        }
+        for (int i = 0; i < callCallee.length; i++) {
+            callCallee[i] = calleeSlot[callCallee[i]];
+        }
+
+        // Invert the edges; a node that calls the same method more than once is listed once
+        int[] callerStart = new int[calleeCount + 1];
+        int[] lastCaller = new int[calleeCount];
+        Arrays.fill(lastCaller, -1);
+        for (int n = 0; n < nodeCount; n++) {
+            for (int e = edgeStart[n]; e < edgeStart[n + 1]; e++) {
+                int callee = callCallee[edgeCalls[e]];
+                if (lastCaller[callee] != n) {
+                    lastCaller[callee] = n;
+                    callerStart[callee + 1]++;
+                }
+            }
+        }
+        for (int m = 0; m < calleeCount; m++) {
+            callerStart[m + 1] += callerStart[m];
+        }
+        int[] callerNodes = new int[callerStart[calleeCount]];
+        int[] callerFill = Arrays.copyOf(callerStart, calleeCount);
+        Arrays.fill(lastCaller, -1);
+        for (int n = 0; n < nodeCount; n++) {
+            for (int e = edgeStart[n]; e < edgeStart[n + 1]; e++) {
+                int callee = callCallee[edgeCalls[e]];
+                if (lastCaller[callee] != n) {
+                    lastCaller[callee] = n;
+                    callerNodes[callerFill[callee]++] = n;
+                }
+            }
+        }
+
+        CompactCallGraph graph = new CompactCallGraph(allClassNames.toArray(new String[0]), classCount, classIds,
+                                                      classNodeStart, nodeClass, nodeMethodNames,
+                                                      edgeStart, edgeCalls, new int[edgeCount],
+                                                      callTable.toArray(new JavaParserCodeFlowAnalyzer.MethodCall[0]),
+                                                      callCallee,
+                                                      classCalleeStart, calleeMethodNames, callerStart, callerNodes);
+        for (int i = 0; i < edgeCount; i++) {
+            JavaParserCodeFlowAnalyzer.MethodCall call = graph.calls[edgeCalls[i]];
+            graph.edgeTargets[i] = graph.findNode(call.className, call.methodName);
+        }
+        return graph;
+    }
+
+    private static String intern(Map<String, String> strings, String value) {
+        if (value == null) {
+            return null;
+        }
+        String interned = strings.putIfAbsent(value, value);
+        return interned != null ? interned : value;
+    }
+
+    /**
+     * Returns the ID of the node for a method, or -1 if the method has no node
+     */
+    public int findNode(String className, String methodName) {
+        Integer classId = classIds.get(className);
+        if (classId == null || classId >= nodeClassCount) {
+            return -1;
+        }
+        for (int node = classNodeStart[classId]; node < classNodeStart[classId + 1]; node++) {
+            if (nodeMethodNames[node].equals(methodName)) {
+                return node;
+            }
+        }
+        return -1;
+    }
+
+    public int getNodeCount() {
+        return nodeClass.length;
+    }
+
+    /**
+     * Number of classes in the graph: classes with nodes have IDs {@code 0} to
+     * {@code getClasses().size() - 1}, classes that are only called follow
+     */
+    public int getClassCount() {
+        return classNames.length;
+    }
+
+    /**
+     * Number of distinct called methods, whether or not they have a node
+     */
+    public int getCalleeCount() {
+        return calleeMethodNames.length;
+    }
+
+    /**
+     * ID of the first callee of a class; the callees of class {@code c} end before
+     * {@code getClassCalleeStart(c + 1)}
+     */
+    public int getClassCalleeStart(int classId) {
+        return classCalleeStart[classId];
+    }
+
+    public String getCalleeMethodName(int callee) {
+        return calleeMethodNames[callee];
+    }
+
+    /**
+     * Returns the ID of a class, or -1 if the class has no node and is not called
+     */
+    public int findClass(String className) {
+        Integer classId = classIds.get(className);
+        return classId == null ? -1 : classId;
+    }
+
+    public String getClassNameById(int classId) {
+        return classNames[classId];
+    }
+
+    public int getClassId(int node) {
+        return nodeClass[node];
+    }
+
+    public int getEdgeCount() {
+        return edgeCalls.length;
+    }
+
+    public String getClassName(int node) {
+        return classNames[nodeClass[node]];
+    }
+
+    public String getMethodName(int node) {
+        return nodeMethodNames[node];
+    }
+
+    /**
+     * Index of the first call of a node in the edge arrays; the calls of node {@code n}
+     * end before {@code getEdgeStart(n + 1)}
+     */
+    public int getEdgeStart(int node) {
+        return edgeStart[node];
+    }
+
+    /**
+     * Target node of a call, or -1 if the callee has no node in the graph
+     */
+    public int getEdgeTarget(int edge) {
+        return edgeTargets[edge];
+    }
+
+    public JavaParserCodeFlowAnalyzer.MethodCall getEdgeCall(int edge) {
+        return calls[edgeCalls[edge]];
+    }
+
+    /**
+     * Callee ID of a call, as returned by {@link #findCallee}
+     */
+    public int getEdgeCallee(int edge) {
+        return callCallees[edgeCalls[edge]];
+    }
+
+    /**
+     * The calls recorded for a method, or an empty list if the method has no node
+     */
+    public List<JavaParserCodeFlowAnalyzer.MethodCall> getCalls(String className, String methodName) {
+        int node = findNode(className, methodName);
+        return node < 0 ? Collections.emptyList() : getCalls(node);
+    }
+
+    public List<JavaParserCodeFlowAnalyzer.MethodCall> getCalls(int node) {
+        return new CallList(edgeStart[node], edgeStart[node + 1]);
+    }
+
+    /**
+     * Classes with at least one node
+     */
+    public Set<String> getClasses() {
+        return classSet;
+    }
+
+    /**
+     * Methods of a class that have a node
+     */
+    public Set<String> getMethods(String className) {
+        Integer classId = classIds.get(className);
+        if (classId == null || classId >= nodeClassCount) {
+            return Collections.emptySet();
+        }
+        return new NameSet(nodeMethodNames, classNodeStart[classId], classNodeStart[classId + 1]);
+    }
+
+    /**
+     * Returns the ID of a called method, or -1 if nothing in the graph calls it
+     */
+    public int findCallee(String className, String methodName) {
+        Integer classId = classIds.get(className);
+        if (classId == null) {
+            return -1;
+        }
+        for (int callee = classCalleeStart[classId]; callee < classCalleeStart[classId + 1]; callee++) {
+            if (calleeMethodNames[callee].equals(methodName)) {
+                return callee;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Methods of a class that are called somewhere in the graph, whether or not they have a node
+     */
+    public Set<String> getCalledMethods(String className) {
+        Integer classId = classIds.get(className);
+        if (classId == null) {
+            return Collections.emptySet();
+        }
+        return new NameSet(calleeMethodNames, classCalleeStart[classId], classCalleeStart[classId + 1]);
+    }
+
+    /**
+     * Index of the first caller of a callee in the caller array; the callers of callee {@code m}
+     * end before {@code getCallerStart(m + 1)}
+     */
+    public int getCallerStart(int callee) {
+        return callerStart[callee];
+    }
+
+    /**
+     * The calling node at an index of the caller array
+     */
+    public int getCallerNode(int index) {
+        return callerNodes[index];
+    }
+
+    /**
+     * Nodes that call a method, in node order, or an empty array if nothing calls it
+     */
+    public int[] getCallerNodes(String className, String methodName) {
+        int callee = findCallee(className, methodName);
+        return callee < 0 ? new int[0] : Arrays.copyOfRange(callerNodes, callerStart[callee], callerStart[callee + 1]);
+    }
+
+    /**
+     * Every call in the graph, grouped by calling node
+     */
+    public List<JavaParserCodeFlowAnalyzer.MethodCall> getAllCalls() {
+        return new CallList(0, edgeCalls.length);
+    }
+
+    /**
+     * A read-only set view of a range of distinct names
+     */
+    private static class NameSet extends AbstractSet<String> {
+        private final String[] names;
+        private final int from;
+        private final int to;
+
+        NameSet(String[] names, int from, int to) {
+            this.names = names;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return Arrays.asList(names).subList(from, to).iterator();
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+
+    /**
+     * A read-only view of a range of the edge arrays
+     */
+    private class CallList extends AbstractList<JavaParserCodeFlowAnalyzer.MethodCall> implements RandomAccess {
+        private final int from;
+        private final int to;
+
+        CallList(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public JavaParserCodeFlowAnalyzer.MethodCall get(int index) {
+            Objects.checkIndex(index, to - from);
+            return calls[edgeCalls[from + index]];
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+}
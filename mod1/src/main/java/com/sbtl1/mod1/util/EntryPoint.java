@@ -0,0 +1,47 @@
+package com.sbtl1.mod1.util;
+
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * A method from which a call flow is analyzed, identified by its class and name
+ */
+public class EntryPoint implements Comparable<EntryPoint> {
+    private static final Comparator<EntryPoint> ORDER =
+        Comparator.comparing((EntryPoint e) -> e.className).thenComparing(e -> e.methodName);
+
+    public final String className;
+    public final String methodName;
+
+    public EntryPoint(String className, String methodName) {
+        this.className = Objects.requireNonNull(className, "className");
+        this.methodName = Objects.requireNonNull(methodName, "methodName");
+    }
+
+    public String getSignature() {
+        return className + "." + methodName;
+    }
+
+    @Override
+    public int compareTo(EntryPoint other) {
+        return ORDER.compare(this, other);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        EntryPoint other = (EntryPoint) obj;
+        return className.equals(other.className) && methodName.equals(other.methodName);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(className, methodName);
+    }
+
+    @Override
+    public String toString() {
+        return getSignature();
+    }
+}
@@ -0,0 +1,179 @@
+package com.sbtl1.mod1.util;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * Finds the controller entry points (request mapping methods) whose call graphs reach a given
+ * method or read a given source file. Graphs are taken from the result cache; the missing ones
+ * are analyzed together in one batch and cached, so repeated queries only analyze entry points
+ * whose graphs were invalidated by source changes. Paths are traced backwards with the graph's
+ * caller index.
+ */
+public class ImpactAnalyzer {
+    private final JavaParserCodeFlowAnalyzer analyzer;
+    private final AnalysisResultCache resultCache;
+
+    /**
+     * An entry point affected by a method or by changed files
+     */
+    public static class Impact {
+        public final String className;
+        public final String methodName;
+        /**
+         * Signatures from the entry point down to the method, empty if the graph contains the method
+         * but no chain of recorded calls leads to it, or null for file queries
+         */
+        public final List<String> path;
+        /** The changed files read while analyzing the entry point, or null for method queries */
+        public final List<String> files;
+
+        Impact(String className, String methodName, List<String> path, List<String> files) {
+            this.className = className;
+            this.methodName = methodName;
+            this.path = path;
+            this.files = files;
+        }
+    }
+
+    public ImpactAnalyzer(JavaParserCodeFlowAnalyzer analyzer, AnalysisResultCache resultCache) {
+        this.analyzer = analyzer;
+        this.resultCache = resultCache;
+    }
+
+    /**
+     * Entry points whose call graphs contain the given method, each with one shortest call path,
+     * or an empty path if none can be traced
+     */
+    public List<Impact> findEntryPointsReaching(String className, String methodName) {
+        List<Impact> impacts = new ArrayList<>();
+        SymbolIndex index = analyzer.getSymbolIndex();
+        for (Map.Entry<EntryPoint, AnalysisResultCache.Entry> entry : getCallGraphs().entrySet()) {
+            EntryPoint entryPoint = entry.getKey();
+            List<String> path = findPath(entry.getValue().getCallGraph().toCompact(), index,
+                                         entryPoint.className, entryPoint.methodName, className, methodName);
+            if (path != null) {
+                impacts.add(new Impact(entryPoint.className, entryPoint.methodName, path, null));
+            }
+        }
+        return impacts;
+    }
+
+    /**
+     * Entry points whose call graphs were built from any of the given files. Paths may be
+     * absolute or relative to any directory above the source root, such as the repository root.
+     */
+    public List<Impact> findEntryPointsReadingFiles(Collection<String> paths) {
+        List<String> suffixes = new ArrayList<>();
+        for (String path : paths) {
+            String normalized = path.replace('\\', '/');
+            while (normalized.startsWith("./")) {
+                normalized = normalized.substring(2);
+            }
+            if (!normalized.isEmpty()) {
+                suffixes.add(normalized.startsWith("/") ? normalized : "/" + normalized);
+            }
+        }
+
+        List<Impact> impacts = new ArrayList<>();
+        for (Map.Entry<EntryPoint, AnalysisResultCache.Entry> entry : getCallGraphs().entrySet()) {
+            EntryPoint entryPoint = entry.getKey();
+            JavaParserCodeFlowAnalyzer.CallGraph callGraph = entry.getValue().getCallGraph();
+            List<String> matched = new ArrayList<>();
+            for (String sourceFile : callGraph.getSourceFiles()) {
+                String normalized = sourceFile.replace(File.separatorChar, '/');
+                for (String suffix : suffixes) {
+                    if (normalized.endsWith(suffix)) {
+                        matched.add(sourceFile);
+                        break;
+                    }
+                }
+            }
+            if (!matched.isEmpty()) {
+                Collections.sort(matched);
+                impacts.add(new Impact(entryPoint.className, entryPoint.methodName, null, matched));
+            }
+        }
+        return impacts;
+    }
+
+    private Map<EntryPoint, AnalysisResultCache.Entry> getCallGraphs() {
+        AnalysisOptions options = AnalysisOptions.defaults();
+        return resultCache.getAll(analyzer.getEntryPoints(), options,
+                                  missing -> analyzer.analyzeCallFlows(missing, options));
+    }
+
+    /**
+     * Searches backwards from the target to the entry point. A method's predecessors are its
+     * callers, plus the same method on its supertypes (the analyzer reaches implementations
+     * through the interface method) and on its subtypes (inherited methods are reached through
+     * a call on the subtype). Returns null if the graph does not contain the target, and an empty
+     * list if it does but no chain of recorded calls connects it to the entry point.
+     */
+    private static List<String> findPath(CompactCallGraph graph, SymbolIndex index,
+                                         String entryClass, String entryMethod,
+                                         String targetClass, String targetMethod) {
+        String entry = entryClass + "." + entryMethod;
+        String target = targetClass + "." + targetMethod;
+        if (entry.equals(target)) {
+            return Collections.singletonList(entry);
+        }
+        if (!contains(graph, targetClass, targetMethod)) {
+            return null;
+        }
+
+        // next maps each visited method to the one it leads to on the way to the target
+        Map<String, String> next = new HashMap<>();
+        Deque<String[]> queue = new ArrayDeque<>();
+        next.put(target, null);
+        queue.add(new String[]{targetClass, targetMethod});
+        while (!queue.isEmpty()) {
+            String[] method = queue.poll();
+            String signature = method[0] + "." + method[1];
+            for (String[] predecessor : getPredecessors(graph, index, method[0], method[1])) {
+                String predecessorSignature = predecessor[0] + "." + predecessor[1];
+                if (next.containsKey(predecessorSignature)) {
+                    continue;
+                }
+                next.put(predecessorSignature, signature);
+                if (predecessorSignature.equals(entry)) {
+                    List<String> path = new ArrayList<>();
+                    for (String step = entry; step != null; step = next.get(step)) {
+                        path.add(step);
+                    }
+                    return path;
+                }
+                queue.add(predecessor);
+            }
+        }
+        // The target was reached from the entry point, but through a link the graph does not record
+        return Collections.emptyList();
+    }
+
+    private static List<String[]> getPredecessors(CompactCallGraph graph, SymbolIndex index,
+                                                  String className, String methodName) {
+        List<String[]> predecessors = new ArrayList<>();
+        int callee = graph.findCallee(className, methodName);
+        if (callee >= 0) {
+            for (int i = graph.getCallerStart(callee); i < graph.getCallerStart(callee + 1); i++) {
+                int node = graph.getCallerNode(i);
+                predecessors.add(new String[]{graph.getClassName(node), graph.getMethodName(node)});
+            }
+        }
+        for (String supertype : index.getSupertypes(className)) {
+            if (contains(graph, supertype, methodName)) {
+                predecessors.add(new String[]{supertype, methodName});
+            }
+        }
+        for (String subtype : index.getImplementors(className)) {
+            if (contains(graph, subtype, methodName)) {
+                predecessors.add(new String[]{subtype, methodName});
+            }
+        }
+        return predecessors;
+    }
+
+    private static boolean contains(CompactCallGraph graph, String className, String methodName) {
+        return graph.findNode(className, methodName) >= 0 || graph.findCallee(className, methodName) >= 0;
+    }
+}
@@ -1,35 +1,104 @@
 package com.sbtl1.mod1.util;
 
 import com.github.javaparser.JavaParser;
-import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.Position;
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.body.*;
 import com.github.javaparser.ast.expr.Expression;
 import com.github.javaparser.ast.expr.MethodCallExpr;
 import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.stmt.BlockStmt;
 import com.github.javaparser.ast.type.ClassOrInterfaceType;
-import com.github.javaparser.resolution.declarations.ResolvedMethodDeclaration;
-import com.github.javaparser.symbolsolver.JavaSymbolSolver;
 import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
 import com.github.javaparser.symbolsolver.resolution.typesolvers.JavaParserTypeSolver;
 import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 /**
  * A code flow analyzer using JavaParser.
  * This provides a more robust solution compared to regex-based analysis.
+ * <p>
+ * The analyzer is shared between concurrent requests: it only holds thread-safe caches,
+ * per-request state lives in a {@link Traversal}, and every thread gets its own parser
+ * and symbol solver since neither is thread-safe.
+ * <p>
+ * The symbol index and the field types derived from it form an immutable {@link Snapshot}.
+ * {@link #refresh(Collection)} re-parses changed files and publishes a new snapshot in one
+ * volatile write; each traversal reads the snapshot once, so it never sees a partial update.
+ * <p>
+ * The sources may span several roots, such as the modules of a multi-module build. They are
+ * indexed together into one symbol space and resolved by one type solver, so calls between
+ * modules are followed like any other.
+ * <p>
+ * With {@link AnalysisOptions.Engine#BYTECODE} the graph is read from the compiled classes
+ * by a {@link BytecodeCallGraphAnalyzer} instead, and the sources are only used for snippets.
  */
-public class JavaParserCodeFlowAnalyzer {
+public class JavaParserCodeFlowAnalyzer implements AutoCloseable {
+    /**
+     * Type solver cache size that leaves the caches unbounded; their values are softly referenced
+     */
+    public static final long TYPE_SOLVER_CACHE_UNBOUNDED = -1;
+
+    private static final Logger log = LoggerFactory.getLogger(JavaParserCodeFlowAnalyzer.class);
+
+    private final List<File> sourceRoots;
+    /** The absolute paths of the source roots separated by {@link File#pathSeparator} */
     private final String sourceRootPath;
-    private final Map<String, Map<String, String>> classFields = new HashMap<>();
-    private final Set<String> visitedFiles = new HashSet<>();
-    private final JavaParser javaParser;
-    private final CombinedTypeSolver typeSolver;
+    private final ThreadLocalSymbolResolver symbolResolver;
+    private final ThreadLocal<JavaParser> javaParsers;
+    private final ParsedFileCache parsedFileCache;
+    private final MethodResolutionCache resolutionCache;
+    private final long typeSolverCacheSize;
+    private final ForkJoinPool traversalPool;
+    private final List<SourceChangeListener> sourceChangeListeners = new CopyOnWriteArrayList<>();
+    private volatile Snapshot snapshot;
+    private volatile PrecomputedCallGraph precomputed;
+    private volatile AnalysisMetrics metrics = AnalysisMetrics.NONE;
+    private volatile BytecodeCallGraphAnalyzer bytecodeAnalyzer;
+
+    /**
+     * Notified after changed source files have been re-indexed
+     */
+    @FunctionalInterface
+    public interface SourceChangeListener {
+        /**
+         * @param changedPaths absolute paths of the changed, added or deleted source files
+         * @param hierarchyChanged whether types were added or removed or their supertypes changed,
+         *                         which can affect call graphs that do not include the changed files
+         */
+        void sourcesChanged(Set<String> changedPaths, boolean hierarchyChanged);
+    }
+
+    /**
+     * A consistent view of the project: the symbol index and the field types of the classes
+     * analyzed so far. Field types are filled in lazily but only ever from this snapshot's sources.
+     */
+    private static class Snapshot {
+        final SymbolIndex index;
+        final Map<String, Map<String, String>> classFields;
+
+        Snapshot(SymbolIndex index, Map<String, Map<String, String>> classFields) {
+            this.index = index;
+            this.classFields = classFields;
+        }
+    }
 
     /**
      * Represents a method call in the code
@@ -66,17 +135,84 @@ public class JavaParserCodeFlowAnalyzer {
     }
     
     /**
-     * Represents a call graph of method invocations
+     * Represents a call graph of method invocations.
+     * Nodes may be added concurrently by a parallel traversal. Once the traversal is done the
+     * graph is {@linkplain #compact() compacted} into a {@link CompactCallGraph}; the lookup
+     * methods then return views on its arrays and the graph is read-only.
      */
     public static class CallGraph {
-        private final Map<String, Map<String, List<MethodCall>>> callMap = new HashMap<>();
+        private volatile Map<String, Map<String, List<MethodCall>>> callMap = new ConcurrentHashMap<>();
+        private volatile CompactCallGraph compactGraph;
+        private final Set<String> sourceFiles = ConcurrentHashMap.newKeySet();
+        private volatile Map<String, AnalysisOptions.Limit> frontier = Collections.emptyMap();
         
         public void addNode(String className, String methodName, List<MethodCall> calls) {
-            callMap.putIfAbsent(className, new HashMap<>());
-            callMap.get(className).put(methodName, calls);
+            Map<String, Map<String, List<MethodCall>>> map = callMap;
+            if (map == null) {
+                throw new IllegalStateException("The call graph has been compacted and is read-only");
+            }
+            map.computeIfAbsent(className, k -> new ConcurrentHashMap<>()).put(methodName, calls);
+        }
+        
+        /**
+         * Converts the graph to its compact, read-only form and releases the maps used while building it
+         */
+        public synchronized CallGraph compact() {
+            if (compactGraph == null) {
+                compactGraph = CompactCallGraph.of(callMap);
+                callMap = null;
+            }
+            return this;
+        }
+        
+        /**
+         * Returns the compact form of the graph, compacting it first if needed
+         */
+        public CompactCallGraph toCompact() {
+            CompactCallGraph compact = compactGraph;
+            return compact != null ? compact : compact().compactGraph;
+        }
+        
+        /**
+         * Records a source file that was read while building the graph
+         */
+        public void addSourceFile(String path) {
+            sourceFiles.add(path);
+        }
+        
+        /**
+         * Absolute paths of the source files the graph was built from
+         */
+        public Set<String> getSourceFiles() {
+            return Collections.unmodifiableSet(sourceFiles);
+        }
+        
+        void setFrontier(Map<String, AnalysisOptions.Limit> frontier) {
+            this.frontier = Collections.unmodifiableMap(new TreeMap<>(frontier));
+        }
+        
+        /**
+         * Signatures ({@code class.method}) of the methods a limited traversal reached but did not
+         * expand, each with the limit that stopped it, in signature order. Their calls are missing
+         * from the graph.
+         */
+        public Map<String, AnalysisOptions.Limit> getFrontier() {
+            return frontier;
+        }
+        
+        /**
+         * Whether the traversal stopped at a limit before reaching every method
+         */
+        public boolean isTruncated() {
+            return !frontier.isEmpty();
         }
         
         public List<MethodCall> getCalls(String className, String methodName) {
+            CompactCallGraph compact = compactGraph;
+            if (compact != null) {
+                return compact.getCalls(className, methodName);
+            }
+            Map<String, Map<String, List<MethodCall>>> callMap = buildingCallMap();
             if (callMap.containsKey(className) && callMap.get(className).containsKey(methodName)) {
                 return callMap.get(className).get(methodName);
             }
@@ -84,19 +220,76 @@ public class JavaParserCodeFlowAnalyzer {
         }
         
         public Set<String> getClasses() {
-            return callMap.keySet();
+            CompactCallGraph compact = compactGraph;
+            return compact != null ? compact.getClasses() : buildingCallMap().keySet();
         }
         
         public Set<String> getMethods(String className) {
+            CompactCallGraph compact = compactGraph;
+            if (compact != null) {
+                return compact.getMethods(className);
+            }
+            Map<String, Map<String, List<MethodCall>>> callMap = buildingCallMap();
             if (callMap.containsKey(className)) {
                 return callMap.get(className).keySet();
             }
             return Collections.emptySet();
         }
         
+        /**
+         * Methods of a class that are called somewhere in the graph, whether or not they have a node.
+         * Once compacted this is answered from the inverted caller index.
+         */
+        public Set<String> getCalledMethods(String className) {
+            CompactCallGraph compact = compactGraph;
+            if (compact != null) {
+                return compact.getCalledMethods(className);
+            }
+            Set<String> methods = new LinkedHashSet<>();
+            for (MethodCall call : getAllCalls()) {
+                if (call.className.equals(className)) {
+                    methods.add(call.methodName);
+                }
+            }
+            return methods;
+        }
+        
+        /**
+         * Signatures ({@code class.method}) of the methods that call the given method.
+         * Once compacted this is answered from the inverted caller index.
+         */
+        public List<String> getCallers(String className, String methodName) {
+            CompactCallGraph compact = compactGraph;
+            List<String> callers = new ArrayList<>();
+            if (compact != null) {
+                for (int node : compact.getCallerNodes(className, methodName)) {
+                    callers.add(compact.getClassName(node) + "." + compact.getMethodName(node));
+                }
+                return callers;
+            }
+            for (Map.Entry<String, Map<String, List<MethodCall>>> classEntry : buildingCallMap().entrySet()) {
+                for (Map.Entry<String, List<MethodCall>> methodEntry : classEntry.getValue().entrySet()) {
+                    for (MethodCall call : methodEntry.getValue()) {
+                        if (call.className.equals(className) && call.methodName.equals(methodName)) {
+                            callers.add(classEntry.getKey() + "." + methodEntry.getKey());
+                            break;
+                        }
+                    }
+                }
+            }
+            return callers;
+        }
+        
+        /**
+         * Every call in the graph. Once compacted this is a view, not a copy.
+         */
         public List<MethodCall> getAllCalls() {
+            CompactCallGraph compact = compactGraph;
+            if (compact != null) {
+                return compact.getAllCalls();
+            }
             List<MethodCall> allCalls = new ArrayList<>();
-            for (Map<String, List<MethodCall>> methodMap : callMap.values()) {
+            for (Map<String, List<MethodCall>> methodMap : buildingCallMap().values()) {
                 for (List<MethodCall> calls : methodMap.values()) {
                     allCalls.addAll(calls);
                 }
@@ -104,12 +297,138 @@ public class JavaParserCodeFlowAnalyzer {
             return allCalls;
         }
         
+        /**
+         * The graph as class → method → calls. Once compacted this is an unmodifiable map
+         * assembled on each call from views on the compact arrays.
+         */
         public Map<String, Map<String, List<MethodCall>>> getCallMap() {
-            return callMap;
+            CompactCallGraph compact = compactGraph;
+            if (compact == null) {
+                return buildingCallMap();
+            }
+            Map<String, Map<String, List<MethodCall>>> view = new LinkedHashMap<>();
+            for (String className : compact.getClasses()) {
+                Map<String, List<MethodCall>> methods = new LinkedHashMap<>();
+                for (String methodName : compact.getMethods(className)) {
+                    methods.put(methodName, compact.getCalls(className, methodName));
+                }
+                view.put(className, Collections.unmodifiableMap(methods));
+            }
+            return Collections.unmodifiableMap(view);
+        }
+        
+        public int getNodeCount() {
+            CompactCallGraph compact = compactGraph;
+            if (compact != null) {
+                return compact.getNodeCount();
+            }
+            return buildingCallMap().values().stream().mapToInt(Map::size).sum();
+        }
+        
+        public int getEdgeCount() {
+            CompactCallGraph compact = compactGraph;
+            if (compact != null) {
+                return compact.getEdgeCount();
+            }
+            return buildingCallMap().values().stream()
+                                    .flatMap(methods -> methods.values().stream())
+                                    .mapToInt(List::size).sum();
+        }
+        
+        private Map<String, Map<String, List<MethodCall>>> buildingCallMap() {
+            Map<String, Map<String, List<MethodCall>>> map = callMap;
+            // compact() publishes the compact graph before releasing the map
+            return map != null ? map : getCallMap();
         }
     }
 
     public JavaParserCodeFlowAnalyzer() {
+        this(new ParsedFileCache(), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param parsedFileCache cache of parsed source files shared by all requests
+     * @param parallelism number of worker threads used by parallel traversals
+     */
+    public JavaParserCodeFlowAnalyzer(ParsedFileCache parsedFileCache, int parallelism) {
+        this(parsedFileCache, new MethodResolutionCache(), parallelism, TYPE_SOLVER_CACHE_UNBOUNDED);
+    }
+
+    /**
+     * @param parsedFileCache cache of parsed source files shared by all requests
+     * @param resolutionCache cache of resolved method call sites shared by all requests
+     * @param parallelism number of worker threads used by parallel traversals
+     * @param typeSolverCacheSize maximum entries in each of the per-thread source type solver's caches
+     *                            (parsed files, directories and found types), or
+     *                            {@link #TYPE_SOLVER_CACHE_UNBOUNDED}
+     */
+    public JavaParserCodeFlowAnalyzer(ParsedFileCache parsedFileCache, MethodResolutionCache resolutionCache,
+                                      int parallelism, long typeSolverCacheSize) {
+        this(findSourceRoot(), parsedFileCache, resolutionCache, parallelism, typeSolverCacheSize);
+    }
+
+    /**
+     * @param sourceRoot the directory holding the package tree of the sources to analyze
+     * @param parsedFileCache cache of parsed source files shared by all requests
+     * @param resolutionCache cache of resolved method call sites shared by all requests
+     * @param parallelism number of worker threads used by parallel traversals
+     * @param typeSolverCacheSize maximum entries in each of the per-thread source type solver's caches,
+     *                            or {@link #TYPE_SOLVER_CACHE_UNBOUNDED}
+     */
+    public JavaParserCodeFlowAnalyzer(File sourceRoot, ParsedFileCache parsedFileCache,
+                                      MethodResolutionCache resolutionCache, int parallelism,
+                                      long typeSolverCacheSize) {
+        this(Collections.singletonList(sourceRoot), parsedFileCache, resolutionCache, parallelism,
+             typeSolverCacheSize);
+    }
+
+    /**
+     * @param sourceRoots the directories holding the package trees of the sources to analyze,
+     *                    for example one per module
+     * @param parsedFileCache cache of parsed source files shared by all requests
+     * @param resolutionCache cache of resolved method call sites shared by all requests
+     * @param parallelism number of worker threads used by parallel traversals
+     * @param typeSolverCacheSize maximum entries in each of the per-thread source type solver's caches,
+     *                            or {@link #TYPE_SOLVER_CACHE_UNBOUNDED}
+     */
+    public JavaParserCodeFlowAnalyzer(List<File> sourceRoots, ParsedFileCache parsedFileCache,
+                                      MethodResolutionCache resolutionCache, int parallelism,
+                                      long typeSolverCacheSize) {
+        if (sourceRoots.isEmpty()) {
+            throw new IllegalArgumentException("At least one source root is required");
+        }
+        List<File> roots = new ArrayList<>(sourceRoots.size());
+        for (File sourceRoot : sourceRoots) {
+            roots.add(sourceRoot.getAbsoluteFile());
+        }
+        this.sourceRoots = Collections.unmodifiableList(roots);
+        this.sourceRootPath = roots.stream().map(File::getPath).collect(Collectors.joining(File.pathSeparator));
+        this.parsedFileCache = parsedFileCache;
+        this.resolutionCache = resolutionCache;
+        this.typeSolverCacheSize = typeSolverCacheSize;
+        this.traversalPool = new ForkJoinPool(parallelism);
+        this.bytecodeAnalyzer = new BytecodeCallGraphAnalyzer(BytecodeCallGraphAnalyzer.defaultClassRoots(roots), roots);
+        
+        // Initialize JavaParser with symbol solving capabilities. Parsed files are shared through
+        // the cache, so they resolve symbols through the solver of whichever thread uses them.
+        // Nothing is parsed or indexed here: type solvers are created per thread on first use,
+        // and the index on the first analysis or by warmUp().
+        this.symbolResolver = new ThreadLocalSymbolResolver(this::createTypeSolver);
+        this.javaParsers = ThreadLocal.withInitial(() -> {
+            JavaParser javaParser = new JavaParser();
+            javaParser.getParserConfiguration().setSymbolResolver(symbolResolver);
+            return javaParser;
+        });
+    }
+    
+    /**
+     * Finds the source root below the working directory or its parent
+     */
+    public static List<File> findSourceRoots() {
+        return Collections.singletonList(findSourceRoot());
+    }
+    
+    private static File findSourceRoot() {
         // Determine the source root path
         String rootPath = System.getProperty("user.dir");
         File projectRoot = new File(rootPath);
@@ -134,163 +453,919 @@ public class JavaParserCodeFlowAnalyzer {
             // Default fallback
             sourceRoot = new File(rootPath, "mod1/src/main/java");
         }
+        return sourceRoot;
+    }
+    
+    /**
+     * Returns the cache of parsed files shared by all analyzer paths
+     */
+    public ParsedFileCache getParsedFileCache() {
+        return parsedFileCache;
+    }
+    
+    /**
+     * Returns the cache of resolved method call sites
+     */
+    public MethodResolutionCache getResolutionCache() {
+        return resolutionCache;
+    }
+    
+    /**
+     * Sets where phase timings and graph sizes are reported
+     */
+    public void setMetrics(AnalysisMetrics metrics) {
+        this.metrics = Objects.requireNonNull(metrics);
+        bytecodeAnalyzer.setMetrics(metrics);
+    }
+    
+    public AnalysisMetrics getMetrics() {
+        return metrics;
+    }
+    
+    /**
+     * Reports a phase's time to the metrics and, if the request is profiled, to its profile
+     */
+    private void recordPhase(AnalysisProfile profile, AnalysisMetrics.Phase phase, long nanos) {
+        metrics.recordPhase(phase, nanos);
+        if (profile != null) {
+            profile.recordPhase(phase, nanos);
+        }
+    }
+    
+    /**
+     * Returns the source of every declaration of a method with a body in the given type,
+     * overloads in declaration order. Each source is sliced from the text the type was parsed
+     * from, starting at the first modifier (annotations are left out) and ending at the closing brace.
+     */
+    public List<String> getMethodSources(String className, String methodName) {
+        return getMethodSources(className, methodName, null);
+    }
+    
+    /**
+     * Returns the sources of a method's declarations, recording the work in the profile
+     *
+     * @param profile the profile of the request, or null
+     */
+    public List<String> getMethodSources(String className, String methodName, AnalysisProfile profile) {
+        return sliceMethods(className, methodName, false, profile);
+    }
+    
+    /**
+     * Returns the signature of every declaration of a method with a body in the given type,
+     * overloads in declaration order: the text from the first modifier up to the opening brace,
+     * followed by {@code { ... }} in place of the body
+     *
+     * @param profile the profile of the request, or null
+     */
+    public List<String> getMethodSignatures(String className, String methodName, AnalysisProfile profile) {
+        return sliceMethods(className, methodName, true, profile);
+    }
+    
+    private List<String> sliceMethods(String className, String methodName, boolean signaturesOnly,
+                                      AnalysisProfile profile) {
+        SymbolIndex.TypeInfo type = getSymbolIndex().getType(className);
+        if (type == null) {
+            return Collections.emptyList();
+        }
+        long start = System.nanoTime();
+        try {
+            ParsedFileCache.ParsedFile parsedFile = parsedFileCache.getParsedFile(type.file, javaParsers.get(), profile);
+            Optional<ClassOrInterfaceDeclaration> declaration = parsedFile.getCompilationUnit()
+                .flatMap(cu -> cu.findFirst(ClassOrInterfaceDeclaration.class,
+                                            c -> c.getFullyQualifiedName().map(className::equals).orElse(false)));
+            if (!declaration.isPresent()) {
+                return Collections.emptyList();
+            }
+            
+            List<String> sources = new ArrayList<>();
+            for (MethodDeclaration method : declaration.get().getMethodsByName(methodName)) {
+                Optional<Position> begin = signatureBegin(method);
+                Optional<Position> end = signaturesOnly ? method.getBody().flatMap(body -> body.getBegin())
+                                                        : method.getEnd();
+                if (method.getBody().isPresent() && begin.isPresent() && end.isPresent()) {
+                    SourceFileStore.SourceFile source = parsedFile.getSource();
+                    if (signaturesOnly) {
+                        String signature = source.getContent().substring(
+                            source.offset(begin.get().line, begin.get().column),
+                            source.offset(end.get().line, end.get().column));
+                        sources.add(signature.trim() + " { ... }");
+                    } else {
+                        sources.add(source.slice(begin.get().line, begin.get().column,
+                                                 end.get().line, end.get().column));
+                    }
+                }
+            }
+            return sources;
+        } catch (FileNotFoundException e) {
+            return Collections.emptyList();
+        } finally {
+            recordPhase(profile, AnalysisMetrics.Phase.SNIPPET_EXTRACTION, System.nanoTime() - start);
+        }
+    }
+    
+    private static Optional<Position> signatureBegin(MethodDeclaration method) {
+        if (method.getModifiers().isNonEmpty()) {
+            return method.getModifiers().get(0).getBegin();
+        }
+        if (method.getTypeParameters().isNonEmpty()) {
+            return method.getTypeParameters().get(0).getBegin();
+        }
+        return method.getType().getBegin();
+    }
+    
+    /**
+     * Starts reading the source files declaring the given types that are not cached yet, on
+     * virtual threads, and returns without waiting for them
+     *
+     * @param profile the profile of the request that will extract snippets from them, or null
+     */
+    public void prefetchSources(Collection<String> classNames, AnalysisProfile profile) {
+        SymbolIndex symbolIndex = getSymbolIndex();
+        Set<File> files = new LinkedHashSet<>();
+        for (String className : classNames) {
+            File file = symbolIndex.getFile(className);
+            if (file != null) {
+                files.add(file);
+            }
+        }
+        parsedFileCache.getSourceFileStore().prefetch(files, profile);
+    }
+    
+    /**
+     * Returns the full text of the source file declaring the given type
+     */
+    public Optional<String> getSourceText(String className) {
+        return getSourceText(className, null);
+    }
+    
+    /**
+     * Returns the full text of the source file declaring the given type, recording the work in the profile
+     *
+     * @param profile the profile of the request, or null
+     */
+    public Optional<String> getSourceText(String className, AnalysisProfile profile) {
+        SymbolIndex.TypeInfo type = getSymbolIndex().getType(className);
+        if (type == null) {
+            return Optional.empty();
+        }
+        long start = System.nanoTime();
+        try {
+            return parsedFileCache.getSourceFileStore().get(type.file, profile)
+                                  .map(SourceFileStore.SourceFile::getContent);
+        } finally {
+            recordPhase(profile, AnalysisMetrics.Phase.SNIPPET_EXTRACTION, System.nanoTime() - start);
+        }
+    }
+    
+    /**
+     * Returns the text of the source file declaring the given type with the bodies of its methods
+     * and constructors replaced by {@code { ... }}, or empty if the type is not indexed or its file
+     * does not parse
+     *
+     * @param profile the profile of the request, or null
+     */
+    public Optional<String> getSourceOutline(String className, AnalysisProfile profile) {
+        SymbolIndex.TypeInfo type = getSymbolIndex().getType(className);
+        if (type == null) {
+            return Optional.empty();
+        }
+        long start = System.nanoTime();
+        try {
+            ParsedFileCache.ParsedFile parsedFile = parsedFileCache.getParsedFile(type.file, javaParsers.get(), profile);
+            Optional<CompilationUnit> compilationUnit = parsedFile.getCompilationUnit();
+            if (!compilationUnit.isPresent()) {
+                return Optional.empty();
+            }
+            List<BlockStmt> bodies = new ArrayList<>();
+            for (MethodDeclaration method : compilationUnit.get().findAll(MethodDeclaration.class)) {
+                method.getBody().ifPresent(bodies::add);
+            }
+            for (ConstructorDeclaration constructor : compilationUnit.get().findAll(ConstructorDeclaration.class)) {
+                bodies.add(constructor.getBody());
+            }
+            
+            SourceFileStore.SourceFile source = parsedFile.getSource();
+            List<int[]> ranges = new ArrayList<>();
+            for (BlockStmt body : bodies) {
+                body.getRange().ifPresent(range -> ranges.add(new int[] {
+                    source.offset(range.begin.line, range.begin.column),
+                    source.offset(range.end.line, range.end.column) + 1}));
+            }
+            ranges.sort(Comparator.comparingInt(range -> range[0]));
+            
+            String content = source.getContent();
+            StringBuilder outline = new StringBuilder(content.length());
+            int position = 0;
+            for (int[] range : ranges) {
+                if (range[0] < position) {
+                    continue; // Nested in a body already left out, such as a method of an anonymous class
+                }
+                outline.append(content, position, range[0]).append("{ ... }");
+                position = Math.min(range[1], content.length());
+            }
+            return Optional.of(outline.append(content, position, content.length()).toString());
+        } catch (FileNotFoundException e) {
+            return Optional.empty();
+        } finally {
+            recordPhase(profile, AnalysisMetrics.Phase.SNIPPET_EXTRACTION, System.nanoTime() - start);
+        }
+    }
+    
+    /**
+     * Returns the project symbol index, building it on first use
+     */
+    public SymbolIndex getSymbolIndex() {
+        return getSnapshot().index;
+    }
+    
+    /**
+     * Returns the source roots the analyzer indexes
+     */
+    public List<File> getSourceRoots() {
+        return sourceRoots;
+    }
+    
+    /**
+     * The absolute paths of the source roots separated by {@link File#pathSeparator}, which
+     * identifies the sources a precomputed call graph was built from
+     */
+    public String getSourceRootPath() {
+        return sourceRootPath;
+    }
+    
+    /**
+     * Returns the analyzer used for {@link AnalysisOptions.Engine#BYTECODE}, which reads the
+     * usual build output directories of the source roots unless replaced
+     */
+    public BytecodeCallGraphAnalyzer getBytecodeAnalyzer() {
+        return bytecodeAnalyzer;
+    }
+    
+    /**
+     * Reads compiled classes for {@link AnalysisOptions.Engine#BYTECODE} with the given analyzer,
+     * for class roots other than the build output directories
+     */
+    public void setBytecodeAnalyzer(BytecodeCallGraphAnalyzer bytecodeAnalyzer) {
+        bytecodeAnalyzer.setMetrics(metrics);
+        this.bytecodeAnalyzer = bytecodeAnalyzer;
+    }
+    
+    /**
+     * Parses and indexes the sources now rather than on the first analysis
+     *
+     * @return the number of indexed types
+     */
+    public int warmUp() {
+        return getSnapshot().index.getTypeCount();
+    }
+    
+    /**
+     * Whether the sources have been indexed
+     */
+    public boolean isIndexed() {
+        return snapshot != null;
+    }
+    
+    public void addSourceChangeListener(SourceChangeListener listener) {
+        sourceChangeListeners.add(listener);
+    }
+    
+    private Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null) {
+                    long start = System.currentTimeMillis();
+                    SymbolIndex index = SymbolIndex.build(getSourceRoots(), parsedFileCache, javaParsers::get);
+                    log.info("Indexed {} types from {} source roots in {} ms", index.getTypeCount(),
+                             sourceRoots.size(), System.currentTimeMillis() - start);
+                    current = new Snapshot(index, new ConcurrentHashMap<>());
+                    snapshot = current;
+                }
+            }
+        }
+        return current;
+    }
+    
+    /**
+     * Re-parses the given source files and publishes a new snapshot in which they are replaced.
+     * Deleted files, and files below a deleted directory, are removed from the index. A file that
+     * no longer parses keeps its previous symbols until it is fixed.
+     */
+    public void refresh(Collection<File> changedFiles) {
+        long start = System.currentTimeMillis();
+        for (File file : changedFiles) {
+            parsedFileCache.invalidate(file);
+        }
+        // Type solvers keep their own copies of parsed sources, and resolutions of unchanged
+        // files can depend on declarations in the changed ones
+        symbolResolver.reset();
+        resolutionCache.clear();
+        // Sources change before the classes compiled from them, so only drop what was read
+        bytecodeAnalyzer.invalidate();
         
-        this.sourceRootPath = sourceRoot.getAbsolutePath();
-        System.out.println("Source root path: " + sourceRootPath);
+        Set<String> changedPaths = new LinkedHashSet<>();
+        boolean hierarchyChanged;
+        synchronized (this) {
+            Snapshot current = snapshot;
+            if (current == null) {
+                // Nothing has been indexed yet, so only precomputed results can be stale; without
+                // the previous index a hierarchy change cannot be ruled out, so drop them all
+                if (precomputed != null) {
+                    precomputed = null;
+                    log.info("Dropped precomputed call graph after source changes");
+                }
+                return;
+            }
+            SymbolIndex index = current.index;
+            
+            for (File file : changedFiles) {
+                String path = file.getAbsolutePath();
+                if (path.endsWith(".java")) {
+                    changedPaths.add(path);
+                } else {
+                    // A deleted directory: every indexed file below it is gone
+                    String prefix = path + File.separator;
+                    index.getFiles().keySet().stream().filter(p -> p.startsWith(prefix)).forEach(changedPaths::add);
+                }
+            }
+            
+            Map<String, SymbolIndex.FileSymbols> updatedFiles = new HashMap<>();
+            Set<String> removedPaths = new HashSet<>();
+            for (String path : changedPaths) {
+                File file = new File(path);
+                if (!file.isFile()) {
+                    removedPaths.add(path);
+                    continue;
+                }
+                SymbolIndex.FileSymbols symbols = SymbolIndex.indexFile(file, parsedFileCache, javaParsers.get());
+                if (symbols != null) {
+                    updatedFiles.put(path, symbols);
+                }
+            }
+            
+            SymbolIndex next = index.withFiles(updatedFiles, removedPaths);
+            hierarchyChanged = index.hasHierarchyChanges(next, changedPaths);
+            
+            // Field types resolve against the whole index, so a changed hierarchy invalidates all of them;
+            // otherwise only the classes declared in the changed files are re-analyzed
+            Map<String, Map<String, String>> classFields = new ConcurrentHashMap<>();
+            if (!hierarchyChanged) {
+                classFields.putAll(current.classFields);
+                for (String path : changedPaths) {
+                    SymbolIndex.FileSymbols symbols = index.getFiles().get(path);
+                    if (symbols != null) {
+                        symbols.types.forEach(type -> classFields.remove(type.qualifiedName));
+                    }
+                }
+            }
+            snapshot = new Snapshot(next, classFields);
+            
+            PrecomputedCallGraph currentPrecomputed = precomputed;
+            if (currentPrecomputed != null) {
+                precomputed = hierarchyChanged ? null : currentPrecomputed.withoutFiles(changedPaths);
+            }
+        }
         
-        // Initialize JavaParser with symbol solving capabilities
-        this.typeSolver = createTypeSolver();
-        JavaSymbolSolver symbolSolver = new JavaSymbolSolver(typeSolver);
-        this.javaParser = new JavaParser();
-        this.javaParser.getParserConfiguration().setSymbolResolver(symbolSolver);
+        log.info("Re-indexed {} changed files in {} ms{}", changedPaths.size(), System.currentTimeMillis() - start,
+                 hierarchyChanged ? " (type hierarchy changed)" : "");
+        for (SourceChangeListener listener : sourceChangeListeners) {
+            listener.sourcesChanged(changedPaths, hierarchyChanged);
+        }
     }
     
     /**
-     * Create a type solver for resolving types in the code
+     * Create a type solver for resolving types in the code.
+     * Type solvers cache parsed files without synchronization, so each thread creates its own.
      */
     private CombinedTypeSolver createTypeSolver() {
         CombinedTypeSolver combinedSolver = new CombinedTypeSolver();
         // Add reflection type solver for resolving JDK and library classes
         combinedSolver.add(new ReflectionTypeSolver());
-        // Add JavaParser type solver for resolving project source code
-        combinedSolver.add(new JavaParserTypeSolver(new File(sourceRootPath)));
+        // Add a JavaParser type solver per source root for resolving project source code,
+        // so types declared in one module resolve from the sources of any other
+        for (File sourceRoot : sourceRoots) {
+            combinedSolver.add(new JavaParserTypeSolver(sourceRoot.toPath(), new ParserConfiguration(),
+                                                        typeSolverCacheSize));
+        }
         return combinedSolver;
     }
     
+    /**
+     * Returns the number of worker threads used by parallel traversals
+     */
+    public int getParallelism() {
+        return traversalPool.getParallelism();
+    }
+    
+    /**
+     * Shuts down the parallel traversal pool
+     */
+    @Override
+    public void close() {
+        traversalPool.shutdown();
+    }
+    
     /**
      * Analyzes the call flow of a method
      */
     public CallGraph analyzeCallFlow(String className, String methodName) {
-        System.out.println("Starting analysis of " + className + "." + methodName + " from path: " + sourceRootPath);
+        return analyzeCallFlow(className, methodName, AnalysisOptions.defaults());
+    }
+    
+    /**
+     * Analyzes the call flow of a method. A parallel traversal expands sibling callees
+     * concurrently on the analyzer's fork/join pool and produces the same graph as a
+     * sequential one.
+     */
+    public CallGraph analyzeCallFlow(String className, String methodName, AnalysisOptions options) {
+        return analyzeCallFlow(className, methodName, options, null);
+    }
+    
+    /**
+     * Analyzes the call flow of a method, recording where the time and work went in the profile
+     *
+     * @param profile the profile of the request, or null
+     */
+    public CallGraph analyzeCallFlow(String className, String methodName, AnalysisOptions options,
+                                     AnalysisProfile profile) {
+        if (options.getEngine() == AnalysisOptions.Engine.BYTECODE) {
+            return bytecodeAnalyzer.analyzeCallFlow(className, methodName, options, profile);
+        }
+        return analyzeCallFlow(className, methodName, options, lazySnapshot(), newMethodResults(options), profile);
+    }
+    
+    /**
+     * Analyzes the call flows of several entry points against the same snapshot of the sources.
+     * Each method reachable from more than one entry point is parsed and resolved only once;
+     * the graphs are the same as those of separate {@link #analyzeCallFlow} calls.
+     * 
+     * @return the graphs in the order of the given entry points
+     */
+    public Map<EntryPoint, CallGraph> analyzeCallFlows(Collection<EntryPoint> entryPoints, AnalysisOptions options) {
+        if (options.getEngine() == AnalysisOptions.Engine.BYTECODE) {
+            Map<EntryPoint, CallGraph> graphs = new LinkedHashMap<>();
+            for (EntryPoint entryPoint : entryPoints) {
+                graphs.put(entryPoint, bytecodeAnalyzer.analyzeCallFlow(entryPoint.className, entryPoint.methodName,
+                                                                        options, null));
+            }
+            return graphs;
+        }
+        return analyzeCallFlows(entryPoints, options, newMethodResults(options), lazySnapshot());
+    }
+    
+    private Map<EntryPoint, CallGraph> analyzeCallFlows(Collection<EntryPoint> entryPoints, AnalysisOptions options,
+                                                        Map<String, MethodResult> methodResults,
+                                                        Supplier<Snapshot> current) {
+        long start = System.currentTimeMillis();
+        Map<EntryPoint, CallGraph> graphs = new LinkedHashMap<>();
+        for (EntryPoint entryPoint : entryPoints) {
+            graphs.put(entryPoint, analyzeCallFlow(entryPoint.className, entryPoint.methodName, options,
+                                                   current, methodResults, null));
+        }
+        log.debug("Analyzed {} entry points ({} distinct methods) in {} ms", graphs.size(), methodResults.size(),
+                  System.currentTimeMillis() - start);
+        return graphs;
+    }
+    
+    /**
+     * Analyzes every entry point of the project and keeps the result of each method reached,
+     * so later analyses replay them instead of parsing and resolving. The results are dropped
+     * for files that change, or entirely if the type hierarchy changes.
+     */
+    public PrecomputedCallGraph precompute() {
+        Snapshot current = getSnapshot();
+        List<EntryPoint> entryPoints = getEntryPoints();
+        Map<String, MethodResult> methodResults = new ConcurrentHashMap<>();
+        // Results replayed from the graph in use are not recorded again, so start from them
+        PrecomputedCallGraph previous = precomputed;
+        if (previous != null) {
+            methodResults.putAll(previous.getMethodResults());
+        }
+        analyzeCallFlows(entryPoints, AnalysisOptions.defaults(), methodResults, () -> current);
+        PrecomputedCallGraph result = new PrecomputedCallGraph(sourceRootPath, entryPoints, methodResults);
+        synchronized (this) {
+            // Results computed from a snapshot that has since been refreshed may be stale
+            if (snapshot == current) {
+                precomputed = result;
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Uses method results loaded from a snapshot file. They must have been computed from the
+     * current sources; until a source file changes, analyses do not need the symbol index.
+     */
+    public void setPrecomputed(PrecomputedCallGraph precomputed) {
+        if (!precomputed.getSourceRoot().equals(sourceRootPath)) {
+            throw new IllegalArgumentException("Precomputed for " + precomputed.getSourceRoot() +
+                                               ", not " + sourceRootPath);
+        }
+        this.precomputed = precomputed;
+    }
+    
+    /**
+     * The precomputed method results currently in use, or null
+     */
+    public PrecomputedCallGraph getPrecomputed() {
+        return precomputed;
+    }
+    
+    /**
+     * The whole-project call graph: the precomputed one if it still holds every method, otherwise
+     * one {@linkplain #precompute() precomputed} now, which only analyzes the methods missing from it
+     */
+    public PrecomputedCallGraph getProjectGraph() {
+        PrecomputedCallGraph current = precomputed;
+        return current != null && current.isComplete() ? current : precompute();
+    }
+    
+    /**
+     * The controller request mapping methods of the indexed sources, ordered by class and method;
+     * overloads appear once since the analyzer follows methods by name
+     */
+    public List<EntryPoint> getEntryPoints() {
+        PrecomputedCallGraph current = precomputed;
+        if (snapshot == null && current != null) {
+            return current.getEntryPoints(); // Avoid building the index just to list them
+        }
+        Set<EntryPoint> entryPoints = new TreeSet<>();
+        for (SymbolIndex.TypeInfo type : getSymbolIndex().getTypes()) {
+            if (type.isController()) {
+                for (SymbolIndex.MethodInfo method : type.methods) {
+                    if (method.isRequestMapping()) {
+                        entryPoints.add(new EntryPoint(type.qualifiedName, method.name));
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(entryPoints);
+    }
+    
+    private static Map<String, MethodResult> newMethodResults(AnalysisOptions options) {
+        return options.isParallel() ? new ConcurrentHashMap<>() : new HashMap<>();
+    }
+    
+    /**
+     * Returns the snapshot on first use and the same one afterwards, so a traversal that only
+     * replays precomputed results never builds the index, and a batch sees a single snapshot
+     */
+    private Supplier<Snapshot> lazySnapshot() {
+        AtomicReference<Snapshot> holder = new AtomicReference<>();
+        return () -> {
+            Snapshot current = holder.get();
+            if (current == null) {
+                holder.compareAndSet(null, getSnapshot());
+                current = holder.get();
+            }
+            return current;
+        };
+    }
+    
+    private CallGraph analyzeCallFlow(String className, String methodName, AnalysisOptions options,
+                                      Supplier<Snapshot> snapshot, Map<String, MethodResult> methodResults,
+                                      AnalysisProfile profile) {
+        log.debug("Starting analysis of {}.{} from {} source roots", className, methodName, sourceRoots.size());
         
+        long start = System.nanoTime();
         try {
-            CallGraph callGraph = new CallGraph();
-            Set<String> visitedMethods = new HashSet<>();
-            findMethodCalls(className, methodName, callGraph, visitedMethods);
+            PrecomputedCallGraph current = precomputed;
+            Traversal traversal = new Traversal(snapshot, options, methodResults,
+                                                current != null ? current.getMethodResults() : Collections.emptyMap(),
+                                                profile);
+            if (traversal.parallel) {
+                traversalPool.invoke(new VisitTask(className, methodName, 0, traversal));
+            } else {
+                findMethodCalls(className, methodName, 0, traversal);
+            }
+            if (traversal.limited) {
+                traversal.callGraph.setFrontier(traversal.getFrontier());
+            }
+            CallGraph callGraph = traversal.callGraph.compact();
+            metrics.recordGraph(callGraph.getNodeCount(), callGraph.getEdgeCount());
             return callGraph;
         } catch (Exception e) {
-            System.err.println("Error in analysis: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error in analysis of {}.{}", className, methodName, e);
             CallGraph emptyGraph = new CallGraph();
-            return emptyGraph;
+            return emptyGraph.compact();
+        } finally {
+            recordPhase(profile, AnalysisMetrics.Phase.TRAVERSAL, System.nanoTime() - start);
+        }
+    }
+    
+    /**
+     * The state of a single analysis request
+     */
+    private static class Traversal {
+        final CallGraph callGraph = new CallGraph();
+        final Supplier<Snapshot> snapshot;
+        final boolean parallel;
+        /** Visited methods when there is no depth limit */
+        final Set<String> visitedMethods;
+        /** Visited methods with the shortest depth they were reached at, when there is a depth limit */
+        final Map<String, Integer> visitedDepths;
+        /** Analyzed methods by signature, shared by the traversals of a batch */
+        final Map<String, MethodResult> methodResults;
+        /** Read-only results precomputed for the whole project */
+        final Map<String, MethodResult> precomputedResults;
+        /** Where the request's time and work went, or null if it is not profiled */
+        final AnalysisProfile profile;
+        
+        final boolean limited;
+        final int maxDepth;
+        final int maxNodes;
+        final boolean hasDeadline;
+        final long deadlineNanos;
+        final AtomicInteger expandedCount = new AtomicInteger();
+        /** Methods expanded so far, when limited */
+        final Set<String> expanded;
+        /** Methods reached but not expanded, with the limit that stopped them, when limited */
+        final Map<String, AnalysisOptions.Limit> cut;
+        
+        Traversal(Supplier<Snapshot> snapshot, AnalysisOptions options, Map<String, MethodResult> methodResults,
+                  Map<String, MethodResult> precomputedResults, AnalysisProfile profile) {
+            this.snapshot = snapshot;
+            this.parallel = options.isParallel();
+            this.methodResults = methodResults;
+            this.precomputedResults = precomputedResults;
+            this.profile = profile;
+            this.limited = options.isLimited();
+            this.maxDepth = options.getMaxDepth();
+            this.maxNodes = options.getMaxNodes();
+            this.hasDeadline = options.getTimeoutMillis() > 0;
+            this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(options.getTimeoutMillis());
+            if (maxDepth > 0) {
+                this.visitedMethods = null;
+                this.visitedDepths = parallel ? new ConcurrentHashMap<>() : new HashMap<>();
+            } else {
+                this.visitedMethods = parallel ? ConcurrentHashMap.newKeySet() : new HashSet<>();
+                this.visitedDepths = null;
+            }
+            this.expanded = limited ? (parallel ? ConcurrentHashMap.newKeySet() : new HashSet<>()) : null;
+            this.cut = limited ? (parallel ? new ConcurrentHashMap<>() : new HashMap<>()) : null;
+        }
+        
+        /**
+         * Whether a method reached at the given depth should be visited. With a depth limit, a method
+         * first reached on a long path is visited again when a shorter path reaches it, so the graph
+         * holds every method within the limit whatever the order of the visits.
+         */
+        boolean enter(String methodSignature, int depth) {
+            if (visitedDepths == null) {
+                return visitedMethods.add(methodSignature);
+            }
+            while (true) {
+                Integer previous = visitedDepths.putIfAbsent(methodSignature, depth);
+                if (previous == null) {
+                    return true;
+                }
+                if (previous <= depth) {
+                    return false;
+                }
+                if (visitedDepths.replace(methodSignature, previous, depth)) {
+                    return true;
+                }
+            }
+        }
+        
+        /**
+         * Returns the limit that stops the method from being expanded, or null if it may be expanded
+         */
+        AnalysisOptions.Limit checkLimits(String methodSignature, int depth) {
+            if (!limited) {
+                return null;
+            }
+            AnalysisOptions.Limit limit = null;
+            if (maxDepth > 0 && depth > maxDepth) {
+                limit = AnalysisOptions.Limit.DEPTH;
+            } else if (hasDeadline && System.nanoTime() - deadlineNanos > 0) {
+                limit = AnalysisOptions.Limit.TIMEOUT;
+            } else if (maxNodes > 0 && !expanded.contains(methodSignature)
+                       && expandedCount.incrementAndGet() > maxNodes) {
+                limit = AnalysisOptions.Limit.NODES;
+            }
+            if (limit != null) {
+                cut.put(methodSignature, limit);
+            } else {
+                expanded.add(methodSignature);
+            }
+            return limit;
+        }
+        
+        /**
+         * The methods that were reached but never expanded
+         */
+        Map<String, AnalysisOptions.Limit> getFrontier() {
+            Map<String, AnalysisOptions.Limit> frontier = new HashMap<>(cut);
+            frontier.keySet().removeAll(expanded);
+            return frontier;
+        }
+    }
+    
+    /**
+     * What visiting one method contributes to a call graph: the file it was read from, the nodes
+     * it adds and the methods to visit next. It depends only on the snapshot, so traversals of
+     * the same snapshot can share it.
+     */
+    static class MethodResult {
+        String sourceFile;
+        final List<String> nodeClassNames = new ArrayList<>(1);
+        final List<String> nodeMethodNames = new ArrayList<>(1);
+        final List<List<MethodCall>> nodeCalls = new ArrayList<>(1);
+        final List<String> nextClassNames = new ArrayList<>();
+        final List<String> nextMethodNames = new ArrayList<>();
+        
+        void addNode(String className, String methodName, List<MethodCall> calls) {
+            nodeClassNames.add(className);
+            nodeMethodNames.add(methodName);
+            nodeCalls.add(calls);
+        }
+        
+        void visit(String className, String methodName) {
+            nextClassNames.add(className);
+            nextMethodNames.add(methodName);
+        }
+        
+        void visitCallees(List<MethodCall> calls) {
+            for (MethodCall call : calls) {
+                visit(call.className, call.methodName);
+            }
+        }
+    }
+    
+    /**
+     * Visits one method as a fork/join task during a parallel traversal
+     */
+    private class VisitTask extends RecursiveAction {
+        private final String className;
+        private final String methodName;
+        private final int depth;
+        private final Traversal traversal;
+        
+        VisitTask(String className, String methodName, int depth, Traversal traversal) {
+            this.className = className;
+            this.methodName = methodName;
+            this.depth = depth;
+            this.traversal = traversal;
+        }
+        
+        @Override
+        protected void compute() {
+            findMethodCalls(className, methodName, depth, traversal);
+        }
+    }
+    
+    /**
+     * Visits the given methods, forking one task per method in parallel mode
+     */
+    private void visitMethods(List<String> classNames, List<String> methodNames, int depth, Traversal traversal) {
+        if (traversal.parallel && classNames.size() > 1) {
+            List<VisitTask> tasks = new ArrayList<>(classNames.size());
+            for (int i = 0; i < classNames.size(); i++) {
+                tasks.add(new VisitTask(classNames.get(i), methodNames.get(i), depth, traversal));
+            }
+            ForkJoinTask.invokeAll(tasks);
+        } else {
+            for (int i = 0; i < classNames.size(); i++) {
+                findMethodCalls(classNames.get(i), methodNames.get(i), depth, traversal);
+            }
         }
     }
     
     /**
      * Finds method calls from a given method recursively
+     *
+     * @param depth the number of calls from the entry point to the method
      */
-    private void findMethodCalls(String className, String methodName, CallGraph callGraph, 
-                                 Set<String> visitedMethods) {
+    private void findMethodCalls(String className, String methodName, int depth, Traversal traversal) {
         String methodSignature = className + "." + methodName;
-        if (visitedMethods.contains(methodSignature)) {
+        if (!traversal.enter(methodSignature, depth)) {
             return; // Avoid infinite recursion
         }
-        visitedMethods.add(methodSignature);
+        if (traversal.checkLimits(methodSignature, depth) != null) {
+            return; // Left on the frontier of a truncated graph
+        }
+        
+        // Methods already visited by another traversal of the same batch, or precomputed,
+        // are not parsed or resolved again
+        AnalysisProfile profile = traversal.profile;
+        MethodResult result = traversal.precomputedResults.get(methodSignature);
+        if (result == null) {
+            result = traversal.methodResults.get(methodSignature);
+        }
+        if (result == null) {
+            result = analyzeMethod(className, methodName, traversal.snapshot.get(), profile);
+            MethodResult existing = traversal.methodResults.putIfAbsent(methodSignature, result);
+            if (existing != null) {
+                result = existing;
+            }
+            if (profile != null) {
+                profile.methodAnalyzed();
+            }
+        } else if (profile != null) {
+            profile.methodReused();
+        }
         
+        CallGraph callGraph = traversal.callGraph;
+        if (result.sourceFile != null) {
+            callGraph.addSourceFile(result.sourceFile);
+        }
+        int edges = 0;
+        for (int i = 0; i < result.nodeClassNames.size(); i++) {
+            callGraph.addNode(result.nodeClassNames.get(i), result.nodeMethodNames.get(i), result.nodeCalls.get(i));
+            edges += result.nodeCalls.get(i).size();
+        }
+        if (profile != null) {
+            profile.visited(result.nodeClassNames.size(), edges);
+        }
+        visitMethods(result.nextClassNames, result.nextMethodNames, depth + 1, traversal);
+    }
+    
+    /**
+     * Analyzes a single method: the nodes it contributes to a call graph and the methods to visit next
+     */
+    private MethodResult analyzeMethod(String className, String methodName, Snapshot snapshot,
+                                       AnalysisProfile profile) {
+        String methodSignature = className + "." + methodName;
+        MethodResult result = new MethodResult();
         try {
-            // Get file path from class name
-            String simpleClassName = className.substring(className.lastIndexOf('.') + 1);
-            String packageName = className.substring(0, className.lastIndexOf('.'));
-            String packagePath = packageName.replace('.', File.separatorChar);
-            Path filePath = Paths.get(sourceRootPath, packagePath, simpleClassName + ".java");
-            File file = filePath.toFile();
-            
-            if (!file.exists()) {
-                System.err.println("File not found: " + filePath);
-                
-                // Try to fix potential package naming issues
-                // Check if this is a service/repository class with a missing "modX" part in the package
-                if (packageName.contains(".service") || packageName.contains(".dao") || 
-                    packageName.contains(".rest") || packageName.contains(".entities")) {
-                    
-                    // Look for common prefixes in the project
-                    String[] commonPrefixes = {
-                        "com.sbtl1.mod1", "com.example.mod1", "org.example.mod1",
-                        "com.sbtl1", "com.example", "org.example"
-                    };
-                    
-                    for (String prefix : commonPrefixes) {
-                        // Extract the component type (service, dao, etc.)
-                        int componentTypeIndex = packageName.lastIndexOf('.');
-                        if (componentTypeIndex > 0) {
-                            String componentType = packageName.substring(componentTypeIndex + 1);
-                            // Create a revised package name using the prefix
-                            String revisedPackageName = prefix + "." + componentType;
-                            String revisedPackagePath = revisedPackageName.replace('.', File.separatorChar);
-                            Path revisedFilePath = Paths.get(sourceRootPath, revisedPackagePath, simpleClassName + ".java");
-                            File revisedFile = revisedFilePath.toFile();
-                            
-                            if (revisedFile.exists()) {
-                                System.out.println("Found file with revised package path: " + revisedFilePath);
-                                file = revisedFile;
-                                // Update the class name to reflect the correct package
-                                className = revisedPackageName + "." + simpleClassName;
-                                break;
-                            }
-                        }
-                    }
-                    
-                    // If still not found, give up
-                    if (!file.exists()) {
-                        return;
-                    }
-                } else {
-                    return;
-                }
+            // Look up the declaring file in the symbol index
+            SymbolIndex index = snapshot.index;
+            long lookupStart = System.nanoTime();
+            SymbolIndex.TypeInfo typeInfo = index.getType(className);
+            recordPhase(profile, AnalysisMetrics.Phase.FILE_LOOKUP, System.nanoTime() - lookupStart);
+            if (typeInfo == null) {
+                log.debug("Type not found in source index: {}", className);
+                return result;
             }
             
-            visitedFiles.add(file.toString());
+            File file = typeInfo.file;
+            Path filePath = file.toPath();
+            result.sourceFile = file.getAbsolutePath();
             
-            // Parse the Java file
-            ParseResult<CompilationUnit> parseResult = javaParser.parse(file);
-            if (!parseResult.isSuccessful()) {
-                System.err.println("Failed to parse file: " + filePath);
-                return;
+            // Parse the Java file, reusing the cached AST when the file is unchanged
+            long parseStart = System.nanoTime();
+            ParsedFileCache.ParsedFile parsedFile;
+            try {
+                parsedFile = parsedFileCache.getParsedFile(file, javaParsers.get(), profile);
+            } finally {
+                recordPhase(profile, AnalysisMetrics.Phase.PARSE, System.nanoTime() - parseStart);
+            }
+            Optional<CompilationUnit> parsed = parsedFile.getCompilationUnit();
+            if (!parsed.isPresent()) {
+                log.warn("Failed to parse file: {}", filePath);
+                return result;
             }
             
-            CompilationUnit cu = parseResult.getResult().get();
+            CompilationUnit cu = parsed.get();
             
             // Find the class/interface declaration
             Optional<ClassOrInterfaceDeclaration> classOrInterface = 
                 cu.findFirst(ClassOrInterfaceDeclaration.class, 
-                             c -> c.getNameAsString().equals(simpleClassName));
+                             c -> c.getFullyQualifiedName().map(className::equals).orElse(false));
             
             if (!classOrInterface.isPresent()) {
-                System.err.println("Class or interface not found: " + simpleClassName);
-                return;
+                log.debug("Class or interface not found: {}", className);
+                return result;
             }
             
             ClassOrInterfaceDeclaration typeDeclaration = classOrInterface.get();
             boolean isInterface = typeDeclaration.isInterface();
             
             // Store field information for this class
+            Map<String, Map<String, String>> classFields = snapshot.classFields;
             if (!classFields.containsKey(className)) {
-                Map<String, String> fields = analyzeFields(typeDeclaration, className);
-                classFields.put(className, fields);
+                long fieldsStart = System.nanoTime();
+                Map<String, String> fields = analyzeFields(typeDeclaration, className, index);
+                recordPhase(profile, AnalysisMetrics.Phase.FIELD_ANALYSIS, System.nanoTime() - fieldsStart);
+                classFields.putIfAbsent(className, fields);
             }
             
             // Handle differently based on whether it's a class or interface
             if (isInterface) {
-                handleInterfaceMethod(className, methodName, typeDeclaration, callGraph, visitedMethods);
+                handleInterfaceMethod(className, methodName, typeDeclaration, parsedFile.getSource(), snapshot,
+                                      profile, result);
             } else {
-                handleClassMethod(className, methodName, typeDeclaration, callGraph, visitedMethods);
+                handleClassMethod(className, methodName, typeDeclaration, parsedFile.getSource(), snapshot,
+                                  profile, result);
             }
             
         } catch (FileNotFoundException e) {
-            System.err.println("Error reading file for " + className + ": " + e.getMessage());
+            log.warn("Error reading file for {}: {}", className, e.getMessage());
         } catch (Exception e) {
-            System.err.println("Error analyzing method " + methodSignature + ": " + e.getMessage());
-            e.printStackTrace();
+            log.warn("Error analyzing method {}", methodSignature, e);
         }
+        return result;
     }
     
     /**
      * Handle a method in a class
      */
     private void handleClassMethod(String className, String methodName, 
-                                 ClassOrInterfaceDeclaration classDeclaration,
-                                 CallGraph callGraph, 
-                                 Set<String> visitedMethods) {
+                                 ClassOrInterfaceDeclaration classDeclaration, SourceFileStore.SourceFile source,
+                                 Snapshot snapshot, AnalysisProfile profile, MethodResult result) {
         // Find the method in this class
         Optional<MethodDeclaration> methodOpt = classDeclaration.findFirst(MethodDeclaration.class, 
                                                     m -> m.getNameAsString().equals(methodName));
@@ -298,26 +1373,24 @@ public class JavaParserCodeFlowAnalyzer {
         if (methodOpt.isPresent()) {
             // Method found in this class
             MethodDeclaration method = methodOpt.get();
-            List<MethodCall> calls = findMethodCallsInMethod(method, className);
-            callGraph.addNode(className, methodName, calls);
+            List<MethodCall> calls = findMethodCallsInMethod(method, className, source, snapshot, profile);
+            result.addNode(className, methodName, calls);
             
             // Recursively analyze method calls
-            for (MethodCall call : calls) {
-                findMethodCalls(call.className, call.methodName, callGraph, visitedMethods);
-            }
+            result.visitCallees(calls);
         } else {
             // Method not found in this class, check parent class
             Optional<ClassOrInterfaceType> extendsClause = classDeclaration.getExtendedTypes().stream().findFirst();
             if (extendsClause.isPresent()) {
-                String superClassName = resolveClassName(extendsClause.get().getNameAsString(), className);
+                String superClassName = resolveClassName(extendsClause.get().getNameAsString(), className,
+                                                         snapshot.index);
                 if (superClassName != null && !superClassName.equals("java.lang.Object")) {
-                    System.out.println("Method not found in class " + className + 
-                                     ", checking superclass " + superClassName);
-                    findMethodCalls(superClassName, methodName, callGraph, visitedMethods);
+                    log.debug("Method not found in class {}, checking superclass {}", className, superClassName);
+                    result.visit(superClassName, methodName);
                 }
             } else {
                 // No method found and no superclass to check
-                callGraph.addNode(className, methodName, new ArrayList<>());
+                result.addNode(className, methodName, new ArrayList<>());
             }
         }
     }
@@ -327,8 +1400,8 @@ public class JavaParserCodeFlowAnalyzer {
      */
     private void handleInterfaceMethod(String interfaceName, String methodName, 
                                      ClassOrInterfaceDeclaration interfaceDeclaration,
-                                     CallGraph callGraph, 
-                                     Set<String> visitedMethods) {
+                                     SourceFileStore.SourceFile source, Snapshot snapshot,
+                                     AnalysisProfile profile, MethodResult result) {
         // Check for default method implementation
         Optional<MethodDeclaration> defaultMethodOpt = interfaceDeclaration.findFirst(MethodDeclaration.class, 
                                                         m -> m.getNameAsString().equals(methodName) && 
@@ -337,39 +1410,40 @@ public class JavaParserCodeFlowAnalyzer {
         if (defaultMethodOpt.isPresent()) {
             // Default method found in interface
             MethodDeclaration defaultMethod = defaultMethodOpt.get();
-            List<MethodCall> calls = findMethodCallsInMethod(defaultMethod, interfaceName);
-            callGraph.addNode(interfaceName, methodName, calls);
+            List<MethodCall> calls = findMethodCallsInMethod(defaultMethod, interfaceName, source, snapshot, profile);
+            result.addNode(interfaceName, methodName, calls);
             
             // Recursively analyze method calls
-            for (MethodCall call : calls) {
-                findMethodCalls(call.className, call.methodName, callGraph, visitedMethods);
-            }
+            result.visitCallees(calls);
             return;
         }
         
         // Check if this is a Spring Data Repository interface
         boolean isSpringDataRepository = isSpringDataRepository(interfaceDeclaration);
         if (isSpringDataRepository) {
-            handleSpringDataRepositoryMethod(interfaceName, methodName, interfaceDeclaration, callGraph);
+            handleSpringDataRepositoryMethod(interfaceName, methodName, interfaceDeclaration, result);
             return;
         }
         
         // For other interfaces, find implementors
-        List<String> implementors = findImplementors(interfaceName);
+        List<String> implementors = findImplementors(interfaceName, snapshot.index);
+        if (profile != null) {
+            profile.implementorScan();
+        }
         if (!implementors.isEmpty()) {
-            System.out.println("Found implementors of " + interfaceName + ": " + implementors);
+            log.debug("Found implementors of {}: {}", interfaceName, implementors);
             
             // Add a node for the interface method
-            callGraph.addNode(interfaceName, methodName, new ArrayList<>());
+            result.addNode(interfaceName, methodName, new ArrayList<>());
             
             // Check each implementor for the method
             for (String implementor : implementors) {
-                findMethodCalls(implementor, methodName, callGraph, visitedMethods);
+                result.visit(implementor, methodName);
             }
         } else {
             // No implementors found
-            System.out.println("No implementors found for interface " + interfaceName);
-            callGraph.addNode(interfaceName, methodName, new ArrayList<>());
+            log.debug("No implementors found for interface {}", interfaceName);
+            result.addNode(interfaceName, methodName, new ArrayList<>());
         }
     }
     
@@ -378,8 +1452,8 @@ public class JavaParserCodeFlowAnalyzer {
      */
     private void handleSpringDataRepositoryMethod(String interfaceName, String methodName, 
                                                 ClassOrInterfaceDeclaration interfaceDeclaration,
-                                                CallGraph callGraph) {
-        System.out.println("Handling Spring Data Repository method: " + methodName);
+                                                MethodResult result) {
+        log.debug("Handling Spring Data Repository method: {}", methodName);
         
         // For derived query methods like findByXyz
         if (methodName.startsWith("findBy") || methodName.startsWith("getBy") || 
@@ -387,8 +1461,8 @@ public class JavaParserCodeFlowAnalyzer {
             methodName.startsWith("countBy") || methodName.startsWith("existsBy")) {
             
             // JPA executes the query directly to the database
-            callGraph.addNode(interfaceName, methodName, new ArrayList<>());
-            System.out.println("JPA Repository method: Executes direct database query");
+            result.addNode(interfaceName, methodName, new ArrayList<>());
+            log.trace("JPA Repository method: Executes direct database query");
             return;
         }
         
@@ -398,8 +1472,8 @@ public class JavaParserCodeFlowAnalyzer {
             methodName.equals("deleteById") || methodName.equals("delete") || 
             methodName.equals("count") || methodName.equals("existsById")) {
             
-            callGraph.addNode(interfaceName, methodName, new ArrayList<>());
-            System.out.println("JPA Repository method: Implemented by SimpleJpaRepository");
+            result.addNode(interfaceName, methodName, new ArrayList<>());
+            log.trace("JPA Repository method: Implemented by SimpleJpaRepository");
             return;
         }
         
@@ -413,14 +1487,14 @@ public class JavaParserCodeFlowAnalyzer {
                                               .anyMatch(a -> a.getNameAsString().equals("Query"));
             
             if (hasQueryAnnotation) {
-                callGraph.addNode(interfaceName, methodName, new ArrayList<>());
-                System.out.println("JPA Repository method: Custom query with @Query annotation");
+                result.addNode(interfaceName, methodName, new ArrayList<>());
+                log.trace("JPA Repository method: Custom query with @Query annotation");
                 return;
             }
         }
         
         // Default behavior for unrecognized methods
-        callGraph.addNode(interfaceName, methodName, new ArrayList<>());
+        result.addNode(interfaceName, methodName, new ArrayList<>());
     }
     
     /**
@@ -445,59 +1519,20 @@ public class JavaParserCodeFlowAnalyzer {
     /**
      * Find implementors of an interface in the codebase
      */
-    private List<String> findImplementors(String interfaceName) {
-        List<String> implementors = new ArrayList<>();
-        String simpleInterfaceName = interfaceName.substring(interfaceName.lastIndexOf('.') + 1);
-        
-        for (String filePath : visitedFiles) {
-            try {
-                File file = new File(filePath);
-                ParseResult<CompilationUnit> parseResult = javaParser.parse(file);
-                
-                if (parseResult.isSuccessful()) {
-                    CompilationUnit cu = parseResult.getResult().get();
-                    
-                    // Find classes that implement this interface
-                    List<ClassOrInterfaceDeclaration> classes = cu.findAll(ClassOrInterfaceDeclaration.class, 
-                        c -> !c.isInterface() && c.getImplementedTypes().stream()
-                            .anyMatch(t -> t.getNameAsString().equals(simpleInterfaceName)));
-                    
-                    for (ClassOrInterfaceDeclaration cls : classes) {
-                        String packageName = cu.getPackageDeclaration()
-                                              .map(pd -> pd.getNameAsString())
-                                              .orElse("");
-                        
-                        implementors.add(packageName + "." + cls.getNameAsString());
-                    }
-                }
-            } catch (FileNotFoundException e) {
-                System.err.println("Error reading file: " + filePath);
-            }
-        }
-        
-        return implementors;
+    private List<String> findImplementors(String interfaceName, SymbolIndex index) {
+        return index.getImplementors(interfaceName);
     }
     
     /**
      * Analyze fields in a class
      */
-    private Map<String, String> analyzeFields(ClassOrInterfaceDeclaration classDecl, String className) {
+    private Map<String, String> analyzeFields(ClassOrInterfaceDeclaration classDecl, String className,
+                                              SymbolIndex index) {
         Map<String, String> fieldTypes = new HashMap<>();
         
         // Add "this" as a field of the current class type
         fieldTypes.put("this", className);
         
-        // Check the imports in this class to help resolve types
-        Map<String, String> importedTypes = new HashMap<>();
-        if (classDecl.findCompilationUnit().isPresent()) {
-            CompilationUnit cu = classDecl.findCompilationUnit().get();
-            cu.getImports().forEach(importDecl -> {
-                String importName = importDecl.getNameAsString();
-                String simpleName = importName.substring(importName.lastIndexOf('.') + 1);
-                importedTypes.put(simpleName, importName);
-            });
-        }
-        
         // Analyze fields
         List<FieldDeclaration> fields = classDecl.findAll(FieldDeclaration.class);
         for (FieldDeclaration field : fields) {
@@ -510,22 +1545,13 @@ public class JavaParserCodeFlowAnalyzer {
                 
                 // Skip primitive types
                 if (!isPrimitiveOrCommonType(fieldType)) {
-                    // First try to resolve from imports
-                    String fullClassName = null;
-                    if (importedTypes.containsKey(fieldType)) {
-                        fullClassName = importedTypes.get(fieldType);
-                    } else {
-                        // Fallback to heuristic resolution
-                        fullClassName = resolveClassName(fieldType, className);
-                    }
+                    // Resolve through the class's imports and the symbol index
+                    String fullClassName = resolveClassName(fieldType, className, index);
                     
                     if (fullClassName != null) {
                         fieldTypes.put(fieldName, fullClassName);
-                        if (isAutowired) {
-                            System.out.println("Found autowired field: " + fieldName + " of type " + fullClassName);
-                        } else {
-                            System.out.println("Found field: " + fieldName + " of type " + fullClassName);
-                        }
+                        log.trace("Found {}field: {} of type {}", isAutowired ? "autowired " : "", fieldName,
+                                  fullClassName);
                     }
                 }
             }
@@ -544,11 +1570,10 @@ public class JavaParserCodeFlowAnalyzer {
                     constructor.getBody().findAll(NameExpr.class, expr -> {
                         // Check if this is a field assignment (this.field = param)
                         if (expr.toString().equals("this." + paramName)) {
-                            String fullClassName = resolveClassName(paramType, className);
+                            String fullClassName = resolveClassName(paramType, className, index);
                             if (fullClassName != null && !isPrimitiveOrCommonType(paramType)) {
                                 fieldTypes.put(paramName, fullClassName);
-                                System.out.println("Found constructor-injected field: " + 
-                                                 paramName + " of type " + fullClassName);
+                                log.trace("Found constructor-injected field: {} of type {}", paramName, fullClassName);
                             }
                             return true;
                         }
@@ -563,10 +1588,15 @@ public class JavaParserCodeFlowAnalyzer {
     
     /**
      * Find method calls in a method
+     *
+     * @param source the text the method's compilation unit was parsed from, which keys resolved call sites
+     * @param profile the profile of the request, or null
      */
-    private List<MethodCall> findMethodCallsInMethod(MethodDeclaration method, String className) {
+    private List<MethodCall> findMethodCallsInMethod(MethodDeclaration method, String className,
+                                                     SourceFileStore.SourceFile source, Snapshot snapshot,
+                                                     AnalysisProfile profile) {
         List<MethodCall> calls = new ArrayList<>();
-        Map<String, String> fieldTypes = classFields.getOrDefault(className, new HashMap<>());
+        Map<String, String> fieldTypes = snapshot.classFields.getOrDefault(className, new HashMap<>());
         
         // Find all method calls in the method body
         method.findAll(MethodCallExpr.class).forEach(methodCall -> {
@@ -590,18 +1620,24 @@ public class JavaParserCodeFlowAnalyzer {
                             calls.add(new MethodCall(objectName, objectType, methodName));
                         }
                     } else {
-                        // Try to resolve method call target if possible
-                        try {
-                            ResolvedMethodDeclaration resolvedMethod = methodCall.resolve();
-                            String declaringType = resolvedMethod.declaringType().getQualifiedName();
+                        // Try to resolve method call target if possible. Resolution is by far the most
+                        // expensive step, so call sites are resolved once; failures are remembered too,
+                        // and the analysis simply continues without the call.
+                        long resolveStart = System.nanoTime();
+                        Optional<String> resolved = resolutionCache.getDeclaringType(source, methodCall,
+                            () -> resolveDeclaringType(methodCall, profile));
+                        recordPhase(profile, AnalysisMetrics.Phase.SYMBOL_RESOLUTION, System.nanoTime() - resolveStart);
+                        if (profile != null) {
+                            profile.callSiteResolved();
+                        }
+                        if (resolved.isPresent()) {
+                            String declaringType = resolved.get();
                             
                             // Add to calls if it's not a Java standard library class
                             if (!declaringType.startsWith("java.") && !declaringType.startsWith("javax.")) {
                                 calls.add(new MethodCall(
                                     scope.toString(), declaringType, methodName));
                             }
-                        } catch (Exception e) {
-                            // Resolution failed, but we can still continue analysis
                         }
                     }
                 } else {
@@ -609,17 +1645,32 @@ public class JavaParserCodeFlowAnalyzer {
                     calls.add(new MethodCall("this", className, methodName));
                 }
             } catch (Exception e) {
-                System.err.println("Error analyzing method call: " + methodCall);
+                log.debug("Error analyzing method call: {}", methodCall, e);
             }
         });
         
         return calls;
     }
     
+    /**
+     * Resolves the type declaring a called method with the symbol solver
+     */
+    private static String resolveDeclaringType(MethodCallExpr methodCall, AnalysisProfile profile) {
+        if (profile == null) {
+            return methodCall.resolve().declaringType().getQualifiedName();
+        }
+        long start = System.nanoTime();
+        try {
+            return methodCall.resolve().declaringType().getQualifiedName();
+        } finally {
+            profile.resolveCalled(System.nanoTime() - start);
+        }
+    }
+    
     /**
      * Resolve a class name to its fully qualified name
      */
-    private String resolveClassName(String typeName, String currentClassName) {
+    private String resolveClassName(String typeName, String currentClassName, SymbolIndex index) {
         // Skip if already a full class name
         if (typeName.contains(".")) {
             return typeName;
@@ -635,40 +1686,13 @@ public class JavaParserCodeFlowAnalyzer {
             typeName = typeName.substring(0, typeName.indexOf('<'));
         }
         
-        // Get the package of the current class
-        String currentPackage = currentClassName.substring(0, currentClassName.lastIndexOf('.'));
-        
-        // Common package mappings for typical Spring components
-        Map<String, String> packagePatterns = new HashMap<>();
-        packagePatterns.put("Service", "service");
-        packagePatterns.put("Repository", "dao");
-        packagePatterns.put("Controller", "rest");
-        packagePatterns.put("Entity", "entities");
-        
-        // Try to determine package based on naming conventions
-        for (Map.Entry<String, String> entry : packagePatterns.entrySet()) {
-            if (typeName.contains(entry.getKey())) {
-                // Extract top-level package (preserving com.sbtl1.mod1 structure)
-                // Find the last occurrence of '.service', '.rest', etc., and keep the module prefix
-                int lastDotIndex = currentPackage.lastIndexOf('.');
-                if (lastDotIndex > 0) {
-                    String modulePrefix = currentPackage.substring(0, lastDotIndex);
-                    // Check if we're in a module structure by looking for pattern com.xxx.moduleY
-                    int secondLastDotIndex = modulePrefix.lastIndexOf('.');
-                    if (secondLastDotIndex > 0) {
-                        // Keep the full module prefix (e.g., com.sbtl1.mod1)
-                        return modulePrefix + "." + entry.getValue() + "." + typeName;
-                    }
-                }
-                
-                // Fallback for non-module structure
-                String basePackage = currentPackage.substring(0, 
-                                   currentPackage.lastIndexOf('.', currentPackage.lastIndexOf('.') - 1));
-                return basePackage + "." + entry.getValue() + "." + typeName;
-            }
+        String resolved = index.resolveType(typeName, currentClassName);
+        if (resolved != null) {
+            return resolved;
         }
         
         // Default to same package as current class
+        String currentPackage = currentClassName.substring(0, currentClassName.lastIndexOf('.'));
         return currentPackage + "." + typeName;
     }
     
@@ -698,7 +1722,7 @@ public class JavaParserCodeFlowAnalyzer {
     /**
      * Check if a method name is a common Java method
      */
-    private boolean isCommonMethod(String methodName) {
+    static boolean isCommonMethod(String methodName) {
         String[] commonMethods = {
             "equals", "hashCode", "toString", "clone", "getClass", "notify", "notifyAll", "wait",
             "get", "set", "add", "remove", "size", "isEmpty", "contains", "forEach", "stream", 
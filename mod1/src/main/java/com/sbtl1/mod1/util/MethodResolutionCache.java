@@ -0,0 +1,192 @@
+package com.sbtl1.mod1.util;
+
+import com.github.javaparser.Position;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A bounded cache of symbol solver results for method call sites. Each call site is keyed
+ * by its file, its position and the hash of the text the file was parsed from, so a cached
+ * result is never used for a different version of the file. Failed resolutions are cached
+ * too, since retrying them costs as much as a successful resolution.
+ * <p>
+ * A result can also depend on other files, so the cache must be {@linkplain #clear() cleared}
+ * whenever sources are re-indexed, together with the type solvers.
+ */
+public class MethodResolutionCache {
+    public static final int DEFAULT_MAX_ENTRIES = 50_000;
+
+    private final int maxEntries;
+    private final Map<Key, Optional<String>> entries;
+    private final CacheCounters counters = new CacheCounters();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    private static class Key {
+        final String path;
+        final int line;
+        final int column;
+        final int contentHash;
+
+        Key(String path, Position position, int contentHash) {
+            this.path = path;
+            this.line = position.line;
+            this.column = position.column;
+            this.contentHash = contentHash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (obj == null || getClass() != obj.getClass()) return false;
+            Key other = (Key) obj;
+            return line == other.line && column == other.column && contentHash == other.contentHash
+                && path.equals(other.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, line, column, contentHash);
+        }
+    }
+
+    public MethodResolutionCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public MethodResolutionCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Optional<String>> eldest) {
+                if (size() > MethodResolutionCache.this.maxEntries) {
+                    counters.eviction();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the qualified name of the type declaring the method a call resolves to, resolving
+     * it only if this call site has not been resolved before. An empty result means the
+     * resolver failed, now or on an earlier call.
+     *
+     * @param source the text the call's compilation unit was parsed from
+     * @param resolver resolves the call, throwing an exception if it cannot
+     */
+    public Optional<String> getDeclaringType(SourceFileStore.SourceFile source, MethodCallExpr call,
+                                             Supplier<String> resolver) {
+        Optional<Position> position = call.getBegin();
+        if (!position.isPresent()) {
+            counters.miss();
+            return resolve(resolver);
+        }
+
+        // String caches its hash, so this hashes each parsed file's text only once
+        Key key = new Key(source.getFile().getAbsolutePath(), position.get(), source.getContent().hashCode());
+        Optional<String> cached;
+        synchronized (entries) {
+            cached = entries.get(key);
+        }
+        if (cached != null) {
+            counters.hit();
+            if (!cached.isPresent()) {
+                negativeHits.increment();
+            }
+            return cached;
+        }
+
+        counters.miss();
+        Optional<String> resolved = resolve(resolver);
+        synchronized (entries) {
+            entries.put(key, resolved);
+        }
+        return resolved;
+    }
+
+    private Optional<String> resolve(Supplier<String> resolver) {
+        try {
+            return Optional.of(resolver.get());
+        } catch (Exception e) {
+            failures.increment();
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Removes every cached resolution
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getHitCount() {
+        return counters.getHitCount();
+    }
+
+    public long getMissCount() {
+        return counters.getMissCount();
+    }
+
+    /**
+     * Hits on call sites that failed to resolve earlier
+     */
+    public long getNegativeHitCount() {
+        return negativeHits.sum();
+    }
+
+    /**
+     * Resolutions attempted by the cache that failed
+     */
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    public long getEvictionCount() {
+        return counters.getEvictionCount();
+    }
+
+    /**
+     * Fraction of call sites answered without the symbol solver, failed resolutions included,
+     * or 0 before the first lookup
+     */
+    public double getHitRatio() {
+        return counters.getHitRatio();
+    }
+
+    /**
+     * The resolved call sites held and the symbol solver calls avoided, as reported by the stats endpoint
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size());
+        stats.put("maxEntries", maxEntries);
+        counters.addTo(stats);
+        stats.put("negativeHits", getNegativeHitCount());
+        stats.put("failures", getFailureCount());
+        return stats;
+    }
+}
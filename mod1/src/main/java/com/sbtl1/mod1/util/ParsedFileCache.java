@@ -0,0 +1,205 @@
+package com.sbtl1.mod1.util;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ast.CompilationUnit;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A bounded cache of parsed compilation units shared by all analyzer paths.
+ * Entries are keyed by file path and reused only while the file's modification
+ * time and size are unchanged; the least recently used entry is evicted first.
+ * Files are read through a {@link SourceFileStore}, and each entry keeps the exact
+ * source text it was parsed from, so AST positions can be used to slice that text.
+ */
+public class ParsedFileCache {
+    public static final int DEFAULT_MAX_ENTRIES = 2000;
+
+    private final int maxEntries;
+    private final SourceFileStore sourceFileStore;
+    private final Map<String, Entry> entries;
+    private final CacheCounters counters = new CacheCounters();
+
+    /**
+     * A parsed file together with the source text it was parsed from.
+     * The compilation unit is null if the file failed to parse.
+     */
+    public static class ParsedFile {
+        private final SourceFileStore.SourceFile source;
+        private final CompilationUnit compilationUnit;
+
+        ParsedFile(SourceFileStore.SourceFile source, CompilationUnit compilationUnit) {
+            this.source = source;
+            this.compilationUnit = compilationUnit;
+        }
+
+        public SourceFileStore.SourceFile getSource() {
+            return source;
+        }
+
+        public Optional<CompilationUnit> getCompilationUnit() {
+            return Optional.ofNullable(compilationUnit);
+        }
+    }
+
+    private static class Entry {
+        final ParsedFile parsedFile;
+
+        Entry(ParsedFile parsedFile) {
+            this.parsedFile = parsedFile;
+        }
+
+        boolean matches(File file) {
+            return parsedFile.source.matches(file);
+        }
+    }
+
+    public ParsedFileCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public ParsedFileCache(int maxEntries) {
+        this(maxEntries, new SourceFileStore());
+    }
+
+    public ParsedFileCache(int maxEntries, SourceFileStore sourceFileStore) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        this.sourceFileStore = sourceFileStore;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > ParsedFileCache.this.maxEntries) {
+                    counters.eviction();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the parsed compilation unit for a file, parsing it only if it is not
+     * cached or has changed on disk. An empty result means the file failed to parse.
+     */
+    public Optional<CompilationUnit> get(File file, JavaParser javaParser) throws FileNotFoundException {
+        return getParsedFile(file, javaParser).getCompilationUnit();
+    }
+
+    /**
+     * Returns the parsed compilation unit for a file together with the text it was parsed from
+     */
+    public ParsedFile getParsedFile(File file, JavaParser javaParser) throws FileNotFoundException {
+        return getParsedFile(file, javaParser, null);
+    }
+
+    /**
+     * Returns the parsed compilation unit for a file, recording in the profile whether it was
+     * cached or had to be parsed
+     *
+     * @param profile the profile of the request parsing the file, or null
+     */
+    public ParsedFile getParsedFile(File file, JavaParser javaParser, AnalysisProfile profile)
+            throws FileNotFoundException {
+        String key = file.getAbsolutePath();
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry != null && entry.matches(file)) {
+            counters.hit();
+            if (profile != null) {
+                profile.parseCacheHit();
+            }
+            return entry.parsedFile;
+        }
+
+        counters.miss();
+        SourceFileStore.SourceFile source = sourceFileStore.get(file, profile)
+            .orElseThrow(() -> new FileNotFoundException(file.getPath()));
+        if (profile != null) {
+            profile.fileParsed();
+        }
+        ParseResult<CompilationUnit> parseResult = javaParser.parse(source.getContent());
+        CompilationUnit cu = parseResult.isSuccessful() ? parseResult.getResult().orElse(null) : null;
+
+        ParsedFile parsedFile = new ParsedFile(source, cu);
+        synchronized (entries) {
+            entries.put(key, new Entry(parsedFile));
+        }
+        return parsedFile;
+    }
+
+    /**
+     * Returns the store the cache reads source files from
+     */
+    public SourceFileStore getSourceFileStore() {
+        return sourceFileStore;
+    }
+
+    /**
+     * Removes a file from the cache and from the source store
+     */
+    public void invalidate(File file) {
+        synchronized (entries) {
+            entries.remove(file.getAbsolutePath());
+        }
+        sourceFileStore.invalidate(file);
+    }
+
+    /**
+     * Removes every cached file
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getHitCount() {
+        return counters.getHitCount();
+    }
+
+    public long getMissCount() {
+        return counters.getMissCount();
+    }
+
+    public long getEvictionCount() {
+        return counters.getEvictionCount();
+    }
+
+    /**
+     * Fraction of file lookups that reused a parsed compilation unit, or 0 before the first lookup
+     */
+    public double getHitRatio() {
+        return counters.getHitRatio();
+    }
+
+    /**
+     * The parsed files held and the reparses avoided, as reported by the stats endpoint
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size());
+        stats.put("maxEntries", maxEntries);
+        counters.addTo(stats);
+        return stats;
+    }
+}
@@ -0,0 +1,183 @@
+package com.sbtl1.mod1.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * The whole-project call graph: the analysis result of every method reachable from an entry
+ * point, keyed by method signature. Analyses replay these results instead of parsing and
+ * resolving, so each graph is assembled without touching the sources.
+ * <p>
+ * The graph is written in a compact binary form: a table of distinct strings followed by the
+ * method results, each referring to strings by their index in the table.
+ */
+public final class PrecomputedCallGraph {
+    private final String sourceRoot;
+    private final List<EntryPoint> entryPoints;
+    private final Map<String, JavaParserCodeFlowAnalyzer.MethodResult> methodResults;
+    private final boolean complete;
+
+    PrecomputedCallGraph(String sourceRoot, List<EntryPoint> entryPoints,
+                         Map<String, JavaParserCodeFlowAnalyzer.MethodResult> methodResults) {
+        this(sourceRoot, entryPoints, methodResults, true);
+    }
+
+    private PrecomputedCallGraph(String sourceRoot, List<EntryPoint> entryPoints,
+                                 Map<String, JavaParserCodeFlowAnalyzer.MethodResult> methodResults,
+                                 boolean complete) {
+        this.sourceRoot = sourceRoot;
+        this.entryPoints = Collections.unmodifiableList(new ArrayList<>(entryPoints));
+        this.methodResults = Collections.unmodifiableMap(new HashMap<>(methodResults));
+        this.complete = complete;
+    }
+
+    /**
+     * The source roots the graph was computed from, as {@link JavaParserCodeFlowAnalyzer#getSourceRootPath()}
+     */
+    public String getSourceRoot() {
+        return sourceRoot;
+    }
+
+    public List<EntryPoint> getEntryPoints() {
+        return entryPoints;
+    }
+
+    /**
+     * Number of methods with a precomputed result
+     */
+    public int getMethodCount() {
+        return methodResults.size();
+    }
+
+    Map<String, JavaParserCodeFlowAnalyzer.MethodResult> getMethodResults() {
+        return methodResults;
+    }
+
+    /**
+     * Whether the graph holds the result of every method reachable from its entry points; a graph
+     * whose results were dropped for changed files does not
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * A copy without the results of methods declared in the given files
+     */
+    PrecomputedCallGraph withoutFiles(Collection<String> paths) {
+        Set<String> removed = new HashSet<>(paths);
+        Map<String, JavaParserCodeFlowAnalyzer.MethodResult> remaining = new HashMap<>();
+        methodResults.forEach((signature, result) -> {
+            if (result.sourceFile == null || !removed.contains(result.sourceFile)) {
+                remaining.put(signature, result);
+            }
+        });
+        return new PrecomputedCallGraph(sourceRoot, entryPoints, remaining, false);
+    }
+
+    public void write(DataOutput out) throws IOException {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        intern(strings, sourceRoot);
+        for (EntryPoint entryPoint : entryPoints) {
+            intern(strings, entryPoint.className);
+            intern(strings, entryPoint.methodName);
+        }
+        for (Map.Entry<String, JavaParserCodeFlowAnalyzer.MethodResult> entry : methodResults.entrySet()) {
+            JavaParserCodeFlowAnalyzer.MethodResult result = entry.getValue();
+            intern(strings, entry.getKey());
+            intern(strings, result.sourceFile);
+            result.nodeClassNames.forEach(name -> intern(strings, name));
+            result.nodeMethodNames.forEach(name -> intern(strings, name));
+            for (List<JavaParserCodeFlowAnalyzer.MethodCall> calls : result.nodeCalls) {
+                for (JavaParserCodeFlowAnalyzer.MethodCall call : calls) {
+                    intern(strings, call.objectName);
+                    intern(strings, call.className);
+                    intern(strings, call.methodName);
+                }
+            }
+            result.nextClassNames.forEach(name -> intern(strings, name));
+            result.nextMethodNames.forEach(name -> intern(strings, name));
+        }
+
+        out.writeInt(strings.size());
+        for (String string : strings.keySet()) {
+            out.writeUTF(string);
+        }
+        out.writeInt(strings.get(sourceRoot));
+        out.writeInt(entryPoints.size());
+        for (EntryPoint entryPoint : entryPoints) {
+            out.writeInt(strings.get(entryPoint.className));
+            out.writeInt(strings.get(entryPoint.methodName));
+        }
+        out.writeInt(methodResults.size());
+        for (Map.Entry<String, JavaParserCodeFlowAnalyzer.MethodResult> entry : methodResults.entrySet()) {
+            JavaParserCodeFlowAnalyzer.MethodResult result = entry.getValue();
+            out.writeInt(strings.get(entry.getKey()));
+            out.writeInt(result.sourceFile != null ? strings.get(result.sourceFile) : -1);
+            out.writeInt(result.nodeClassNames.size());
+            for (int i = 0; i < result.nodeClassNames.size(); i++) {
+                out.writeInt(strings.get(result.nodeClassNames.get(i)));
+                out.writeInt(strings.get(result.nodeMethodNames.get(i)));
+                List<JavaParserCodeFlowAnalyzer.MethodCall> calls = result.nodeCalls.get(i);
+                out.writeInt(calls.size());
+                for (JavaParserCodeFlowAnalyzer.MethodCall call : calls) {
+                    out.writeInt(strings.get(call.objectName));
+                    out.writeInt(strings.get(call.className));
+                    out.writeInt(strings.get(call.methodName));
+                }
+            }
+            out.writeInt(result.nextClassNames.size());
+            for (int i = 0; i < result.nextClassNames.size(); i++) {
+                out.writeInt(strings.get(result.nextClassNames.get(i)));
+                out.writeInt(strings.get(result.nextMethodNames.get(i)));
+            }
+        }
+    }
+
+    public static PrecomputedCallGraph read(DataInput in) throws IOException {
+        String[] strings = new String[in.readInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = in.readUTF();
+        }
+        String sourceRoot = strings[in.readInt()];
+        int entryPointCount = in.readInt();
+        List<EntryPoint> entryPoints = new ArrayList<>(entryPointCount);
+        for (int i = 0; i < entryPointCount; i++) {
+            entryPoints.add(new EntryPoint(strings[in.readInt()], strings[in.readInt()]));
+        }
+        int resultCount = in.readInt();
+        Map<String, JavaParserCodeFlowAnalyzer.MethodResult> methodResults = new HashMap<>(resultCount * 2);
+        for (int i = 0; i < resultCount; i++) {
+            String signature = strings[in.readInt()];
+            JavaParserCodeFlowAnalyzer.MethodResult result = new JavaParserCodeFlowAnalyzer.MethodResult();
+            int sourceFile = in.readInt();
+            result.sourceFile = sourceFile >= 0 ? strings[sourceFile] : null;
+            int nodeCount = in.readInt();
+            for (int n = 0; n < nodeCount; n++) {
+                String className = strings[in.readInt()];
+                String methodName = strings[in.readInt()];
+                int callCount = in.readInt();
+                List<JavaParserCodeFlowAnalyzer.MethodCall> calls = new ArrayList<>(callCount);
+                for (int c = 0; c < callCount; c++) {
+                    calls.add(new JavaParserCodeFlowAnalyzer.MethodCall(
+                        strings[in.readInt()], strings[in.readInt()], strings[in.readInt()]));
+                }
+                result.addNode(className, methodName, calls);
+            }
+            int nextCount = in.readInt();
+            for (int n = 0; n < nextCount; n++) {
+                result.visit(strings[in.readInt()], strings[in.readInt()]);
+            }
+            methodResults.put(signature, result);
+        }
+        return new PrecomputedCallGraph(sourceRoot, entryPoints, methodResults);
+    }
+
+    private static void intern(Map<String, Integer> strings, String value) {
+        if (value != null) {
+            strings.putIfAbsent(value, strings.size());
+        }
+    }
+}
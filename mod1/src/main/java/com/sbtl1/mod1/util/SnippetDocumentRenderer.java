@@ -0,0 +1,696 @@
+package com.sbtl1.mod1.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * Renders the markdown document with the code of every method in a call graph, for use in
+ * LLM prompts. The document is written section by section to a {@link Writer}, which is
+ * flushed after the call hierarchy and after each class so a streaming response can send
+ * each part as soon as it is rendered.
+ * <p>
+ * Classes are ordered by their call distance from the entry point, and a snippet whose code
+ * was already shown is not repeated. With a token budget (see {@link TokenEstimator}) the
+ * snippets are read before anything is written: first the signatures of as many methods as
+ * fit are taken in order of distance, then as many of them as fit are shown in full. The
+ * call hierarchy is always kept, cut short only if it does not fit the budget by itself.
+ */
+public class SnippetDocumentRenderer {
+    /**
+     * The smallest budget accepted, which leaves room for the headings of the document
+     */
+    public static final int MIN_MAX_TOKENS = 200;
+
+    private static final String HEADER = "# Code Execution Path Analysis\n\n## Call Graph Overview\n\n";
+    private static final String TRUNCATED_NOTE = "The analysis stopped at a limit: methods marked \"not expanded\" " +
+                                                 "were reached, but the calls they make are not included.\n\n";
+    private static final String SNIPPETS_HEADER = "## Method Code Snippets\n\n";
+    private static final String FOOTER = "## End of Analysis\n";
+    private static final String JPA_NOTE = "Spring Data JPA repositories automatically implement methods based on " +
+                                           "naming conventions. For example, `findByAgeGreaterThan(int age)` is " +
+                                           "translated into a SQL query: `SELECT * FROM users WHERE age > ?`\n\n";
+    private static final int UNREACHED = Integer.MAX_VALUE;
+    // Sections past the one being read whose source files are already being read in the background
+    private static final int READ_AHEAD = 4;
+
+    private final JavaParserCodeFlowAnalyzer analyzer;
+
+    /**
+     * What a snippet shows
+     */
+    private enum SnippetKind {
+        /** The declarations of a method */
+        METHOD,
+        /** The source file of an entity or repository */
+        TYPE,
+        /** The explanation of derived repository queries, shown once per document */
+        JPA_NOTE
+    }
+
+    /**
+     * How much of a snippet a budgeted document shows
+     */
+    private enum Level {
+        FULL, REDUCED, OMITTED
+    }
+
+    /**
+     * The part of a section showing one method or one file. The markdown is read when the
+     * snippet is written or, for a budgeted document, when the budget is shared out.
+     */
+    private static class Snippet {
+        final SnippetKind kind;
+        final String methodName;
+        final int distance;
+        /** The markdown of the whole snippet, or null if there is nothing to show */
+        String full;
+        /** The markdown of the signatures or the outline, or null if the snippet cannot be shortened */
+        String reduced;
+        Level level = Level.FULL;
+
+        Snippet(SnippetKind kind, String methodName, int distance) {
+            this.kind = kind;
+            this.methodName = methodName;
+            this.distance = distance;
+        }
+    }
+
+    /**
+     * The snippets of one class under its heading
+     */
+    private static class Section {
+        final String className;
+        final String heading;
+        final int distance;
+        final List<Snippet> snippets = new ArrayList<>();
+
+        Section(String className, String heading, int distance) {
+            this.className = className;
+            this.heading = heading;
+            this.distance = distance;
+        }
+    }
+
+    public SnippetDocumentRenderer(JavaParserCodeFlowAnalyzer analyzer) {
+        this.analyzer = analyzer;
+    }
+
+    /**
+     * Renders the document into a string.
+     * Source files read beyond those of the call graph are added to {@code extraFiles}.
+     */
+    public String render(String className, String methodName, JavaParserCodeFlowAnalyzer.CallGraph callGraph,
+                         Set<String> extraFiles) {
+        return render(className, methodName, callGraph, extraFiles, null);
+    }
+
+    /**
+     * Renders the document into a string, recording the work in the profile
+     *
+     * @param profile the profile of the request, or null
+     */
+    public String render(String className, String methodName, JavaParserCodeFlowAnalyzer.CallGraph callGraph,
+                         Set<String> extraFiles, AnalysisProfile profile) {
+        return render(className, methodName, callGraph, extraFiles, profile, 0);
+    }
+
+    /**
+     * Renders the document into a string of at most {@code maxTokens} estimated tokens
+     *
+     * @param profile the profile of the request, or null
+     * @param maxTokens the token budget, or 0 for none
+     */
+    public String render(String className, String methodName, JavaParserCodeFlowAnalyzer.CallGraph callGraph,
+                         Set<String> extraFiles, AnalysisProfile profile, int maxTokens) {
+        StringWriter out = new StringWriter();
+        try {
+            render(className, methodName, callGraph, out, extraFiles, profile, maxTokens);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringWriter does not throw
+        }
+        return out.toString();
+    }
+
+    /**
+     * Writes the document for the call graph rooted at the given method.
+     * Source files read beyond those of the call graph are added to {@code extraFiles}.
+     */
+    public void render(String className, String methodName, JavaParserCodeFlowAnalyzer.CallGraph callGraph,
+                       Writer out, Set<String> extraFiles) throws IOException {
+        render(className, methodName, callGraph, out, extraFiles, null);
+    }
+
+    /**
+     * Writes the document for the call graph rooted at the given method, recording the work in the profile
+     *
+     * @param profile the profile of the request, or null
+     */
+    public void render(String className, String methodName, JavaParserCodeFlowAnalyzer.CallGraph callGraph,
+                       Writer out, Set<String> extraFiles, AnalysisProfile profile) throws IOException {
+        render(className, methodName, callGraph, out, extraFiles, profile, 0);
+    }
+
+    /**
+     * Writes the document for the call graph rooted at the given method within a token budget.
+     * A budgeted document is only written once all its snippets have been read and measured.
+     *
+     * @param profile the profile of the request, or null
+     * @param maxTokens the token budget, at least {@link #MIN_MAX_TOKENS}, or 0 for none
+     */
+    public void render(String className, String methodName, JavaParserCodeFlowAnalyzer.CallGraph callGraph,
+                       Writer out, Set<String> extraFiles, AnalysisProfile profile, int maxTokens) throws IOException {
+        checkMaxTokens(maxTokens);
+        long start = System.nanoTime();
+        try {
+            writeDocument(className, methodName, callGraph, out, extraFiles, profile, maxTokens);
+        } finally {
+            // Includes the time the writer blocks on a slow streaming client
+            long nanos = System.nanoTime() - start;
+            analyzer.getMetrics().recordPhase(AnalysisMetrics.Phase.MARKDOWN_RENDERING, nanos);
+            if (profile != null) {
+                profile.recordPhase(AnalysisMetrics.Phase.MARKDOWN_RENDERING, nanos);
+            }
+        }
+    }
+
+    /**
+     * Rejects a negative budget or one too small for the headings of the document
+     */
+    public static void checkMaxTokens(int maxTokens) {
+        if (maxTokens < 0 || (maxTokens > 0 && maxTokens < MIN_MAX_TOKENS)) {
+            throw new IllegalArgumentException("maxTokens must be 0 (no budget) or at least " + MIN_MAX_TOKENS +
+                                               ": " + maxTokens);
+        }
+    }
+
+    private void writeDocument(String className, String methodName, JavaParserCodeFlowAnalyzer.CallGraph callGraph,
+                               Writer out, Set<String> extraFiles, AnalysisProfile profile,
+                               int maxTokens) throws IOException {
+        StringBuilder overview = new StringBuilder(HEADER);
+        if (callGraph.isTruncated()) {
+            overview.append(TRUNCATED_NOTE);
+        }
+        Set<String> shownCode = new HashSet<>();
+        List<Section> sections;
+        if (maxTokens == 0) {
+            // Nothing has to be measured, so the hierarchy goes out as it is walked
+            out.write(overview.toString());
+            out.write("```\n");
+            writeCallHierarchy(out, callGraph, className, methodName);
+            out.write("```\n\n");
+            out.write(SNIPPETS_HEADER);
+            out.flush();
+            sections = planSections(className, methodName, callGraph, extraFiles);
+        } else {
+            sections = planSections(className, methodName, callGraph, extraFiles);
+            StringWriter hierarchy = new StringWriter();
+            writeCallHierarchy(hierarchy, callGraph, className, methodName);
+            int remaining = maxTokens - TokenEstimator.estimate(overview) - TokenEstimator.estimate("```\n```\n\n")
+                            - TokenEstimator.estimate(SNIPPETS_HEADER) - TokenEstimator.estimate(FOOTER);
+            List<Snippet> ranked = new ArrayList<>();
+            for (int i = 0; i < sections.size(); i++) {
+                Section section = sections.get(i);
+                readAhead(sections, i, profile);
+                for (Snippet snippet : section.snippets) {
+                    readSnippet(section.className, snippet, shownCode, profile);
+                    if (snippet.full != null) {
+                        ranked.add(snippet);
+                    }
+                }
+            }
+            // Room for the note, with its counts at their largest
+            remaining -= TokenEstimator.estimate(budgetNote(maxTokens, ranked.size(), ranked.size()));
+            String shortened = limitLines(hierarchy.toString(), remaining);
+            remaining -= TokenEstimator.estimate(shortened);
+            String budgetNote = shareBudget(sections, ranked, remaining, maxTokens);
+
+            out.write(overview.toString());
+            out.write("```\n");
+            out.write(shortened);
+            out.write("```\n\n");
+            out.write(SNIPPETS_HEADER);
+            out.write(budgetNote);
+            out.flush();
+        }
+
+        for (int i = 0; i < sections.size(); i++) {
+            Section section = sections.get(i);
+            if (maxTokens == 0) {
+                readAhead(sections, i, profile);
+            }
+            // A class is left out if none of its snippets is shown, such as an interface
+            boolean headingWritten = false;
+            for (Snippet snippet : section.snippets) {
+                if (maxTokens == 0) {
+                    readSnippet(section.className, snippet, shownCode, profile);
+                }
+                if (snippet.full == null || snippet.level == Level.OMITTED) {
+                    continue;
+                }
+                if (!headingWritten) {
+                    out.write(section.heading);
+                    headingWritten = true;
+                }
+                out.write(snippet.level == Level.FULL ? snippet.full : snippet.reduced);
+            }
+            out.flush();
+        }
+
+        out.write(FOOTER);
+        out.flush();
+    }
+
+    /**
+     * Starts reading the source files of the next few sections in the background as the snippets of
+     * the given one are read, so the reads overlap with extracting and writing the earlier sections
+     * instead of holding up the first line of the document
+     */
+    private void readAhead(List<Section> sections, int index, AnalysisProfile profile) {
+        List<String> classNames = new ArrayList<>();
+        for (int i = index == 0 ? 1 : index + READ_AHEAD; i <= index + READ_AHEAD && i < sections.size(); i++) {
+            classNames.add(sections.get(i).className);
+        }
+        if (!classNames.isEmpty()) {
+            analyzer.prefetchSources(classNames, profile);
+        }
+    }
+
+    /**
+     * Lays out the sections of the document without reading any source: one per class with its
+     * methods, the repositories with the entities they manage, ordered by call distance
+     */
+    private List<Section> planSections(String className, String methodName,
+                                       JavaParserCodeFlowAnalyzer.CallGraph callGraph, Set<String> extraFiles) {
+        Map<String, Set<String>> classMethodMap = collectClassMethods(callGraph);
+        SymbolIndex symbolIndex = analyzer.getSymbolIndex();
+        Map<String, Integer> distances = callDistances(callGraph, symbolIndex, className, methodName);
+
+        // Repositories and the entity classes they manage, which the index records
+        Map<String, Integer> entityDistances = new HashMap<>();
+        for (Map.Entry<String, Set<String>> entry : classMethodMap.entrySet()) {
+            String cls = entry.getKey();
+            if (isRepository(symbolIndex, cls)) {
+                String entityClass = symbolIndex.getEntityType(cls);
+                if (entityClass != null) {
+                    int distance = plusOne(classDistance(cls, entry.getValue(), distances));
+                    entityDistances.merge(entityClass, distance, Math::min);
+                    File entityFile = symbolIndex.getFile(entityClass);
+                    if (entityFile != null) {
+                        extraFiles.add(entityFile.getAbsolutePath());
+                    }
+                }
+            }
+        }
+
+        List<Section> sections = new ArrayList<>();
+        for (Map.Entry<String, Set<String>> entry : classMethodMap.entrySet()) {
+            String cls = entry.getKey();
+            int distance = classDistance(cls, entry.getValue(), distances);
+            if (entityDistances.containsKey(cls)) {
+                distance = Math.min(distance, entityDistances.remove(cls));
+            }
+            sections.add(newSection(symbolIndex, cls, entry.getValue(), distance, distances));
+        }
+        for (Map.Entry<String, Integer> entity : entityDistances.entrySet()) {
+            sections.add(newSection(symbolIndex, entity.getKey(), Collections.emptySet(), entity.getValue(), distances));
+        }
+        sections.sort(Comparator.<Section>comparingInt(section -> section.distance)
+                                .thenComparing(section -> section.className));
+
+        // The explanation of derived queries follows the first repository
+        for (Section section : sections) {
+            if (isRepository(symbolIndex, section.className)) {
+                section.snippets.add(new Snippet(SnippetKind.JPA_NOTE, null, section.distance));
+                break;
+            }
+        }
+        return sections;
+    }
+
+    private Section newSection(SymbolIndex symbolIndex, String cls, Set<String> methods, int distance,
+                               Map<String, Integer> distances) {
+        Section section;
+        if (isEntity(symbolIndex, cls)) {
+            section = new Section(cls, "### Entity: " + cls + "\n\n", distance);
+            section.snippets.add(new Snippet(SnippetKind.TYPE, null, distance));
+        } else if (isRepository(symbolIndex, cls)) {
+            // Repository methods are shown with the interface rather than one by one
+            section = new Section(cls, "### Repository: " + cls + "\n\n", distance);
+            section.snippets.add(new Snippet(SnippetKind.TYPE, null, distance));
+        } else {
+            String heading;
+            if (hasAnnotationOrPackage(symbolIndex, cls, "Service", ".service.")) {
+                heading = "### Service: " + cls + "\n\n";
+            } else if (hasAnnotationOrPackage(symbolIndex, cls, "RestController", ".rest.")) {
+                heading = "### Controller: " + cls + "\n\n";
+            } else {
+                heading = "### Class: " + cls + "\n\n";
+            }
+            section = new Section(cls, heading, distance);
+            List<String> sortedMethods = new ArrayList<>(methods);
+            sortedMethods.sort(Comparator.<String>comparingInt(mtd -> distances.getOrDefault(cls + "." + mtd, UNREACHED))
+                                         .thenComparing(Comparator.naturalOrder()));
+            for (String mtd : sortedMethods) {
+                section.snippets.add(new Snippet(SnippetKind.METHOD, mtd,
+                                                 distances.getOrDefault(cls + "." + mtd, UNREACHED)));
+            }
+        }
+        return section;
+    }
+
+    /**
+     * Reads a snippet's markdown. A snippet whose code has already been shown in the document,
+     * such as the same source reached under two names, is left empty.
+     */
+    private void readSnippet(String cls, Snippet snippet, Set<String> shownCode, AnalysisProfile profile) {
+        switch (snippet.kind) {
+            case METHOD: {
+                String sourceCode = extractMethodSource(cls, snippet.methodName, profile);
+                // Methods without a body, such as those of interfaces, are only named in the hierarchy
+                if (sourceCode == null || sourceCode.startsWith("// Source file not found")
+                        || sourceCode.startsWith("// Method " + snippet.methodName + " not found")
+                        || !shownCode.add(sourceCode)) {
+                    return;
+                }
+                snippet.full = "#### " + snippet.methodName + "\n\n```java\n" + sourceCode + "\n```\n\n";
+                List<String> signatures = analyzer.getMethodSignatures(cls, snippet.methodName, profile);
+                snippet.reduced = signatures.isEmpty()
+                    ? snippet.full
+                    : "#### " + snippet.methodName + "\n\n```java\n" + String.join("\n", signatures) + "\n```\n\n";
+                break;
+            }
+            case TYPE: {
+                String sourceCode = isEntity(analyzer.getSymbolIndex(), cls)
+                    ? getEntityClassCode(cls, profile)
+                    : getRepositoryCode(cls, profile);
+                if (!shownCode.add(sourceCode)) {
+                    return;
+                }
+                snippet.full = "```java\n" + sourceCode + "\n```\n\n";
+                snippet.reduced = analyzer.getSourceOutline(cls, profile)
+                                          .map(outline -> "```java\n" + outline + "\n```\n\n")
+                                          .orElse(null);
+                break;
+            }
+            case JPA_NOTE:
+                snippet.full = JPA_NOTE;
+                break;
+        }
+    }
+
+    /**
+     * Shares the budget out among the snippets in order of distance: first the shortened forms
+     * up to the first that does not fit, then the full forms up to the first that does not fit,
+     * so a snippet is never shown in more detail than one closer to the entry point. A section's
+     * heading is counted with its first snippet shown.
+     *
+     * @return the note telling the reader what was left out, or an empty string if nothing was
+     */
+    private static String shareBudget(List<Section> sections, List<Snippet> ranked, int budget, int maxTokens) {
+        Map<Snippet, Section> sectionOf = new IdentityHashMap<>();
+        for (Section section : sections) {
+            for (Snippet snippet : section.snippets) {
+                sectionOf.put(snippet, section);
+                snippet.level = Level.OMITTED;
+            }
+        }
+        // Stable, so snippets at the same distance keep the order of the document
+        ranked.sort(Comparator.comparingInt(snippet -> snippet.distance));
+
+        Set<Section> visible = Collections.newSetFromMap(new IdentityHashMap<>());
+        int used = 0;
+        for (Snippet snippet : ranked) {
+            if (snippet.reduced == null) {
+                continue;
+            }
+            Section section = sectionOf.get(snippet);
+            int cost = TokenEstimator.estimate(snippet.reduced)
+                       + (visible.contains(section) ? 0 : TokenEstimator.estimate(section.heading));
+            if (used + cost > budget) {
+                break;
+            }
+            snippet.level = Level.REDUCED;
+            visible.add(section);
+            used += cost;
+        }
+        for (Snippet snippet : ranked) {
+            Section section = sectionOf.get(snippet);
+            int cost = TokenEstimator.estimate(snippet.full);
+            if (snippet.level == Level.REDUCED) {
+                cost -= TokenEstimator.estimate(snippet.reduced);
+            } else if (!visible.contains(section)) {
+                cost += TokenEstimator.estimate(section.heading);
+            }
+            if (used + cost > budget) {
+                break;
+            }
+            snippet.level = Level.FULL;
+            visible.add(section);
+            used += cost;
+        }
+
+        int reduced = 0;
+        int omitted = 0;
+        for (Snippet snippet : ranked) {
+            if (snippet.level == Level.REDUCED && !snippet.reduced.equals(snippet.full)) {
+                reduced++;
+            } else if (snippet.level == Level.OMITTED) {
+                omitted++;
+            }
+        }
+        return reduced + omitted > 0 ? budgetNote(maxTokens, reduced, omitted) : "";
+    }
+
+    private static String budgetNote(int maxTokens, int reduced, int omitted) {
+        return "Shortened to fit " + maxTokens + " tokens: the snippets furthest from the entry point are cut " +
+               "down to signatures (" + reduced + ") or left out (" + omitted + ").\n\n";
+    }
+
+    /**
+     * Keeps the leading lines of a text that fit the budget, followed by a line counting those
+     * left out
+     */
+    private static String limitLines(String text, int budget) {
+        if (TokenEstimator.estimate(text) <= budget) {
+            return text;
+        }
+        String[] lines = text.split("\n", -1);
+        int lineCount = lines.length - 1; // The text ends with a line break
+        budget -= TokenEstimator.estimate("... " + lineCount + " more calls\n");
+        StringBuilder kept = new StringBuilder();
+        int used = 0;
+        int keptLines = 0;
+        while (keptLines < lineCount) {
+            int cost = TokenEstimator.estimate(lines[keptLines] + "\n");
+            if (used + cost > budget) {
+                break;
+            }
+            kept.append(lines[keptLines]).append('\n');
+            used += cost;
+            keptLines++;
+        }
+        return kept.append("... ").append(lineCount - keptLines).append(" more calls\n").toString();
+    }
+
+    /**
+     * The number of calls from the entry point to each method of the graph, by class and method name.
+     * The graph does not link an interface method to its implementations, so an implementation in
+     * the graph counts as one call further than the interface method.
+     */
+    private static Map<String, Integer> callDistances(JavaParserCodeFlowAnalyzer.CallGraph callGraph,
+                                                      SymbolIndex symbolIndex, String className, String methodName) {
+        Map<String, Integer> distances = new HashMap<>();
+        Deque<JavaParserCodeFlowAnalyzer.MethodCall> queue = new ArrayDeque<>();
+        distances.put(className + "." + methodName, 0);
+        queue.add(new JavaParserCodeFlowAnalyzer.MethodCall("this", className, methodName));
+        while (!queue.isEmpty()) {
+            JavaParserCodeFlowAnalyzer.MethodCall method = queue.poll();
+            int distance = distances.get(method.className + "." + method.methodName);
+            List<JavaParserCodeFlowAnalyzer.MethodCall> next =
+                new ArrayList<>(callGraph.getCalls(method.className, method.methodName));
+            for (String implementor : symbolIndex.getImplementors(method.className)) {
+                if (callGraph.getMethods(implementor).contains(method.methodName)) {
+                    next.add(new JavaParserCodeFlowAnalyzer.MethodCall("this", implementor, method.methodName));
+                }
+            }
+            for (JavaParserCodeFlowAnalyzer.MethodCall call : next) {
+                if (distances.putIfAbsent(call.className + "." + call.methodName, distance + 1) == null) {
+                    queue.add(call);
+                }
+            }
+        }
+        return distances;
+    }
+
+    private static int classDistance(String cls, Set<String> methods, Map<String, Integer> distances) {
+        int distance = UNREACHED;
+        for (String mtd : methods) {
+            distance = Math.min(distance, distances.getOrDefault(cls + "." + mtd, UNREACHED));
+        }
+        return distance;
+    }
+
+    private static int plusOne(int distance) {
+        return distance == UNREACHED ? UNREACHED : distance + 1;
+    }
+
+    /**
+     * Writes the call hierarchy below a method, one call per line indented by depth.
+     * Methods already shown are marked as recursive calls and not expanded again, and methods
+     * on the frontier of a truncated graph are marked with the limit that stopped the analysis.
+     * The walk keeps its own stack, so arbitrarily deep graphs cannot overflow the thread stack.
+     */
+    public void writeCallHierarchy(Writer out, JavaParserCodeFlowAnalyzer.CallGraph callGraph,
+                                   String className, String methodName) throws IOException {
+        Set<String> visited = new HashSet<>();
+        Deque<HierarchyFrame> stack = new ArrayDeque<>();
+        stack.push(new HierarchyFrame(className, methodName, 0));
+        while (!stack.isEmpty()) {
+            HierarchyFrame frame = stack.pop();
+            String signature = frame.className + "." + frame.methodName;
+            writeIndent(out, frame.depth);
+            if (!visited.add(signature)) {
+                out.write(signature + " (recursive call)\n");
+                continue;
+            }
+            AnalysisOptions.Limit limit = callGraph.getFrontier().get(signature);
+            if (limit != null) {
+                out.write(signature + " (not expanded: " + limit.name().toLowerCase(Locale.ROOT) + " limit)\n");
+                continue;
+            }
+            out.write(signature + "\n");
+
+            // Push callees in reverse so they are written in call order
+            List<JavaParserCodeFlowAnalyzer.MethodCall> calls = callGraph.getCalls(frame.className, frame.methodName);
+            for (int i = calls.size() - 1; i >= 0; i--) {
+                JavaParserCodeFlowAnalyzer.MethodCall call = calls.get(i);
+                stack.push(new HierarchyFrame(call.className, call.methodName, frame.depth + 1));
+            }
+        }
+    }
+
+    private static class HierarchyFrame {
+        final String className;
+        final String methodName;
+        final int depth;
+
+        HierarchyFrame(String className, String methodName, int depth) {
+            this.className = className;
+            this.methodName = methodName;
+            this.depth = depth;
+        }
+    }
+
+    private static void writeIndent(Writer out, int depth) throws IOException {
+        for (int i = 0; i < depth; i++) {
+            out.write("  ");
+        }
+    }
+
+    /**
+     * Collects all classes and their methods from the call graph
+     */
+    private Map<String, Set<String>> collectClassMethods(JavaParserCodeFlowAnalyzer.CallGraph callGraph) {
+        Map<String, Set<String>> classMethodMap = new HashMap<>();
+
+        // Process each class in the graph
+        for (String className : callGraph.getClasses()) {
+            Set<String> methods = classMethodMap.computeIfAbsent(className, k -> new HashSet<>());
+            methods.addAll(callGraph.getMethods(className));
+
+            // Add methods in this class that are called, from the inverted caller index
+            methods.addAll(callGraph.getCalledMethods(className));
+        }
+        return classMethodMap;
+    }
+
+    /**
+     * Extracts source code for a specific method from its class file.
+     * Overloads are all included, separated by a blank line.
+     */
+    public String extractMethodSource(String className, String methodName) {
+        return extractMethodSource(className, methodName, null);
+    }
+
+    private String extractMethodSource(String className, String methodName, AnalysisProfile profile) {
+        // Look up the declaring file in the symbol index
+        File sourceFile = analyzer.getSymbolIndex().getFile(className);
+
+        if (sourceFile == null) {
+            // Special handling for Spring Data JPA repository methods
+            if (className.endsWith("Repository") && className.contains(".dao.")) {
+                // Derived query methods have no source; provide a generic explanation
+                return "// Method " + methodName + " is a Spring Data JPA repository method\n" +
+                       "// It is automatically implemented by Spring based on the method name pattern\n" +
+                       "// For example: findByAgeGreaterThan generates a query like:\n" +
+                       "// SELECT * FROM users WHERE age > ?";
+            }
+
+            return "// Source file not found for " + className;
+        }
+
+        // Slice the declarations out of the parsed source using their AST positions
+        List<String> sources = analyzer.getMethodSources(className, methodName, profile);
+        if (sources.isEmpty()) {
+            return "// Method " + methodName + " not found in " + className;
+        }
+        return String.join("\n\n", sources);
+    }
+
+    /**
+     * Get the complete entity class code
+     */
+    private String getEntityClassCode(String className, AnalysisProfile profile) {
+        return analyzer.getSourceText(className, profile)
+                       .orElse("// Entity class not found: " + className);
+    }
+
+    /**
+     * Get the complete repository interface code
+     */
+    private String getRepositoryCode(String className, AnalysisProfile profile) {
+        return analyzer.getSourceText(className, profile)
+                       .orElse("// Repository interface not found: " + className);
+    }
+
+    /**
+     * Check if a class is a Spring Data repository, falling back to the package convention
+     * for classes outside the index
+     */
+    private boolean isRepository(SymbolIndex symbolIndex, String className) {
+        SymbolIndex.TypeInfo type = symbolIndex.getType(className);
+        if (type != null) {
+            return type.isRepository();
+        }
+        return className.contains(".dao.") && className.endsWith("Repository");
+    }
+
+    /**
+     * Check if a class is a JPA entity, falling back to the package convention
+     * for classes outside the index
+     */
+    private boolean isEntity(SymbolIndex symbolIndex, String className) {
+        SymbolIndex.TypeInfo type = symbolIndex.getType(className);
+        if (type != null) {
+            return type.isEntity();
+        }
+        return className.contains(".entities.");
+    }
+
+    /**
+     * Check if a class carries the given stereotype annotation, falling back to the package
+     * convention for classes outside the index or without the annotation
+     */
+    private boolean hasAnnotationOrPackage(SymbolIndex symbolIndex, String className,
+                                           String annotation, String packageSegment) {
+        SymbolIndex.TypeInfo type = symbolIndex.getType(className);
+        if (type != null && type.annotations.contains(annotation)) {
+            return true;
+        }
+        return className.contains(packageSegment);
+    }
+}
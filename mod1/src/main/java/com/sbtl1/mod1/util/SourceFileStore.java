@@ -0,0 +1,356 @@
+package com.sbtl1.mod1.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of source file contents shared by the parser and snippet extraction.
+ * Files are read through a memory mapping and kept decoded, together with their line
+ * offsets, while their modification time and size are unchanged; the least recently used
+ * files are evicted once the cached text exceeds the configured size. Lookups of missing
+ * files are remembered for a short time so repeated misses do not touch the filesystem.
+ */
+public class SourceFileStore {
+    private static final Logger log = LoggerFactory.getLogger(SourceFileStore.class);
+
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+    public static final long DEFAULT_NEGATIVE_TTL_MILLIS = 5000;
+    /** Missing files remembered at most; the oldest are forgotten first */
+    static final int MAX_MISSING = 10_000;
+
+    private final long maxBytes;
+    private final long negativeTtlMillis;
+    private final LinkedHashMap<String, SourceFile> files = new LinkedHashMap<>(16, 0.75f, true);
+    // In insertion order, which is expiry order since every entry lives for the same time
+    private final LinkedHashMap<String, Long> missingUntil = new LinkedHashMap<>();
+    // Reads started by prefetch that have not finished yet
+    private final Map<String, CompletableFuture<Optional<SourceFile>>> prefetching = new HashMap<>();
+    private long totalBytes;
+    private final CacheCounters counters = new CacheCounters();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+
+    /**
+     * The contents of a source file as of the given modification time and size.
+     * Positions are one-based lines and columns as reported by JavaParser.
+     */
+    public static class SourceFile {
+        private final File file;
+        private final long lastModified;
+        private final long length;
+        private final String content;
+        private volatile int[] lineOffsets;
+
+        SourceFile(File file, long lastModified, long length, String content) {
+            this.file = file;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.content = content;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public String getContent() {
+            return content;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        boolean matches(File file) {
+            return lastModified == file.lastModified() && length == file.length();
+        }
+
+        /**
+         * Converts a line and column to an offset into the content
+         */
+        public int offset(int line, int column) {
+            int[] offsets = getLineOffsets();
+            int lineIndex = Math.max(0, Math.min(line - 1, offsets.length - 1));
+            return Math.min(content.length(), offsets[lineIndex] + Math.max(0, column - 1));
+        }
+
+        /**
+         * Returns the text between two positions, both inclusive
+         */
+        public String slice(int beginLine, int beginColumn, int endLine, int endColumn) {
+            int begin = offset(beginLine, beginColumn);
+            int end = Math.min(content.length(), offset(endLine, endColumn) + 1);
+            return begin < end ? content.substring(begin, end) : "";
+        }
+
+        private int[] getLineOffsets() {
+            int[] offsets = lineOffsets;
+            if (offsets == null) {
+                offsets = computeLineOffsets(content);
+                lineOffsets = offsets;
+            }
+            return offsets;
+        }
+
+        private static int[] computeLineOffsets(String content) {
+            int[] offsets = new int[16];
+            int count = 1;
+            for (int i = 0; i < content.length(); i++) {
+                char c = content.charAt(i);
+                // Line breaks are \n, \r\n or a lone \r, as in JavaParser's positions
+                if (c == '\n' || (c == '\r' && (i + 1 == content.length() || content.charAt(i + 1) != '\n'))) {
+                    if (count == offsets.length) {
+                        offsets = Arrays.copyOf(offsets, count * 2);
+                    }
+                    offsets[count++] = i + 1;
+                }
+            }
+            return Arrays.copyOf(offsets, count);
+        }
+
+        long weight() {
+            return 2L * content.length();
+        }
+    }
+
+    public SourceFileStore() {
+        this(DEFAULT_MAX_BYTES, DEFAULT_NEGATIVE_TTL_MILLIS);
+    }
+
+    public SourceFileStore(long maxBytes, long negativeTtlMillis) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be positive: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+        this.negativeTtlMillis = negativeTtlMillis;
+    }
+
+    /**
+     * Returns the current contents of a file, reading it only if it is not cached or has
+     * changed on disk. An empty result means the file does not exist or cannot be read.
+     */
+    public Optional<SourceFile> get(File file) {
+        return get(file, null);
+    }
+
+    /**
+     * Returns the current contents of a file, recording the bytes read from disk in the profile
+     *
+     * @param profile the profile of the request reading the file, or null
+     */
+    public Optional<SourceFile> get(File file, AnalysisProfile profile) {
+        String key = file.getAbsolutePath();
+        CompletableFuture<Optional<SourceFile>> pending;
+        synchronized (this) {
+            pending = prefetching.get(key);
+        }
+        // Waiting for a read already under way is never slower than reading the file again
+        return pending != null ? pending.join() : load(file, key, profile);
+    }
+
+    /**
+     * Starts reading the given files on virtual threads and returns without waiting for them, so
+     * a caller that will need the files soon finds them in memory. A {@link #get} of a file that is
+     * still being read waits for that read. Files that are cached and unchanged are not read again.
+     *
+     * @param profile the profile of the request that will use the files, or null
+     */
+    public void prefetch(Collection<File> files, AnalysisProfile profile) {
+        for (File file : files) {
+            String key = file.getAbsolutePath();
+            CompletableFuture<Optional<SourceFile>> read = new CompletableFuture<>();
+            synchronized (this) {
+                if (prefetching.putIfAbsent(key, read) != null) {
+                    continue;
+                }
+            }
+            Thread.ofVirtual().name("source-prefetch").start(() -> {
+                try {
+                    read.complete(load(file, key, profile));
+                } catch (Throwable e) {
+                    read.completeExceptionally(e);
+                } finally {
+                    synchronized (this) {
+                        prefetching.remove(key, read);
+                    }
+                }
+            });
+        }
+    }
+
+    private Optional<SourceFile> load(File file, String key, AnalysisProfile profile) {
+        SourceFile cached;
+        synchronized (this) {
+            Long until = missingUntil.get(key);
+            if (until != null) {
+                if (System.currentTimeMillis() < until) {
+                    negativeHits.increment();
+                    return Optional.empty();
+                }
+                missingUntil.remove(key);
+            }
+            cached = files.get(key);
+        }
+        if (cached != null && cached.matches(file)) {
+            counters.hit();
+            return Optional.of(cached);
+        }
+
+        counters.miss();
+        // Read the attributes before the content so a concurrent edit is detected on the next lookup
+        long lastModified = file.lastModified();
+        long length = file.length();
+        String content;
+        try {
+            content = read(file);
+            bytesRead.add(length);
+            if (profile != null) {
+                profile.addBytesRead(length);
+            }
+        } catch (NoSuchFileException e) {
+            content = null;
+        } catch (IOException e) {
+            log.warn("Error reading file {}: {}", file, e.getMessage());
+            content = null;
+        }
+
+        synchronized (this) {
+            SourceFile previous = files.remove(key);
+            if (previous != null) {
+                totalBytes -= previous.weight();
+            }
+            if (content == null) {
+                rememberMissing(key);
+                return Optional.empty();
+            }
+            SourceFile sourceFile = new SourceFile(file, lastModified, length, content);
+            files.put(key, sourceFile);
+            totalBytes += sourceFile.weight();
+            evictIfNeeded();
+            return Optional.of(sourceFile);
+        }
+    }
+
+    /**
+     * Remembers a missing file, first forgetting the misses that have expired, and the oldest
+     * ones beyond {@link #MAX_MISSING}, so lookups of ever new missing paths cannot grow the map
+     */
+    private void rememberMissing(String key) {
+        long now = System.currentTimeMillis();
+        Iterator<Long> oldest = missingUntil.values().iterator();
+        while (oldest.hasNext()) {
+            long until = oldest.next();
+            if (until > now && missingUntil.size() < MAX_MISSING) {
+                break;
+            }
+            oldest.remove();
+        }
+        missingUntil.put(key, now + negativeTtlMillis);
+    }
+
+    private static String read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return "";
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return StandardCharsets.UTF_8.decode(buffer).toString();
+        }
+    }
+
+    /**
+     * Forgets a file, including a remembered miss
+     */
+    public synchronized void invalidate(File file) {
+        String key = file.getAbsolutePath();
+        SourceFile previous = files.remove(key);
+        if (previous != null) {
+            totalBytes -= previous.weight();
+        }
+        missingUntil.remove(key);
+    }
+
+    public synchronized void clear() {
+        files.clear();
+        missingUntil.clear();
+        totalBytes = 0;
+    }
+
+    private void evictIfNeeded() {
+        Iterator<SourceFile> iterator = files.values().iterator();
+        // Always keep the file just read, even if it alone exceeds the bound
+        while (totalBytes > maxBytes && files.size() > 1) {
+            SourceFile eldest = iterator.next();
+            iterator.remove();
+            totalBytes -= eldest.weight();
+            counters.eviction();
+        }
+    }
+
+    public synchronized int size() {
+        return files.size();
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public long getHitCount() {
+        return counters.getHitCount();
+    }
+
+    public long getMissCount() {
+        return counters.getMissCount();
+    }
+
+    public long getNegativeHitCount() {
+        return negativeHits.sum();
+    }
+
+    public long getEvictionCount() {
+        return counters.getEvictionCount();
+    }
+
+    /**
+     * Bytes read from disk on misses
+     */
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    /**
+     * Fraction of file reads answered from memory, or 0 before the first read; lookups of
+     * files remembered as missing are not counted
+     */
+    public double getHitRatio() {
+        return counters.getHitRatio();
+    }
+
+    /**
+     * The files and bytes held and the disk reads avoided, as reported by the stats endpoint
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (this) {
+            stats.put("files", files.size());
+            stats.put("bytes", totalBytes);
+            stats.put("knownMissing", missingUntil.size());
+        }
+        stats.put("maxBytes", maxBytes);
+        counters.addTo(stats);
+        stats.put("negativeHits", negativeHits.sum());
+        stats.put("bytesRead", bytesRead.sum());
+        return stats;
+    }
+}
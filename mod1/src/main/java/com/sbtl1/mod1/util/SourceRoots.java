@@ -0,0 +1,133 @@
+package com.sbtl1.mod1.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Locates the source roots to analyze: either listed explicitly or discovered from the
+ * modules included in a Gradle {@code settings.gradle} or {@code settings.gradle.kts}.
+ * A module {@code :a:b} contributes {@code a/b/src/main/java} below the project directory.
+ */
+public final class SourceRoots {
+    private static final Logger log = LoggerFactory.getLogger(SourceRoots.class);
+
+    private static final String[] SETTINGS_FILES = {"settings.gradle", "settings.gradle.kts"};
+    private static final String MAIN_SOURCES = "src/main/java";
+    /** Quoted project paths, as in include ':a', ':b:c' or include("a", "b") */
+    private static final Pattern QUOTED = Pattern.compile("['\"]([^'\"]+)['\"]");
+
+    private SourceRoots() {
+    }
+
+    /**
+     * The directory holding the Gradle settings file: the working directory or its parent,
+     * or the working directory if neither has one
+     */
+    public static File findProjectDir() {
+        File workingDir = new File(System.getProperty("user.dir")).getAbsoluteFile();
+        File parentDir = workingDir.getParentFile();
+        if (findSettingsFile(workingDir) == null && parentDir != null && findSettingsFile(parentDir) != null) {
+            return parentDir;
+        }
+        return workingDir;
+    }
+
+    /**
+     * Resolves configured source roots against the project directory, keeping those that exist
+     */
+    public static List<File> resolve(File projectDir, Collection<String> paths) {
+        Set<File> roots = new LinkedHashSet<>();
+        for (String path : paths) {
+            File root = new File(path);
+            root = normalize(root.isAbsolute() ? root : new File(projectDir, path));
+            if (root.isDirectory()) {
+                roots.add(root);
+            } else {
+                log.warn("Ignoring source root that is not a directory: {}", root);
+            }
+        }
+        return new ArrayList<>(roots);
+    }
+
+    /**
+     * The main source roots of the project directory and of every module its settings file
+     * includes, in include order. Modules without Java sources are skipped.
+     */
+    public static List<File> discover(File projectDir) {
+        List<String> paths = new ArrayList<>();
+        paths.add(MAIN_SOURCES);
+        File settingsFile = findSettingsFile(projectDir);
+        if (settingsFile == null) {
+            log.info("No Gradle settings file in {}", projectDir);
+        } else {
+            try {
+                for (String module : readIncludes(settingsFile)) {
+                    paths.add(module + "/" + MAIN_SOURCES);
+                }
+            } catch (IOException e) {
+                log.warn("Error reading {}: {}", settingsFile, e.getMessage());
+            }
+        }
+        List<File> roots = new ArrayList<>();
+        for (String path : paths) {
+            File root = normalize(new File(projectDir, path));
+            if (root.isDirectory()) {
+                roots.add(root);
+            }
+        }
+        log.info("Discovered {} source roots in {}", roots.size(), projectDir);
+        return roots;
+    }
+
+    /**
+     * The directories of the modules included by a settings file, relative to the project
+     * directory: {@code :a:b} becomes {@code a/b}
+     */
+    static List<String> readIncludes(File settingsFile) throws IOException {
+        Set<String> modules = new LinkedHashSet<>();
+        for (String line : Files.readAllLines(settingsFile.toPath(), StandardCharsets.UTF_8)) {
+            String statement = stripComment(line).trim();
+            if (!statement.startsWith("include") || statement.startsWith("includeBuild")) {
+                continue;
+            }
+            Matcher matcher = QUOTED.matcher(statement);
+            while (matcher.find()) {
+                String module = matcher.group(1);
+                while (module.startsWith(":")) {
+                    module = module.substring(1);
+                }
+                if (!module.isEmpty()) {
+                    modules.add(module.replace(':', '/'));
+                }
+            }
+        }
+        return new ArrayList<>(modules);
+    }
+
+    private static File normalize(File file) {
+        return file.getAbsoluteFile().toPath().normalize().toFile();
+    }
+
+    private static String stripComment(String line) {
+        int comment = line.indexOf("//");
+        return comment >= 0 ? line.substring(0, comment) : line;
+    }
+
+    private static File findSettingsFile(File dir) {
+        for (String name : SETTINGS_FILES) {
+            File file = new File(dir, name);
+            if (file.isFile()) {
+                return file;
+            }
+        }
+        return null;
+    }
+}
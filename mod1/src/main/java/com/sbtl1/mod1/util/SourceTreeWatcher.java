@@ -0,0 +1,141 @@
+package com.sbtl1.mod1.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Watches source roots recursively with a {@link WatchService} and reports changed Java files
+ * in batches. Events arriving within the debounce interval of each other are reported together,
+ * since editors and build tools usually touch several files, or one file several times, per save.
+ * Deleted directories are reported as their own path.
+ */
+public class SourceTreeWatcher implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(SourceTreeWatcher.class);
+
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+    private final List<File> sourceRoots;
+    private final Duration debounce;
+    private final Consumer<Set<File>> listener;
+    private final Thread thread;
+    private volatile boolean closed;
+
+    /**
+     * Registers every directory below the source roots and starts watching on a daemon thread
+     *
+     * @param listener called on the watcher thread with each batch of changed files
+     */
+    public SourceTreeWatcher(List<File> sourceRoots, Duration debounce, Consumer<Set<File>> listener) throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.sourceRoots = sourceRoots;
+        this.debounce = debounce;
+        this.listener = listener;
+        for (File sourceRoot : sourceRoots) {
+            if (sourceRoot.isDirectory()) {
+                registerTree(sourceRoot.toPath());
+            }
+        }
+        this.thread = new Thread(this::run, "source-watcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Number of directories currently watched
+     */
+    public int getWatchedDirectoryCount() {
+        return watchedDirectories.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        watchService.close();
+        thread.interrupt();
+    }
+
+    private void run() {
+        while (!closed) {
+            try {
+                WatchKey key = watchService.take();
+                Set<File> changed = new LinkedHashSet<>();
+                collect(key, changed);
+                while ((key = watchService.poll(debounce.toMillis(), TimeUnit.MILLISECONDS)) != null) {
+                    collect(key, changed);
+                }
+                if (!changed.isEmpty()) {
+                    listener.accept(changed);
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            } catch (RuntimeException e) {
+                log.error("Error processing source changes", e);
+            }
+        }
+    }
+
+    private void collect(WatchKey key, Set<File> changed) {
+        Path directory = watchedDirectories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // Events were lost: report every file so nothing stays stale
+                log.warn("Source watcher overflowed, re-checking all source files");
+                for (File sourceRoot : sourceRoots) {
+                    collectJavaFiles(sourceRoot.toPath(), changed);
+                }
+                continue;
+            }
+            if (directory == null) {
+                continue;
+            }
+            Path path = directory.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                // A new directory (or one moved in) may already contain files
+                registerTree(path);
+                collectJavaFiles(path, changed);
+            } else if (path.toString().endsWith(".java")) {
+                changed.add(path.toFile());
+            } else if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                changed.add(path.toFile());
+            }
+        }
+        if (!key.reset()) {
+            watchedDirectories.remove(key);
+        }
+    }
+
+    private void registerTree(Path root) {
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                                                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                    watchedDirectories.put(key, dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Error watching {}: {}", root, e.getMessage());
+        }
+    }
+
+    private static void collectJavaFiles(Path root, Set<File> changed) {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.filter(p -> p.toString().endsWith(".java")).map(Path::toFile).forEach(changed::add);
+        } catch (IOException e) {
+            log.warn("Error scanning {}: {}", root, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,535 @@
+package com.sbtl1.mod1.util;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.Position;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.expr.AnnotationExpr;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import com.github.javaparser.ast.type.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * An immutable project-wide symbol index built in one pass over the source roots.
+ * It maps fully qualified type names to their source files, supertypes, implementors,
+ * declared methods (with source ranges) and, for repositories, their entity type,
+ * so the analyzer can answer lookups without scanning the filesystem.
+ */
+public class SymbolIndex {
+    private static final Logger log = LoggerFactory.getLogger(SymbolIndex.class);
+    /** Files read ahead of each parsing thread while the index is built */
+    private static final int READ_AHEAD_PER_PARSER = 4;
+
+    private final Map<String, FileSymbols> filesByPath;
+    private final Map<String, TypeInfo> typesByName = new HashMap<>();
+    private final Map<String, List<String>> typeNamesBySimpleName = new HashMap<>();
+    private final Map<String, List<String>> supertypesByType = new HashMap<>();
+    private final Map<String, String> entityTypeByRepository = new HashMap<>();
+    private final Map<String, List<String>> implementorsByType = new HashMap<>();
+
+    /**
+     * A method declared in an indexed type, with its position in the source file
+     */
+    public static class MethodInfo {
+        public final String name;
+        public final List<String> parameterTypes;
+        public final Set<String> annotations;
+        public final boolean isDefault;
+        public final boolean hasBody;
+        public final int beginLine;
+        public final int beginColumn;
+        public final int endLine;
+        public final int endColumn;
+
+        public MethodInfo(String name, List<String> parameterTypes, Set<String> annotations,
+                          boolean isDefault, boolean hasBody,
+                          int beginLine, int beginColumn, int endLine, int endColumn) {
+            this.name = name;
+            this.parameterTypes = parameterTypes;
+            this.annotations = annotations;
+            this.isDefault = isDefault;
+            this.hasBody = hasBody;
+            this.beginLine = beginLine;
+            this.beginColumn = beginColumn;
+            this.endLine = endLine;
+            this.endColumn = endColumn;
+        }
+
+        /**
+         * Whether the method handles web requests ({@code @RequestMapping}, {@code @GetMapping} and so on)
+         */
+        public boolean isRequestMapping() {
+            return annotations.stream().anyMatch(a -> a.endsWith("Mapping"));
+        }
+
+        @Override
+        public String toString() {
+            return name + "(" + String.join(", ", parameterTypes) + ") [" + beginLine + "-" + endLine + "]";
+        }
+    }
+
+    /**
+     * A class or interface declared in the indexed sources. Type names are kept as
+     * written in the source; the index resolves them against the whole project.
+     */
+    public static class TypeInfo {
+        public final String qualifiedName;
+        public final String simpleName;
+        public final String packageName;
+        public final File file;
+        public final boolean isInterface;
+        public final Set<String> annotations;
+        /** Extended and implemented type names as written in the source */
+        final List<String> declaredSupertypes;
+        /** First type argument of a repository supertype as written in the source, or null */
+        final String declaredEntityType;
+        public final List<MethodInfo> methods;
+
+        TypeInfo(String qualifiedName, String simpleName, String packageName, File file, boolean isInterface,
+                 Set<String> annotations, List<String> declaredSupertypes, String declaredEntityType,
+                 List<MethodInfo> methods) {
+            this.qualifiedName = qualifiedName;
+            this.simpleName = simpleName;
+            this.packageName = packageName;
+            this.file = file;
+            this.isInterface = isInterface;
+            this.annotations = annotations;
+            this.declaredSupertypes = declaredSupertypes;
+            this.declaredEntityType = declaredEntityType;
+            this.methods = methods;
+        }
+
+        public boolean isRepository() {
+            return declaredEntityType != null || annotations.contains("Repository");
+        }
+
+        public boolean isEntity() {
+            return annotations.contains("Entity");
+        }
+
+        public boolean isController() {
+            return annotations.contains("RestController") || annotations.contains("Controller");
+        }
+
+        public List<MethodInfo> getMethods(String methodName) {
+            return methods.stream().filter(m -> m.name.equals(methodName)).collect(Collectors.toList());
+        }
+
+        @Override
+        public String toString() {
+            return qualifiedName;
+        }
+    }
+
+    /**
+     * The symbols contributed by a single source file
+     */
+    public static class FileSymbols {
+        public final File file;
+        public final String packageName;
+        final Map<String, String> singleImports;
+        final List<String> wildcardImports;
+        public final List<TypeInfo> types;
+
+        FileSymbols(File file, String packageName, Map<String, String> singleImports,
+                    List<String> wildcardImports, List<TypeInfo> types) {
+            this.file = file;
+            this.packageName = packageName;
+            this.singleImports = singleImports;
+            this.wildcardImports = wildcardImports;
+            this.types = types;
+        }
+    }
+
+    SymbolIndex(Map<String, FileSymbols> filesByPath) {
+        this.filesByPath = Collections.unmodifiableMap(filesByPath);
+
+        for (FileSymbols fileSymbols : filesByPath.values()) {
+            for (TypeInfo type : fileSymbols.types) {
+                typesByName.put(type.qualifiedName, type);
+                typeNamesBySimpleName.computeIfAbsent(type.simpleName, k -> new ArrayList<>()).add(type.qualifiedName);
+            }
+        }
+
+        // Resolve supertypes and repository entity types now that every type is known
+        for (FileSymbols fileSymbols : filesByPath.values()) {
+            for (TypeInfo type : fileSymbols.types) {
+                List<String> supertypes = new ArrayList<>();
+                for (String declared : type.declaredSupertypes) {
+                    String resolved = resolveType(fileSymbols, declared);
+                    supertypes.add(resolved != null ? resolved : declared);
+                }
+                supertypesByType.put(type.qualifiedName, Collections.unmodifiableList(supertypes));
+                if (type.declaredEntityType != null) {
+                    String resolved = resolveType(fileSymbols, type.declaredEntityType);
+                    entityTypeByRepository.put(type.qualifiedName, resolved != null ? resolved : type.declaredEntityType);
+                }
+            }
+        }
+
+        // Every concrete class is an implementor of all its transitive supertypes
+        for (TypeInfo type : typesByName.values()) {
+            if (type.isInterface) {
+                continue;
+            }
+            for (String supertype : collectSupertypes(type.qualifiedName)) {
+                implementorsByType.computeIfAbsent(supertype, k -> new ArrayList<>()).add(type.qualifiedName);
+            }
+        }
+    }
+
+    /**
+     * Builds an index by parsing every Java file below the given source roots.
+     * The roots are listed and the files read on virtual threads, so file IO does not serialize
+     * the build, but the files are parsed on one platform thread per processor, each reusing the
+     * parser it obtains from {@code javaParsers}. At most {@link #READ_AHEAD_PER_PARSER} files per
+     * parsing thread are read and not yet parsed, however many files the roots hold.
+     * A file below more than one root is indexed once.
+     */
+    public static SymbolIndex build(List<File> sourceRoots, ParsedFileCache parsedFileCache,
+                                    Supplier<JavaParser> javaParsers) {
+        int parsers = Runtime.getRuntime().availableProcessors();
+        Semaphore readAhead = new Semaphore(parsers * READ_AHEAD_PER_PARSER);
+        SourceFileStore sourceFileStore = parsedFileCache.getSourceFileStore();
+        Map<String, FileSymbols> files = new ConcurrentHashMap<>();
+        // Closed in reverse order: every read has handed its file to the parsers before they shut down
+        try (ExecutorService parsePool = Executors.newFixedThreadPool(parsers);
+             ExecutorService ioExecutor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<List<File>>> listings = new ArrayList<>(sourceRoots.size());
+            for (File sourceRoot : sourceRoots) {
+                listings.add(ioExecutor.submit(() -> listJavaFiles(sourceRoot)));
+            }
+            Set<String> seen = new HashSet<>();
+            for (Future<List<File>> listing : listings) {
+                for (File file : listing.get()) {
+                    String path = file.getAbsolutePath();
+                    if (!seen.add(path)) {
+                        continue;
+                    }
+                    readAhead.acquire();
+                    CompletableFuture.runAsync(() -> sourceFileStore.get(file), ioExecutor)
+                        .thenRunAsync(() -> {
+                            FileSymbols symbols = indexFile(file, parsedFileCache, javaParsers.get());
+                            if (symbols != null) {
+                                files.put(path, symbols);
+                            }
+                        }, parsePool)
+                        .whenComplete((ignored, e) -> {
+                            readAhead.release();
+                            if (e != null) {
+                                log.warn("Error indexing file {}", path, e);
+                            }
+                        });
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.warn("Error listing source files", e.getCause());
+        }
+        return new SymbolIndex(new HashMap<>(files));
+    }
+
+    /**
+     * The Java files below a source root, or none if it is not a directory or cannot be listed
+     */
+    private static List<File> listJavaFiles(File sourceRoot) {
+        List<File> javaFiles = new ArrayList<>();
+        if (!sourceRoot.isDirectory()) {
+            return javaFiles;
+        }
+        try (Stream<Path> paths = Files.walk(sourceRoot.toPath())) {
+            paths.filter(p -> p.toString().endsWith(".java"))
+                 .map(Path::toFile)
+                 .forEach(javaFiles::add);
+        } catch (IOException e) {
+            log.warn("Error indexing source root {}: {}", sourceRoot, e.getMessage());
+        }
+        return javaFiles;
+    }
+
+    /**
+     * Returns a new snapshot in which the given files are replaced or removed.
+     * Only the changed files need to be parsed; the symbols of all other files are reused.
+     */
+    public SymbolIndex withFiles(Map<String, FileSymbols> updatedFiles, Collection<String> removedPaths) {
+        Map<String, FileSymbols> files = new HashMap<>(filesByPath);
+        files.keySet().removeAll(removedPaths);
+        files.putAll(updatedFiles);
+        return new SymbolIndex(files);
+    }
+
+    /**
+     * Whether the types declared in the given files, their resolved supertypes or their
+     * repository entity types differ between this snapshot and another one
+     */
+    public boolean hasHierarchyChanges(SymbolIndex other, Collection<String> paths) {
+        for (String path : paths) {
+            Set<String> typeNames = typeNames(filesByPath.get(path));
+            if (!typeNames.equals(typeNames(other.filesByPath.get(path)))) {
+                return true;
+            }
+            for (String typeName : typeNames) {
+                if (getType(typeName).isInterface != other.getType(typeName).isInterface
+                        || !getSupertypes(typeName).equals(other.getSupertypes(typeName))
+                        || !Objects.equals(getEntityType(typeName), other.getEntityType(typeName))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static Set<String> typeNames(FileSymbols fileSymbols) {
+        if (fileSymbols == null) {
+            return Collections.emptySet();
+        }
+        return fileSymbols.types.stream().map(t -> t.qualifiedName).collect(Collectors.toSet());
+    }
+
+    /**
+     * Extracts the symbols of one source file, or returns null if it cannot be parsed
+     */
+    static FileSymbols indexFile(File file, ParsedFileCache parsedFileCache, JavaParser javaParser) {
+        try {
+            Optional<CompilationUnit> parsed = parsedFileCache.get(file, javaParser);
+            if (!parsed.isPresent()) {
+                log.warn("Failed to parse file: {}", file);
+                return null;
+            }
+            return extractSymbols(file, parsed.get());
+        } catch (FileNotFoundException e) {
+            log.warn("Error reading file: {}", file);
+            return null;
+        }
+    }
+
+    private static FileSymbols extractSymbols(File file, CompilationUnit cu) {
+        String packageName = cu.getPackageDeclaration().map(pd -> pd.getNameAsString()).orElse("");
+
+        Map<String, String> singleImports = new HashMap<>();
+        List<String> wildcardImports = new ArrayList<>();
+        for (ImportDeclaration importDecl : cu.getImports()) {
+            if (importDecl.isStatic()) {
+                continue;
+            }
+            String importName = importDecl.getNameAsString();
+            if (importDecl.isAsterisk()) {
+                wildcardImports.add(importName);
+            } else {
+                singleImports.put(importName.substring(importName.lastIndexOf('.') + 1), importName);
+            }
+        }
+
+        List<TypeInfo> types = new ArrayList<>();
+        for (ClassOrInterfaceDeclaration decl : cu.findAll(ClassOrInterfaceDeclaration.class)) {
+            Optional<String> qualifiedName = decl.getFullyQualifiedName();
+            if (!qualifiedName.isPresent()) {
+                continue; // Local classes have no stable name
+            }
+
+            List<String> declaredSupertypes = new ArrayList<>();
+            String declaredEntityType = null;
+            List<ClassOrInterfaceType> supertypeNodes = new ArrayList<>(decl.getExtendedTypes());
+            supertypeNodes.addAll(decl.getImplementedTypes());
+            for (ClassOrInterfaceType supertype : supertypeNodes) {
+                declaredSupertypes.add(supertype.getNameWithScope());
+                if (declaredEntityType == null && decl.isInterface()
+                        && supertype.getNameAsString().endsWith("Repository")) {
+                    declaredEntityType = supertype.getTypeArguments()
+                                                  .filter(args -> !args.isEmpty())
+                                                  .map(args -> eraseType(args.get(0)))
+                                                  .orElse(null);
+                }
+            }
+
+            List<MethodInfo> methods = new ArrayList<>();
+            for (MethodDeclaration method : decl.getMethods()) {
+                Position begin = method.getBegin().orElse(Position.HOME);
+                Position end = method.getEnd().orElse(Position.HOME);
+                methods.add(new MethodInfo(
+                    method.getNameAsString(),
+                    method.getParameters().stream().map(p -> p.getType().asString()).collect(Collectors.toList()),
+                    annotationNames(method.getAnnotations()),
+                    method.isDefault(),
+                    method.getBody().isPresent(),
+                    begin.line, begin.column, end.line, end.column));
+            }
+
+            types.add(new TypeInfo(
+                qualifiedName.get(),
+                decl.getNameAsString(),
+                packageName,
+                file,
+                decl.isInterface(),
+                annotationNames(decl.getAnnotations()),
+                Collections.unmodifiableList(declaredSupertypes),
+                declaredEntityType,
+                Collections.unmodifiableList(methods)));
+        }
+
+        return new FileSymbols(file, packageName, singleImports, wildcardImports, types);
+    }
+
+    private static Set<String> annotationNames(List<AnnotationExpr> annotations) {
+        Set<String> names = new HashSet<>();
+        for (AnnotationExpr annotation : annotations) {
+            String name = annotation.getNameAsString();
+            names.add(name.substring(name.lastIndexOf('.') + 1));
+        }
+        return Collections.unmodifiableSet(names);
+    }
+
+    private static String eraseType(Type type) {
+        return type.isClassOrInterfaceType()
+            ? type.asClassOrInterfaceType().getNameWithScope()
+            : type.asString();
+    }
+
+    /**
+     * Returns the indexed type with the given fully qualified name, or null
+     */
+    public TypeInfo getType(String qualifiedName) {
+        return typesByName.get(qualifiedName);
+    }
+
+    /**
+     * Returns the source file declaring the given type, or null if it is not indexed
+     */
+    public File getFile(String qualifiedName) {
+        TypeInfo type = typesByName.get(qualifiedName);
+        return type != null ? type.file : null;
+    }
+
+    /**
+     * Fully qualified names of all indexed types with the given simple name
+     */
+    public List<String> getTypesBySimpleName(String simpleName) {
+        return typeNamesBySimpleName.getOrDefault(simpleName, Collections.emptyList());
+    }
+
+    /**
+     * Concrete classes that extend or implement the given type, directly or transitively
+     */
+    public List<String> getImplementors(String qualifiedName) {
+        return implementorsByType.getOrDefault(qualifiedName, Collections.emptyList());
+    }
+
+    /**
+     * Fully qualified names of the directly extended and implemented types
+     */
+    public List<String> getSupertypes(String qualifiedName) {
+        return supertypesByType.getOrDefault(qualifiedName, Collections.emptyList());
+    }
+
+    /**
+     * The entity managed by a repository type, or null if the type is not a repository
+     */
+    public String getEntityType(String repositoryName) {
+        return entityTypeByRepository.get(repositoryName);
+    }
+
+    public Collection<TypeInfo> getTypes() {
+        return Collections.unmodifiableCollection(typesByName.values());
+    }
+
+    public Map<String, FileSymbols> getFiles() {
+        return filesByPath;
+    }
+
+    public int getTypeCount() {
+        return typesByName.size();
+    }
+
+    /**
+     * Resolves a type name as written inside the given type to a fully qualified name,
+     * using that type's imports and package, then the index itself.
+     * Returns null if the name cannot be resolved.
+     */
+    public String resolveType(String typeName, String contextTypeName) {
+        TypeInfo context = typesByName.get(contextTypeName);
+        FileSymbols fileSymbols = context != null ? filesByPath.get(context.file.getAbsolutePath()) : null;
+        if (fileSymbols != null) {
+            return resolveType(fileSymbols, typeName);
+        }
+
+        // The context is not indexed: try its package, then a unique simple name
+        int lastDot = contextTypeName.lastIndexOf('.');
+        if (lastDot > 0) {
+            String samePackage = contextTypeName.substring(0, lastDot) + "." + typeName;
+            if (typesByName.containsKey(samePackage)) {
+                return samePackage;
+            }
+        }
+        List<String> candidates = getTypesBySimpleName(typeName);
+        return candidates.size() == 1 ? candidates.get(0) : null;
+    }
+
+    private String resolveType(FileSymbols fileSymbols, String typeName) {
+        if (typesByName.containsKey(typeName)) {
+            return typeName;
+        }
+
+        // Qualified references such as Outer.Inner resolve through their first segment
+        int firstDot = typeName.indexOf('.');
+        String head = firstDot > 0 ? typeName.substring(0, firstDot) : typeName;
+        String tail = firstDot > 0 ? typeName.substring(firstDot) : "";
+
+        String imported = fileSymbols.singleImports.get(head);
+        if (imported != null) {
+            return imported + tail;
+        }
+
+        String samePackage = fileSymbols.packageName.isEmpty() ? typeName : fileSymbols.packageName + "." + typeName;
+        if (typesByName.containsKey(samePackage)) {
+            return samePackage;
+        }
+
+        for (String wildcard : fileSymbols.wildcardImports) {
+            String candidate = wildcard + "." + typeName;
+            if (typesByName.containsKey(candidate)) {
+                return candidate;
+            }
+        }
+
+        if (firstDot > 0) {
+            return null;
+        }
+        List<String> candidates = getTypesBySimpleName(typeName);
+        return candidates.size() == 1 ? candidates.get(0) : null;
+    }
+
+    private Set<String> collectSupertypes(String qualifiedName) {
+        Set<String> result = new LinkedHashSet<>();
+        Deque<String> pending = new ArrayDeque<>();
+        pending.push(qualifiedName);
+        while (!pending.isEmpty()) {
+            for (String supertype : getSupertypes(pending.pop())) {
+                if (result.add(supertype)) {
+                    pending.push(supertype);
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,79 @@
+package com.sbtl1.mod1.util;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.type.Type;
+import com.github.javaparser.resolution.SymbolResolver;
+import com.github.javaparser.resolution.TypeSolver;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.resolution.types.ResolvedType;
+import com.github.javaparser.symbolsolver.JavaSymbolSolver;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * A symbol resolver that delegates to a symbol solver owned by the calling thread.
+ * The symbol solver and its type solvers keep unsynchronized caches, so compilation
+ * units shared between threads through the parse cache must never resolve symbols
+ * through the solver of the thread that happened to parse them.
+ * <p>
+ * Type solvers also cache the source files they parse, so {@link #reset()} makes every
+ * thread create a fresh solver on its next use once sources have changed.
+ */
+class ThreadLocalSymbolResolver implements SymbolResolver {
+    private final Supplier<TypeSolver> typeSolverFactory;
+    private final AtomicInteger generation = new AtomicInteger();
+    private final ThreadLocal<Solver> solvers = new ThreadLocal<>();
+
+    private static class Solver {
+        final int generation;
+        final JavaSymbolSolver symbolSolver;
+
+        Solver(int generation, JavaSymbolSolver symbolSolver) {
+            this.generation = generation;
+            this.symbolSolver = symbolSolver;
+        }
+    }
+
+    ThreadLocalSymbolResolver(Supplier<TypeSolver> typeSolverFactory) {
+        this.typeSolverFactory = typeSolverFactory;
+    }
+
+    /**
+     * Discards the solvers of all threads
+     */
+    void reset() {
+        generation.incrementAndGet();
+    }
+
+    private JavaSymbolSolver solver() {
+        int current = generation.get();
+        Solver solver = solvers.get();
+        if (solver == null || solver.generation != current) {
+            solver = new Solver(current, new JavaSymbolSolver(typeSolverFactory.get()));
+            solvers.set(solver);
+        }
+        return solver.symbolSolver;
+    }
+
+    @Override
+    public <T> T resolveDeclaration(Node node, Class<T> resultClass) {
+        return solver().resolveDeclaration(node, resultClass);
+    }
+
+    @Override
+    public <T> T toResolvedType(Type javaparserType, Class<T> resultClass) {
+        return solver().toResolvedType(javaparserType, resultClass);
+    }
+
+    @Override
+    public ResolvedType calculateType(Expression expression) {
+        return solver().calculateType(expression);
+    }
+
+    @Override
+    public ResolvedReferenceTypeDeclaration toTypeDeclaration(Node node) {
+        return solver().toTypeDeclaration(node);
+    }
+}
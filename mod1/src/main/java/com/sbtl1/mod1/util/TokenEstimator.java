@@ -0,0 +1,88 @@
+package com.sbtl1.mod1.util;
+
+/**
+ * Estimates how many tokens an LLM tokenizer splits a text into, without a vocabulary.
+ * Byte-pair encodings keep common words whole and split identifiers at case and digit
+ * boundaries, so the estimate counts:
+ * <ul>
+ *   <li>one token per {@value #WORD_PIECE_LENGTH} letters of each word piece, where words are
+ *       split into pieces at lower-to-upper case changes and between letters and digits;</li>
+ *   <li>one token per {@value #DIGIT_GROUP_LENGTH} digits;</li>
+ *   <li>one token per punctuation character, per character outside ASCII and per line break;</li>
+ *   <li>one token for indentation or any other run of more than one blank, while single spaces
+ *       are taken to merge into the following word.</li>
+ * </ul>
+ * Counting starts afresh after each line break, so the estimate of text made of whole lines
+ * is the sum of the estimates of its lines, which lets a document be budgeted part by part.
+ */
+public final class TokenEstimator {
+    private static final int WORD_PIECE_LENGTH = 6;
+    private static final int DIGIT_GROUP_LENGTH = 3;
+
+    private TokenEstimator() {
+    }
+
+    /**
+     * Estimates the number of tokens in a text
+     */
+    public static int estimate(CharSequence text) {
+        int tokens = 0;
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (c == '\n') {
+                tokens++;
+                i++;
+            } else if (c == ' ' || c == '\t' || c == '\r') {
+                int end = i + 1;
+                while (end < length && isBlank(text.charAt(end))) {
+                    end++;
+                }
+                if (end - i > 1) {
+                    tokens++;
+                }
+                i = end;
+            } else if (isWordChar(c)) {
+                int end = i + 1;
+                while (end < length && isWordChar(text.charAt(end))) {
+                    end++;
+                }
+                tokens += estimateWord(text, i, end);
+                i = end;
+            } else {
+                tokens++;
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    private static int estimateWord(CharSequence text, int begin, int end) {
+        int tokens = 0;
+        int pieceStart = begin;
+        for (int i = begin + 1; i <= end; i++) {
+            if (i == end || isPieceBoundary(text.charAt(i - 1), text.charAt(i))) {
+                int pieceLength = i - pieceStart;
+                int perToken = Character.isDigit(text.charAt(pieceStart)) ? DIGIT_GROUP_LENGTH : WORD_PIECE_LENGTH;
+                tokens += (pieceLength + perToken - 1) / perToken;
+                pieceStart = i;
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean isPieceBoundary(char previous, char current) {
+        return (Character.isLowerCase(previous) && Character.isUpperCase(current))
+            || Character.isDigit(previous) != Character.isDigit(current)
+            || previous == '_' || current == '_';
+    }
+
+    private static boolean isWordChar(char c) {
+        return c < 128 && (Character.isLetterOrDigit(c) || c == '_');
+    }
+
+    private static boolean isBlank(char c) {
+        return c == ' ' || c == '\t' || c == '\r';
+    }
+}
@@ -0,0 +1,131 @@
+package com.sbtl1.mod1.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalysisResultCacheTest {
+    private static final String CONTROLLER = "a.OrderController";
+
+    @TempDir
+    Path sourceRoot;
+
+    private Path controllerFile;
+    private Path entityFile;
+    private AnalysisResultCache cache;
+
+    @BeforeEach
+    void createFiles() throws IOException {
+        controllerFile = Files.writeString(sourceRoot.resolve("OrderController.java"), "class OrderController {}\n");
+        entityFile = Files.writeString(sourceRoot.resolve("Order.java"), "class Order {}\n");
+        cache = new AnalysisResultCache();
+    }
+
+    private static JavaParserCodeFlowAnalyzer.MethodCall call(String className, String methodName) {
+        return new JavaParserCodeFlowAnalyzer.MethodCall("target", className, methodName);
+    }
+
+    private JavaParserCodeFlowAnalyzer.CallGraph graph(Map<String, AnalysisOptions.Limit> frontier) {
+        JavaParserCodeFlowAnalyzer.CallGraph callGraph = new JavaParserCodeFlowAnalyzer.CallGraph();
+        callGraph.addNode(CONTROLLER, "create", List.of(call("a.OrderService", "place")));
+        callGraph.addNode(CONTROLLER, "list", List.of(call("a.OrderService", "find")));
+        callGraph.addSourceFile(controllerFile.toString());
+        callGraph.setFrontier(frontier);
+        return callGraph;
+    }
+
+    @Test
+    void sharesResultsAcrossParallelismAndTimeout() {
+        AnalysisOptions options = AnalysisOptions.defaults();
+        AnalysisResultCache.Entry entry = cache.put(CONTROLLER, "create", options, graph(Map.of()));
+
+        assertSame(entry, cache.get(CONTROLLER, "create", options.withParallel(!options.isParallel())));
+        assertSame(entry, cache.get(CONTROLLER, "create", options.withTimeoutMillis(1234)));
+        assertNull(cache.get(CONTROLLER, "create", options.withMaxDepth(options.getMaxDepth() + 1)));
+        assertNull(cache.get(CONTROLLER, "list", options));
+        assertEquals(2L, cache.getStats().get("hits"));
+        assertEquals(2L, cache.getStats().get("misses"));
+    }
+
+    @Test
+    void doesNotCacheGraphsWithoutSourcesOrCutShortByTheTimeout() {
+        AnalysisOptions options = AnalysisOptions.defaults();
+        JavaParserCodeFlowAnalyzer.CallGraph notFound = new JavaParserCodeFlowAnalyzer.CallGraph();
+
+        assertNotNull(cache.put(CONTROLLER, "missing", options, notFound));
+        assertNotNull(cache.put(CONTROLLER, "create", options,
+                                graph(Map.of("a.OrderService.place", AnalysisOptions.Limit.TIMEOUT))));
+        assertEquals(0, cache.getStats().get("size"));
+
+        cache.put(CONTROLLER, "create", options, graph(Map.of("a.OrderService.place", AnalysisOptions.Limit.DEPTH)));
+        assertEquals(1, cache.getStats().get("size"));
+    }
+
+    @Test
+    void identifiesGraphsByContentAndFrontier() {
+        AnalysisOptions options = AnalysisOptions.defaults();
+        JavaParserCodeFlowAnalyzer.CallGraph reordered = new JavaParserCodeFlowAnalyzer.CallGraph();
+        reordered.addNode(CONTROLLER, "list", List.of(call("a.OrderService", "find")));
+        reordered.addNode(CONTROLLER, "create", List.of(call("a.OrderService", "place")));
+        JavaParserCodeFlowAnalyzer.CallGraph other = graph(Map.of());
+        other.addNode("a.OrderService", "place", List.of());
+
+        String eTag = cache.put(CONTROLLER, "create", options, graph(Map.of())).getGraphETag();
+        assertEquals(eTag, cache.put(CONTROLLER, "create", options, reordered).getGraphETag());
+        assertNotEquals(eTag, cache.put(CONTROLLER, "create", options, other).getGraphETag());
+        assertNotEquals(eTag, cache.put(CONTROLLER, "create", options,
+                                        graph(Map.of("a.OrderService.place", AnalysisOptions.Limit.NODES)))
+                                   .getGraphETag());
+    }
+
+    @Test
+    void computesStrongETags() {
+        String eTag = AnalysisResultCache.computeETag("# Call flow\n");
+
+        assertTrue(eTag.matches("\"[0-9a-f]{32}\""), eTag);
+        assertEquals(eTag, AnalysisResultCache.computeETag("# Call flow\n"));
+        assertNotEquals(eTag, AnalysisResultCache.computeETag("# Call flow\n\n"));
+    }
+
+    @Test
+    void dropsResultsWhoseSourcesChanged() throws IOException {
+        AnalysisOptions options = AnalysisOptions.defaults();
+        cache.put(CONTROLLER, "create", options, graph(Map.of()));
+
+        Files.writeString(controllerFile, "class OrderController { void create() {} }\n");
+
+        assertNull(cache.get(CONTROLLER, "create", options));
+        assertEquals(1L, cache.getStats().get("invalidations"));
+        assertEquals(0, cache.getStats().get("size"));
+    }
+
+    @Test
+    void keepsTheSnippetDocumentOfTheLastBudget() throws IOException {
+        AnalysisResultCache.Entry entry = cache.put(CONTROLLER, "create", AnalysisOptions.defaults(), graph(Map.of()));
+        long graphWeight = (Long) cache.getStats().get("weight");
+
+        AnalysisResultCache.SnippetDocument full = cache.putSnippetDocument(entry, "full", List.of(entityFile.toString()));
+        assertSame(full, entry.getSnippetDocument());
+        assertNull(entry.getSnippetDocument(500));
+        assertTrue((Long) cache.getStats().get("weight") > graphWeight);
+
+        AnalysisResultCache.SnippetDocument budgeted = cache.putSnippetDocument(entry, "short", 500,
+                                                                                List.of(entityFile.toString()));
+        assertSame(budgeted, entry.getSnippetDocument(500));
+        assertEquals(500, budgeted.getMaxTokens());
+        assertNull(entry.getSnippetDocument());
+
+        // A change to a file outside the graph only stales the document
+        Files.writeString(entityFile, "class Order { long id; }\n");
+        assertNull(entry.getSnippetDocument(500));
+        assertSame(entry, cache.get(CONTROLLER, "create", AnalysisOptions.defaults()));
+    }
+}
@@ -0,0 +1,89 @@
+package com.sbtl1.mod1.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CallGraphExporterTest {
+    // Names no Java source would use, but that the exporters must not break on
+    private static final String FROM_CLASS = "a.Quote\"Back\\slash";
+    private static final String FROM_METHOD = "run";
+    private static final String TO_CLASS = "a.Lt<Gt>&Amp";
+    private static final String TO_METHOD = "con\u0001trol";
+
+    private static JavaParserCodeFlowAnalyzer.CallGraph graph() {
+        JavaParserCodeFlowAnalyzer.CallGraph callGraph = new JavaParserCodeFlowAnalyzer.CallGraph();
+        callGraph.addNode(FROM_CLASS, FROM_METHOD,
+                          List.of(new JavaParserCodeFlowAnalyzer.MethodCall("target", TO_CLASS, TO_METHOD)));
+        callGraph.setFrontier(Map.of(TO_CLASS + "." + TO_METHOD, AnalysisOptions.Limit.DEPTH));
+        return callGraph.compact();
+    }
+
+    private static String export(CallGraphExporter.Format format) throws IOException {
+        StringWriter writer = new StringWriter();
+        CallGraphExporter.export(graph(), FROM_CLASS, FROM_METHOD, format, writer);
+        return writer.toString();
+    }
+
+    @Test
+    void escapesQuotesAndBackslashesInDotIds() throws IOException {
+        String dot = export(CallGraphExporter.Format.DOT);
+
+        assertTrue(dot.startsWith("digraph \"a.Quote\\\"Back\\\\slash.run\" {\n"), dot);
+        assertTrue(dot.contains("  \"a.Quote\\\"Back\\\\slash.run\" [style=bold];\n"), dot);
+        assertTrue(dot.contains("  \"a.Lt<Gt>&Amp.con\u0001trol\" [style=dashed"), dot);
+        assertTrue(dot.contains("  \"a.Quote\\\"Back\\\\slash.run\" -> \"a.Lt<Gt>&Amp.con\u0001trol\";\n"), dot);
+    }
+
+    @Test
+    void writesWellFormedGraphMl() throws Exception {
+        String graphMl = export(CallGraphExporter.Format.GRAPHML);
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                                                  .parse(new InputSource(new StringReader(graphMl)));
+
+        List<String> nodeIds = new ArrayList<>();
+        NodeList nodes = document.getElementsByTagName("node");
+        for (int i = 0; i < nodes.getLength(); i++) {
+            nodeIds.add(((Element) nodes.item(i)).getAttribute("id"));
+        }
+        String target = TO_CLASS + ".con�trol";
+        assertEquals(List.of(FROM_CLASS + "." + FROM_METHOD, target), nodeIds);
+
+        NodeList edges = document.getElementsByTagName("edge");
+        assertEquals(1, edges.getLength());
+        Element edge = (Element) edges.item(0);
+        assertEquals(FROM_CLASS + "." + FROM_METHOD, edge.getAttribute("source"));
+        assertEquals(target, edge.getAttribute("target"));
+    }
+
+    @Test
+    void writesOneParseableJsonRecordPerCall() throws IOException {
+        String ndjson = export(CallGraphExporter.Format.NDJSON);
+        String[] lines = ndjson.split("\n");
+
+        assertEquals(1, lines.length);
+        JsonNode record = new ObjectMapper().readTree(lines[0]);
+        assertEquals(FROM_CLASS + "." + FROM_METHOD, record.get("from").asText());
+        assertEquals(TO_CLASS + "." + TO_METHOD, record.get("to").asText());
+    }
+
+    @Test
+    void rejectsUnknownFormats() {
+        assertEquals(CallGraphExporter.Format.GRAPHML, CallGraphExporter.Format.of("GraphML"));
+        assertThrows(IllegalArgumentException.class, () -> CallGraphExporter.Format.of("svg"));
+    }
+}
@@ -0,0 +1,98 @@
+package com.sbtl1.mod1.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactCallGraphTest {
+
+    private static JavaParserCodeFlowAnalyzer.MethodCall call(String className, String methodName) {
+        return new JavaParserCodeFlowAnalyzer.MethodCall("target", className, methodName);
+    }
+
+    /**
+     * OrderController.create → OrderService.place (twice), OrderRepository.save;
+     * OrderService.place → OrderRepository.save; OrderService.audit calls nothing
+     */
+    private static Map<String, Map<String, List<JavaParserCodeFlowAnalyzer.MethodCall>>> callMap() {
+        Map<String, Map<String, List<JavaParserCodeFlowAnalyzer.MethodCall>>> callMap = new LinkedHashMap<>();
+        Map<String, List<JavaParserCodeFlowAnalyzer.MethodCall>> controller = new LinkedHashMap<>();
+        controller.put("create", List.of(call("a.OrderService", "place"), call("a.OrderRepository", "save"),
+                                         call("a.OrderService", "place")));
+        callMap.put("a.OrderController", controller);
+        Map<String, List<JavaParserCodeFlowAnalyzer.MethodCall>> service = new LinkedHashMap<>();
+        service.put("place", List.of(call("a.OrderRepository", "save")));
+        service.put("audit", List.of());
+        callMap.put("a.OrderService", service);
+        return callMap;
+    }
+
+    @Test
+    void keepsClassesMethodsAndCallsInOrder() {
+        Map<String, Map<String, List<JavaParserCodeFlowAnalyzer.MethodCall>>> callMap = callMap();
+        CompactCallGraph graph = CompactCallGraph.of(callMap);
+
+        assertEquals(List.copyOf(callMap.keySet()), List.copyOf(graph.getClasses()));
+        for (Map.Entry<String, Map<String, List<JavaParserCodeFlowAnalyzer.MethodCall>>> classEntry : callMap.entrySet()) {
+            assertEquals(List.copyOf(classEntry.getValue().keySet()), List.copyOf(graph.getMethods(classEntry.getKey())));
+            classEntry.getValue().forEach((methodName, calls) ->
+                assertEquals(calls, graph.getCalls(classEntry.getKey(), methodName)));
+        }
+        assertEquals(3, graph.getNodeCount());
+        assertEquals(4, graph.getEdgeCount());
+        assertEquals(4, graph.getAllCalls().size());
+    }
+
+    @Test
+    void resolvesEdgesToNodesOrCallees() {
+        CompactCallGraph graph = CompactCallGraph.of(callMap());
+        int create = graph.findNode("a.OrderController", "create");
+        int place = graph.findNode("a.OrderService", "place");
+        assertEquals(-1, graph.findNode("a.OrderRepository", "save"));
+
+        int first = graph.getEdgeStart(create);
+        assertEquals(place, graph.getEdgeTarget(first));
+        assertEquals(-1, graph.getEdgeTarget(first + 1));
+        assertEquals(call("a.OrderRepository", "save"), graph.getEdgeCall(first + 1));
+        assertEquals(graph.findCallee("a.OrderRepository", "save"), graph.getEdgeCallee(first + 1));
+        assertEquals("save", graph.getCalleeMethodName(graph.getEdgeCallee(first + 1)));
+        assertEquals("a.OrderRepository", graph.getClassNameById(graph.findClass("a.OrderRepository")));
+        assertSame(graph.getEdgeCall(first), graph.getEdgeCall(first + 2));
+        assertEquals(first + 3, graph.getEdgeStart(place));
+    }
+
+    @Test
+    void indexesCallersOncePerCallingNode() {
+        CompactCallGraph graph = CompactCallGraph.of(callMap());
+        int create = graph.findNode("a.OrderController", "create");
+        int place = graph.findNode("a.OrderService", "place");
+
+        assertTrue(graph.findCallee("a.OrderRepository", "save") >= 0);
+        assertEquals(-1, graph.findCallee("a.OrderController", "create"));
+        assertArrayEquals(new int[] {create}, graph.getCallerNodes("a.OrderService", "place"));
+        assertArrayEquals(new int[] {create, place}, graph.getCallerNodes("a.OrderRepository", "save"));
+        assertArrayEquals(new int[0], graph.getCallerNodes("a.OrderService", "audit"));
+        assertEquals(Set.of("save"), graph.getCalledMethods("a.OrderRepository"));
+        assertTrue(graph.getMethods("a.OrderRepository").isEmpty());
+    }
+
+    @Test
+    void compactedCallGraphAnswersLikeTheMaps() {
+        JavaParserCodeFlowAnalyzer.CallGraph callGraph = new JavaParserCodeFlowAnalyzer.CallGraph();
+        callMap().forEach((className, methods) -> methods.forEach((methodName, calls) ->
+            callGraph.addNode(className, methodName, calls)));
+        Map<String, Map<String, List<JavaParserCodeFlowAnalyzer.MethodCall>>> before = callGraph.getCallMap();
+        List<String> callersBefore = callGraph.getCallers("a.OrderRepository", "save");
+
+        callGraph.compact();
+
+        assertEquals(before, callGraph.getCallMap());
+        assertEquals(Set.copyOf(callersBefore), Set.copyOf(callGraph.getCallers("a.OrderRepository", "save")));
+        assertThrows(IllegalStateException.class, () -> callGraph.addNode("a.Other", "run", List.of()));
+    }
+}
@@ -0,0 +1,88 @@
+package com.sbtl1.mod1.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrecomputedCallGraphTest {
+
+    private static JavaParserCodeFlowAnalyzer.MethodResult result(String sourceFile, String className,
+                                                                  String methodName,
+                                                                  JavaParserCodeFlowAnalyzer.MethodCall... calls) {
+        JavaParserCodeFlowAnalyzer.MethodResult result = new JavaParserCodeFlowAnalyzer.MethodResult();
+        result.sourceFile = sourceFile;
+        result.addNode(className, methodName, List.of(calls));
+        result.visitCallees(List.of(calls));
+        return result;
+    }
+
+    private static PrecomputedCallGraph graph() {
+        Map<String, JavaParserCodeFlowAnalyzer.MethodResult> results = new HashMap<>();
+        results.put("a.OrderController.create", result(
+            "/src/a/OrderController.java", "a.OrderController", "create",
+            new JavaParserCodeFlowAnalyzer.MethodCall("orderService", "a.OrderService", "place"),
+            new JavaParserCodeFlowAnalyzer.MethodCall("this", "a.OrderController", "audit")));
+        results.put("a.OrderService.place", result(
+            "/src/a/OrderService.java", "a.OrderService", "place",
+            new JavaParserCodeFlowAnalyzer.MethodCall("repository", "a.OrderRepository", "save")));
+        // A method without a source file, such as one of a library interface
+        results.put("a.OrderRepository.save", new JavaParserCodeFlowAnalyzer.MethodResult());
+        return new PrecomputedCallGraph("/src", List.of(new EntryPoint("a.OrderController", "create")), results);
+    }
+
+    private static PrecomputedCallGraph roundTrip(PrecomputedCallGraph graph) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            graph.write(out);
+        }
+        return PrecomputedCallGraph.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+
+    @Test
+    void readsBackWhatWasWritten() throws IOException {
+        PrecomputedCallGraph written = graph();
+        PrecomputedCallGraph read = roundTrip(written);
+
+        assertEquals("/src", read.getSourceRoot());
+        assertEquals(written.getEntryPoints(), read.getEntryPoints());
+        assertEquals(written.getMethodResults().keySet(), read.getMethodResults().keySet());
+        assertTrue(read.isComplete());
+        for (String signature : written.getMethodResults().keySet()) {
+            JavaParserCodeFlowAnalyzer.MethodResult expected = written.getMethodResults().get(signature);
+            JavaParserCodeFlowAnalyzer.MethodResult actual = read.getMethodResults().get(signature);
+            assertEquals(expected.sourceFile, actual.sourceFile, signature);
+            assertEquals(expected.nodeClassNames, actual.nodeClassNames, signature);
+            assertEquals(expected.nodeMethodNames, actual.nodeMethodNames, signature);
+            assertEquals(expected.nodeCalls, actual.nodeCalls, signature);
+            assertEquals(expected.nextClassNames, actual.nextClassNames, signature);
+            assertEquals(expected.nextMethodNames, actual.nextMethodNames, signature);
+        }
+    }
+
+    @Test
+    void keepsTheObjectNamesOfCalls() throws IOException {
+        // MethodCall.equals ignores the object name, so compare it separately
+        JavaParserCodeFlowAnalyzer.MethodResult read = roundTrip(graph()).getMethodResults().get("a.OrderController.create");
+        assertEquals("orderService", read.nodeCalls.get(0).get(0).objectName);
+        assertEquals("this", read.nodeCalls.get(0).get(1).objectName);
+    }
+
+    @Test
+    void dropsTheResultsOfChangedFiles() {
+        PrecomputedCallGraph remaining = graph().withoutFiles(Set.of("/src/a/OrderService.java"));
+
+        assertEquals(Set.of("a.OrderController.create", "a.OrderRepository.save"),
+                     remaining.getMethodResults().keySet());
+        assertFalse(remaining.isComplete());
+    }
+}
@@ -0,0 +1,122 @@
+package com.sbtl1.mod1.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnippetDocumentRendererTest {
+    private static final String CONTROLLER = "shop.OrderController";
+
+    @TempDir
+    Path sourceRoot;
+
+    private JavaParserCodeFlowAnalyzer analyzer;
+    private SnippetDocumentRenderer renderer;
+    private JavaParserCodeFlowAnalyzer.CallGraph callGraph;
+
+    @BeforeEach
+    void analyze() throws IOException {
+        write("OrderController.java",
+              "package shop;\n\n" +
+              "public class OrderController {\n" +
+              "    private final OrderService orderService = new OrderService();\n\n" +
+              "    public String create(String item) {\n" +
+              "        return orderService.place(item);\n" +
+              "    }\n" +
+              "}\n");
+        write("OrderService.java",
+              "package shop;\n\n" +
+              "public class OrderService {\n" +
+              "    private final OrderRepository repository = new OrderRepository();\n\n" +
+              "    public String place(String item) {\n" +
+              longBody("item") +
+              "        return repository.save(item);\n" +
+              "    }\n" +
+              "}\n");
+        write("OrderRepository.java",
+              "package shop;\n\n" +
+              "public class OrderRepository {\n" +
+              "    public String save(String item) {\n" +
+              longBody("item") +
+              "        return item;\n" +
+              "    }\n" +
+              "}\n");
+        analyzer = new JavaParserCodeFlowAnalyzer(sourceRoot.toFile(), new ParsedFileCache(),
+                                                  new MethodResolutionCache(), 1,
+                                                  JavaParserCodeFlowAnalyzer.TYPE_SOLVER_CACHE_UNBOUNDED);
+        renderer = new SnippetDocumentRenderer(analyzer);
+        callGraph = analyzer.analyzeCallFlow(CONTROLLER, "create");
+    }
+
+    @AfterEach
+    void close() {
+        analyzer.close();
+    }
+
+    /**
+     * Enough statements that the snippets of the service and repository alone exceed the
+     * smallest budget
+     */
+    private static String longBody(String variable) {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            body.append("        if (").append(variable).append(".length() == ").append(i)
+                .append(") { System.out.println(\"validating line ").append(i).append(" of the order\"); }\n");
+        }
+        return body.toString();
+    }
+
+    private void write(String fileName, String source) throws IOException {
+        File directory = sourceRoot.resolve("shop").toFile();
+        directory.mkdirs();
+        Files.writeString(directory.toPath().resolve(fileName), source);
+    }
+
+    @Test
+    void rendersEverySnippetWithoutABudget() {
+        String document = renderer.render(CONTROLLER, "create", callGraph, new HashSet<>());
+
+        assertTrue(document.contains("OrderService"), document);
+        assertTrue(document.contains("OrderRepository"), document);
+        assertTrue(document.contains("validating line 39"), document);
+        assertFalse(document.contains("Shortened to fit"), document);
+        assertTrue(TokenEstimator.estimate(document) > SnippetDocumentRenderer.MIN_MAX_TOKENS);
+    }
+
+    @Test
+    void fitsTheSmallestBudget() {
+        int maxTokens = SnippetDocumentRenderer.MIN_MAX_TOKENS;
+        String document = renderer.render(CONTROLLER, "create", callGraph, new HashSet<>(), null, maxTokens);
+
+        assertTrue(TokenEstimator.estimate(document) <= maxTokens, document);
+        assertTrue(document.contains("Shortened to fit " + maxTokens + " tokens"), document);
+        // The call hierarchy is kept whole, the snippets are what give way
+        assertTrue(document.contains("OrderService.place"), document);
+        assertTrue(document.contains("OrderRepository.save"), document);
+    }
+
+    @Test
+    void leavesADocumentWithinItsBudgetUnchanged() {
+        String unbudgeted = renderer.render(CONTROLLER, "create", callGraph, new HashSet<>());
+        String budgeted = renderer.render(CONTROLLER, "create", callGraph, new HashSet<>(), null, 100_000);
+
+        assertEquals(unbudgeted, budgeted);
+    }
+
+    @Test
+    void rejectsBudgetsTooSmallForTheHeadings() {
+        SnippetDocumentRenderer.checkMaxTokens(0);
+        SnippetDocumentRenderer.checkMaxTokens(SnippetDocumentRenderer.MIN_MAX_TOKENS);
+        assertThrows(IllegalArgumentException.class, () -> SnippetDocumentRenderer.checkMaxTokens(100));
+        assertThrows(IllegalArgumentException.class, () -> SnippetDocumentRenderer.checkMaxTokens(-1));
+    }
+}
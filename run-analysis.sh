@@ -31,12 +31,13 @@ echo "Starting Spring Boot application..."
 ./gradlew :mod1:bootRun &
 APP_PID=$!
 
-# Wait for app to start with timeout
+# Wait until the analyzer has warmed up. This only checks readiness; measure throughput
+# and latency with the load test instead (./gradlew :loadtest:loadTest)
 echo "Waiting for application to start..."
 MAX_RETRIES=30
 RETRY_COUNT=0
 while [ $RETRY_COUNT -lt $MAX_RETRIES ]; do
-    if curl -s http://localhost:32000/mod1/api/codeanalysis/flow/rest/UserController/getUsersAboveAge > /dev/null 2>&1; then
+    if curl -sf http://localhost:32000/mod1/actuator/health/analysis > /dev/null 2>&1; then
         echo "Application is up and running"
         break
     fi
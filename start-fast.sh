@@ -0,0 +1,24 @@
+#!/bin/bash
+
+# Starts mod1 with the class data sharing archive created by ./gradlew :mod1:cdsArchive.
+# If the jar was built with -Paot, the generated bean definitions are used as well.
+# Extra arguments are passed to the application, e.g. --codeanalysis.warmup.enabled=false
+
+set -e
+
+SCRIPT_DIR="$( cd "$( dirname "${BASH_SOURCE[0]}" )" && pwd )"
+CDS_DIR="$SCRIPT_DIR/mod1/build/cds"
+
+if [ ! -f "$CDS_DIR/mod1.jsa" ] || [ ! -f "$CDS_DIR/classpath.txt" ]; then
+  echo "No CDS archive found, creating it first..."
+  "$SCRIPT_DIR/gradlew" -p "$SCRIPT_DIR" :mod1:cdsArchive
+fi
+
+JVM_OPTS="-XX:SharedArchiveFile=$CDS_DIR/mod1.jsa -Xshare:auto"
+if [ -d "$SCRIPT_DIR/mod1/build/generated/aotSources" ]; then
+  JVM_OPTS="$JVM_OPTS -Dspring.aot.enabled=true"
+fi
+
+# The source root is resolved against the working directory
+cd "$SCRIPT_DIR"
+exec java $JVM_OPTS $JAVA_OPTS -cp "$(cat "$CDS_DIR/classpath.txt")" com.sbtl1.mod1.App "$@"